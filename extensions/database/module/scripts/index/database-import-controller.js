@@ -128,6 +128,10 @@ Refine.DatabaseImportController.prototype.getOptions = function() {
     } else {
       options.limit = -1;
     }
+    if (this._parsingPanelElmts.partitionCheckbox[0].checked) {
+      options.partitionColumn = $.trim(this._parsingPanelElmts.partitionColumnInput[0].value);
+      options.partitionCount = parseIntDefault(this._parsingPanelElmts.partitionCountInput[0].value, 1);
+    }
     options.storeBlankRows = this._parsingPanelElmts.storeBlankRowsCheckbox[0].checked;
     options.storeBlankCellsAsNulls = this._parsingPanelElmts.storeBlankCellsAsNullsCheckbox[0].checked;
 
@@ -153,6 +157,9 @@ Refine.DatabaseImportController.prototype._showParsingPanel = function() {
     this._parsingPanelElmts.database_discard.html($.i18n('database-parsing/discard'));
     this._parsingPanelElmts.database_limit_next.html($.i18n('database-parsing/limit-next'));
     this._parsingPanelElmts.database_limit.html($.i18n('database-parsing/limit'));
+    this._parsingPanelElmts.database_partition_next.html($.i18n('database-parsing/partition-next'));
+    this._parsingPanelElmts.database_partition.html($.i18n('database-parsing/partition'));
+    this._parsingPanelElmts.database_partition_count.html($.i18n('database-parsing/partition-count'));
     this._parsingPanelElmts.database_store_row.html($.i18n('database-parsing/store-row'));
     this._parsingPanelElmts.database_store_cell.html($.i18n('database-parsing/store-cell'));
 
@@ -213,6 +220,11 @@ Refine.DatabaseImportController.prototype._showParsingPanel = function() {
       this._parsingPanelElmts.skipCheckbox.prop("checked", true);
       this._parsingPanelElmts.skipInput.value[0].value = this._options.skipDataLines.toString();
     }
+    if (this._options.partitionColumn) {
+      this._parsingPanelElmts.partitionCheckbox.prop("checked", true);
+      this._parsingPanelElmts.partitionColumnInput[0].value = this._options.partitionColumn;
+      this._parsingPanelElmts.partitionCountInput[0].value = this._options.partitionCount.toString();
+    }
     if (this._options.storeBlankRows) {
       this._parsingPanelElmts.storeBlankRowsCheckbox.prop("checked", true);
     }
@@ -0,0 +1,439 @@
+/*
+ * Copyright (c) 2017, Tony Opara
+ *        All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * - Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * Neither the name of Google nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.refine.extension.database;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.refine.extension.database.model.DatabaseColumn;
+import com.google.refine.extension.database.model.DatabaseQueryInfo;
+import com.google.refine.importers.TabularImportingParserBase.TableDataReader;
+import com.google.refine.importing.ImportingJob;
+
+/**
+ * Reads the results of a query through a single forward-only result set,
+ * letting the driver fetch rows from the server as they are consumed.
+ *
+ * When a numeric key column is given, the query is split into ranges of that
+ * key which are read over separate connections in parallel. Rows of all the
+ * partitions are returned as they arrive, so only the rows of each range
+ * keep their order.
+ */
+public class DBQueryResultStreamingReader implements TableDataReader, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger("DBQueryResultStreamingReader");
+
+    /**
+     * Number of converted rows each partition may buffer ahead of the reader
+     */
+    static final int PARTITION_QUEUE_SIZE = 1000;
+
+    /**
+     * Time given to the partitions to stop reading when the reader is closed
+     */
+    static final int CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final ImportingJob job;
+    private final String querySource;
+    private final List<DatabaseColumn> dbColumns;
+    private final List<Partition> partitions;
+    private ExecutorService executor;
+    // rows of all partitions in parallel mode, followed by the end marker of each
+    private BlockingQueue<List<Object>> queue;
+
+    private int runningPartitions = 0;
+    private boolean usedHeaders = false;
+    private long processedRows = 0;
+
+    /**
+     * Number of rows the driver is asked to fetch per round trip by default
+     */
+    static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Reads the query sequentially over one connection.
+     */
+    public DBQueryResultStreamingReader(
+            ImportingJob job,
+            DatabaseService databaseService,
+            String querySource,
+            List<DatabaseColumn> columns,
+            DatabaseQueryInfo dbQueryInfo) throws DatabaseServiceException {
+        this(job, databaseService, querySource, columns, dbQueryInfo, null, 1, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * @param keyColumn name of a numeric column of the query used to split it,
+     *      or null to read the query sequentially
+     * @param partitionCount number of ranges of the key column read in parallel
+     * @param fetchSize number of rows the driver is asked to fetch per round trip
+     */
+    public DBQueryResultStreamingReader(
+            ImportingJob job,
+            DatabaseService databaseService,
+            String querySource,
+            List<DatabaseColumn> columns,
+            DatabaseQueryInfo dbQueryInfo,
+            String keyColumn,
+            int partitionCount,
+            int fetchSize) throws DatabaseServiceException {
+        this.job = job;
+        this.querySource = querySource;
+        this.dbColumns = columns;
+
+        DatabaseConfiguration dbConfig = dbQueryInfo.getDbConfig();
+        List<String> queries = keyColumn == null || partitionCount < 2
+                ? Collections.singletonList(dbQueryInfo.getQuery())
+                : splitQuery(databaseService, dbConfig, dbQueryInfo.getQuery(), keyColumn, partitionCount);
+
+        partitions = new ArrayList<Partition>(queries.size());
+        for (String query : queries) {
+            partitions.add(new Partition(databaseService, dbConfig, query, fetchSize));
+        }
+        if (partitions.size() > 1) {
+            queue = new ArrayBlockingQueue<List<Object>>(PARTITION_QUEUE_SIZE * partitions.size());
+            runningPartitions = partitions.size();
+            executor = Executors.newFixedThreadPool(partitions.size());
+            for (Partition partition : partitions) {
+                executor.submit(partition);
+            }
+            executor.shutdown();
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Streaming query in {} partition(s)", partitions.size());
+        }
+    }
+
+    @Override
+    public List<Object> getNextRowOfCells() throws IOException {
+        if (!usedHeaders) {
+            List<Object> row = new ArrayList<Object>(dbColumns.size());
+            for (DatabaseColumn cd : dbColumns) {
+                row.add(cd.getName());
+            }
+            usedHeaders = true;
+            return row;
+        }
+
+        List<Object> row = queue == null ? partitions.get(0).next() : takeRow();
+        if (row != null) {
+            processedRows++;
+            if (processedRows % 10000 == 0) {
+                setProgress(-1);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("[[ {} rows processed... ]]", processedRows);
+                }
+            }
+        }
+        return row;
+    }
+
+    /**
+     * @return the next row read by any of the partitions, or null once they all ended
+     */
+    private List<Object> takeRow() throws IOException {
+        while (runningPartitions > 0) {
+            List<Object> row;
+            try {
+                row = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            Partition ended = null;
+            for (Partition partition : partitions) {
+                if (row == partition.endMarker) {
+                    ended = partition;
+                }
+            }
+            if (ended == null) {
+                return row;
+            }
+            runningPartitions--;
+            if (ended.error instanceof IOException) {
+                throw (IOException) ended.error;
+            } else if (ended.error != null) {
+                throw new IOException(ended.error);
+            }
+            setProgress((partitions.size() - runningPartitions) * 100 / partitions.size());
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        if (executor == null) {
+            partitions.get(0).close();
+            return;
+        }
+        // the workers close the resources of their partitions as they stop
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Streaming query partitions still reading after {}s", CLOSE_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    private void setProgress(int percent) {
+        job.setProgress(percent, "Reading " + querySource);
+    }
+
+    /**
+     * Splits a query in ranges of equal width of its key column. The first and
+     * last ranges are left open so that no row is lost to rounding, and rows
+     * without a key are read with the last range.
+     */
+    static List<String> splitQuery(DatabaseService databaseService, DatabaseConfiguration dbConfig,
+            String query, String keyColumn, int partitionCount) throws DatabaseServiceException {
+        Connection connection = databaseService.openStreamingConnection(dbConfig);
+        try {
+            String quotedKey = quoteIdentifier(connection, keyColumn);
+            long min;
+            long max;
+            try (Statement statement = connection.createStatement();
+                    ResultSet rs = statement.executeQuery(databaseService.buildKeyRangeQuery(query, quotedKey))) {
+                if (!rs.next() || rs.getObject(1) == null) {
+                    return Collections.singletonList(query);
+                }
+                min = (long) Math.floor(rs.getDouble(1));
+                max = (long) Math.ceil(rs.getDouble(2));
+            }
+
+            long width;
+            try {
+                width = Math.subtractExact(max, min) / partitionCount + 1;
+            } catch (ArithmeticException e) {
+                return Collections.singletonList(query);
+            }
+            List<String> queries = new ArrayList<String>(partitionCount);
+            for (int i = 0; i < partitionCount; i++) {
+                Long lowerBound = i == 0 ? null : min + i * width;
+                Long upperBound = i == partitionCount - 1 ? null : min + (i + 1) * width;
+                queries.add(databaseService.buildRangeQuery(query, quotedKey, lowerBound, upperBound,
+                        i == partitionCount - 1));
+            }
+            return queries;
+        } catch (SQLException e) {
+            logger.error("SQLException::", e);
+            throw new DatabaseServiceException(true, e.getSQLState(), e.getErrorCode(), e.getMessage());
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Could not close connection", e);
+            }
+        }
+    }
+
+    /**
+     * Converts the textual values of a database row to cells, parsing numeric columns.
+     * @param row
+     * @param dbColumns
+     * @return
+     */
+    static List<Object> toRowOfCells(List<String> row, List<DatabaseColumn> dbColumns) {
+        List<Object> rowOfCells = new ArrayList<Object>(row.size());
+        
+        for (int j = 0; j < row.size() && j < dbColumns.size(); j++) {
+            
+             String text = row.get(j);
+             if (text == null || text.isEmpty()) {
+                 rowOfCells.add(null);
+             }else {
+                 DatabaseColumn col = dbColumns.get(j);
+                 if(col.getType() == DatabaseColumnType.NUMBER) {
+                     try {
+                         rowOfCells.add(Long.parseLong(text));
+                         continue;
+                     } catch (NumberFormatException e) {}
+                
+                  }else if(col.getType() == DatabaseColumnType.DOUBLE || col.getType() == DatabaseColumnType.FLOAT ) {
+                      try {
+                          double d = Double.parseDouble(text);
+                          if (!Double.isInfinite(d) && !Double.isNaN(d)) {
+                              rowOfCells.add(d);
+                              continue;
+                          }
+                      } catch (NumberFormatException e) {}
+                      
+                  }
+                 
+                 rowOfCells.add(text);
+             }
+             
+        }
+        return rowOfCells;
+    }
+
+    private static String quoteIdentifier(Connection connection, String identifier) throws SQLException {
+        String quote = connection.getMetaData().getIdentifierQuoteString();
+        if (quote == null || quote.trim().isEmpty()) {
+            return identifier;
+        }
+        return quote + identifier.replace(quote, quote + quote) + quote;
+    }
+
+    /**
+     * One result set read over its own connection. In parallel mode, rows are
+     * converted by a worker thread, which alone uses the connection, and
+     * handed over through the queue shared by all partitions.
+     */
+    private class Partition implements Runnable {
+
+        private final DatabaseService databaseService;
+        private final DatabaseConfiguration dbConfig;
+        private final String query;
+        private final int fetchSize;
+        // queued after the last row of the partition, compared by identity
+        private final List<Object> endMarker = new ArrayList<Object>(0);
+
+        private Connection connection;
+        private Statement statement;
+        private ResultSet resultSet;
+        private int columnCount;
+        private volatile Exception error;
+        private boolean done = false;
+
+        Partition(DatabaseService databaseService, DatabaseConfiguration dbConfig, String query,
+                int fetchSize) {
+            this.databaseService = databaseService;
+            this.dbConfig = dbConfig;
+            this.query = query;
+            this.fetchSize = fetchSize;
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<Object> row;
+                while (!Thread.currentThread().isInterrupted() && (row = fetch()) != null) {
+                    queue.put(row);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                close();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                // the reader was closed and does not wait for this partition anymore
+                return;
+            }
+            try {
+                queue.put(endMarker);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Reads the next row in the thread of the reader, in sequential mode.
+         *
+         * @return the next row of the partition, or null at the end
+         */
+        List<Object> next() throws IOException {
+            if (done) {
+                return null;
+            }
+            List<Object> row;
+            try {
+                row = fetch();
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            if (row == null) {
+                close();
+            }
+            return row;
+        }
+
+        private List<Object> fetch() throws DatabaseServiceException, SQLException {
+            if (resultSet == null) {
+                connection = databaseService.openStreamingConnection(dbConfig);
+                statement = databaseService.createStreamingStatement(connection, fetchSize);
+                resultSet = statement.executeQuery(query);
+                columnCount = resultSet.getMetaData().getColumnCount();
+            }
+            if (!resultSet.next()) {
+                return null;
+            }
+            List<String> values = new ArrayList<String>(columnCount);
+            for (int i = 1; i <= columnCount; i++) {
+                values.add(resultSet.getString(i));
+            }
+            return toRowOfCells(values, dbColumns);
+        }
+
+        /**
+         * Closes the result set, by the thread which reads it.
+         */
+        void close() {
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (statement != null) {
+                    statement.close();
+                }
+                if (connection != null) {
+                    connection.close();
+                }
+            } catch (SQLException e) {
+                logger.warn("Could not close streaming query", e);
+            }
+            connection = null;
+            statement = null;
+            resultSet = null;
+            done = true;
+        }
+    }
+}
@@ -408,16 +408,28 @@ public class DatabaseImportController implements ImportingController {
     
         long startTime = System.currentTimeMillis() ;
         
-        TabularImportingParserBase.readTable(
-                project,
-                metadata,
-                job,
-                new DBQueryResultImportReader(job, databaseService, querySource, columns, dbQueryInfo, getCreateBatchSize()),
-                querySource,
-                limit,
-                options,
-                exceptions
-            );
+        // optionally split the query on a numeric column and read the parts in parallel
+        String partitionColumn = JSONUtilities.getString(options, "partitionColumn", null);
+        int partitionCount = JSONUtilities.getInt(options, "partitionCount", 1);
+        
+        DBQueryResultStreamingReader reader = new DBQueryResultStreamingReader(
+                job, databaseService, querySource, columns, dbQueryInfo,
+                partitionColumn == null || partitionColumn.isEmpty() ? null : partitionColumn, partitionCount,
+                getCreateBatchSize());
+        try {
+            TabularImportingParserBase.readTable(
+                    project,
+                    metadata,
+                    job,
+                    reader,
+                    querySource,
+                    limit,
+                    options,
+                    exceptions
+                );
+        } finally {
+            reader.close();
+        }
         
         long endTime = System.currentTimeMillis() ;
         if(logger.isDebugEnabled()) {
@@ -29,6 +29,10 @@
 package com.google.refine.extension.database;
 
 import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,7 +51,7 @@ import com.google.refine.extension.database.pgsql.PgSQLDatabaseService;
 public abstract class DatabaseService {
 
     private static final Logger logger = LoggerFactory.getLogger("DatabaseService");
-    
+
     
     public static class DBType {
         private static Map<String, DatabaseService> databaseServiceMap = new HashMap<String, DatabaseService>();
@@ -118,6 +122,99 @@ public abstract class DatabaseService {
     
     public abstract DatabaseInfo testQuery(DatabaseConfiguration dbConfig, String query) throws DatabaseServiceException;
 
+    /**
+     * Opens a new connection which is not shared with the connection manager,
+     * so that a long running import can keep its result set open while
+     * other commands use the database.
+     * @param dbConfig
+     * @return
+     * @throws DatabaseServiceException
+     */
+    public Connection openStreamingConnection(DatabaseConfiguration dbConfig) throws DatabaseServiceException {
+        try {
+            SQLType type = SQLType.forName(dbConfig.getDatabaseType());
+            if (type != null) {
+                Class.forName(type.getClassPath());
+            }
+            String dbURL = getDatabaseUrl(dbConfig);
+            if (dbConfig.getDatabaseUser() == null) {
+                return DriverManager.getConnection(dbURL);
+            }
+            return DriverManager.getConnection(dbURL, dbConfig.getDatabaseUser(), dbConfig.getDatabasePassword());
+        } catch (ClassNotFoundException e) {
+            logger.error("Jdbc Driver not found", e);
+            throw new DatabaseServiceException(e.getMessage());
+        } catch (SQLException e) {
+            logger.error("SQLException::Couldn't get a streaming Connection!", e);
+            throw new DatabaseServiceException(true, e.getSQLState(), e.getErrorCode(), e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a statement whose result sets are fetched from the server
+     * incrementally instead of being materialized in memory. Drivers which
+     * need extra settings for this override this method.
+     * @param connection a connection obtained from {@link #openStreamingConnection(DatabaseConfiguration)}
+     * @param fetchSize number of rows to fetch per round trip
+     * @return
+     * @throws SQLException
+     */
+    public Statement createStreamingStatement(Connection connection, int fetchSize) throws SQLException {
+        Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        return statement;
+    }
+
+    /**
+     * Restricts a query to the rows whose key column lies in a range.
+     * @param query the original query
+     * @param keyColumn the quoted name of a numeric column of the query
+     * @param lowerBound inclusive lower bound, or null for no lower bound
+     * @param upperBound exclusive upper bound, or null for no upper bound
+     * @param includeNulls whether rows with no key should be included too
+     * @return
+     */
+    public String buildRangeQuery(String query, String keyColumn, Long lowerBound, Long upperBound, boolean includeNulls) {
+        StringBuilder condition = new StringBuilder();
+        if (lowerBound != null) {
+            condition.append(keyColumn).append(" >= ").append(lowerBound);
+        }
+        if (upperBound != null) {
+            if (condition.length() > 0) {
+                condition.append(" AND ");
+            }
+            condition.append(keyColumn).append(" < ").append(upperBound);
+        }
+        if (includeNulls) {
+            condition = new StringBuilder(condition.length() > 0 ? "(" + condition + ") OR " : "")
+                    .append(keyColumn).append(" IS NULL");
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT * FROM (");
+        sb.append(stripTerminator(query));
+        sb.append(") data");
+        if (condition.length() > 0) {
+            sb.append(" WHERE ").append(condition);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param query
+     * @param keyColumn the quoted name of a numeric column of the query
+     * @return a query returning the minimum and maximum values of the key column
+     */
+    public String buildKeyRangeQuery(String query, String keyColumn) {
+        return "SELECT MIN(" + keyColumn + "), MAX(" + keyColumn + ") FROM (" + stripTerminator(query) + ") data";
+    }
+
+    private static String stripTerminator(String query) {
+        String trimmed = query.trim();
+        final int len = trimmed.length();
+        return len > 0 && trimmed.endsWith(";") ? trimmed.substring(0, len - 1) : trimmed;
+    }
+
     public String buildLimitQuery(Integer limit, Integer offset, String query) {
     	if(logger.isDebugEnabled()) {
             logger.info( "<<< original input query::{} >>>" , query );
@@ -213,6 +213,14 @@ public class MySQLDatabaseService extends DatabaseService {
         }
     }
 
+    @Override
+    public Statement createStreamingStatement(Connection connection, int fetchSize) throws SQLException {
+        Statement statement = super.createStreamingStatement(connection, fetchSize);
+        // Connector/J streams rows one by one only for this special fetch size
+        statement.setFetchSize(Integer.MIN_VALUE);
+        return statement;
+    }
+
     @Override
     protected String getDatabaseUrl(DatabaseConfiguration dbConfig) {
             int port = dbConfig.getDatabasePort();
@@ -200,6 +200,13 @@ public class PgSQLDatabaseService extends DatabaseService {
         }
     }
 
+    @Override
+    public Statement createStreamingStatement(Connection connection, int fetchSize) throws SQLException {
+        // the PostgreSQL driver only uses a server side cursor outside of auto-commit mode
+        connection.setAutoCommit(false);
+        return super.createStreamingStatement(connection, fetchSize);
+    }
+
     @Override
     protected String getDatabaseUrl(DatabaseConfiguration dbConfig) {
             int port = dbConfig.getDatabasePort();
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.extension.database;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.Assert;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Optional;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+import com.google.refine.extension.database.model.DatabaseColumn;
+import com.google.refine.extension.database.model.DatabaseQueryInfo;
+import com.google.refine.extension.database.sqlite.SQLiteDatabaseService;
+import com.google.refine.importing.ImportingJob;
+
+@Test(groups = { "requiresSQLite" })
+public class DBQueryResultStreamingReaderTest extends DBExtensionTests {
+
+    private static final String TABLE = "streaming_test";
+    private static final int ROW_COUNT = 2500;
+
+    @Mock
+    private ImportingJob job;
+
+    private DatabaseConfiguration testDbConfig;
+    private DatabaseService databaseService;
+    private DatabaseQueryInfo queryInfo;
+    private List<DatabaseColumn> columns;
+
+    @BeforeTest
+    @Parameters({ "sqliteDbName" })
+    public void beforeTest(@Optional(DEFAULT_SQLITE_DB_NAME) String sqliteDbName)
+            throws DatabaseServiceException, SQLException {
+        MockitoAnnotations.initMocks(this);
+
+        testDbConfig = new DatabaseConfiguration();
+        testDbConfig.setDatabaseName(sqliteDbName);
+        testDbConfig.setDatabaseType(SQLiteDatabaseService.DB_NAME);
+
+        DatabaseService.DBType.registerDatabase(SQLiteDatabaseService.DB_NAME, SQLiteDatabaseService.getInstance());
+        databaseService = DatabaseService.get(SQLiteDatabaseService.DB_NAME);
+
+        try (Connection conn = databaseService.openStreamingConnection(testDbConfig)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DROP TABLE IF EXISTS " + TABLE);
+                stmt.executeUpdate("CREATE TABLE " + TABLE + " (ID INT, NAME VARCHAR(20), SCORE DOUBLE)");
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO " + TABLE + " VALUES (?, ?, ?)")) {
+                for (int i = 0; i < ROW_COUNT; i++) {
+                    // leave a few keys empty, they must still be imported in partitioned mode
+                    if (i % 500 == 7) {
+                        insert.setNull(1, Types.INTEGER);
+                    } else {
+                        insert.setInt(1, i);
+                    }
+                    insert.setString(2, "name " + i);
+                    insert.setDouble(3, i / 2.0);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+        }
+
+        String query = "SELECT * FROM " + TABLE + " ORDER BY NAME;";
+        queryInfo = new DatabaseQueryInfo(testDbConfig, query);
+        columns = databaseService.getColumns(testDbConfig, query);
+    }
+
+    @AfterTest
+    @Parameters({ "sqliteDbName" })
+    public void afterTest(@Optional(DEFAULT_SQLITE_DB_NAME) String sqliteDbName) {
+        File f = new File(sqliteDbName);
+        if (f.exists()) {
+            f.delete();
+        }
+    }
+
+    @Test
+    public void testSequentialReadReturnsAllRows() throws Exception {
+        List<List<Object>> rows;
+        try (DBQueryResultStreamingReader reader = new DBQueryResultStreamingReader(
+                job, databaseService, "test", columns, queryInfo)) {
+            Assert.assertEquals(reader.getPartitionCount(), 1);
+            rows = readAll(reader);
+        }
+
+        Assert.assertEquals(rows.get(0).get(0), "ID");
+        Assert.assertEquals(rows.size(), ROW_COUNT + 1);
+        Assert.assertEquals(rows.get(1).get(0), 0L);
+        Assert.assertEquals(rows.get(1).get(1), "name 0");
+        Assert.assertEquals(rows.get(1).get(2), 0.0);
+    }
+
+    @Test
+    public void testPartitionedReadReturnsSameRows() throws Exception {
+        List<List<Object>> sequential;
+        try (DBQueryResultStreamingReader reader = new DBQueryResultStreamingReader(
+                job, databaseService, "test", columns, queryInfo)) {
+            sequential = readAll(reader);
+        }
+
+        List<List<Object>> partitioned;
+        try (DBQueryResultStreamingReader reader = new DBQueryResultStreamingReader(
+                job, databaseService, "test", columns, queryInfo, "ID", 4,
+                DBQueryResultStreamingReader.DEFAULT_FETCH_SIZE)) {
+            Assert.assertEquals(reader.getPartitionCount(), 4);
+            partitioned = readAll(reader);
+        }
+
+        Assert.assertEquals(partitioned.size(), sequential.size());
+        Assert.assertEquals(partitioned.get(0), sequential.get(0));
+        Set<List<Object>> expected = new HashSet<>(sequential);
+        Assert.assertEquals(new HashSet<>(partitioned), expected);
+
+        // rows of the key ranges are interleaved, but each range keeps its order
+        Assert.assertEquals(getRowsByRange(partitioned), getRowsByRange(sequential));
+    }
+
+    private static Map<Long, List<List<Object>>> getRowsByRange(List<List<Object>> rows) {
+        Map<Long, List<List<Object>>> rowsByRange = new HashMap<>();
+        for (List<Object> row : rows.subList(1, rows.size())) {
+            // rows without a key are read with the last range
+            long range = row.get(0) == null ? 3 : Math.min(3, (Long) row.get(0) / 625);
+            rowsByRange.computeIfAbsent(range, k -> new ArrayList<>()).add(row);
+        }
+        return rowsByRange;
+    }
+
+    @Test
+    public void testCloseBeforeEndReleasesPartitions() throws Exception {
+        DBQueryResultStreamingReader reader = new DBQueryResultStreamingReader(
+                job, databaseService, "test", columns, queryInfo, "ID", 3,
+                DBQueryResultStreamingReader.DEFAULT_FETCH_SIZE);
+        reader.getNextRowOfCells();
+        Assert.assertNotNull(reader.getNextRowOfCells());
+        reader.close();
+    }
+
+    private static List<List<Object>> readAll(DBQueryResultStreamingReader reader) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        List<Object> row;
+        while ((row = reader.getNextRowOfCells()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+}
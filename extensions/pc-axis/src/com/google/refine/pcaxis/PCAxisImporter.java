@@ -65,6 +65,12 @@ public class PCAxisImporter extends TabularImportingParserBase {
         return options;
     }
 
+    @Override
+    protected boolean canReusePreviewRows(ObjectNode options) {
+        // the table options are forced while parsing
+        return false;
+    }
+
     @Override
     public void parseOneFile(
         Project project,
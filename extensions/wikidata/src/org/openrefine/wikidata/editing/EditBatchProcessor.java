@@ -24,10 +24,24 @@
 package org.openrefine.wikidata.editing;
 
 import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.openrefine.wikidata.schema.entityvalues.ReconEntityIdValue;
@@ -38,6 +52,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wikidata.wdtk.datamodel.helpers.Datamodel;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
 import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
 import org.wikidata.wdtk.wikibaseapi.WikibaseDataEditor;
@@ -50,6 +65,15 @@ import com.google.refine.preference.PreferenceStore;
 /**
  * Schedules and performs a list of updates to items via the API.
  * 
+ * Several edits are kept in flight, in the order of the schedule: an edit
+ * only starts once the new items it refers to are created and the previous
+ * edits of its item are done. The documents of the next batch of items are
+ * fetched while the current batch is being edited.
+ * 
+ * Edits which fail because the server is lagging, rate-limits us or cannot be
+ * reached are retried with an exponential backoff. Such failures also slow
+ * down the following edits, which then gradually speed up again.
+ * 
  * @author Antonin Delpeuch
  *
  */
@@ -57,29 +81,60 @@ public class EditBatchProcessor {
 
     static final Logger logger = LoggerFactory.getLogger(EditBatchProcessor.class);
 
+    /**
+     * Error codes of the API after which an edit can be tried again
+     */
+    protected static final Set<String> RETRYABLE_ERRORS = new HashSet<>(
+            Arrays.asList("maxlag", "ratelimited", "readonly", "internal_api_error_DBQueryError"));
+    /**
+     * Error codes of the API after which the creation of an item can be tried
+     * again, as the request was rejected before anything was edited. Creating
+     * an item again after it may have been created would duplicate it.
+     */
+    protected static final Set<String> RETRYABLE_CREATION_ERRORS = new HashSet<>(
+            Arrays.asList("maxlag", "ratelimited", "readonly"));
+    protected static final int MAX_RETRIES = 5;
+    protected static final long RETRY_DELAY = 5000;
+
     private WikibaseDataFetcher fetcher;
     private WikibaseDataEditor editor;
     private NewItemLibrary library;
     private List<ItemUpdate> scheduled;
     private String summary;
     private List<String> tags;
-
-    private List<ItemUpdate> remainingUpdates;
-    private List<ItemUpdate> currentBatch;
-    private int batchCursor;
-    private int globalCursor;
-    private Map<String, EntityDocument> currentDocs;
     private int batchSize;
+
+    // state of the edits, only accessed by the thread calling performEdit
+    private int cursor = 0;
+    private int done = 0;
+    private int running = 0;
+    private final List<Edit> retries = new ArrayList<>();
+    private final Set<EntityIdValue> itemsInFlight = new HashSet<>();
+    private final Set<EntityIdValue> newItemsInFlight = new HashSet<>();
+    private final Set<String> editedItems = new HashSet<>();
+    private final Map<Integer, Future<Map<String, EntityDocument>>> batchDocuments = new HashMap<>();
+    private final BlockingQueue<Edit> finished = new LinkedBlockingQueue<>();
+    private ExecutorService editExecutor;
+    private ExecutorService fetchExecutor;
+
+    // rate of the edits, adapted to the answers of the server
+    private final int maxEditsInFlight;
+    private final long minTimePerEdit;
+    private int editsInFlight;
+    private long timePerEdit;
+    private long nextEditTime = 0;
+    protected long retryDelay = RETRY_DELAY;
+
     protected static final String MAX_LAG_KEY = "wikibase.upload.maxLag";
     protected static final int MAX_LAG_DEFAULT = 5;      // 5 second default maxLag
+    protected static final String MAX_EDITS_IN_FLIGHT_KEY = "wikibase.upload.maxEditsInFlight";
+    protected static final int MAX_EDITS_IN_FLIGHT_DEFAULT = 4;
+    protected static final String TIME_PER_EDIT_KEY = "wikibase.upload.timePerEdit";
+    protected static final int TIME_PER_EDIT_DEFAULT = 250; // in milliseconds
     protected PreferenceStore prefStore = ProjectManager.singleton.getPreferenceStore();
 
     private int getMaxLag() {
-	    try {
-		    return Integer.parseInt((String) prefStore.get(MAX_LAG_KEY));
-	    } catch (NumberFormatException e) {
-		    return MAX_LAG_DEFAULT;
-	    }
+        return prefStore.getInt(MAX_LAG_KEY, MAX_LAG_DEFAULT);
     }
 
     /**
@@ -110,12 +165,16 @@ public class EditBatchProcessor {
         editor.setEditAsBot(true); // this will not do anything if the user does not
         // have a bot flag, and this is generally wanted if they have one.
 
-        // edit at 60 edits/min by default. If Wikidata is overloaded
-        // it will slow us down via the maxlag mechanism.
-        editor.setAverageTimePerEdit(1000);
+        // edits are paced by this processor, which slows down when
+        // Wikidata is overloaded, on top of the maxlag mechanism.
+        editor.setAverageTimePerEdit(0);
         // set maxlag based on preference store
         int maxLag = getMaxLag();
         editor.setMaxLag(maxLag);
+        this.maxEditsInFlight = Math.max(1, prefStore.getInt(MAX_EDITS_IN_FLIGHT_KEY, MAX_EDITS_IN_FLIGHT_DEFAULT));
+        this.minTimePerEdit = Math.max(0, prefStore.getInt(TIME_PER_EDIT_KEY, TIME_PER_EDIT_DEFAULT));
+        this.editsInFlight = maxEditsInFlight;
+        this.timePerEdit = minTimePerEdit;
 
         this.library = library;
         this.summary = summary;
@@ -125,114 +184,209 @@ public class EditBatchProcessor {
         // Schedule the edit batch
         WikibaseAPIUpdateScheduler scheduler = new WikibaseAPIUpdateScheduler();
         this.scheduled = scheduler.schedule(updates);
-        this.globalCursor = 0;
-
-        this.batchCursor = 0;
-        this.remainingUpdates = new ArrayList<>(scheduled);
-        this.currentBatch = Collections.emptyList();
-        this.currentDocs = Collections.emptyMap();
     }
 
     /**
-     * Performs the next edit in the batch.
+     * Performs edits until at least one more of them is done.
      * 
      * @throws InterruptedException
      */
     public void performEdit()
             throws InterruptedException {
-        if (remainingEdits() == 0) {
-            return;
-        }
-        if (batchCursor == currentBatch.size()) {
-            prepareNewBatch();
+        int target = done + 1;
+        while (remainingEdits() > 0 && done < target) {
+            long wait = startEdits();
+            Edit edit = null;
+            if (running > 0) {
+                edit = wait < 0 ? finished.take() : finished.poll(wait, TimeUnit.MILLISECONDS);
+            } else if (wait > 0) {
+                Thread.sleep(wait);
+            }
+            if (edit != null) {
+                onEditFinished(edit);
+            }
         }
-        ItemUpdate update = currentBatch.get(batchCursor);
-
-        // Rewrite mentions to new items
-        ReconEntityRewriter rewriter = new ReconEntityRewriter(library, update.getItemId());
-        try {
-        	update = rewriter.rewrite(update);
-        } catch (NewItemNotCreatedYetException e) {
-        	logger.warn("Failed to rewrite update on entity "+update.getItemId()+". Missing entity: "+e.getMissingEntity()+". Skipping update.");
-        	batchCursor++;
-        	return;
+        if (remainingEdits() == 0) {
+            shutdown();
         }
+    }
 
-        try {
-            // New item
-            if (update.isNew()) {
-                ReconEntityIdValue newCell = (ReconEntityIdValue) update.getItemId();
-                update = update.normalizeLabelsAndAliases();
-
-                ItemDocument itemDocument = Datamodel.makeItemDocument(update.getItemId(),
-                        update.getLabels().stream().collect(Collectors.toList()),
-                        update.getDescriptions().stream().collect(Collectors.toList()),
-                        update.getAliases().stream().collect(Collectors.toList()), update.getAddedStatementGroups(),
-                        Collections.emptyMap());
-
-                ItemDocument createdDoc = editor.createItemDocument(itemDocument, summary, tags);
-                library.setQid(newCell.getReconInternalId(), createdDoc.getEntityId().getId());
-            } else {
-                // Existing item
-                ItemDocument currentDocument = (ItemDocument) currentDocs.get(update.getItemId().getId());
-                List<MonolingualTextValue> labels = update.getLabels().stream().collect(Collectors.toList());
-                labels.addAll(update.getLabelsIfNew().stream()
-                      .filter(label -> !currentDocument.getLabels().containsKey(label.getLanguageCode())).collect(Collectors.toList()));
-                List<MonolingualTextValue> descriptions = update.getDescriptions().stream().collect(Collectors.toList());
-                descriptions.addAll(update.getDescriptionsIfNew().stream()
-                        .filter(desc -> !currentDocument.getDescriptions().containsKey(desc.getLanguageCode())).collect(Collectors.toList()));
-                editor.updateTermsStatements(currentDocument,
-                		labels,
-                        descriptions,
-                        update.getAliases().stream().collect(Collectors.toList()),
-                        new ArrayList<MonolingualTextValue>(),
-                        update.getAddedStatements().stream().collect(Collectors.toList()),
-                        update.getDeletedStatements().stream().collect(Collectors.toList()),
-                        summary, tags);
-            }
-        } catch (MediaWikiApiErrorException e) {
-            // TODO find a way to report these errors to the user in a nice way
-            logger.warn("MediaWiki error while editing [" + e.getErrorCode()
-            + "]: " + e.getErrorMessage());
-        } catch (IOException e) {
-            logger.warn("IO error while editing: " + e.getMessage());
+    /**
+     * Stops the threads performing edits. Edits already started are completed.
+     */
+    public void shutdown() {
+        if (editExecutor != null) {
+            editExecutor.shutdown();
+            editExecutor = null;
+        }
+        if (fetchExecutor != null) {
+            fetchExecutor.shutdownNow();
+            fetchExecutor = null;
         }
-
-        batchCursor++;
     }
 
     /**
      * @return the number of edits that remain to be done in the current batch
      */
     public int remainingEdits() {
-        return scheduled.size() - (globalCursor + batchCursor);
+        return scheduled.size() - done;
     }
 
     /**
      * @return the progress, measured as a percentage
      */
     public int progress() {
-        return (100 * (globalCursor + batchCursor)) / scheduled.size();
+        return scheduled.isEmpty() ? 100 : (100 * done) / scheduled.size();
     }
 
-    protected void prepareNewBatch()
-            throws InterruptedException {
-        // remove the previous batch from the remainingUpdates
-        globalCursor += currentBatch.size();
-        currentBatch.clear();
-
-        if (remainingUpdates.size() < batchSize) {
-            currentBatch = remainingUpdates;
-            remainingUpdates = Collections.emptyList();
-        } else {
-            currentBatch = remainingUpdates.subList(0, batchSize);
+    /**
+     * Starts the edits which are ready, in order.
+     * 
+     * @return how long to wait before edits can be started again, or -1 to
+     *      wait for an edit to finish
+     */
+    protected long startEdits() throws InterruptedException {
+        if (editExecutor == null) {
+            editExecutor = Executors.newFixedThreadPool(maxEditsInFlight);
+            fetchExecutor = Executors.newSingleThreadExecutor();
         }
-        List<String> qidsToFetch = currentBatch.stream().filter(u -> !u.isNew()).map(u -> u.getItemId().getId())
-                .collect(Collectors.toList());
+        long now = System.currentTimeMillis();
+        long wait = -1;
+
+        // edits which failed are tried again first
+        for (Iterator<Edit> i = retries.iterator(); i.hasNext(); ) {
+            Edit edit = i.next();
+            long ready = Math.max(edit.notBefore, nextEditTime);
+            if (ready > now) {
+                wait = wait < 0 ? ready - now : Math.min(wait, ready - now);
+            } else if (running < editsInFlight) {
+                i.remove();
+                submit(edit, now);
+            }
+        }
+
+        while (cursor < scheduled.size() && running < editsInFlight) {
+            if (nextEditTime > now) {
+                return wait < 0 ? nextEditTime - now : Math.min(wait, nextEditTime - now);
+            }
+            ItemUpdate update = scheduled.get(cursor);
+            if (itemsInFlight.contains(update.getItemId())) {
+                // wait for the previous edit of the same item
+                return wait;
+            }
+            Future<Map<String, EntityDocument>> documents = getDocuments(cursor / batchSize);
+            if (!documents.isDone() && running > 0) {
+                return wait < 0 ? 50 : Math.min(wait, 50);
+            }
+            Map<String, EntityDocument> docs;
+            try {
+                docs = documents.get();
+            } catch (ExecutionException e) {
+                docs = null;
+            }
+            if (docs == null) {
+                logger.warn("Giving up on fetching documents to edit. Skipping "+(scheduled.size() - cursor)+" remaining edits.");
+                done += scheduled.size() - cursor;
+                cursor = scheduled.size();
+                return wait;
+            }
+
+            // Rewrite mentions to new items
+            ReconEntityRewriter rewriter = new ReconEntityRewriter(library, update.getItemId());
+            ItemUpdate rewritten;
+            try {
+                rewritten = rewriter.rewrite(update);
+            } catch (NewItemNotCreatedYetException e) {
+                if (newItemsInFlight.contains(e.getMissingEntity())) {
+                    // wait for the creation of the new item
+                    return wait;
+                }
+                logger.warn("Failed to rewrite update on entity "+update.getItemId()+". Missing entity: "+e.getMissingEntity()+". Skipping update.");
+                cursor++;
+                done++;
+                continue;
+            }
 
+            Edit edit = new Edit(update, rewritten);
+            if (!rewritten.isNew()) {
+                String qid = rewritten.getItemId().getId();
+                edit.document = editedItems.contains(qid) ? null : (ItemDocument) docs.get(qid);
+            }
+            itemsInFlight.add(update.getItemId());
+            if (update.isNew()) {
+                newItemsInFlight.add(update.getItemId());
+            }
+            cursor++;
+            submit(edit, now);
+        }
+        return wait;
+    }
+
+    protected void submit(Edit edit, long now) {
+        running++;
+        nextEditTime = now + timePerEdit;
+        editExecutor.submit(edit);
+    }
+
+    protected void onEditFinished(Edit edit) {
+        running--;
+        if (edit.retryable && edit.attempts < MAX_RETRIES) {
+            long delay = retryDelay << (edit.attempts - 1);
+            logger.warn("Retrying edit on entity " + edit.update.getItemId() + " in " + delay + " ms");
+            edit.notBefore = System.currentTimeMillis() + delay;
+            edit.retryable = false;
+            retries.add(edit);
+            // back off: fewer edits in flight, and more time between them
+            editsInFlight = Math.max(1, editsInFlight / 2);
+            timePerEdit = Math.max(retryDelay / 10, timePerEdit * 2);
+            return;
+        }
+        if (edit.createdQid != null) {
+            ReconEntityIdValue newCell = (ReconEntityIdValue) edit.update.getItemId();
+            library.setQid(newCell.getReconInternalId(), edit.createdQid);
+        }
+        if (!edit.rewritten.isNew()) {
+            editedItems.add(edit.rewritten.getItemId().getId());
+        }
+        if (edit.succeeded) {
+            // speed up again
+            editsInFlight = Math.min(maxEditsInFlight, editsInFlight + 1);
+            timePerEdit = Math.max(minTimePerEdit, timePerEdit * 9 / 10);
+        }
+        itemsInFlight.remove(edit.update.getItemId());
+        newItemsInFlight.remove(edit.update.getItemId());
+        done++;
+    }
+
+    /**
+     * Fetches the current documents of a batch of updates in the background,
+     * as well as the ones of the next batch.
+     */
+    protected Future<Map<String, EntityDocument>> getDocuments(int batch) {
+        for (int b = batch; b <= batch + 1 && b * batchSize < scheduled.size(); b++) {
+            if (!batchDocuments.containsKey(b)) {
+                List<ItemUpdate> updates = scheduled.subList(b * batchSize,
+                        Math.min(scheduled.size(), (b + 1) * batchSize));
+                List<String> qidsToFetch = updates.stream().filter(u -> !u.isNew()).map(u -> u.getItemId().getId())
+                        .collect(Collectors.toList());
+                batchDocuments.put(b, fetchExecutor.submit(() -> fetchDocuments(qidsToFetch)));
+            }
+        }
+        batchDocuments.remove(batch - 1);
+        return batchDocuments.get(batch);
+    }
+
+    /**
+     * @return the current documents of the items, or null if they could not be fetched
+     */
+    protected Map<String, EntityDocument> fetchDocuments(List<String> qidsToFetch)
+            throws InterruptedException {
+        if (qidsToFetch.isEmpty()) {
+            return Collections.emptyMap();
+        }
         // Get the current documents for this batch of updates
         logger.info("Requesting documents");
-        currentDocs = null;
+        Map<String, EntityDocument> currentDocs = null;
         int retries = 5;
         int backoff = 2;
         int sleepTime = 5000;
@@ -253,11 +407,90 @@ public class EditBatchProcessor {
                 Thread.sleep(sleepTime);
             }
         }
-        if (currentDocs == null) {
-            logger.warn("Giving up on fetching documents to edit. Skipping "+remainingEdits()+" remaining edits.");
-            globalCursor = scheduled.size();
+        return currentDocs;
+    }
+
+    /**
+     * One edit, performed by a thread of the executor.
+     */
+    protected class Edit implements Runnable {
+        final ItemUpdate update;
+        final ItemUpdate rewritten;
+        ItemDocument document;
+        int attempts = 0;
+        long notBefore = 0;
+
+        // outcome of the last attempt
+        volatile boolean succeeded = false;
+        volatile boolean retryable = false;
+        volatile String createdQid = null;
+
+        Edit(ItemUpdate update, ItemUpdate rewritten) {
+            this.update = update;
+            this.rewritten = rewritten;
+        }
+
+        @Override
+        public void run() {
+            attempts++;
+            try {
+                perform();
+                succeeded = true;
+            } catch (MediaWikiApiErrorException e) {
+                // TODO find a way to report these errors to the user in a nice way
+                logger.warn("MediaWiki error while editing [" + e.getErrorCode()
+                + "]: " + e.getErrorMessage());
+                retryable = (rewritten.isNew() ? RETRYABLE_CREATION_ERRORS : RETRYABLE_ERRORS)
+                        .contains(e.getErrorCode());
+            } catch (IOException e) {
+                logger.warn("IO error while editing: " + e.getMessage());
+                // the request of an item creation may have reached the server
+                // unless the connection failed
+                retryable = !rewritten.isNew() || e instanceof ConnectException || e instanceof UnknownHostException;
+            } catch (RuntimeException e) {
+                logger.warn("Error while editing entity " + update.getItemId(), e);
+            }
+            finished.add(this);
+        }
+
+        protected void perform() throws MediaWikiApiErrorException, IOException {
+            ItemUpdate update = rewritten;
+            // New item
+            if (update.isNew()) {
+                update = update.normalizeLabelsAndAliases();
+
+                ItemDocument itemDocument = Datamodel.makeItemDocument(update.getItemId(),
+                        update.getLabels().stream().collect(Collectors.toList()),
+                        update.getDescriptions().stream().collect(Collectors.toList()),
+                        update.getAliases().stream().collect(Collectors.toList()), update.getAddedStatementGroups(),
+                        Collections.emptyMap());
+
+                ItemDocument createdDoc = editor.createItemDocument(itemDocument, summary, tags);
+                createdQid = createdDoc.getEntityId().getId();
+            } else {
+                // Existing item
+                if (document == null) {
+                    // edited since the documents of its batch were fetched
+                    String qid = update.getItemId().getId();
+                    document = (ItemDocument) fetcher.getEntityDocuments(Collections.singletonList(qid)).get(qid);
+                }
+                ItemDocument currentDocument = document;
+                List<MonolingualTextValue> labels = update.getLabels().stream().collect(Collectors.toList());
+                labels.addAll(update.getLabelsIfNew().stream()
+                      .filter(label -> !currentDocument.getLabels().containsKey(label.getLanguageCode())).collect(Collectors.toList()));
+                List<MonolingualTextValue> descriptions = update.getDescriptions().stream().collect(Collectors.toList());
+                descriptions.addAll(update.getDescriptionsIfNew().stream()
+                        .filter(desc -> !currentDocument.getDescriptions().containsKey(desc.getLanguageCode())).collect(Collectors.toList()));
+                editor.updateTermsStatements(currentDocument,
+                		labels,
+                        descriptions,
+                        update.getAliases().stream().collect(Collectors.toList()),
+                        new ArrayList<MonolingualTextValue>(),
+                        update.getAddedStatements().stream().collect(Collectors.toList()),
+                        update.getDeletedStatements().stream().collect(Collectors.toList()),
+                        summary, tags);
+            }
         }
-        batchCursor = 0;
     }
 
 }
@@ -210,6 +210,7 @@ public class PerformWikibaseEditsOperation extends EngineDependentOperation {
                     break;
                 }
             }
+            processor.shutdown();
 
             _progress = 100;
 
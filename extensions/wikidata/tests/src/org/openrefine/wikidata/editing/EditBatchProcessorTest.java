@@ -23,18 +23,27 @@
  ******************************************************************************/
 package org.openrefine.wikidata.editing;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.openrefine.wikidata.testing.TestingData;
@@ -70,6 +79,7 @@ public class EditBatchProcessorTest extends WikidataRefineTest {
         editor.disableEditing(); // just in case we got mocking wrong…
         library = new NewItemLibrary();
         tags = Arrays.asList("my-tag");
+        ProjectManager.singleton.getPreferenceStore().put(EditBatchProcessor.TIME_PER_EDIT_KEY, "0");
     }
 
     @Test
@@ -159,6 +169,90 @@ public class EditBatchProcessorTest extends WikidataRefineTest {
         }
     }
 
+    @Test
+    public void testConcurrentEditsWithRetries()
+            throws MediaWikiApiErrorException, InterruptedException, IOException {
+        MonolingualTextValue description = Datamodel.makeMonolingualTextValue("village in Nepal", "en");
+        List<ItemIdValue> qids = new ArrayList<>();
+        for (int i = 200; i < 230; i++) {
+            qids.add(Datamodel.makeWikidataItemIdValue("Q" + i));
+        }
+        List<ItemUpdate> batch = qids.stream()
+                .map(qid -> new ItemUpdateBuilder(qid).addDescription(description, true).build())
+                .collect(Collectors.toList());
+        List<ItemDocument> docs = qids.stream()
+                .map(qid -> ItemDocumentBuilder.forItemId(qid).build())
+                .collect(Collectors.toList());
+        when(fetcher.getEntityDocuments(toQids(docs.subList(0, 20)))).thenReturn(toMap(docs.subList(0, 20)));
+        when(fetcher.getEntityDocuments(toQids(docs.subList(20, 30)))).thenReturn(toMap(docs.subList(20, 30)));
+
+        // each edit takes some time, and the edit of the first item is rate-limited once
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean limited = new AtomicBoolean();
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            calls.incrementAndGet();
+            if (invocation.getArgument(0) == docs.get(0) && !limited.getAndSet(true)) {
+                throw new MediaWikiApiErrorException("ratelimited", "You've exceeded your rate limit.");
+            }
+            return null;
+        }).when(editor).updateTermsStatements(any(ItemDocument.class), anyList(), anyList(), anyList(), anyList(), anyList(),
+                anyList(), anyString(), anyList());
+
+        EditBatchProcessor processor = new EditBatchProcessor(fetcher, editor, batch, library, summary, tags, 20);
+        processor.retryDelay = 10;
+        while (processor.remainingEdits() > 0) {
+            processor.performEdit();
+        }
+        assertEquals(100, processor.progress());
+
+        assertTrue(maxInFlight.get() > 1);
+        assertEquals(calls.get(), 31);
+        verify(fetcher, times(1)).getEntityDocuments(toQids(docs.subList(0, 20)));
+        verify(fetcher, times(1)).getEntityDocuments(toQids(docs.subList(20, 30)));
+        for (ItemDocument doc : docs) {
+            verify(editor, times(doc == docs.get(0) ? 2 : 1)).updateTermsStatements(doc, Collections.emptyList(),
+                    Collections.singletonList(description), Collections.emptyList(), Collections.emptyList(),
+                    Collections.emptyList(), Collections.emptyList(), summary, tags);
+        }
+    }
+
+    @Test
+    public void testItemCreationIsOnlyRetriedIfNotSent()
+            throws InterruptedException, MediaWikiApiErrorException, IOException {
+        MonolingualTextValue label = Datamodel.makeMonolingualTextValue("better label", "en");
+        List<ItemUpdate> batch = Collections.singletonList(new ItemUpdateBuilder(TestingData.newIdA).addLabel(label, true).build());
+        ItemDocument expectedNewItem = ItemDocumentBuilder.forItemId(TestingData.newIdA).withLabel(label).build();
+        ItemDocument createdNewItem = ItemDocumentBuilder.forItemId(Datamodel.makeWikidataItemIdValue("Q1234"))
+                .withLabel(label).withRevisionId(37828L).build();
+
+        // the item may have been created when the response times out
+        when(editor.createItemDocument(expectedNewItem, summary, tags))
+                .thenThrow(new SocketTimeoutException("Read timed out"));
+        EditBatchProcessor processor = new EditBatchProcessor(fetcher, editor, batch, library, summary, tags, 50);
+        processor.retryDelay = 10;
+        while (processor.remainingEdits() > 0) {
+            processor.performEdit();
+        }
+        verify(editor, times(1)).createItemDocument(expectedNewItem, summary, tags);
+
+        // but not when the connection could not be opened
+        editor = mock(WikibaseDataEditor.class);
+        when(editor.createItemDocument(expectedNewItem, summary, tags))
+                .thenThrow(new ConnectException("Connection refused"))
+                .thenReturn(createdNewItem);
+        processor = new EditBatchProcessor(fetcher, editor, batch, library, summary, tags, 50);
+        processor.retryDelay = 10;
+        while (processor.remainingEdits() > 0) {
+            processor.performEdit();
+        }
+        verify(editor, times(2)).createItemDocument(expectedNewItem, summary, tags);
+    }
+
     @Test
     public void testSetMaxLag() {
         // use default value
@@ -42,4 +42,23 @@ import com.google.refine.model.Row;
  */
 public interface RowFilter {
     public boolean filterRow(Project project, int rowIndex, Row row);
+
+    /**
+     * Judges several rows at once, keeping those which match at the start of
+     * rowIndices, in the same order.
+     * 
+     * @param rowIndices the rows to judge
+     * @param count the number of rows to judge, from the start of rowIndices
+     * @return the number of rows which match
+     */
+    default public int filterRows(Project project, int[] rowIndices, int count) {
+        int matching = 0;
+        for (int i = 0; i < count; i++) {
+            int rowIndex = rowIndices[i];
+            if (filterRow(project, rowIndex, project.rows.get(rowIndex))) {
+                rowIndices[matching++] = rowIndex;
+            }
+        }
+        return matching;
+    }
 }
@@ -50,6 +50,7 @@ import com.google.refine.browsing.util.NumericBinIndex;
 import com.google.refine.browsing.util.NumericBinRecordIndex;
 import com.google.refine.browsing.util.NumericBinRowIndex;
 import com.google.refine.browsing.util.RowEvaluable;
+import com.google.refine.browsing.util.RowValueIndex;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.MetaParser;
 import com.google.refine.expr.ParsingException;
@@ -296,7 +297,7 @@ public class RangeFacet implements Facet {
     public RowFilter getRowFilter(Project project) {
         if (_eval != null && _errorMessage == null && _config._selected) {
             return new ExpressionNumberComparisonRowFilter(
-                    getRowEvaluable(project), _config._selectNumeric, _config._selectNonNumeric, _config._selectBlank, _config._selectError) {
+                    getRowEvaluable(project), getRowValues(project), _config._selectNumeric, _config._selectNonNumeric, _config._selectBlank, _config._selectError) {
 
                 @Override
                 protected boolean checkValue(double d) {
@@ -361,6 +362,22 @@ public class RangeFacet implements Facet {
         }
     }
     
+    /**
+     * @return the values of the rows kept by the bin index of the facet, if
+     *      it was already computed and the values can be used, or null
+     */
+    protected RowValueIndex getRowValues(Project project) {
+        Column column = project.columnModel.getColumnByCellIndex(_cellIndex);
+        if (column == null) {
+            return null;
+        }
+        NumericBinIndex index = (NumericBinIndex) column.getPrecompute("numeric-bin:row-based:" + _config._expression);
+        if (index == null) {
+            index = (NumericBinIndex) column.getPrecompute("numeric-bin:record-based:" + _config._expression);
+        }
+        return index == null ? null : index.getRowValues();
+    }
+    
     protected RowEvaluable getRowEvaluable(Project project) {
         return new ExpressionBasedRowEvaluable(_config._columnName, _cellIndex, _eval);
     }
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.browsing.facets;
+
+import java.util.stream.IntStream;
+
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+/**
+ * The position of the numeric cell of each row along one axis of a
+ * scatterplot, before scaling to the size of the plot. Axes are kept as
+ * precomputes of their column, so that all scatterplots drawn on the
+ * same column share them until the column changes.
+ */
+public class ScatterplotAxis {
+
+    static final int CHUNK_SIZE = 4096;
+
+    /**
+     * From 0 to the extent inside the range, NaN for rows without a numeric cell.
+     */
+    final protected double[] _positions;
+    final protected double _extent;
+
+    public ScatterplotAxis(Project project, int cellIndex, double min, double max, int dim) {
+        int rowCount = project.rows.size();
+        double[] positions = new double[rowCount];
+        double range = max - min;
+
+        int chunks = (rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int to = Math.min(rowCount, (chunk + 1) * CHUNK_SIZE);
+            for (int r = chunk * CHUNK_SIZE; r < to; r++) {
+                Row row = project.rows.get(r);
+                Cell cell = cellIndex < 0 ? null : row.getCell(cellIndex);
+                if (cell != null && cell.value instanceof Number) {
+                    double relative = ((Number) cell.value).doubleValue() - min;
+                    // as in ScatterplotFacet.translateCoordinates, so that rows fall in the same pixels
+                    positions[r] = dim == ScatterplotFacet.LOG ? Math.log10(relative + 1) : relative;
+                } else {
+                    positions[r] = Double.NaN;
+                }
+            }
+        });
+        _positions = positions;
+        _extent = dim == ScatterplotFacet.LOG ? Math.log10(range + 1) : range;
+    }
+
+    /**
+     * Returns the axis of a column for a range and a scale, computing it
+     * if it is not a precompute of the column yet.
+     */
+    static public ScatterplotAxis getAxis(Project project, Column column, double min, double max, int dim) {
+        String key = "scatterplot-axis:" + dim + ":" + min + ":" + max;
+        ScatterplotAxis axis = (ScatterplotAxis) column.getPrecompute(key);
+        if (axis == null || axis.getRowCount() != project.rows.size()) {
+            axis = new ScatterplotAxis(project, column.getCellIndex(), min, max, dim);
+            column.setPrecompute(key, axis);
+        }
+        return axis;
+    }
+
+    public int getRowCount() {
+        return _positions.length;
+    }
+
+    /**
+     * @return the position of a row on an axis of the given length
+     */
+    public double getPosition(int rowIndex, double length) {
+        return _positions[rowIndex] * length / _extent;
+    }
+}
@@ -33,6 +33,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing.facets;
 
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.regex.Pattern;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -41,11 +43,14 @@ import com.google.refine.browsing.FilteredRows;
 import com.google.refine.browsing.RecordFilter;
 import com.google.refine.browsing.RowFilter;
 import com.google.refine.browsing.filters.AnyRowRecordFilter;
+import com.google.refine.browsing.filters.CandidateRowFilter;
 import com.google.refine.browsing.filters.ExpressionStringComparisonRowFilter;
+import com.google.refine.browsing.util.TextIndex;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.grel.ast.VariableExpr;
 import com.google.refine.model.Column;
 import com.google.refine.model.Project;
+import com.google.refine.util.PatternCache;
 import com.google.refine.util.PatternSyntaxExceptionParser;
 
 public class TextSearchFacet implements Facet {
@@ -131,7 +136,7 @@ public class TextSearchFacet implements Facet {
         if (_query != null) {
             if ("regex".equals(_config._mode)) {
                 try {
-                    _pattern = Pattern.compile(
+                    _pattern = PatternCache.compile(
                             _query, 
                             _config._caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
                 } catch (java.util.regex.PatternSyntaxException e) {
@@ -155,21 +160,34 @@ public class TextSearchFacet implements Facet {
         
         Evaluable eval = new VariableExpr("value");
         
+        RowFilter filter;
         if ("regex".equals(_config._mode)) {
-            return new ExpressionStringComparisonRowFilter(eval, _config._invert, _config._columnName, _cellIndex) {
+            filter = new ExpressionStringComparisonRowFilter(eval, _config._invert, _config._columnName, _cellIndex) {
                 @Override
                 protected boolean checkValue(String s) {
                     return _pattern.matcher(s).find();
                 };
             };
         } else {
-            return new ExpressionStringComparisonRowFilter(eval, _config._invert, _config._columnName, _cellIndex) {
+            filter = new ExpressionStringComparisonRowFilter(eval, _config._invert, _config._columnName, _cellIndex) {
                 @Override
                 protected boolean checkValue(String s) {
                     return (_config._caseSensitive ? s : s.toLowerCase()).contains(_query);
                 };
             };
-        }        
+        }
+        
+        // only read the rows which contain the trigrams of the query
+        Column column = project.columnModel.getColumnByName(_config._columnName);
+        TextIndex index = column == null ? null : TextIndex.getIndex(project, column);
+        if (index != null) {
+            BitSet candidates = index.getCandidates("regex".equals(_config._mode) ?
+                    TextIndex.getRequiredLiterals(_query) : Collections.singletonList(_query));
+            if (candidates != null) {
+                return new CandidateRowFilter(filter, candidates, project.rows.size(), _config._invert);
+            }
+        }
+        return filter;
     }
 
     @Override
@@ -46,6 +46,7 @@ import com.google.refine.browsing.filters.ExpressionTimeComparisonRowFilter;
 import com.google.refine.browsing.util.ExpressionBasedRowEvaluable;
 import com.google.refine.browsing.util.ExpressionTimeValueBinner;
 import com.google.refine.browsing.util.RowEvaluable;
+import com.google.refine.browsing.util.RowValueIndex;
 import com.google.refine.browsing.util.TimeBinIndex;
 import com.google.refine.browsing.util.TimeBinRecordIndex;
 import com.google.refine.browsing.util.TimeBinRowIndex;
@@ -246,7 +247,7 @@ public class TimeRangeFacet implements Facet {
     public RowFilter getRowFilter(Project project) {
         if (_eval != null && _errorMessage == null && _config.isSelected()) {
             return new ExpressionTimeComparisonRowFilter(
-                    getRowEvaluable(project), _config._selectTime, _config._selectNonTime, _config._selectBlank, _config._selectError) {
+                    getRowEvaluable(project), getRowValues(project), _config._selectTime, _config._selectNonTime, _config._selectBlank, _config._selectError) {
                 
                 @Override
                 protected boolean checkValue(long t) {
@@ -337,6 +338,22 @@ public class TimeRangeFacet implements Facet {
         return rowFilter == null ? null : new AnyRowRecordFilter(rowFilter);
     }
     
+    /**
+     * @return the values of the rows kept by the bin index of the facet, if
+     *      it was already computed and the values can be used, or null
+     */
+    protected RowValueIndex getRowValues(Project project) {
+        Column column = project.columnModel.getColumnByCellIndex(_cellIndex);
+        if (column == null) {
+            return null;
+        }
+        TimeBinIndex index = (TimeBinIndex) column.getPrecompute("time-bin:row-based:" + _config._expression);
+        if (index == null) {
+            index = (TimeBinIndex) column.getPrecompute("time-bin:record-based:" + _config._expression);
+        }
+        return index == null ? null : index.getRowValues();
+    }
+    
     protected RowEvaluable getRowEvaluable(Project project) {
         return new ExpressionBasedRowEvaluable(_config._columnName, _cellIndex, _eval);
     }
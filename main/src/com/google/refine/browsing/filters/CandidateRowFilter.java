@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.browsing.filters;
+
+import java.util.BitSet;
+
+import com.google.refine.browsing.RowFilter;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+/**
+ * Judges rows with another filter, except for the rows known beforehand
+ * not to be candidates, which all get the same answer without being read.
+ */
+public class CandidateRowFilter implements RowFilter {
+    final protected RowFilter _filter;
+    final protected BitSet    _candidates;
+    final protected int       _rowCount;
+    final protected boolean   _otherRowsMatch;
+
+    /**
+     * @param candidates the rows which may not get the answer of other rows
+     * @param rowCount number of rows the candidates were taken from, later rows being candidates
+     * @param otherRowsMatch the answer for rows which are not candidates
+     */
+    public CandidateRowFilter(RowFilter filter, BitSet candidates, int rowCount, boolean otherRowsMatch) {
+        _filter = filter;
+        _candidates = candidates;
+        _rowCount = rowCount;
+        _otherRowsMatch = otherRowsMatch;
+    }
+
+    @Override
+    public boolean filterRow(Project project, int rowIndex, Row row) {
+        if (!isCandidate(rowIndex)) {
+            return _otherRowsMatch;
+        }
+        return _filter.filterRow(project, rowIndex, row);
+    }
+
+    @Override
+    public int filterRows(Project project, int[] rowIndices, int count) {
+        // the candidates are judged together, then merged back with the other rows
+        int[] candidates = new int[count];
+        int candidateCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (isCandidate(rowIndices[i])) {
+                candidates[candidateCount++] = rowIndices[i];
+            }
+        }
+        int matchingCandidates = candidateCount == 0 ? 0 : _filter.filterRows(project, candidates, candidateCount);
+
+        int matching = 0;
+        int next = 0;
+        for (int i = 0; i < count; i++) {
+            int rowIndex = rowIndices[i];
+            if (isCandidate(rowIndex)) {
+                if (next < matchingCandidates && candidates[next] == rowIndex) {
+                    rowIndices[matching++] = rowIndex;
+                    next++;
+                }
+            } else if (_otherRowsMatch) {
+                rowIndices[matching++] = rowIndex;
+            }
+        }
+        return matching;
+    }
+
+    protected boolean isCandidate(int rowIndex) {
+        return rowIndex >= _rowCount || _candidates.get(rowIndex);
+    }
+}
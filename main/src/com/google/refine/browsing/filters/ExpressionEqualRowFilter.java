@@ -88,13 +88,30 @@ public class ExpressionEqualRowFilter implements RowFilter {
                 internalFilterRow(project, rowIndex, row);
     }
     
+    @Override
+    public int filterRows(Project project, int[] rowIndices, int count) {
+        Object[] values = new Object[count];
+        _evaluable.evaluateRows(project, _columnName, _cellIndex, rowIndices, count, values);
+        
+        int matching = 0;
+        for (int i = 0; i < count; i++) {
+            if (_invert ? internalInvertedFilterValue(values[i]) : internalFilterValue(values[i])) {
+                rowIndices[matching++] = rowIndices[i];
+            }
+        }
+        return matching;
+    }
+    
     public boolean internalFilterRow(Project project, int rowIndex, Row row) {
         Cell cell = _cellIndex < 0 ? null : row.getCell(_cellIndex);
         
         Properties bindings = ExpressionUtils.createBindings(project);
         ExpressionUtils.bind(bindings, row, rowIndex, _columnName, cell);
         
-        Object value = _evaluable.evaluate(bindings);
+        return internalFilterValue(_evaluable.evaluate(bindings));
+    }
+    
+    protected boolean internalFilterValue(Object value) {
         if (value != null) {
             if (value.getClass().isArray()) {
                 Object[] a = (Object[]) value;
@@ -133,7 +150,10 @@ public class ExpressionEqualRowFilter implements RowFilter {
         Properties bindings = ExpressionUtils.createBindings(project);
         ExpressionUtils.bind(bindings, row, rowIndex, _columnName, cell);
         
-        Object value = _evaluable.evaluate(bindings);
+        return internalInvertedFilterValue(_evaluable.evaluate(bindings));
+    }
+    
+    protected boolean internalInvertedFilterValue(Object value) {
         if (value != null) {
             if (value.getClass().isArray()) {
                 Object[] a = (Object[]) value;
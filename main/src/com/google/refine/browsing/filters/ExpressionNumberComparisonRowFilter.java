@@ -39,6 +39,7 @@ import java.util.Properties;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.google.refine.browsing.RowFilter;
 import com.google.refine.browsing.util.RowEvaluable;
+import com.google.refine.browsing.util.RowValueIndex;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.expr.util.JsonValueConverter;
 import com.google.refine.model.Project;
@@ -56,6 +57,7 @@ abstract public class ExpressionNumberComparisonRowFilter implements RowFilter {
     final protected boolean _selectNonNumeric;
     final protected boolean _selectBlank;
     final protected boolean _selectError;
+    final protected RowValueIndex _rowValues;
 
     public ExpressionNumberComparisonRowFilter(
             RowEvaluable rowEvaluable,
@@ -63,8 +65,24 @@ abstract public class ExpressionNumberComparisonRowFilter implements RowFilter {
             boolean selectNonNumeric,
             boolean selectBlank,
             boolean selectError
+    ) {
+        this(rowEvaluable, null, selectNumeric, selectNonNumeric, selectBlank, selectError);
+    }
+
+    /**
+     * @param rowValues the values of the rows, used instead of evaluating
+     *      the rows when possible, or null
+     */
+    public ExpressionNumberComparisonRowFilter(
+            RowEvaluable rowEvaluable,
+            RowValueIndex rowValues,
+            boolean selectNumeric,
+            boolean selectNonNumeric,
+            boolean selectBlank,
+            boolean selectError
     ) {
         _rowEvaluable = rowEvaluable;
+        _rowValues = rowValues;
         _selectNumeric = selectNumeric;
         _selectNonNumeric = selectNonNumeric;
         _selectBlank = selectBlank;
@@ -73,6 +91,10 @@ abstract public class ExpressionNumberComparisonRowFilter implements RowFilter {
 
     @Override
     public boolean filterRow(Project project, int rowIndex, Row row) {
+        if (_rowValues != null && _rowValues.isFilterable(rowIndex)) {
+            return filterIndexedRow(rowIndex);
+        }
+        
         Properties bindings = ExpressionUtils.createBindings(project);
         
         Object value = _rowEvaluable.eval(project, rowIndex, row, bindings);
@@ -108,6 +130,32 @@ abstract public class ExpressionNumberComparisonRowFilter implements RowFilter {
         return checkValue(value);
     }
         
+    protected boolean filterIndexedRow(int rowIndex) {
+        byte kinds = _rowValues.getRowKinds(rowIndex);
+        if (((kinds & RowValueIndex.ERROR) != 0 && _selectError)
+                || ((kinds & RowValueIndex.BLANK) != 0 && _selectBlank)
+                || ((kinds & RowValueIndex.OTHER) != 0 && _selectNonNumeric)) {
+            return true;
+        }
+        if ((kinds & RowValueIndex.VALUE) != 0 && _selectNumeric) {
+            int to = _rowValues.getTo(rowIndex);
+            for (int i = _rowValues.getFrom(rowIndex); i < to; i++) {
+                if (_rowValues.getKind(i) == RowValueIndex.VALUE && checkIndexedValue(_rowValues.getValue(i))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks a value of the type of the facet, in the primitive form
+     * of the row values.
+     */
+    protected boolean checkIndexedValue(long value) {
+        return checkValue(Double.longBitsToDouble(value));
+    }
+    
     protected boolean checkValue(Object v) {
         if (ExpressionUtils.isError(v)) {
             return _selectError;
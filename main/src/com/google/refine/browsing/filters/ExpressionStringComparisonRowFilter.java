@@ -68,8 +68,25 @@ abstract public class ExpressionStringComparisonRowFilter implements RowFilter {
         
         Properties bindings = ExpressionUtils.createBindings(project);
         ExpressionUtils.bind(bindings, row, rowIndex, _columnName, cell);
+        return filterValue(_evaluable.evaluate(bindings));
+    }
+
+    @Override
+    public int filterRows(Project project, int[] rowIndices, int count) {
+        Object[] values = new Object[count];
+        _evaluable.evaluateRows(project, _columnName, _cellIndex, rowIndices, count, values);
+
+        int matching = 0;
+        for (int i = 0; i < count; i++) {
+            if (filterValue(values[i])) {
+                rowIndices[matching++] = rowIndices[i];
+            }
+        }
+        return matching;
+    }
+
+    protected boolean filterValue(Object value) {
         Boolean invert = _invert;
-        Object value = _evaluable.evaluate(bindings);
         if (value != null) {
             if (value.getClass().isArray()) {
                 Object[] a = (Object[]) value;
@@ -36,6 +36,7 @@ package com.google.refine.browsing.filters;
 import java.time.OffsetDateTime;
 
 import com.google.refine.browsing.util.RowEvaluable;
+import com.google.refine.browsing.util.RowValueIndex;
 import com.google.refine.expr.ExpressionUtils;
 
 /**
@@ -56,10 +57,30 @@ abstract public class ExpressionTimeComparisonRowFilter extends ExpressionNumber
             boolean selectBlank,
             boolean selectError
     ) {
-        super(rowEvaluable, selectTime, selectNonTime, selectBlank, selectError);
+        this(rowEvaluable, null, selectTime, selectNonTime, selectBlank, selectError);
+    }
+    
+    /**
+     * @param rowValues the values of the rows, used instead of evaluating
+     *      the rows when possible, or null
+     */
+    public ExpressionTimeComparisonRowFilter(
+            RowEvaluable rowEvaluable,
+            RowValueIndex rowValues,
+            boolean selectTime,
+            boolean selectNonTime,
+            boolean selectBlank,
+            boolean selectError
+    ) {
+        super(rowEvaluable, rowValues, selectTime, selectNonTime, selectBlank, selectError);
         _selectTime = selectTime;
         _selectNonTime = selectNonTime;
     }
+    
+    @Override
+    protected boolean checkIndexedValue(long value) {
+        return checkValue(value);
+    }
 
     @Override
     protected boolean checkValue(Object v) {
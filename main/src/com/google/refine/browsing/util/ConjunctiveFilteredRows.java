@@ -45,6 +45,9 @@ import com.google.refine.model.Row;
 /**
  * Encapsulate logic for visiting rows that match all give row filters. Also visit
  * context rows and dependent rows if configured so.
+ * 
+ * Rows are judged by batches, so that filters can evaluate their expressions
+ * on many rows at once.
  */
 public class ConjunctiveFilteredRows implements FilteredRows {
     final protected List<RowFilter> _rowFilters = new LinkedList<RowFilter>();
@@ -53,17 +56,29 @@ public class ConjunctiveFilteredRows implements FilteredRows {
         _rowFilters.add(rowFilter);
     }
     
+    /**
+     * Number of rows judged at once by each filter
+     */
+    static final int BATCH_SIZE = 1024;
+
     @Override
     public void accept(Project project, RowVisitor visitor) {
         try {
             visitor.start(project);
 
             int c = project.rows.size();
-            for (int rowIndex = 0; rowIndex < c; rowIndex++) {
-                Row row = project.rows.get(rowIndex);
-                if (matchRow(project, rowIndex, row)) {
-                    if (visitRow(project, visitor, rowIndex, row)) {
-                        break;
+            int[] rowIndices = new int[Math.min(c, BATCH_SIZE)];
+            for (int from = 0; from < c; from += BATCH_SIZE) {
+                int count = Math.min(c - from, BATCH_SIZE);
+                for (int i = 0; i < count; i++) {
+                    rowIndices[i] = from + i;
+                }
+                count = matchRows(project, rowIndices, count);
+
+                for (int i = 0; i < count; i++) {
+                    int rowIndex = rowIndices[i];
+                    if (visitRow(project, visitor, rowIndex, project.rows.get(rowIndex))) {
+                        return;
                     }
                 }
             }
@@ -71,17 +86,23 @@ public class ConjunctiveFilteredRows implements FilteredRows {
             visitor.end(project);
         }
     }
-    
-    protected boolean visitRow(Project project, RowVisitor visitor, int rowIndex, Row row) {
-        return visitor.visit(project, rowIndex, row);
-    }
-    
-    protected boolean matchRow(Project project, int rowIndex, Row row) {
+
+    /**
+     * Keeps the rows matching all filters at the start of rowIndices.
+     * 
+     * @return the number of rows kept
+     */
+    protected int matchRows(Project project, int[] rowIndices, int count) {
         for (RowFilter rowFilter : _rowFilters) {
-            if (!rowFilter.filterRow(project, rowIndex, row)) {
-                return false;
+            if (count == 0) {
+                break;
             }
+            count = rowFilter.filterRows(project, rowIndices, count);
         }
-        return true;
+        return count;
+    }
+
+    protected boolean visitRow(Project project, RowVisitor visitor, int rowIndex, Row row) {
+        return visitor.visit(project, rowIndex, row);
     }
 }
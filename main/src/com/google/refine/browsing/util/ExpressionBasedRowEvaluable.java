@@ -37,6 +37,7 @@ import java.util.Properties;
 
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.grel.ast.ExpressionDependencies;
 import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
 import com.google.refine.model.Row;
@@ -64,4 +65,20 @@ public class ExpressionBasedRowEvaluable implements RowEvaluable {
         
         return _eval.evaluate(bindings);
     }
+    
+    /**
+     * @return true if the expression is known to only depend on the cell it is
+     *      evaluated on, so that its results remain valid for the rows whose
+     *      cell did not change
+     */
+    public boolean dependsOnCellOnly() {
+        return isThreadSafe() && ExpressionDependencies.dependsOnCellOnly(_eval);
+    }
+    
+    /**
+     * @return true if several rows can be evaluated at once, each with its own bindings
+     */
+    public boolean isThreadSafe() {
+        return ExpressionUtils.isThreadSafe(_eval);
+    }
 }
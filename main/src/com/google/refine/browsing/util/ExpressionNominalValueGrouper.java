@@ -86,6 +86,14 @@ public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor
     protected boolean hasBlank;
     protected boolean hasError;
 
+    /*
+     * Rows visited but not evaluated yet
+     */
+    static final int BATCH_SIZE = 1024;
+    protected int[] _pendingRows;
+    protected Object[] _pendingValues;
+    protected int _pendingCount = 0;
+
     public ExpressionNominalValueGrouper(Evaluable evaluable, String columnName, int cellIndex) {
         _evaluable = evaluable;
         _columnName = columnName;
@@ -99,26 +107,43 @@ public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor
 
     @Override
     public void end(Project project) {
-        // nothing to do
+        flushRows(project);
     }
 
     @Override
     public boolean visit(Project project, int rowIndex, Row row) {
-        hasError = false;
-        hasBlank = false;
+        // rows are evaluated by batches, when enough of them were visited
+        if (_pendingRows == null) {
+            _pendingRows = new int[BATCH_SIZE];
+            _pendingValues = new Object[BATCH_SIZE];
+        }
+        _pendingRows[_pendingCount++] = rowIndex;
+        if (_pendingCount == BATCH_SIZE) {
+            flushRows(project);
+        }
+        return false;
+    }
 
-        Properties bindings = ExpressionUtils.createBindings(project);
+    protected void flushRows(Project project) {
+        if (_pendingCount == 0) {
+            return;
+        }
+        _evaluable.evaluateRows(project, _columnName, _cellIndex, _pendingRows, _pendingCount, _pendingValues);
+        for (int i = 0; i < _pendingCount; i++) {
+            hasError = false;
+            hasBlank = false;
 
-        visitRow(project, rowIndex, row, bindings, rowIndex);
+            processRowValue(_pendingValues[i], _pendingRows[i]);
+            _pendingValues[i] = null;
 
-        if (hasError) {
-            errorCount++;
-        }
-        if (hasBlank) {
-            blankCount++;
+            if (hasError) {
+                errorCount++;
+            }
+            if (hasBlank) {
+                blankCount++;
+            }
         }
-
-        return false;
+        _pendingCount = 0;
     }
 
     @Override
@@ -144,7 +169,10 @@ public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor
     }
 
     protected void visitRow(Project project, int rowIndex, Row row, Properties bindings, int index) {
-        Object value = evalRow(project, rowIndex, row, bindings);
+        processRowValue(evalRow(project, rowIndex, row, bindings), rowIndex);
+    }
+
+    protected void processRowValue(Object value, int rowIndex) {
         if (value != null) {
             if (value.getClass().isArray()) {
                 Object[] a = (Object[]) value;
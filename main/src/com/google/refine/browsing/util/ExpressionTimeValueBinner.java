@@ -56,6 +56,11 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
     final protected RowEvaluable _rowEvaluable;
     final protected TimeBinIndex _index; // base bins
 
+    /*
+     * Values of the rows, if they can be used instead of evaluating them
+     */
+    final protected RowValueIndex _rowValues;
+
     /*
      * Computed results
      */
@@ -77,6 +82,7 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
         _rowEvaluable = rowEvaluable;
         _index = index;
         bins = new int[_index.getBins().length];
+        _rowValues = _index.getRowValues();
     }
 
     @Override
@@ -93,8 +99,12 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
     public boolean visit(Project project, int rowIndex, Row row) {
         resetFlags();
         
-        Properties bindings = ExpressionUtils.createBindings(project);
-        processRow(project, rowIndex, row, bindings);
+        if (_rowValues != null && rowIndex < _rowValues.getRowCount()) {
+            processIndexedRow(rowIndex);
+        } else {
+            Properties bindings = ExpressionUtils.createBindings(project);
+            processRow(project, rowIndex, row, bindings);
+        }
         
         updateCounts();
         
@@ -105,9 +115,15 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
     public boolean visit(Project project, Record record) {
         resetFlags();
         
-        Properties bindings = ExpressionUtils.createBindings(project);
-        for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
-            processRow(project, r, project.rows.get(r), bindings);
+        if (_rowValues != null && record.toRowIndex <= _rowValues.getRowCount()) {
+            for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
+                processIndexedRow(r);
+            }
+        } else {
+            Properties bindings = ExpressionUtils.createBindings(project);
+            for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
+                processRow(project, r, project.rows.get(r), bindings);
+            }
         }
         
         updateCounts();
@@ -137,6 +153,23 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
         }
     }
     
+    protected void processIndexedRow(int rowIndex) {
+        byte kinds = _rowValues.getRowKinds(rowIndex);
+        hasError |= (kinds & RowValueIndex.ERROR) != 0;
+        hasBlank |= (kinds & RowValueIndex.BLANK) != 0;
+        hasNonTime |= (kinds & RowValueIndex.OTHER) != 0;
+        if ((kinds & RowValueIndex.VALUE) != 0) {
+            hasTime = true;
+            int to = _rowValues.getTo(rowIndex);
+            for (int i = _rowValues.getFrom(rowIndex); i < to; i++) {
+                int bin = _index.getValueBin(i);
+                if (bin >= 0) {
+                    bins[bin]++;
+                }
+            }
+        }
+    }
+    
     protected void processRow(Project project, int rowIndex, Row row, Properties bindings) {
         Object value = _rowEvaluable.eval(project, rowIndex, row, bindings);
         if (value != null) {
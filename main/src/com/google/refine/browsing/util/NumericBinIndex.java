@@ -33,14 +33,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing.util;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Properties;
-
-import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.model.Column;
 import com.google.refine.model.Project;
-import com.google.refine.model.Row;
 
 /**
  * A utility class for computing the base bins that form the base histograms of 
@@ -51,8 +45,31 @@ import com.google.refine.model.Row;
  * This class processes all rows rather than just the filtered rows because it
  * needs to compute the base bins of a numeric range facet, which remain unchanged 
  * as the user interacts with the facet.
+ * 
+ * The values of the rows are kept in a {@link RowValueIndex}, along with the bin
+ * of each numeric value, so that the histograms of the filtered rows can be
+ * computed without evaluating the expression again.
  */
-abstract public class NumericBinIndex {
+abstract public class NumericBinIndex implements Column.RowDependentPrecompute {
+    
+    static final protected RowValueIndex.Classifier s_classifier = new RowValueIndex.Classifier() {
+        @Override
+        public byte classify(Object value) {
+            if (value instanceof Number) {
+                double d = ((Number) value).doubleValue();
+                return Double.isInfinite(d) || Double.isNaN(d) ? RowValueIndex.ERROR : RowValueIndex.VALUE;
+            }
+            return RowValueIndex.OTHER;
+        }
+
+        @Override
+        public long toLong(Object value) {
+            return Double.doubleToRawLongBits(((Number) value).doubleValue());
+        }
+    };
+    
+    final protected Project _project;
+    final protected RowValueIndex _rowValues;
     
     protected int _totalValueCount;
     protected int _numbericValueCount;
@@ -60,36 +77,74 @@ abstract public class NumericBinIndex {
     protected double _max;
     protected double _step;
     protected int[]  _bins;
+    /*
+     * Bin of each value of the rows, or -1
+     */
+    protected int[]  _valueBins;
     
     protected int _numericRowCount;
     protected int _nonNumericRowCount;
     protected int _blankRowCount;
     protected int _errorRowCount;
     
-    protected boolean _hasError = false;
-    protected boolean _hasNonNumeric = false;
-    protected boolean _hasNumeric = false;
-    protected boolean _hasBlank = false;
-    
-    abstract protected void iterate(Project project, RowEvaluable rowEvaluable, List<Double> allValues);
+    /**
+     * Counts the rows, or records, which have numeric values, non-numeric
+     * values, blanks and errors.
+     */
+    abstract protected void countRows();
     
     public NumericBinIndex(Project project, RowEvaluable rowEvaluable) {
+        _project = project;
+        _rowValues = new RowValueIndex(project, rowEvaluable, s_classifier);
+        computeBins();
+    }
+    
+    @Override
+    public boolean invalidateRows(int[] rowIndices) {
+        return _rowValues.invalidateRows(rowIndices);
+    }
+    
+    /**
+     * Evaluates the rows which changed since the bins were computed, and
+     * computes the bins again if needed.
+     */
+    synchronized protected void update() {
+        if (_rowValues.update()) {
+            computeBins();
+        }
+    }
+    
+    protected void computeBins() {
         _min = Double.POSITIVE_INFINITY;
         _max = Double.NEGATIVE_INFINITY;
+        _numericRowCount = 0;
+        _nonNumericRowCount = 0;
+        _blankRowCount = 0;
+        _errorRowCount = 0;
         
-        // TODO: An array of doubles would be more memmory efficient - double[] allValues
-        List<Double> allValues = new ArrayList<Double>();
-        
-        iterate(project, rowEvaluable, allValues);
+        RowValueIndex values = _rowValues;
+        int valueCount = values.getValueCount();
+        _totalValueCount = valueCount;
+        _numbericValueCount = 0;
+        for (int i = 0; i < valueCount; i++) {
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                double d = Double.longBitsToDouble(values.getValue(i));
+                _min = Math.min(_min, d);
+                _max = Math.max(_max, d);
+                _numbericValueCount++;
+            }
+        }
         
-        _numbericValueCount = allValues.size();
+        countRows();
         
+        _valueBins = new int[valueCount];
         if (_min >= _max) {
             _step = 1;
             _min = Math.min(_min, _max);
             _max = _min+_step;
             _bins = new int[1];
             
+            computeValueBins();
             return;
         }
         
@@ -122,151 +177,104 @@ abstract public class NumericBinIndex {
         }
         
         _bins = new int[(int) Math.round(binCount)];
-        for (double d : allValues) {
-            int bin = Math.max((int) Math.floor((d - _min) / _step),0);
-            _bins[bin]++;
+        for (int i = 0; i < valueCount; i++) {
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                double d = Double.longBitsToDouble(values.getValue(i));
+                int bin = Math.max((int) Math.floor((d - _min) / _step),0);
+                _bins[bin]++;
+            }
+        }
+        computeValueBins();
+    }
+    
+    protected void computeValueBins() {
+        RowValueIndex values = _rowValues;
+        for (int i = 0; i < _valueBins.length; i++) {
+            int bin = -1;
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                double d = Double.longBitsToDouble(values.getValue(i));
+                bin = (int) Math.floor((d - _min) / _step);
+                if (bin >= _bins.length) {
+                    bin = -1;
+                }
+            }
+            _valueBins[i] = Math.max(bin, -1);
         }
     }
     
-    public boolean isNumeric() {
+    protected void countRow(byte kinds) {
+        if ((kinds & RowValueIndex.ERROR) != 0) {
+            _errorRowCount++;
+        }
+        if ((kinds & RowValueIndex.BLANK) != 0) {
+            _blankRowCount++;
+        }
+        if ((kinds & RowValueIndex.VALUE) != 0) {
+            _numericRowCount++;
+        }
+        if ((kinds & RowValueIndex.OTHER) != 0) {
+            _nonNumericRowCount++;
+        }
+    }
+    
+    synchronized public boolean isNumeric() {
+        update();
         return _numbericValueCount > _totalValueCount / 2;
     }
 
-    public double getMin() {
+    synchronized public double getMin() {
+        update();
         return _min;
     }
 
-    public double getMax() {
+    synchronized public double getMax() {
+        update();
         return _max;
     }
 
-    public double getStep() {
+    synchronized public double getStep() {
+        update();
         return _step;
     }
 
-    public int[] getBins() {
+    synchronized public int[] getBins() {
+        update();
         return _bins;
     }
     
-    public int getNumericRowCount() {
+    synchronized public int getNumericRowCount() {
+        update();
         return _numericRowCount;
     }
 
-    public int getNonNumericRowCount() {
+    synchronized public int getNonNumericRowCount() {
+        update();
         return _nonNumericRowCount;
     }
 
-    public int getBlankRowCount() {
+    synchronized public int getBlankRowCount() {
+        update();
         return _blankRowCount;
     }
 
-    public int getErrorRowCount() {
+    synchronized public int getErrorRowCount() {
+        update();
         return _errorRowCount;
     }
-
-    protected void processRow(
-        Project         project, 
-        RowEvaluable    rowEvaluable,
-        List<Double>     allValues,
-        int             rowIndex,
-        Row             row,
-        Properties         bindings
-    ) {
-        Object value = rowEvaluable.eval(project, rowIndex, row, bindings);
-        
-        if (ExpressionUtils.isError(value)) {
-            _hasError = true;
-        } else if (ExpressionUtils.isNonBlankData(value)) {
-            if (value.getClass().isArray()) {
-                Object[] a = (Object[]) value;
-                for (Object v : a) {
-                    _totalValueCount++;
-                    
-                    if (ExpressionUtils.isError(v)) {
-                        _hasError = true;
-                    } else if (ExpressionUtils.isNonBlankData(v)) {
-                        if (v instanceof Number) {
-                            if (processValue(((Number) v).doubleValue(), allValues)) {
-                                _hasNumeric = true;
-                            } else {
-                                _hasError = true;
-                            }
-                        } else {
-                            _hasNonNumeric = true;
-                        }
-                    } else {
-                        _hasBlank = true;
-                    }
-                }
-            } else if (value instanceof Collection<?>) {
-                for (Object v : ExpressionUtils.toObjectCollection(value)) {
-                    _totalValueCount++;
-                    
-                    if (ExpressionUtils.isError(v)) {
-                        _hasError = true;
-                    } else if (ExpressionUtils.isNonBlankData(v)) {
-                        if (v instanceof Number) {
-                            if (processValue(((Number) v).doubleValue(), allValues)) {
-                                _hasNumeric = true;
-                            } else {
-                                _hasError = true;
-                            }
-                        } else {
-                            _hasNonNumeric = true;
-                        }
-                    } else {
-                        _hasBlank = true;
-                    }
-                }
-            } else {
-                _totalValueCount++;
-                
-                if (value instanceof Number) {
-                    if (processValue(((Number) value).doubleValue(), allValues)) {
-                        _hasNumeric = true;
-                    } else {
-                        _hasError = true;
-                    }
-                } else {
-                    _hasNonNumeric = true;
-                }
-            }
-        } else {
-            _hasBlank = true;
-        }
-    }
     
-    protected void preprocessing() {
-        _hasBlank = false;
-        _hasError = false;
-        _hasNonNumeric = false;
-        _hasNumeric = false;
+    /**
+     * @return the values of the rows, if they can be used instead of
+     *      evaluating the expression, or null
+     */
+    synchronized public RowValueIndex getRowValues() {
+        update();
+        return _rowValues.dependsOnCellOnly() ? _rowValues : null;
     }
     
-    protected void postprocessing() {
-        if (_hasError) {
-            _errorRowCount++;
-        }
-        if (_hasBlank) {
-            _blankRowCount++;
-        }
-        if (_hasNumeric) {
-            _numericRowCount++;
-        }
-        if (_hasNonNumeric) {
-            _nonNumericRowCount++;
-        }
+    /**
+     * @return the bin of the value at a position of the row values, or -1
+     */
+    public int getValueBin(int position) {
+        return _valueBins[position];
     }
-
-    protected boolean processValue(double v, List<Double> allValues) {
-        if (!Double.isInfinite(v) && !Double.isNaN(v)) {
-            _min = Math.min(_min, v);
-            _max = Math.max(_max, v);
-            allValues.add(v);
-            return true;
-        } else {
-            return false;
-        }
-    }
-
 }
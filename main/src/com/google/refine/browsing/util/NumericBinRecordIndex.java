@@ -33,13 +33,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing.util;
 
-import java.util.List;
-import java.util.Properties;
-
-import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
-import com.google.refine.model.Row;
 
 public class NumericBinRecordIndex extends NumericBinIndex {
     public NumericBinRecordIndex(Project project, RowEvaluable rowEvaluable) {
@@ -47,24 +42,18 @@ public class NumericBinRecordIndex extends NumericBinIndex {
     }
 
     @Override
-    protected void iterate(
-        Project project, RowEvaluable rowEvaluable, List<Double> allValues) {
-        
-        Properties bindings = ExpressionUtils.createBindings(project);
-        int count = project.recordModel.getRecordCount();
+    protected void countRows() {
+        int count = _project.recordModel.getRecordCount();
         
         for (int r = 0; r < count; r++) {
-            Record record = project.recordModel.getRecord(r);
-            
-            preprocessing();
+            Record record = _project.recordModel.getRecord(r);
             
+            byte kinds = 0;
             for (int i = record.fromRowIndex; i < record.toRowIndex; i++) {
-                Row row = project.rows.get(i);
-                
-                processRow(project, rowEvaluable, allValues, i, row, bindings);
+                kinds |= _rowValues.getRowKinds(i);
             }
             
-            postprocessing();
+            countRow(kinds);
         }
     }
 
@@ -0,0 +1,349 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.browsing.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+
+/**
+ * The values of an expression on all the rows of a project, as range facets
+ * see them: each value is either a value of the type of the facet, a blank,
+ * an error or a value of another type. Values of the type of the facet are
+ * kept in a primitive array, so that histograms and selections can be
+ * computed again without evaluating the expression.
+ * 
+ * Rows are evaluated in parallel when the expression allows it. When the
+ * expression only depends on the cell it is evaluated on, rows whose cell
+ * changed are evaluated again on their own.
+ */
+public class RowValueIndex implements Column.RowDependentPrecompute {
+
+    static final public byte ERROR = 1;
+    static final public byte BLANK = 2;
+    static final public byte VALUE = 4;
+    static final public byte OTHER = 8;
+    /**
+     * Marks rows evaluated to a JSON array, which filters look into
+     * while histograms count them as one value of another type.
+     */
+    static final public byte JSON_ARRAY = 16;
+
+    /**
+     * Number of rows evaluated by a task when evaluating in parallel.
+     */
+    static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Rows evaluated again on their own are at most this fraction of all
+     * rows, beyond which evaluating all rows again is as cheap.
+     */
+    static final int MAX_INVALID_FRACTION = 4;
+
+    /**
+     * Tells apart the values of the type of a facet.
+     */
+    public interface Classifier {
+        /**
+         * @param value a value which is neither blank nor an error
+         * @return VALUE, OTHER or ERROR
+         */
+        byte classify(Object value);
+
+        /**
+         * @return the primitive form of a value classified as VALUE
+         */
+        long toLong(Object value);
+    }
+
+    final protected Project _project;
+    final protected RowEvaluable _rowEvaluable;
+    final protected Classifier _classifier;
+    final protected boolean _dependsOnCellOnly;
+
+    /*
+     * Kinds of the values of each row, ORed together
+     */
+    protected byte[] _rowKinds;
+    /*
+     * The values of row r are at positions _offsets[r] to _offsets[r + 1]
+     */
+    protected int[] _offsets;
+    protected byte[] _kinds;
+    protected long[] _values;
+
+    final protected BitSet _invalidRows = new BitSet();
+
+    public RowValueIndex(Project project, RowEvaluable rowEvaluable, Classifier classifier) {
+        _project = project;
+        _rowEvaluable = rowEvaluable;
+        _classifier = classifier;
+        _dependsOnCellOnly = rowEvaluable instanceof ExpressionBasedRowEvaluable
+                && ((ExpressionBasedRowEvaluable) rowEvaluable).dependsOnCellOnly();
+        evaluateAll();
+    }
+
+    /**
+     * @return true if the values of each row are kept up to date with
+     *      its cell, so that they can be used instead of evaluating the row
+     */
+    public boolean dependsOnCellOnly() {
+        return _dependsOnCellOnly;
+    }
+
+    @Override
+    synchronized public boolean invalidateRows(int[] rowIndices) {
+        if (!_dependsOnCellOnly) {
+            return false;
+        }
+        for (int rowIndex : rowIndices) {
+            _invalidRows.set(rowIndex);
+        }
+        return _invalidRows.cardinality() <= _rowKinds.length / MAX_INVALID_FRACTION;
+    }
+
+    /**
+     * Evaluates the rows which changed since the last update.
+     * 
+     * @return true if any value may have changed
+     */
+    synchronized public boolean update() {
+        if (_project.rows.size() != _rowKinds.length) {
+            _invalidRows.clear();
+            evaluateAll();
+            return true;
+        } else if (!_invalidRows.isEmpty()) {
+            evaluateInvalidRows();
+            _invalidRows.clear();
+            return true;
+        }
+        return false;
+    }
+
+    public int getRowCount() {
+        return _rowKinds.length;
+    }
+
+    public byte getRowKinds(int rowIndex) {
+        return _rowKinds[rowIndex];
+    }
+
+    /**
+     * @return the position of the first value of a row
+     */
+    public int getFrom(int rowIndex) {
+        return _offsets[rowIndex];
+    }
+
+    /**
+     * @return the position after the last value of a row
+     */
+    public int getTo(int rowIndex) {
+        return _offsets[rowIndex + 1];
+    }
+
+    /**
+     * @return the number of values of all rows, including blanks and errors
+     *      in arrays but not rows which evaluated to a blank or an error
+     */
+    public int getValueCount() {
+        return _kinds.length;
+    }
+
+    public byte getKind(int position) {
+        return _kinds[position];
+    }
+
+    public long getValue(int position) {
+        return _values[position];
+    }
+
+    /**
+     * @return false if filters should evaluate the row, which is not indexed
+     *      or evaluated to a JSON array
+     */
+    public boolean isFilterable(int rowIndex) {
+        return _dependsOnCellOnly && rowIndex < _rowKinds.length && (_rowKinds[rowIndex] & JSON_ARRAY) == 0;
+    }
+
+    protected void evaluateAll() {
+        int rowCount = _project.rows.size();
+        byte[] rowKinds = new byte[rowCount];
+        int[] offsets = new int[rowCount + 1];
+        int chunks = (rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Buffer[] buffers = new Buffer[chunks];
+
+        IntStream range = IntStream.range(0, chunks);
+        boolean parallel = chunks > 1 && _rowEvaluable instanceof ExpressionBasedRowEvaluable
+                && ((ExpressionBasedRowEvaluable) _rowEvaluable).isThreadSafe();
+        (parallel ? range.parallel() : range).forEach(chunk -> {
+            Properties bindings = ExpressionUtils.createBindings(_project);
+            Buffer buffer = new Buffer();
+            int to = Math.min(rowCount, (chunk + 1) * CHUNK_SIZE);
+            for (int r = chunk * CHUNK_SIZE; r < to; r++) {
+                int size = buffer.size;
+                rowKinds[r] = evaluate(r, bindings, buffer);
+                // counts for now, turned into offsets below
+                offsets[r + 1] = buffer.size - size;
+            }
+            buffers[chunk] = buffer;
+        });
+
+        for (int r = 0; r < rowCount; r++) {
+            offsets[r + 1] += offsets[r];
+        }
+        byte[] kinds = new byte[offsets[rowCount]];
+        long[] values = new long[offsets[rowCount]];
+        int position = 0;
+        for (Buffer buffer : buffers) {
+            System.arraycopy(buffer.kinds, 0, kinds, position, buffer.size);
+            System.arraycopy(buffer.values, 0, values, position, buffer.size);
+            position += buffer.size;
+        }
+
+        _rowKinds = rowKinds;
+        _offsets = offsets;
+        _kinds = kinds;
+        _values = values;
+    }
+
+    protected void evaluateInvalidRows() {
+        Properties bindings = ExpressionUtils.createBindings(_project);
+        Buffer buffer = new Buffer();
+        int[] starts = new int[_invalidRows.cardinality() + 1];
+        int i = 0;
+        for (int r = _invalidRows.nextSetBit(0); r >= 0; r = _invalidRows.nextSetBit(r + 1)) {
+            starts[i++] = buffer.size;
+            _rowKinds[r] = evaluate(r, bindings, buffer);
+        }
+        starts[i] = buffer.size;
+
+        int rowCount = _rowKinds.length;
+        int valueCount = _kinds.length + buffer.size;
+        for (int r = _invalidRows.nextSetBit(0); r >= 0; r = _invalidRows.nextSetBit(r + 1)) {
+            valueCount -= _offsets[r + 1] - _offsets[r];
+        }
+
+        int[] offsets = new int[rowCount + 1];
+        byte[] kinds = new byte[valueCount];
+        long[] values = new long[valueCount];
+        int position = 0;
+        i = 0;
+        for (int r = 0; r < rowCount; r++) {
+            offsets[r] = position;
+            if (_invalidRows.get(r)) {
+                int length = starts[i + 1] - starts[i];
+                System.arraycopy(buffer.kinds, starts[i], kinds, position, length);
+                System.arraycopy(buffer.values, starts[i], values, position, length);
+                position += length;
+                i++;
+            } else {
+                int length = _offsets[r + 1] - _offsets[r];
+                System.arraycopy(_kinds, _offsets[r], kinds, position, length);
+                System.arraycopy(_values, _offsets[r], values, position, length);
+                position += length;
+            }
+        }
+        offsets[rowCount] = position;
+
+        _offsets = offsets;
+        _kinds = kinds;
+        _values = values;
+    }
+
+    /**
+     * Evaluates a row, adding its values to a buffer.
+     * 
+     * @return the kinds of the values of the row
+     */
+    protected byte evaluate(int rowIndex, Properties bindings, Buffer buffer) {
+        Object value = _rowEvaluable.eval(_project, rowIndex, _project.rows.get(rowIndex), bindings);
+
+        if (ExpressionUtils.isError(value)) {
+            return ERROR;
+        } else if (ExpressionUtils.isNonBlankData(value)) {
+            byte kinds = 0;
+            if (value.getClass().isArray()) {
+                for (Object v : (Object[]) value) {
+                    kinds |= add(v, buffer);
+                }
+            } else if (value instanceof Collection<?>) {
+                for (Object v : ExpressionUtils.toObjectCollection(value)) {
+                    kinds |= add(v, buffer);
+                }
+            } else {
+                kinds = add(value, buffer);
+                if (value instanceof ArrayNode) {
+                    kinds |= JSON_ARRAY;
+                }
+            }
+            return kinds;
+        } else {
+            return BLANK;
+        }
+    }
+
+    protected byte add(Object v, Buffer buffer) {
+        byte kind;
+        long value = 0;
+        if (ExpressionUtils.isError(v)) {
+            kind = ERROR;
+        } else if (ExpressionUtils.isNonBlankData(v)) {
+            kind = _classifier.classify(v);
+            if (kind == VALUE) {
+                value = _classifier.toLong(v);
+            }
+        } else {
+            kind = BLANK;
+        }
+        buffer.add(kind, value);
+        return kind;
+    }
+
+    static protected class Buffer {
+        byte[] kinds = new byte[CHUNK_SIZE];
+        long[] values = new long[CHUNK_SIZE];
+        int size = 0;
+
+        void add(byte kind, long value) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            kinds[size] = kind;
+            values[size] = value;
+            size++;
+        }
+    }
+}
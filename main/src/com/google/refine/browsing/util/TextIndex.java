@@ -0,0 +1,636 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.browsing.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.refine.ProjectManager;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+/**
+ * An inverted index of the trigrams of the cells of a column, used to find
+ * the few rows which may contain a piece of text without looking at all
+ * the others.
+ * 
+ * Trigrams are taken from the cell text lowercased character by character,
+ * and from the cell text lowercased as a whole, so that the rows containing
+ * a string either case sensitively or case insensitively are always among
+ * the rows containing its trigrams.
+ * 
+ * The index is built in the background the first time it is asked for.
+ * Rows changed afterwards are not indexed again but always returned as
+ * candidates, until too many rows changed and the index is dropped.
+ * 
+ * Only the columns of large projects are indexed, and the indexes are
+ * dropped when they are not used for a while or when they take too much
+ * memory together, to be built again by the next search.
+ */
+public class TextIndex implements Column.RowDependentPrecompute {
+
+    final static Logger logger = LoggerFactory.getLogger("text-index");
+
+    static final public String KEY = "text-index";
+
+    static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Past this fraction of changed rows, the index is dropped and built again.
+     */
+    static final int MAX_INVALID_FRACTION = 4;
+
+    /**
+     * Number of posting lists intersected at most for a query, from the shortest.
+     */
+    static final int MAX_INTERSECTED_LISTS = 4;
+
+    /**
+     * Number of rows from which columns are indexed, unless set by the
+     * "facets.textSearch.indexMinRows" preference. A negative preference
+     * disables the index.
+     */
+    static final int DEFAULT_MIN_ROWS = 100000;
+
+    /**
+     * Memory taken by all the built indexes at most, unless set by the
+     * "facets.textSearch.indexMaxSizeMB" preference.
+     */
+    static final int DEFAULT_MAX_SIZE_MB = 256;
+
+    /**
+     * Number of indexes built at the same time, across projects.
+     */
+    static final int MAX_CONCURRENT_BUILDS = 2;
+
+    static private final ThreadPoolExecutor s_executor = new ThreadPoolExecutor(
+            MAX_CONCURRENT_BUILDS, MAX_CONCURRENT_BUILDS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "text-index");
+                thread.setDaemon(true);
+                return thread;
+            });
+    static {
+        s_executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The built indexes, weighed in kilobytes. Evicted indexes are dropped.
+     */
+    static private Cache<TextIndex, Integer> s_builtIndexes;
+
+    final protected Project _project;
+    final protected int _cellIndex;
+    final protected BitSet _invalidRows = new BitSet();
+
+    // set once the index is built, until it is dropped
+    protected volatile boolean _ready = false;
+    protected volatile boolean _dropped = false;
+    protected int _rowCount;
+    protected TrigramMap _trigrams;
+    protected int[] _offsets;
+    protected byte[] _postings;
+
+    public TextIndex(Project project, int cellIndex) {
+        _project = project;
+        _cellIndex = cellIndex;
+    }
+
+    /**
+     * Returns the index of a column, starting to build it in the background if
+     * there is none yet.
+     * 
+     * @return the index, or null if it is not built yet or the project is too
+     *         small to be indexed
+     */
+    static public TextIndex getIndex(Project project, Column column) {
+        int minRows = ProjectManager.singleton == null ? DEFAULT_MIN_ROWS
+                : ProjectManager.singleton.getPreferenceStore().getInt("facets.textSearch.indexMinRows", DEFAULT_MIN_ROWS);
+        if (minRows < 0 || project.rows.size() < minRows) {
+            return null;
+        }
+
+        TextIndex index;
+        synchronized (column) {
+            index = (TextIndex) column.getPrecompute(KEY);
+            if (index == null || index._dropped) {
+                TextIndex newIndex = new TextIndex(project, column.getCellIndex());
+                column.setPrecompute(KEY, newIndex);
+                s_executor.submit(() -> {
+                    try {
+                        newIndex.build();
+                    } catch (RuntimeException e) {
+                        logger.warn("Could not index column " + column.getName(), e);
+                        synchronized (column) {
+                            // let the next search try again
+                            if (column.getPrecompute(KEY) == newIndex) {
+                                column.setPrecompute(KEY, null);
+                            }
+                        }
+                    }
+                });
+                return null;
+            }
+        }
+        if (index.isReady() && index._rowCount == project.rows.size()) {
+            // keeps it from expiring
+            getBuiltIndexes().getIfPresent(index);
+            return index;
+        }
+        return null;
+    }
+
+    static synchronized protected Cache<TextIndex, Integer> getBuiltIndexes() {
+        if (s_builtIndexes == null) {
+            int maxSizeMB = ProjectManager.singleton == null ? DEFAULT_MAX_SIZE_MB
+                    : ProjectManager.singleton.getPreferenceStore().getInt("facets.textSearch.indexMaxSizeMB", DEFAULT_MAX_SIZE_MB);
+            s_builtIndexes = CacheBuilder.newBuilder()
+                    .weakKeys()
+                    .maximumWeight(maxSizeMB * 1024L)
+                    .<TextIndex, Integer> weigher((index, kilobytes) -> kilobytes)
+                    .expireAfterAccess(1, TimeUnit.HOURS)
+                    .removalListener(notification -> {
+                        TextIndex index = notification.getKey();
+                        if (notification.wasEvicted() && index != null) {
+                            index.drop();
+                        }
+                    })
+                    .build();
+        }
+        return s_builtIndexes;
+    }
+
+    public boolean isReady() {
+        return _ready;
+    }
+
+    /**
+     * Indexes all rows of the project.
+     */
+    public void build() {
+        int rowCount = _project.rows.size();
+        int chunks = (rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        TrigramMap trigrams = new TrigramMap();
+        PostingsBuilder postings = new PostingsBuilder();
+
+        // trigrams are extracted in parallel, and gathered in row order so that posting lists are sorted
+        int[] rowIndex = { 0 };
+        IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            int from = chunk * CHUNK_SIZE;
+            long[][] rowTrigrams = new long[Math.min(rowCount, from + CHUNK_SIZE) - from][];
+            for (int i = 0; i < rowTrigrams.length; i++) {
+                rowTrigrams[i] = getTrigrams(_project.rows.get(from + i));
+            }
+            return rowTrigrams;
+        }).forEachOrdered(rowTrigrams -> {
+            for (long[] grams : rowTrigrams) {
+                for (long gram : grams) {
+                    postings.add(trigrams.getOrAdd(gram), rowIndex[0]);
+                }
+                rowIndex[0]++;
+            }
+        });
+
+        synchronized (this) {
+            _rowCount = rowCount;
+            _trigrams = trigrams;
+            _offsets = postings.getOffsets(trigrams.size());
+            _postings = postings.getPostings(_offsets);
+            _ready = true;
+        }
+        getBuiltIndexes().put(this, (int) Math.min(Integer.MAX_VALUE, getMemorySize() / 1024));
+    }
+
+    /**
+     * @return the approximate number of bytes taken by the built index
+     */
+    synchronized public long getMemorySize() {
+        if (!_ready) {
+            return 0;
+        }
+        return 12L * _trigrams.keys.length + 4L * _offsets.length + _postings.length + _invalidRows.size() / 8;
+    }
+
+    /**
+     * Frees the memory of the index. Searches do not use it anymore, and
+     * build a new one.
+     */
+    synchronized public void drop() {
+        _dropped = true;
+        _ready = false;
+        _trigrams = null;
+        _offsets = null;
+        _postings = null;
+    }
+
+    @Override
+    synchronized public boolean invalidateRows(int[] rowIndices) {
+        for (int r : rowIndices) {
+            _invalidRows.set(r);
+        }
+        // until it is built, all rows are read after being changed
+        if (!_ready || _invalidRows.cardinality() <= _rowCount / MAX_INVALID_FRACTION) {
+            return true;
+        }
+        getBuiltIndexes().invalidate(this);
+        return false;
+    }
+
+    /**
+     * Returns the rows which may contain all given strings, either case
+     * sensitively or case insensitively.
+     * 
+     * @param strings strings of which rows must contain all the trigrams
+     * @return the candidate rows, or null if the strings are too short to tell
+     *         or the index was dropped
+     */
+    synchronized public BitSet getCandidates(List<String> strings) {
+        if (!_ready) {
+            return null;
+        }
+        long[] grams = new long[0];
+        for (String s : strings) {
+            long[] more = getTrigrams(s, null);
+            grams = Arrays.copyOf(grams, grams.length + more.length);
+            System.arraycopy(more, 0, grams, grams.length - more.length, more.length);
+        }
+        if (grams.length == 0) {
+            return null;
+        }
+
+        BitSet candidates = new BitSet(_rowCount);
+        int[] ids = new int[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            ids[i] = _trigrams.get(grams[i]);
+            if (ids[i] < 0) {
+                // no indexed row contains this trigram
+                candidates.or(_invalidRows);
+                return candidates;
+            }
+        }
+
+        // intersect the shortest posting lists, candidates are checked anyway
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            order[i] = ids[i];
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(_offsets[a + 1] - _offsets[a], _offsets[b + 1] - _offsets[b]));
+        int[] rows = new int[_offsets[order[0] + 1] - _offsets[order[0]]];
+        int size = decode(_postings, _offsets[order[0]], _offsets[order[0] + 1], rows);
+        for (int i = 1; i < Math.min(order.length, MAX_INTERSECTED_LISTS) && size > 0; i++) {
+            size = intersect(rows, size, _postings, _offsets[order[i]], _offsets[order[i] + 1]);
+        }
+        for (int i = 0; i < size; i++) {
+            candidates.set(rows[i]);
+        }
+        candidates.or(_invalidRows);
+        return candidates;
+    }
+
+    /**
+     * Decodes a posting list, stored as the variable length differences
+     * between its rows.
+     * 
+     * @param rows where rows are decoded, at least as long as the encoded list
+     * @return the number of rows decoded
+     */
+    static protected int decode(byte[] postings, int from, int to, int[] rows) {
+        int size = 0;
+        int[] position = { from };
+        int row = 0;
+        while (position[0] < to) {
+            row += readDelta(postings, position);
+            rows[size++] = row;
+        }
+        return size;
+    }
+
+    /**
+     * Keeps in the first rows of a sorted list those which are also in an
+     * encoded posting list.
+     * 
+     * @return the number of rows kept
+     */
+    static protected int intersect(int[] rows, int size, byte[] postings, int from, int to) {
+        int kept = 0;
+        int[] position = { from };
+        int row = -1;
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            while (row < rows[i] && position[0] < to) {
+                previous += readDelta(postings, position);
+                row = previous;
+            }
+            if (row == rows[i]) {
+                rows[kept++] = rows[i];
+            } else if (row < rows[i]) {
+                // the other list is exhausted
+                break;
+            }
+        }
+        return kept;
+    }
+
+    static protected int readDelta(byte[] postings, int[] position) {
+        int delta = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = postings[position[0]++];
+            delta |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return delta;
+            }
+        }
+    }
+
+    static protected int writeDelta(byte[] postings, int position, int delta) {
+        while ((delta & ~0x7F) != 0) {
+            postings[position++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        postings[position++] = (byte) delta;
+        return position;
+    }
+
+    static protected int getDeltaLength(int delta) {
+        int length = 1;
+        while ((delta & ~0x7F) != 0) {
+            length++;
+            delta >>>= 7;
+        }
+        return length;
+    }
+
+    protected long[] getTrigrams(Row row) {
+        Cell cell = _cellIndex < 0 ? null : row.getCell(_cellIndex);
+        if (cell == null || cell.value == null) {
+            return new long[0];
+        }
+        String s = cell.value instanceof String ? (String) cell.value : cell.value.toString();
+        String lowercase = s.toLowerCase();
+        return getTrigrams(s, s.equals(lowercase) ? null : lowercase);
+    }
+
+    /**
+     * @return the sorted distinct trigrams of one or two strings
+     */
+    static protected long[] getTrigrams(String s, String other) {
+        int count = Math.max(0, s.length() - 2) + (other == null ? 0 : Math.max(0, other.length() - 2));
+        long[] grams = new long[count];
+        int size = addTrigrams(s, grams, 0);
+        if (other != null) {
+            size = addTrigrams(other, grams, size);
+        }
+        Arrays.sort(grams, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || grams[i] != grams[distinct - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return distinct == grams.length ? grams : Arrays.copyOf(grams, distinct);
+    }
+
+    static protected int addTrigrams(String s, long[] grams, int size) {
+        long gram = 0;
+        for (int i = 0; i < s.length(); i++) {
+            // lowercased one character at a time, so that substrings have the trigrams of their strings
+            gram = (gram << 16 | Character.toLowerCase(s.charAt(i))) & 0xffffffffffffL;
+            if (i >= 2) {
+                grams[size++] = gram;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns literal strings which any match of a regular expression must
+     * contain, or an empty list when the expression is not simple enough to
+     * tell. Case insensitive matches contain them up to case.
+     */
+    static public List<String> getRequiredLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 == regex.length()) {
+                    return new ArrayList<>();
+                }
+                char escaped = regex.charAt(++i);
+                if (Character.isLetterOrDigit(escaped)) {
+                    // character classes and boundaries, anything else may stand for literals we do not decode
+                    if ("dDsSwWbBAzZGRhHvV".indexOf(escaped) < 0) {
+                        return new ArrayList<>();
+                    }
+                    addLiteral(literals, literal);
+                } else {
+                    literal.append(escaped);
+                }
+            } else if (c == '|' || c == '(' || c == ')') {
+                return new ArrayList<>();
+            } else if (c == '[') {
+                addLiteral(literals, literal);
+                i = skipCharacterClass(regex, i);
+                if (i < 0) {
+                    return new ArrayList<>();
+                }
+            } else if (c == '?' || c == '*' || c == '{') {
+                // the previous character is optional
+                if (literal.length() > 0) {
+                    literal.setLength(literal.length() - 1);
+                }
+                addLiteral(literals, literal);
+                if (c == '{') {
+                    i = regex.indexOf('}', i);
+                    if (i < 0) {
+                        return new ArrayList<>();
+                    }
+                }
+            } else if (c == '+' || c == '.' || c == '^' || c == '$') {
+                addLiteral(literals, literal);
+            } else {
+                literal.append(c);
+            }
+        }
+        addLiteral(literals, literal);
+        return literals;
+    }
+
+    static protected void addLiteral(List<String> literals, StringBuilder literal) {
+        if (literal.length() > 0) {
+            literals.add(literal.toString());
+            literal.setLength(0);
+        }
+    }
+
+    /**
+     * @return the position of the bracket closing a character class, or -1
+     */
+    static protected int skipCharacterClass(String regex, int start) {
+        int first = start + 1 < regex.length() && regex.charAt(start + 1) == '^' ? start + 2 : start + 1;
+        if (first >= regex.length() || regex.charAt(first) == ']') {
+            // leading brackets are read differently by regex flavors
+            return -1;
+        }
+        int depth = 0;
+        for (int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                if (--depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Maps trigrams to consecutive ids, with open addressing.
+     */
+    static protected class TrigramMap {
+        long[] keys = new long[1024];
+        int[] ids = new int[1024];
+        int size = 0;
+
+        protected int slot(long gram, long[] keys) {
+            int mask = keys.length - 1;
+            int slot = (int) ((gram * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            // keys are stored plus one, so that zero marks free slots
+            while (keys[slot] != 0 && keys[slot] != gram + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        public int get(long gram) {
+            int slot = slot(gram, keys);
+            return keys[slot] == 0 ? -1 : ids[slot];
+        }
+
+        public int getOrAdd(long gram) {
+            int slot = slot(gram, keys);
+            if (keys[slot] == 0) {
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    slot = slot(gram, keys);
+                }
+                keys[slot] = gram + 1;
+                ids[slot] = size++;
+            }
+            return ids[slot];
+        }
+
+        protected void grow() {
+            long[] newKeys = new long[keys.length * 2];
+            int[] newIds = new int[keys.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    int slot = slot(keys[i] - 1, newKeys);
+                    newKeys[slot] = keys[i];
+                    newIds[slot] = ids[i];
+                }
+            }
+            keys = newKeys;
+            ids = newIds;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Gathers the rows of each trigram before they are encoded in one array,
+     * without the room left in the lists for more rows.
+     */
+    static protected class PostingsBuilder {
+        int[][] lists = new int[1024][];
+        int[] sizes = new int[1024];
+
+        public void add(int id, int row) {
+            if (id >= lists.length) {
+                lists = Arrays.copyOf(lists, lists.length * 2);
+                sizes = Arrays.copyOf(sizes, sizes.length * 2);
+            }
+            int[] list = lists[id];
+            if (list == null) {
+                list = lists[id] = new int[4];
+            } else if (sizes[id] == list.length) {
+                list = lists[id] = Arrays.copyOf(list, list.length * 2);
+            }
+            list[sizes[id]++] = row;
+        }
+
+        /**
+         * @return the offsets of the encoded lists, followed by their end
+         */
+        public int[] getOffsets(int count) {
+            int[] offsets = new int[count + 1];
+            for (int id = 0; id < count; id++) {
+                int length = 0;
+                int previous = 0;
+                for (int i = 0; i < sizes[id]; i++) {
+                    length += getDeltaLength(lists[id][i] - previous);
+                    previous = lists[id][i];
+                }
+                offsets[id + 1] = offsets[id] + length;
+            }
+            return offsets;
+        }
+
+        public byte[] getPostings(int[] offsets) {
+            byte[] postings = new byte[offsets[offsets.length - 1]];
+            for (int id = 0; id < offsets.length - 1; id++) {
+                int position = offsets[id];
+                int previous = 0;
+                for (int i = 0; i < sizes[id]; i++) {
+                    position = writeDelta(postings, position, lists[id][i] - previous);
+                    previous = lists[id][i];
+                }
+                lists[id] = null;
+            }
+            return postings;
+        }
+    }
+}
@@ -34,14 +34,9 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.browsing.util;
 
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Properties;
 
-import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.model.Column;
 import com.google.refine.model.Project;
-import com.google.refine.model.Row;
 
 /**
  * A utility class for computing the base bins that form the base histograms of 
@@ -52,8 +47,26 @@ import com.google.refine.model.Row;
  * This class processes all rows rather than just the filtered rows because it
  * needs to compute the base bins of a temporal range facet, which remain unchanged 
  * as the user interacts with the facet.
+ * 
+ * Like {@link NumericBinIndex}, it keeps the values of the rows and the bin of
+ * each temporal value.
  */
-abstract public class TimeBinIndex {
+abstract public class TimeBinIndex implements Column.RowDependentPrecompute {
+    
+    static final protected RowValueIndex.Classifier s_classifier = new RowValueIndex.Classifier() {
+        @Override
+        public byte classify(Object value) {
+            return value instanceof OffsetDateTime ? RowValueIndex.VALUE : RowValueIndex.OTHER;
+        }
+
+        @Override
+        public long toLong(Object value) {
+            return ((OffsetDateTime) value).toInstant().toEpochMilli();
+        }
+    };
+    
+    final protected Project _project;
+    final protected RowValueIndex _rowValues;
     
     protected int _totalValueCount;
     protected int _timeValueCount;
@@ -61,17 +74,16 @@ abstract public class TimeBinIndex {
     protected long _max;
     protected long _step;
     protected int[] _bins;
+    /*
+     * Bin of each value of the rows, or -1
+     */
+    protected int[] _valueBins;
     
     protected int _timeRowCount;
     protected int _nonTimeRowCount;
     protected int _blankRowCount;
     protected int _errorRowCount;
     
-    protected boolean _hasError = false;
-    protected boolean _hasNonTime = false;
-    protected boolean _hasTime = false;
-    protected boolean _hasBlank = false;
-    
     protected long[] steps = { 
             1,                  // msec
             1000,               // sec
@@ -85,25 +97,65 @@ abstract public class TimeBinIndex {
             1000l*31556952l*100l,  // century 
             1000l*31556952l*1000l, // millennium 
     };
-                      
-    abstract protected void iterate(Project project, RowEvaluable rowEvaluable, List<Long> allValues);
+    
+    /**
+     * Counts the rows, or records, which have temporal values, other
+     * values, blanks and errors.
+     */
+    abstract protected void countRows();
     
     public TimeBinIndex(Project project, RowEvaluable rowEvaluable) {
+        _project = project;
+        _rowValues = new RowValueIndex(project, rowEvaluable, s_classifier);
+        computeBins();
+    }
+    
+    @Override
+    public boolean invalidateRows(int[] rowIndices) {
+        return _rowValues.invalidateRows(rowIndices);
+    }
+    
+    /**
+     * Evaluates the rows which changed since the bins were computed, and
+     * computes the bins again if needed.
+     */
+    synchronized protected void update() {
+        if (_rowValues.update()) {
+            computeBins();
+        }
+    }
+    
+    protected void computeBins() {
         _min = Long.MAX_VALUE;
         _max = Long.MIN_VALUE;
+        _timeRowCount = 0;
+        _nonTimeRowCount = 0;
+        _blankRowCount = 0;
+        _errorRowCount = 0;
         
-        List<Long> allValues = new ArrayList<Long>();
-        
-        iterate(project, rowEvaluable, allValues);
+        RowValueIndex values = _rowValues;
+        int valueCount = values.getValueCount();
+        _totalValueCount = valueCount;
+        _timeValueCount = 0;
+        for (int i = 0; i < valueCount; i++) {
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                long t = values.getValue(i);
+                _min = Math.min(_min, t);
+                _max = Math.max(_max, t);
+                _timeValueCount++;
+            }
+        }
         
-        _timeValueCount = allValues.size();
+        countRows();
         
+        _valueBins = new int[valueCount];
         if (_min >= _max) {
             _step = 1;
             _min = Math.min(_min, _max);
             _max = _step;
             _bins = new int[1];
             
+            computeValueBins();
             return;
         }
         
@@ -117,137 +169,102 @@ abstract public class TimeBinIndex {
         }
 
         _bins = new int[(int) (diff / _step) + 1];
-        for (long d : allValues) {
-            int bin = (int) Math.max((d - _min) / _step,0);
-            _bins[bin]++;
+        for (int i = 0; i < valueCount; i++) {
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                int bin = (int) Math.max((values.getValue(i) - _min) / _step,0);
+                _bins[bin]++;
+            }
+        }
+        computeValueBins();
+    }
+    
+    protected void computeValueBins() {
+        RowValueIndex values = _rowValues;
+        for (int i = 0; i < _valueBins.length; i++) {
+            int bin = -1;
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                bin = (int) Math.floor((double) (values.getValue(i) - _min) / (double) _step);
+                if (bin >= _bins.length) {
+                    bin = -1;
+                }
+            }
+            _valueBins[i] = Math.max(bin, -1);
+        }
+    }
+    
+    protected void countRow(byte kinds) {
+        if ((kinds & RowValueIndex.ERROR) != 0) {
+            _errorRowCount++;
+        }
+        if ((kinds & RowValueIndex.BLANK) != 0) {
+            _blankRowCount++;
+        }
+        if ((kinds & RowValueIndex.VALUE) != 0) {
+            _timeRowCount++;
+        }
+        if ((kinds & RowValueIndex.OTHER) != 0) {
+            _nonTimeRowCount++;
         }
     }
     
-    public boolean isTemporal() {
+    synchronized public boolean isTemporal() {
+        update();
         return _timeValueCount > _totalValueCount / 2;
     }
 
-    public long getMin() {
+    synchronized public long getMin() {
+        update();
         return _min;
     }
 
-    public long getMax() {
+    synchronized public long getMax() {
+        update();
         return _max;
     }
 
-    public long getStep() {
+    synchronized public long getStep() {
+        update();
         return _step;
     }
 
-    public int[] getBins() {
+    synchronized public int[] getBins() {
+        update();
         return _bins;
     }
     
-    public int getTimeRowCount() {
+    synchronized public int getTimeRowCount() {
+        update();
         return _timeRowCount;
     }
 
-    public int getNonTimeRowCount() {
+    synchronized public int getNonTimeRowCount() {
+        update();
         return _nonTimeRowCount;
     }
 
-    public int getBlankRowCount() {
+    synchronized public int getBlankRowCount() {
+        update();
         return _blankRowCount;
     }
 
-    public int getErrorRowCount() {
+    synchronized public int getErrorRowCount() {
+        update();
         return _errorRowCount;
     }
-
-    protected void processRow(
-        Project         project, 
-        RowEvaluable    rowEvaluable,
-        List<Long>     allValues,
-        int             rowIndex,
-        Row             row,
-        Properties         bindings
-    ) {
-        Object value = rowEvaluable.eval(project, rowIndex, row, bindings);
-        
-        if (ExpressionUtils.isError(value)) {
-            _hasError = true;
-        } else if (ExpressionUtils.isNonBlankData(value)) {
-            if (value.getClass().isArray()) {
-                Object[] a = (Object[]) value;
-                for (Object v : a) {
-                    _totalValueCount++;
-                    
-                    if (ExpressionUtils.isError(v)) {
-                        _hasError = true;
-                    } else if (ExpressionUtils.isNonBlankData(v)) {
-                        if (v instanceof OffsetDateTime) {
-                            _hasTime = true;
-                            processValue(((OffsetDateTime) v).toInstant().toEpochMilli(), allValues);
-                        } else {
-                            _hasNonTime = true;
-                        }
-                    } else {
-                        _hasBlank = true;
-                    }
-                }
-            } else if (value instanceof Collection<?>) {
-                for (Object v : ExpressionUtils.toObjectCollection(value)) {
-                    _totalValueCount++;
-                    
-                    if (ExpressionUtils.isError(v)) {
-                        _hasError = true;
-                    } else if (ExpressionUtils.isNonBlankData(v)) {
-                        if (v instanceof OffsetDateTime) {
-                            _hasTime = true;
-                            processValue(((OffsetDateTime) v).toInstant().toEpochMilli(), allValues);
-                        } else {
-                            _hasNonTime = true;
-                        }
-                    } else {
-                        _hasBlank = true;
-                    }
-                }
-            } else {
-                _totalValueCount++;
-
-                if (value instanceof OffsetDateTime) {
-                    _hasTime = true;
-                    processValue(((OffsetDateTime) value).toInstant().toEpochMilli(), allValues);
-                } else {
-                    _hasNonTime = true;
-                }
-            }
-        } else {
-            _hasBlank = true;
-        }
-    }
     
-    protected void preprocessing() {
-        _hasBlank = false;
-        _hasError = false;
-        _hasNonTime = false;
-        _hasTime = false;
+    /**
+     * @return the values of the rows, if they can be used instead of
+     *      evaluating the expression, or null
+     */
+    synchronized public RowValueIndex getRowValues() {
+        update();
+        return _rowValues.dependsOnCellOnly() ? _rowValues : null;
     }
     
-    protected void postprocessing() {
-        if (_hasError) {
-            _errorRowCount++;
-        }
-        if (_hasBlank) {
-            _blankRowCount++;
-        }
-        if (_hasTime) {
-            _timeRowCount++;
-        }
-        if (_hasNonTime) {
-            _nonTimeRowCount++;
-        }
+    /**
+     * @return the bin of the value at a position of the row values, or -1
+     */
+    public int getValueBin(int position) {
+        return _valueBins[position];
     }
-
-    protected void processValue(long v, List<Long> allValues) {
-        _min = Math.min(_min, v);
-        _max = Math.max(_max, v);
-        allValues.add(v);
-    }
-
 }
@@ -33,32 +33,20 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing.util;
 
-import java.util.List;
-import java.util.Properties;
-
-import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.model.Project;
-import com.google.refine.model.Row;
 
 public class TimeBinRowIndex extends TimeBinIndex {
-
     public TimeBinRowIndex(Project project, RowEvaluable rowEvaluable) {
+        
         super(project, rowEvaluable);
     }
 
     @Override
-    protected void iterate(Project project, RowEvaluable rowEvaluable, List<Long> allValues) {
-        
-        Properties bindings = ExpressionUtils.createBindings(project);
+    protected void countRows() {
+        int count = _rowValues.getRowCount();
         
-        for (int i = 0; i < project.rows.size(); i++) {
-            Row row = project.rows.get(i);
-            
-            preprocessing();
-            
-            processRow(project, rowEvaluable, allValues, i, row, bindings);
-            
-            postprocessing();
+        for (int i = 0; i < count; i++) {
+            countRow(_rowValues.getRowKinds(i));
         }
     }
 
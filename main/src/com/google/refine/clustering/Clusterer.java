@@ -33,14 +33,78 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.clustering;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
 import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.model.Cell;
 import com.google.refine.model.Column;
 import com.google.refine.model.Project;
+import com.google.refine.model.Row;
 
 public abstract class Clusterer  {
 
     protected Project _project;
     protected int _colindex;
+    protected String _scope = null;
+    protected volatile boolean _canceled = false;
+
+    /**
+     * The distinct values of the column in the rows selected by the facets,
+     * in order of first occurrence, with their number of occurrences.
+     */
+    static public class DistinctValues {
+        final public List<String> values;
+        final public int[] counts;
+
+        public DistinctValues(List<String> values, int[] counts) {
+            this.values = values;
+            this.counts = counts;
+        }
+    }
+
+    class DistinctValuesRowVisitor implements RowVisitor {
+
+        Map<String,Integer> _valueIndices = new HashMap<String,Integer>();
+        List<String> _values = new ArrayList<String>();
+        int[] _counts = new int[16];
+
+        @Override
+        public void start(Project project) {
+            // nothing to do
+        }
+
+        @Override
+        public void end(Project project) {
+            // nothing to do
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, Row row) {
+            Cell cell = row.getCell(_colindex);
+            if (cell != null && cell.value != null) {
+                Object v = cell.value;
+                String s = (v instanceof String) ? ((String) v) : v.toString();
+                Integer index = _valueIndices.get(s);
+                if (index == null) {
+                    index = _values.size();
+                    _valueIndices.put(s, index);
+                    _values.add(s);
+                    if (index == _counts.length) {
+                        _counts = Arrays.copyOf(_counts, _counts.length * 2);
+                    }
+                }
+                _counts[index]++;
+            }
+            return _canceled;
+        }
+    }
 
     public abstract void computeClusters(Engine engine);
     
@@ -54,4 +118,66 @@ public abstract class Clusterer  {
             }
         }
     }
+
+    /**
+     * Shares the distinct values of the column and the other intermediate
+     * results with the clusterers of the same scope.
+     * 
+     * @see ClusteringCache#makeScope
+     */
+    public void setCacheScope(String scope) {
+        _scope = scope;
+    }
+
+    /**
+     * @return how much of the clusters were computed, out of 100
+     */
+    public int getProgress() {
+        return 0;
+    }
+
+    /**
+     * Stops computing the clusters, {@link #computeClusters(Engine)}
+     * then throws a {@link CancellationException}.
+     */
+    public void cancel() {
+        _canceled = true;
+    }
+
+    protected void checkCanceled() {
+        if (_canceled) {
+            throw new CancellationException("Clustering was canceled");
+        }
+    }
+
+    /**
+     * Returns an intermediate result from the cache of the scope of the
+     * clusterer, computing it if needed.
+     * 
+     * @param name identifies the result in the scope
+     */
+    protected <T> T getCached(String name, Supplier<T> loader) {
+        if (_scope == null) {
+            return loader.get();
+        }
+        while (true) {
+            try {
+                return ClusteringCache.getInstance().get(_scope + "\n" + name, loader);
+            } catch (CancellationException e) {
+                // the result may have been loaded by another clusterer of the
+                // same scope which was canceled: failed loads are not cached,
+                // so it is loaded again unless this clusterer is canceled too
+                checkCanceled();
+            }
+        }
+    }
+
+    protected DistinctValues getDistinctValues(Engine engine) {
+        return getCached("values", () -> {
+            DistinctValuesRowVisitor visitor = new DistinctValuesRowVisitor();
+            engine.getAllFilteredRows().accept(_project, visitor);
+            checkCanceled();
+            return new DistinctValues(visitor._values, Arrays.copyOf(visitor._counts, visitor._values.size()));
+        });
+    }
 }
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.clustering;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.model.Project;
+import com.google.refine.util.ParsingUtilities;
+import com.google.refine.util.ProjectStateCache;
+
+/**
+ * Keeps the clusters computed for a column, as well as the intermediate
+ * results they were computed from, so that they can be reused while the
+ * user tries other clustering methods or parameters.
+ * 
+ * Entries are keyed by a scope, which identifies the values of a column in
+ * the rows selected by the facets in a given state of the project. Values are
+ * only softly referenced.
+ */
+public class ClusteringCache extends ProjectStateCache<Object> {
+
+    static final public int MAX_ENTRIES = 100;
+
+    static private final ClusteringCache s_instance = new ClusteringCache();
+
+    final protected Map<String, ClusteringProcess> _processes = new HashMap<>();
+
+    public ClusteringCache() {
+        super(MAX_ENTRIES, true);
+    }
+
+    static public ClusteringCache getInstance() {
+        return s_instance;
+    }
+
+    /**
+     * @return the scope of the values of a column in the rows selected by an
+     *      engine configuration, in the current state of the project
+     */
+    static public String makeScope(Project project, String columnName, EngineConfig engineConfig)
+            throws JsonProcessingException {
+        return makeKey(project, columnName, engineConfig);
+    }
+
+    /**
+     * @return the key of the clusters computed by a clusterer in a scope
+     */
+    static public String makeKey(String scope, ClustererConfig clustererConfig) throws JsonProcessingException {
+        return scope + "\nclusters\n" + ParsingUtilities.defaultWriter.writeValueAsString(clustererConfig);
+    }
+
+    /**
+     * Returns a cached entry of the type the loader computes, computing it
+     * if it is missing.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        return (T) get(key, (Callable<T>) loader::get);
+    }
+
+    /**
+     * @return the process computing the clusters of a key, or null
+     */
+    synchronized public ClusteringProcess getProcess(String key) {
+        return _processes.get(key);
+    }
+
+    /**
+     * Starts a process unless one is already computing the same clusters.
+     * 
+     * @param factory creates the process if needed
+     * @return the process computing the clusters of the key
+     */
+    synchronized public ClusteringProcess startProcess(String key, Supplier<ClusteringProcess> factory) {
+        ClusteringProcess running = _processes.get(key);
+        if (running != null && !running.isCanceled()) {
+            return running;
+        }
+        ClusteringProcess process = factory.get();
+        _processes.put(key, process);
+        process.startPerforming(null);
+        return process;
+    }
+
+    /**
+     * Stores the result of a process, which is then forgotten.
+     * 
+     * @param clusters the clusters as JSON, or null if the process failed
+     */
+    synchronized protected void onProcessDone(String key, ClusteringProcess process, String clusters) {
+        if (clusters != null) {
+            _entries.put(key, clusters);
+        }
+        _processes.remove(key, process);
+    }
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.clustering;
+
+import java.util.concurrent.CancellationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.refine.browsing.Engine;
+import com.google.refine.process.LongRunningProcess;
+import com.google.refine.util.ParsingUtilities;
+
+/**
+ * Computes the clusters of a column in the background. The clusters do not
+ * change the project, so the process is not queued with the operations of
+ * the project: it is started by the {@link ClusteringCache}, which stores
+ * its result.
+ */
+public class ClusteringProcess extends LongRunningProcess implements Runnable {
+
+    final static Logger logger = LoggerFactory.getLogger("clustering_process");
+
+    final protected ClusteringCache _cache;
+    final protected String _key;
+    final protected Clusterer _clusterer;
+    final protected Engine _engine;
+
+    protected String _clusters;
+    protected Exception _exception;
+
+    /**
+     * @param key the key of the clusters in the cache
+     * @param clusterer the clusterer, sharing intermediate results in its scope
+     * @param engine the rows to cluster
+     */
+    public ClusteringProcess(ClusteringCache cache, String key, String description, Clusterer clusterer,
+            Engine engine) {
+        super(description);
+        _cache = cache;
+        _key = key;
+        _clusterer = clusterer;
+        _engine = engine;
+    }
+
+    @Override
+    protected Runnable getRunnable() {
+        return this;
+    }
+
+    @Override
+    public void run() {
+        long start = System.currentTimeMillis();
+        String clusters = null;
+        try {
+            _clusterer.computeClusters(_engine);
+            clusters = ParsingUtilities.defaultWriter.writeValueAsString(_clusterer);
+            logger.info("computed clusters in {}ms", System.currentTimeMillis() - start);
+        } catch (CancellationException e) {
+            _exception = e;
+        } catch (Exception e) {
+            logger.error("Could not compute clusters", e);
+            _exception = e;
+        }
+        _clusters = clusters;
+        _cache.onProcessDone(_key, this, clusters);
+    }
+
+    /**
+     * Stops computing the clusters. Intermediate results which were
+     * already complete are kept in the cache.
+     */
+    @Override
+    public void cancel() {
+        _canceled = true;
+        _clusterer.cancel();
+    }
+
+    @JsonIgnore
+    public boolean isCanceled() {
+        return _canceled;
+    }
+
+    @JsonProperty("progress")
+    public int getProgress() {
+        return isDone() ? 100 : _clusterer.getProgress();
+    }
+
+    /**
+     * Waits for the clusters to be computed.
+     * 
+     * @return true if the process is done
+     */
+    public boolean waitFor(long millis) throws InterruptedException {
+        if (_thread != null) {
+            _thread.join(millis);
+        }
+        return isDone();
+    }
+
+    /**
+     * @return the clusters as JSON
+     * @throws Exception the error which stopped the process
+     */
+    @JsonIgnore
+    public String getClusters() throws Exception {
+        if (_exception != null) {
+            throw _exception;
+        }
+        return _clusters;
+    }
+}
@@ -35,6 +35,7 @@ package com.google.refine.clustering.binning;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -42,7 +43,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,14 +56,10 @@ import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.google.refine.browsing.Engine;
-import com.google.refine.browsing.FilteredRows;
-import com.google.refine.browsing.RowVisitor;
 import com.google.refine.clustering.ClusteredEntry;
 import com.google.refine.clustering.Clusterer;
 import com.google.refine.clustering.ClustererConfig;
-import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
-import com.google.refine.model.Row;
 
 public class BinningClusterer extends Clusterer {
     
@@ -127,61 +126,63 @@ public class BinningClusterer extends Clusterer {
     
     List<Map<String,Integer>> _clusters;
 
-    class BinningRowVisitor implements RowVisitor {
+    /**
+     * Number of distinct values from which keys are computed in parallel
+     */
+    static final int PARALLEL_THRESHOLD = 1000;
 
-        Keyer _keyer;
-        Object[] _params;
-        BinningParameters _parameters;
-        
-        Map<String,Map<String,Integer>> _map = new HashMap<String,Map<String,Integer>>();
-        
-        public BinningRowVisitor(Keyer k, BinningParameters parameters) {
-            _keyer = k;
-            _parameters = parameters;
-            if (k instanceof NGramFingerprintKeyer) {
-                if(_parameters != null) {
-                    _params = new Object[1];
-                    _params[0] = _parameters.ngramSize;
-                }
-            }
-        }
-        
-        @Override
-        public void start(Project project) {
-            // nothing to do
-        }
+    final AtomicInteger _keysDone = new AtomicInteger();
+    volatile int _keyCount = 0;
 
-        @Override
-        public void end(Project project) {
-            // nothing to do
+    protected Object[] getKeyerParams() {
+        if (_keyer instanceof NGramFingerprintKeyer && _parameters != null) {
+            return new Object[] { _parameters.ngramSize };
         }
-        
-        @Override
-        public boolean visit(Project project, int rowIndex, Row row) {
-            Cell cell = row.getCell(_colindex);
-            if (cell != null && cell.value != null) {
-                Object v = cell.value;
-                String s = (v instanceof String) ? ((String) v) : v.toString();
-                String key = _keyer.key(s,_params);
-                if (_map.containsKey(key)) {
-                    Map<String,Integer> m = _map.get(key);
-                    if (m.containsKey(s)) {
-                        m.put(s, m.get(s) + 1);
-                    } else {
-                        m.put(s,1);
-                    }
-                } else {
-                    Map<String,Integer> m = new TreeMap<String,Integer>();
-                    m.put(s,1);
-                    _map.put(key, m);
+        return null;
+    }
+
+    /**
+     * Computes the key of each distinct value. Keys can be expensive to
+     * compute, so they are only computed once per distinct value, and
+     * cached for the other clusterers of the same keyer.
+     */
+    protected String[] getKeys(List<String> values) {
+        Object[] params = getKeyerParams();
+        String name = "keys\n" + _keyer.getClass().getName() + "\n" + Arrays.toString(params);
+        return getCached(name, () -> {
+            int size = values.size();
+            String[] keys = new String[size];
+            _keyCount = size;
+            IntStream indices = IntStream.range(0, size);
+            if (size >= PARALLEL_THRESHOLD && _keyer.isThreadSafe()) {
+                indices = indices.parallel();
+            }
+            indices.forEach(i -> {
+                if (!_canceled) {
+                    keys[i] = _keyer.key(values.get(i), params);
+                    _keysDone.incrementAndGet();
                 }
+            });
+            checkCanceled();
+            return keys;
+        });
+    }
+
+    /**
+     * Groups the distinct values by key. Keys are inserted in the order
+     * of the first occurrence of their values, like the rows were visited.
+     */
+    protected Map<String,Map<String,Integer>> getMap(DistinctValues distinct, String[] keys) {
+        Map<String,Map<String,Integer>> map = new HashMap<String,Map<String,Integer>>();
+        for (int i = 0; i < keys.length; i++) {
+            Map<String,Integer> m = map.get(keys[i]);
+            if (m == null) {
+                m = new TreeMap<String,Integer>();
+                map.put(keys[i], m);
             }
-            return false;
-        }
-        
-        public Map<String,Map<String,Integer>> getMap() {
-            return _map;
+            m.put(distinct.values.get(i), distinct.counts[i]);
         }
+        return map;
     }
             
     public static class SizeComparator implements Comparator<Map<String,Integer>>, Serializable {
@@ -222,14 +223,17 @@ public class BinningClusterer extends Clusterer {
 
     @Override
     public void computeClusters(Engine engine) {
-        BinningRowVisitor visitor = new BinningRowVisitor(_keyer,_parameters);
-        FilteredRows filteredRows = engine.getAllFilteredRows();
-        filteredRows.accept(_project, visitor);
-     
-        Map<String,Map<String,Integer>> map = visitor.getMap();
+        DistinctValues distinct = getDistinctValues(engine);
+        Map<String,Map<String,Integer>> map = getMap(distinct, getKeys(distinct.values));
         _clusters = new ArrayList<Map<String,Integer>>(map.values());
         Collections.sort(_clusters, new SizeComparator());
     }
+
+    @Override
+    public int getProgress() {
+        int count = _keyCount;
+        return count == 0 ? 0 : _keysDone.get() * 100 / count;
+    }
     
     protected static Map<String,Object> entryToMap(Entry<String,Integer> entry) {
         Map<String,Object> map = new HashMap<>();
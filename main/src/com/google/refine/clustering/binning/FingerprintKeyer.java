@@ -33,22 +33,232 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.clustering.binning;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Locale;
 import java.util.TreeSet;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 
+/**
+ * Computes keys made of the distinct words of a string, sorted, lowercased
+ * and without punctuation or diacritics.
+ * 
+ * Strings made of Latin-1 and Latin Extended-A characters, which are most
+ * of the strings in practice, are keyed in a single pass over a buffer reused
+ * by the thread, with the characters folded by a table. Other strings go
+ * through the equivalent steps with regular expressions and string sets.
+ */
 public class FingerprintKeyer extends Keyer {
 
     // Punctuation and control characters (except for TAB which we need for split to work)
     static final Pattern punctctrl = Pattern.compile("\\p{Punct}|[\\x00-\\x08\\x0A-\\x1F\\x7F]");
-    
+
+    /**
+     * Characters folded by tables: their lowercase form is the same in all
+     * locales but the few ones checked by {@link #hasSimpleLowerCase()}
+     */
+    static final int TABLE_SIZE = 0x180;
+    /**
+     * Strings longer than this are keyed in steps, so that thread buffers stay small
+     */
+    static final int MAX_BUFFERED_LENGTH = 1 << 16;
+
+    static final char REMOVED = '\u0000';
+    static final char SEPARATOR = ' ';
+    static final char UNSUPPORTED = '\uFFFF';
+
+    /**
+     * The ASCII equivalent of each lowercase character
+     */
+    static final char[] ASCII = new char[TABLE_SIZE];
+    /**
+     * How each character is keyed: removed, separating words, or folded
+     */
+    static final char[] FOLDED = new char[TABLE_SIZE];
+
+    static {
+        for (char c = 0; c < TABLE_SIZE; c++) {
+            ASCII[c] = translate(c);
+            char lower = Character.toLowerCase(c);
+            if (c == '\u0130') {
+                // lowercased to two characters
+                FOLDED[c] = UNSUPPORTED;
+            } else if (punctctrl.matcher(String.valueOf(lower)).matches()) {
+                FOLDED[c] = REMOVED;
+            } else if (Character.isWhitespace(translate(lower))) {
+                FOLDED[c] = SEPARATOR;
+            } else {
+                FOLDED[c] = translate(lower);
+            }
+        }
+    }
+
+    /**
+     * Working memory of the keyers, reused by each thread. The words or
+     * n-grams of a string are ranges of its folded characters, which are
+     * sorted by their order of indices.
+     */
+    static protected class Buffer {
+        char[] chars = new char[64];
+        char[] out = new char[64];
+        int[] starts = new int[16];
+        int[] lengths = new int[16];
+        int[] order = new int[16];
+        int[] temp = new int[16];
+        int count;
+
+        void reset(int length) {
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            count = 0;
+        }
+
+        void addRange(int start, int length) {
+            if (count == starts.length) {
+                int size = count * 2;
+                starts = Arrays.copyOf(starts, size);
+                lengths = Arrays.copyOf(lengths, size);
+                order = new int[size];
+                temp = new int[size];
+            }
+            starts[count] = start;
+            lengths[count] = length;
+            count++;
+        }
+
+        char[] out(int length) {
+            if (out.length < length) {
+                out = new char[Math.max(length, out.length * 2)];
+            }
+            return out;
+        }
+
+        /**
+         * Compares two ranges like {@link String#compareTo(String)}
+         */
+        int compare(int a, int b) {
+            int startA = starts[a];
+            int startB = starts[b];
+            int length = Math.min(lengths[a], lengths[b]);
+            for (int k = 0; k < length; k++) {
+                int d = chars[startA + k] - chars[startB + k];
+                if (d != 0) {
+                    return d;
+                }
+            }
+            return lengths[a] - lengths[b];
+        }
+
+        /**
+         * Sorts the ranges, in place of {@link #order}
+         */
+        void sort() {
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            sort(0, count);
+        }
+
+        private void sort(int from, int to) {
+            if (to - from <= 8) {
+                for (int i = from + 1; i < to; i++) {
+                    int range = order[i];
+                    int j = i - 1;
+                    while (j >= from && compare(order[j], range) > 0) {
+                        order[j + 1] = order[j];
+                        j--;
+                    }
+                    order[j + 1] = range;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            sort(from, middle);
+            sort(middle, to);
+            if (compare(order[middle - 1], order[middle]) <= 0) {
+                return;
+            }
+            System.arraycopy(order, from, temp, from, to - from);
+            int i = from;
+            int j = middle;
+            for (int k = from; k < to; k++) {
+                if (j >= to || (i < middle && compare(temp[i], temp[j]) <= 0)) {
+                    order[k] = temp[i++];
+                } else {
+                    order[k] = temp[j++];
+                }
+            }
+        }
+
+        /**
+         * @return whether the ranges at these positions of the order are equal
+         */
+        boolean sameAsPrevious(int position) {
+            return position > 0 && compare(order[position - 1], order[position]) == 0;
+        }
+    }
+
+    static final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
     @Override
     public String key(String s, Object... o) {
         if (s == null || o !=null && o.length > 0) {
             throw new IllegalArgumentException("Fingerprint keyer accepts a single string parameter");
         }
+        int length = s.length();
+        if (length > MAX_BUFFERED_LENGTH || !hasSimpleLowerCase()) {
+            return keyInSteps(s);
+        }
+        Buffer b = buffers.get();
+        b.reset(length);
+        char[] chars = b.chars;
+        int n = 0;
+        int wordStart = -1;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            char f = c < TABLE_SIZE ? FOLDED[c] : UNSUPPORTED;
+            if (f == UNSUPPORTED) {
+                return keyInSteps(s);
+            } else if (f == SEPARATOR) {
+                if (wordStart >= 0) {
+                    b.addRange(wordStart, n - wordStart);
+                    wordStart = -1;
+                }
+            } else if (f != REMOVED) {
+                if (wordStart < 0) {
+                    wordStart = n;
+                }
+                chars[n++] = f;
+            }
+        }
+        if (wordStart >= 0) {
+            b.addRange(wordStart, n - wordStart);
+        }
+
+        b.sort(); // order words and dedupe
+        char[] out = b.out(n + b.count);
+        int size = 0;
+        for (int i = 0; i < b.count; i++) {
+            if (b.sameAsPrevious(i)) {
+                continue;
+            }
+            if (size > 0) {
+                out[size++] = ' ';
+            }
+            int word = b.order[i];
+            System.arraycopy(chars, b.starts[word], out, size, b.lengths[word]);
+            size += b.lengths[word];
+        }
+        return new String(out, 0, size);
+    }
+
+    /**
+     * Computes the key of any string, one step after the other.
+     */
+    protected String keyInSteps(String s) {
         s = s.trim(); // first off, remove whitespace around the string
         s = s.toLowerCase(); // then lowercase it
         s = punctctrl.matcher(s).replaceAll(""); // then remove all punctuation and control chars
@@ -69,20 +279,33 @@ public class FingerprintKeyer extends Keyer {
         return b.toString();
     }
 
+    /**
+     * @return whether the characters of the tables are lowercased the same in
+     *      the default locale as in the root locale
+     */
+    static protected boolean hasSimpleLowerCase() {
+        String language = Locale.getDefault().getLanguage();
+        return !("tr".equals(language) || "az".equals(language) || "lt".equals(language));
+    }
+
     protected String asciify(String s) {
         char[] c = s.toCharArray();
         StringBuffer b = new StringBuffer();
         for (char element : c) {
-            b.append(translate(element));
+            b.append(asciify(element));
         }
         return b.toString();
     }
+
+    static protected char asciify(char c) {
+        return c < TABLE_SIZE ? ASCII[c] : translate(c);
+    }
     
     /**
      * Translate the given unicode char in the closest ASCII representation
      * NOTE: this function deals only with latin-1 supplement and latin-1 extended code charts
      */
-    private char translate(char c) {
+    static private char translate(char c) {
         switch(c) {
             case '\u00C0':
             case '\u00C1':
@@ -287,4 +510,9 @@ public class FingerprintKeyer extends Keyer {
         }
         return c;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -42,4 +42,12 @@ public abstract class Keyer {
     
     public abstract String key(String string, Object... params);
     
+    /**
+     * Whether {@link #key(String, Object...)} can be called from several
+     * threads at once. Keys of large columns are only computed in parallel
+     * by keyers which return true.
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
 }
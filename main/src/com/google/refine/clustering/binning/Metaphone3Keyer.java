@@ -47,5 +47,9 @@ public class Metaphone3Keyer extends Keyer {
         _metaphone3.Encode();
         return _metaphone3.GetMetaph();
     }
-    
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
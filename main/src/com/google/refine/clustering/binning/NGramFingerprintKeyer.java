@@ -37,9 +37,34 @@ import java.util.Iterator;
 import java.util.TreeSet;
 import java.util.regex.Pattern;
 
+/**
+ * Computes keys made of the distinct n-grams of a string, sorted and
+ * concatenated, after removing punctuation, spaces and diacritics.
+ * 
+ * Like the {@link FingerprintKeyer}, most strings are keyed in a single pass
+ * over a buffer reused by the thread.
+ */
 public class NGramFingerprintKeyer extends FingerprintKeyer {
 
     static final Pattern alphanum = Pattern.compile("\\p{Punct}|\\p{Cntrl}|\\p{Space}");
+
+    /**
+     * How each character is keyed: removed, or lowercased
+     */
+    static final char[] NGRAM_FOLDED = new char[TABLE_SIZE];
+
+    static {
+        for (char c = 0; c < TABLE_SIZE; c++) {
+            char lower = Character.toLowerCase(c);
+            if (c == '\u0130') {
+                NGRAM_FOLDED[c] = UNSUPPORTED;
+            } else if (alphanum.matcher(String.valueOf(lower)).matches()) {
+                NGRAM_FOLDED[c] = REMOVED;
+            } else {
+                NGRAM_FOLDED[c] = lower;
+            }
+        }
+    }
     
     @Override
     public String key(String s, Object... o) {
@@ -47,6 +72,47 @@ public class NGramFingerprintKeyer extends FingerprintKeyer {
         if (o != null && o.length > 0 && o[0] instanceof Number) {
             ngram_size = (Integer) o[0];
         }
+        int length = s.length();
+        if (ngram_size < 1 || length > MAX_BUFFERED_LENGTH || !hasSimpleLowerCase()) {
+            return keyInSteps(s, ngram_size);
+        }
+        Buffer b = buffers.get();
+        b.reset(length);
+        char[] chars = b.chars;
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            char f = c < TABLE_SIZE ? NGRAM_FOLDED[c] : UNSUPPORTED;
+            if (f == UNSUPPORTED) {
+                return keyInSteps(s, ngram_size);
+            } else if (f != REMOVED) {
+                chars[n++] = f;
+            }
+        }
+        for (int i = 0; i + ngram_size <= n; i++) {
+            b.addRange(i, ngram_size);
+        }
+
+        // n-grams are ordered before finding their ASCII equivalent
+        b.sort();
+        char[] out = b.out(b.count * ngram_size);
+        int size = 0;
+        for (int i = 0; i < b.count; i++) {
+            if (b.sameAsPrevious(i)) {
+                continue;
+            }
+            int start = b.starts[b.order[i]];
+            for (int k = 0; k < ngram_size; k++) {
+                out[size++] = asciify(chars[start + k]);
+            }
+        }
+        return new String(out, 0, size);
+    }
+
+    /**
+     * Computes the key of any string, one step after the other.
+     */
+    protected String keyInSteps(String s, int ngram_size) {
         s = s.toLowerCase(); // then lowercase it
         s = alphanum.matcher(s).replaceAll(""); // then remove all punctuation and control chars
         TreeSet<String> set = ngram_split(s,ngram_size);
@@ -66,4 +132,9 @@ public class NGramFingerprintKeyer extends FingerprintKeyer {
         }
         return set;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
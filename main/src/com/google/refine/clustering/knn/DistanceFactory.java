@@ -39,7 +39,6 @@ import edu.mit.simile.vicino.distances.JaccardDistance;
 import edu.mit.simile.vicino.distances.JaroDistance;
 import edu.mit.simile.vicino.distances.JaroWinklerDistance;
 import edu.mit.simile.vicino.distances.JaroWinklerTFIDFDistance;
-import edu.mit.simile.vicino.distances.LevenshteinDistance;
 import edu.mit.simile.vicino.distances.PPMDistance;
 
 /**
@@ -54,7 +53,7 @@ public class DistanceFactory {
 	private static List<String> _distanceNames = new LinkedList<>();
     
     static {
-        put("levenshtein", new VicinoDistance(new LevenshteinDistance()));
+        put("levenshtein", new EditDistance());
         put("ppm", new VicinoDistance(new PPMDistance()));
         
         // Distances not activated as they are not very useful:
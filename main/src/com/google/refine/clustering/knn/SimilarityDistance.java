@@ -41,4 +41,19 @@ public interface SimilarityDistance {
 	 * two arguments are equal, and rise as their differences increase.
 	 */
 	public double compute(String a, String b);
+	
+	/**
+	 * Returns a lower bound of the distance between two strings, computed from
+	 * their lengths and from the number of bigrams they have in common
+	 * (counted with multiplicity, after lowercasing each character). Clustering uses it to skip
+	 * pairs of strings which cannot be close enough, without computing
+	 * their distance.
+	 * 
+	 * The bound must not increase with the number of common bigrams, and must
+	 * not decrease as the difference between the lengths grows. Distances which
+	 * cannot be bounded this way return 0, which never skips any pair.
+	 */
+	public default double lowerBound(int lengthA, int lengthB, int commonBigrams) {
+		return 0;
+	}
 }
@@ -35,8 +35,7 @@ package com.google.refine.clustering.knn;
 
 import java.io.Serializable;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -50,7 +49,6 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.google.refine.browsing.Engine;
-import com.google.refine.browsing.FilteredRows;
 import com.google.refine.browsing.RowVisitor;
 import com.google.refine.clustering.ClusteredEntry;
 import com.google.refine.clustering.Clusterer;
@@ -59,7 +57,6 @@ import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
 import com.google.refine.model.Row;
 
-import edu.mit.simile.vicino.clustering.NGramClusterer;
 import edu.mit.simile.vicino.clustering.VPTreeClusterer;
 import edu.mit.simile.vicino.distances.Distance;
 
@@ -127,7 +124,9 @@ public class kNNClusterer extends Clusterer {
 
     List<Set<Serializable>> _clusters;
 
-    Map<Serializable, Integer> _counts = new HashMap<Serializable, Integer>();
+    Map<Serializable, Integer> _counts = new LinkedHashMap<Serializable, Integer>();
+
+    volatile BlockingClusteringEngine _engine;
 
     final static Logger logger = LoggerFactory.getLogger("kNN_clusterer");
 
@@ -170,62 +169,6 @@ public class kNNClusterer extends Clusterer {
         }
     }
 
-    class BlockingClusteringRowVisitor implements RowVisitor {
-
-        SimilarityDistance _distance;
-        double _radius = 1.0d;
-        int _blockingNgramSize = 6;
-        HashSet<String> _data;
-        NGramClusterer _clusterer;
-        
-        private class DistanceWrapper extends Distance {
-        	private final SimilarityDistance _d;
-        	
-        	protected DistanceWrapper(SimilarityDistance d) {
-        		_d = d;
-        	}
-
-			@Override
-			public double d(String arg0, String arg1) {
-				return _d.compute(arg0, arg1);
-			}
-        }
-        
-        public BlockingClusteringRowVisitor(SimilarityDistance _distance2, kNNClustererConfigParameters params) {
-            _distance = _distance2;
-            _data = new HashSet<String>();
-            _blockingNgramSize = params.blockingNgramSize;
-            _radius = params.radius;
-            _clusterer = new NGramClusterer(new DistanceWrapper(_distance), _blockingNgramSize);
-        }
-        
-        @Override
-        public void start(Project project) {
-            // nothing to do
-        }
-
-        @Override
-        public void end(Project project) {
-            // nothing to do
-        }
-        
-        @Override
-        public boolean visit(Project project, int rowIndex, Row row) {
-            Cell cell = row.getCell(_colindex);
-            if (cell != null && cell.value != null) {
-                Object v = cell.value;
-                String s = (v instanceof String) ? ((String) v) : v.toString().intern();
-                _clusterer.populate(s);
-                count(s);
-            }
-            return false;
-        }
-        
-        public List<Set<Serializable>> getClusters() {
-            return _clusterer.getClusters(_radius);
-        }
-    }
-    
     public void initializeFromConfig(Project project, kNNClustererConfig config) {
         super.initializeFromConfig(project, config);
         _distance = config.getDistance();
@@ -235,11 +178,30 @@ public class kNNClusterer extends Clusterer {
     @Override
     public void computeClusters(Engine engine) {
         //VPTreeClusteringRowVisitor visitor = new VPTreeClusteringRowVisitor(_distance,_config);
-        BlockingClusteringRowVisitor visitor = new BlockingClusteringRowVisitor(_distance,_params);
-        FilteredRows filteredRows = engine.getAllFilteredRows();
-        filteredRows.accept(_project, visitor);
+        DistinctValues distinct = getDistinctValues(engine);
+        _counts = new LinkedHashMap<Serializable, Integer>();
+        for (int i = 0; i < distinct.counts.length; i++) {
+            _counts.put(distinct.values.get(i), distinct.counts[i]);
+        }
      
-        _clusters = visitor.getClusters();
+        _engine = new BlockingClusteringEngine(_distance, _params.blockingNgramSize, _params.radius);
+        checkCanceled();
+        _clusters = _engine.getClusters(distinct.values);
+    }
+
+    @Override
+    public int getProgress() {
+        BlockingClusteringEngine engine = _engine;
+        return engine == null ? 0 : engine.getProgress();
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        BlockingClusteringEngine engine = _engine;
+        if (engine != null) {
+            engine.cancel();
+        }
     }
 
     public static class ValuesComparator implements Comparator<Entry<Serializable,Integer>>, Serializable {
@@ -266,10 +228,6 @@ public class kNNClusterer extends Clusterer {
     }
     
     private void count(Serializable s) {
-        if (_counts.containsKey(s)) {
-            _counts.put(s, _counts.get(s) + 1);
-        } else {
-            _counts.put(s, 1);
-        }
+        _counts.merge(s, 1, Integer::sum);
     }
 }
@@ -42,16 +42,32 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.EngineConfig;
 import com.google.refine.clustering.Clusterer;
 import com.google.refine.clustering.ClustererConfig;
+import com.google.refine.clustering.ClusteringCache;
+import com.google.refine.clustering.ClusteringProcess;
 import com.google.refine.commands.Command;
 import com.google.refine.model.Project;
 import com.google.refine.util.ParsingUtilities;
 
+/**
+ * Computes the clusters of a column in a {@link ClusteringProcess}. Clusters
+ * which take more than a few seconds to compute are returned by later calls
+ * of the command with the same parameters: in the meantime, it responds with
+ * the progress of the process. The process can be stopped by calling the
+ * command with the "cancel" parameter.
+ */
 public class ComputeClustersCommand extends Command {
 
     final static Logger logger = LoggerFactory.getLogger("compute-clusters_command");
+
+    /**
+     * How long the command waits for the clusters before responding with the progress
+     */
+    static final long WAIT_MILLIS = 2000;
     
     /**
      * This command uses POST (probably to allow for larger parameters) but does not actually modify any state
@@ -62,20 +78,61 @@ public class ComputeClustersCommand extends Command {
             throws ServletException, IOException {
         
         try {
-            long start = System.currentTimeMillis();
             Project project = getProject(request);
-            Engine engine = getEngine(request, project);
+            EngineConfig engineConfig = getEngineConfig(request);
             String clusterer_conf = request.getParameter("clusterer");
             ClustererConfig clustererConfig = ParsingUtilities.mapper.readValue(clusterer_conf, ClustererConfig.class);
 
-            Clusterer clusterer = clustererConfig.apply(project);
-            
-            clusterer.computeClusters(engine);
-            
-            respondJSON(response, clusterer);
-            logger.info("computed clusters [{}] in {}ms", new Object[] { clustererConfig.getType(), Long.toString(System.currentTimeMillis() - start) });
+            ClusteringCache cache = ClusteringCache.getInstance();
+            String scope = ClusteringCache.makeScope(project, clustererConfig.getColumnName(), engineConfig);
+            String key = ClusteringCache.makeKey(scope, clustererConfig);
+
+            if ("true".equals(request.getParameter("cancel"))) {
+                ClusteringProcess process = cache.getProcess(key);
+                if (process != null) {
+                    process.cancel();
+                }
+                response.setHeader("Content-Type", "application/json");
+                respond(response, "{ \"code\" : \"ok\" }");
+                return;
+            }
+
+            String clusters = (String) cache.getIfPresent(key);
+            if (clusters == null) {
+                Engine engine = getEngine(request, project);
+                ClusteringProcess process = cache.startProcess(key, () -> {
+                    Clusterer clusterer = clustererConfig.apply(project);
+                    clusterer.setCacheScope(scope);
+                    logger.info("computing clusters [{}]", clustererConfig.getType());
+                    return new ClusteringProcess(cache, key, "Clustering column " + clustererConfig.getColumnName(),
+                            clusterer, engine);
+                });
+                if (!process.waitFor(WAIT_MILLIS)) {
+                    respondPending(response, process.getProgress());
+                    return;
+                }
+                clusters = process.getClusters();
+            }
+
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader("Content-Type", "application/json");
+            response.setHeader("Cache-Control", "no-cache");
+            respond(response, clusters);
         } catch (Exception e) {
             respondException(response, e);
         }
     }
+
+    protected void respondPending(HttpServletResponse response, int progress) throws IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Type", "application/json");
+        response.setHeader("Cache-Control", "no-cache");
+        JsonGenerator writer = ParsingUtilities.mapper.getFactory().createGenerator(response.getWriter());
+        writer.writeStartObject();
+        writer.writeStringField("code", "pending");
+        writer.writeNumberField("progress", progress);
+        writer.writeEndObject();
+        writer.flush();
+        writer.close();
+    }
 }
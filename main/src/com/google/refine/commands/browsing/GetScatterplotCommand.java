@@ -35,6 +35,7 @@ package com.google.refine.commands.browsing;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
@@ -50,9 +51,9 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.refine.browsing.Engine;
-import com.google.refine.browsing.FilteredRows;
-import com.google.refine.browsing.facets.ScatterplotDrawingRowVisitor;
+import com.google.refine.browsing.facets.ScatterplotAxis;
 import com.google.refine.browsing.facets.ScatterplotFacet;
+import com.google.refine.browsing.facets.ScatterplotRasterizer;
 import com.google.refine.browsing.util.NumericBinIndex;
 import com.google.refine.commands.Command;
 import com.google.refine.expr.Evaluable;
@@ -66,6 +67,9 @@ public class GetScatterplotCommand extends Command {
 
     final static Logger logger = LoggerFactory.getLogger("get-scatterplot_command");
     
+    public static final String MODE = "mode";
+    public static final String HEATMAP = "heatmap";
+    
     @Override
     public void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -79,13 +83,19 @@ public class GetScatterplotCommand extends Command {
             		request.getParameter("plotter"),
             		PlotterConfig.class);
             
+            byte[] image = ScatterplotTileCache.getInstance().getTile(project, getEngineConfig(request), conf, () -> {
+                ByteArrayOutputStream output = new ByteArrayOutputStream(4096);
+                draw(output, project, engine, conf);
+                return output.toByteArray();
+            });
+            
             response.setHeader("Content-Type", "image/png");
             
             ServletOutputStream sos = null;
             
             try {
                 sos = response.getOutputStream();
-                draw(sos, project, engine, conf);
+                sos.write(image);
             } finally {
                 sos.close();
             }
@@ -120,6 +130,9 @@ public class GetScatterplotCommand extends Command {
     	public String columnName_y = "";
     	@JsonProperty(ScatterplotFacet.Y_EXPRESSION)
     	public String expression_y = "value";
+    	// "dot" to draw a dot per row, "heatmap" to shade pixels by their number of rows
+    	@JsonProperty(MODE)
+    	public String mode = "dot";
     	
         @JsonProperty(ScatterplotFacet.DIM_X)
         public String getDimX() {
@@ -219,26 +232,16 @@ public class GetScatterplotCommand extends Command {
         }
         
         if (index_x != null && index_y != null && index_x.isNumeric() && index_y.isNumeric()) {
-            ScatterplotDrawingRowVisitor drawer = new ScatterplotDrawingRowVisitor(
-                columnIndex_x, columnIndex_y, min_x, max_x, min_y, max_y, 
-                o.size, o.dim_x, o.dim_y, o.rotation, o.dot, color
+            ScatterplotRasterizer rasterizer = new ScatterplotRasterizer(
+                ScatterplotAxis.getAxis(project, column_x, min_x, max_x, o.dim_x),
+                ScatterplotAxis.getAxis(project, column_y, min_y, max_y, o.dim_y),
+                o.size, o.rotation
             );
             
-            if (base_color != null) {
-                drawer.setColor(base_color);
-                
-                FilteredRows filteredRows = engine.getAllRows();
-                filteredRows.accept(project, drawer);
-                
-                drawer.setColor(color);
-            }
-            
-            {
-                FilteredRows filteredRows = engine.getAllFilteredRows();
-                filteredRows.accept(project, drawer);
-            }
+            int[] baseCounts = base_color != null ? rasterizer.countAllRows() : null;
+            int[] counts = rasterizer.countRows(project, engine.getAllFilteredRows());
             
-            ImageIO.write(drawer.getImage(), "png", output);
+            ImageIO.write(rasterizer.render(baseCounts, base_color, counts, color, o.dot, HEATMAP.equals(o.mode)), "png", output);
         } else {
             ImageIO.write(new BufferedImage(1, 1, BufferedImage.TYPE_4BYTE_ABGR), "png", output);
         }
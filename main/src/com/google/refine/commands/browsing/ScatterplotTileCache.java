@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.commands.browsing;
+
+import java.util.concurrent.Callable;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.model.Project;
+import com.google.refine.util.ProjectStateCache;
+
+/**
+ * Keeps the PNG images of the scatterplots drawn recently, so that the
+ * plots of a scatterplot matrix or facet are only drawn again once the
+ * project or the facets change.
+ * 
+ * Entries are keyed by the state of the project and the engine and plotter
+ * configurations. Values are only softly referenced.
+ */
+public class ScatterplotTileCache extends ProjectStateCache<byte[]> {
+
+    static final public int MAX_ENTRIES = 1000;
+
+    static private final ScatterplotTileCache s_instance = new ScatterplotTileCache();
+
+    public ScatterplotTileCache() {
+        super(MAX_ENTRIES, true);
+    }
+
+    static public ScatterplotTileCache getInstance() {
+        return s_instance;
+    }
+
+    /**
+     * Returns the cached image of a scatterplot, drawing it if needed.
+     * 
+     * @param engineConfig the configuration of the facets the plot was drawn with
+     * @param plotterConfig the configuration of the plot
+     */
+    public byte[] getTile(Project project, EngineConfig engineConfig, Object plotterConfig, Callable<byte[]> draw)
+            throws JsonProcessingException {
+        return get(makeKey(project, engineConfig, plotterConfig), draw);
+    }
+}
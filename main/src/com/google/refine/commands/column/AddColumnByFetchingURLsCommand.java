@@ -61,6 +61,8 @@ public class AddColumnByFetchingURLsCommand extends EngineDependentCommand {
         boolean cacheResponses = Boolean.parseBoolean(request.getParameter("cacheResponses"));
         ObjectMapper mapper = new ObjectMapper();
         List<HttpHeader> headers = Arrays.asList(mapper.readValue(request.getParameter("httpHeaders"), HttpHeader[].class));
+        Integer concurrency = getOptionalInteger(request, "concurrency");
+        Integer maxRequestsPerHost = getOptionalInteger(request, "maxRequestsPerHost");
 
         return new ColumnAdditionByFetchingURLsOperation(
             engineConfig, 
@@ -71,8 +73,15 @@ public class AddColumnByFetchingURLsCommand extends EngineDependentCommand {
             columnInsertIndex,
             delay,
             cacheResponses,
-            headers
+            headers,
+            concurrency,
+            maxRequestsPerHost
         );
     }
 
+    static private Integer getOptionalInteger(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        return value == null || value.isEmpty() ? null : Integer.parseInt(value);
+    }
+
 }
@@ -137,7 +137,12 @@ public class PreviewExtendDataCommand extends Command {
             
             Map<String, ReconCandidate> reconCandidateMap = new HashMap<String, ReconCandidate>();
             ReconciledDataExtensionJob job = new ReconciledDataExtensionJob(config, endpoint);
-            Map<String, DataExtension> map = job.extend(ids, reconCandidateMap);
+            Map<String, DataExtension> map;
+            try {
+                map = job.extend(ids, reconCandidateMap);
+            } finally {
+                job.close();
+            }
             List<List<Object>> rows = new ArrayList<>();
 
             for (int r = 0; r < topicNames.size(); r++) {
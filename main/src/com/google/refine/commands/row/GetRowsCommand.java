@@ -35,8 +35,10 @@ package com.google.refine.commands.row;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -46,8 +48,12 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.EngineConfig;
 import com.google.refine.browsing.FilteredRecords;
 import com.google.refine.browsing.FilteredRows;
 import com.google.refine.browsing.RecordVisitor;
@@ -59,11 +65,9 @@ import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 import com.google.refine.model.Row;
+import com.google.refine.sorting.SortingCache;
 import com.google.refine.sorting.SortingConfig;
-import com.google.refine.sorting.SortingRecordVisitor;
-import com.google.refine.sorting.SortingRowVisitor;
 import com.google.refine.util.ParsingUtilities;
-import com.google.refine.util.Pool;
 
 public class GetRowsCommand extends Command {
     
@@ -83,34 +87,6 @@ public class GetRowsCommand extends Command {
         }
     }
     
-    protected static class JsonResult  {
-        @JsonProperty("mode")
-        protected final Mode mode;
-        @JsonProperty("rows")
-        protected final List<WrappedRow> rows;
-        @JsonProperty("filtered")
-        protected final int filtered;
-        @JsonProperty("total")
-        protected final int totalCount;
-        @JsonProperty("start")
-        protected final int start;
-        @JsonProperty("limit")
-        protected final int limit;
-        @JsonProperty("pool")
-        protected final Pool pool;
-        
-        protected JsonResult(Mode mode, List<WrappedRow> rows, int filtered,
-                int totalCount, int start, int limit, Pool pool) {
-            this.mode = mode;
-            this.rows = rows;
-            this.filtered = filtered;
-            this.totalCount = totalCount;
-            this.start = start;
-            this.limit = limit;
-            this.pool = pool;
-        }
-    }
-    
     /**
      * This command accepts both POST and GET. It is not CSRF-protected as it does not incur any state change.
      */
@@ -146,16 +122,21 @@ public class GetRowsCommand extends Command {
             }
             
             Engine engine = getEngine(request, project);
+            EngineConfig engineConfig = getEngineConfig(request);
+            Mode mode = engine.getMode();
             String callback = request.getParameter("callback");
             
             int start = Math.min(project.rows.size(), Math.max(0, getIntegerParameter(request, "start", 0)));
             int limit = Math.min(project.rows.size() - start, Math.max(0, getIntegerParameter(request, "limit", 20)));
             
-            Pool pool = new Pool();
-            /* Properties options = new Properties();
-            options.put("project", project);
-            options.put("reconCandidateOmitTypes", true);
-            options.put("pool", pool); */
+            SortingConfig sortingConfig = null;
+            try {
+                String sortingJson = request.getParameter("sorting");
+                if (sortingJson != null) {
+                    sortingConfig = SortingConfig.reconstruct(sortingJson);
+                }
+            } catch (IOException e) {
+            }
             
             response.setCharacterEncoding("UTF-8");
             response.setHeader("Content-Type", callback == null ? "application/json" : "text/javascript");
@@ -166,60 +147,85 @@ public class GetRowsCommand extends Command {
                 writer.write("(");
             }
             
-            RowWritingVisitor rwv = new RowWritingVisitor(start, limit);
+            // rows are written out as they are visited, without keeping them
+            JsonGenerator generator = ParsingUtilities.mapper.getFactory().createGenerator(writer);
+            ObjectWriter valueWriter = ParsingUtilities.defaultWriter.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            generator.writeStartObject();
+            generator.writeFieldName("mode");
+            valueWriter.writeValue(generator, mode);
+            generator.writeArrayFieldStart("rows");
             
-            SortingConfig sortingConfig = null;
+            RowWritingVisitor rwv = new RowWritingVisitor(start, limit, generator, valueWriter);
             try {
-                String sortingJson = request.getParameter("sorting");
-                if (sortingJson != null) {
-                    sortingConfig = SortingConfig.reconstruct(sortingJson);
-                }
-            } catch (IOException e) {
-            }
-            
-            if (engine.getMode() == Mode.RowBased) {
-                FilteredRows filteredRows = engine.getAllFilteredRows();
-                RowVisitor visitor = rwv;
-                
-                if (sortingConfig != null) {
-                    SortingRowVisitor srv = new SortingRowVisitor(visitor);
-                    
-                    srv.initializeFromConfig(project, sortingConfig);
-                    if (srv.hasCriteria()) {
-                        visitor = srv;
+                if (sortingConfig != null && sortingConfig.getCriteria().length > 0) {
+                    // the sorted indices are cached, so only the requested page is visited
+                    int[] sorted = SortingCache.getInstance().getSortedIndices(
+                            project, engine, engineConfig, sortingConfig);
+                    for (int i = start; i < Math.min(sorted.length, start + limit); i++) {
+                        if (mode == Mode.RowBased) {
+                            rwv.internalVisit(project, sorted[i], project.rows.get(sorted[i]));
+                        } else {
+                            rwv.internalVisit(project, project.recordModel.getRecord(sorted[i]));
+                        }
                     }
-                }
-                filteredRows.accept(project, visitor);
-            } else {
-                FilteredRecords filteredRecords = engine.getFilteredRecords();
-                RecordVisitor visitor = rwv;
-                
-                if (sortingConfig != null) {
-                    SortingRecordVisitor srv = new SortingRecordVisitor(visitor);
-                    
-                    srv.initializeFromConfig(project, sortingConfig);
-                    if (srv.hasCriteria()) {
-                        visitor = srv;
+                    rwv.total = sorted.length;
+                } else {
+                    // once the count is known, the rows after the page are not visited
+                    Integer count = FilteredRowCountCache.getInstance().getCount(project, mode, engineConfig);
+                    rwv.stopAfterPage = count != null;
+                    if (mode == Mode.RowBased) {
+                        FilteredRows filteredRows = engine.getAllFilteredRows();
+                        filteredRows.accept(project, rwv);
+                    } else {
+                        FilteredRecords filteredRecords = engine.getFilteredRecords();
+                        filteredRecords.accept(project, rwv);
+                    }
+                    if (count != null) {
+                        rwv.total = count;
+                    } else {
+                        FilteredRowCountCache.getInstance().putCount(project, mode, engineConfig, rwv.total);
                     }
                 }
-                filteredRecords.accept(project, visitor);
+            } catch (Exception e) {
+                // rows may have been sent already: end the array of the rows
+                // written, which are all complete, and report the error after it
+                logger.warn("Exception caught while writing rows", e);
+                generator.writeEndArray();
+                generator.writeStringField("code", "error");
+                generator.writeStringField("message", e instanceof UncheckedIOException
+                        ? e.getCause().getMessage() : e.getMessage());
+                generator.writeEndObject();
+                generator.flush();
+                if (callback != null) {
+                    writer.write(")");
+                }
+                return;
             }
             
-            // Pool all the recons occuring in the rows seen
-            for(WrappedRow wr : rwv.results) {
-                for(Cell c : wr.row.cells) {
-                    if(c != null && c.recon != null) {
-                        pool.pool(c.recon);
+            generator.writeEndArray();
+            generator.writeNumberField("filtered", rwv.total);
+            generator.writeNumberField("total",
+                    mode == Mode.RowBased ? project.rows.size() : project.recordModel.getRecordCount());
+            generator.writeNumberField("start", start);
+            generator.writeNumberField("limit", limit);
+            
+            // Pool all the recons occuring in the rows written, each once
+            generator.writeObjectFieldStart("pool");
+            generator.writeObjectFieldStart("recons");
+            Set<Long> reconIds = new HashSet<>();
+            for (int i = 0; i < rwv.rowCount; i++) {
+                for (Cell c : project.rows.get(rwv.rowIndices[i]).cells) {
+                    if (c != null && c.recon != null && reconIds.add(c.recon.id)) {
+                        generator.writeFieldName(Long.toString(c.recon.id));
+                        valueWriter.writeValue(generator, c.recon);
                     }
                 }
             }
+            generator.writeEndObject();
+            generator.writeEndObject();
             
-            JsonResult result = new JsonResult(engine.getMode(),
-                    rwv.results, rwv.total,
-                    engine.getMode() == Mode.RowBased ? project.rows.size() : project.recordModel.getRecordCount(),
-                            start, limit, pool);
-            
-            ParsingUtilities.defaultWriter.writeValue(writer, result);
+            generator.writeEndObject();
+            generator.flush();
             if (callback != null) {
                 writer.write(")");
             }
@@ -233,17 +239,34 @@ public class GetRowsCommand extends Command {
         }
     }
     
+    /**
+     * Writes the rows of the requested page as they are visited, and counts
+     * the rows or records visited.
+     */
     static protected class RowWritingVisitor implements RowVisitor, RecordVisitor {
         final int           start;
         final int           limit;
-        public List<WrappedRow> results;
+        final JsonGenerator generator;
+        final ObjectWriter  writer;
+        
+        /*
+         * The rows written, from which the recons are pooled
+         */
+        public int[]        rowIndices = new int[16];
+        public int          rowCount = 0;
         
         public int total;
+        /*
+         * Whether to stop visiting once the page is written, when the
+         * total is known already
+         */
+        public boolean stopAfterPage = false;
         
-        public RowWritingVisitor(int start, int limit) {
+        public RowWritingVisitor(int start, int limit, JsonGenerator generator, ObjectWriter writer) {
             this.start = start;
             this.limit = limit;
-            this.results = new ArrayList<>();
+            this.generator = generator;
+            this.writer = writer;
         }
         
         @Override
@@ -263,7 +286,7 @@ public class GetRowsCommand extends Command {
             }
             total++;
             
-            return false;
+            return stopAfterPage && total >= start + limit;
         }
         
         @Override
@@ -273,20 +296,34 @@ public class GetRowsCommand extends Command {
             }
             total++;
             
-            return false;
+            return stopAfterPage && total >= start + limit;
         }
         
         public boolean internalVisit(Project project, int rowIndex, Row row) {
-            results.add(new WrappedRow(row, rowIndex, null));
+            writeRow(new WrappedRow(row, rowIndex, null));
             return false;
         }
         
         protected boolean internalVisit(Project project, Record record) {
             for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
                 Row row = project.rows.get(r);
-                results.add(new WrappedRow(row, r, r == record.fromRowIndex ? record.recordIndex : null));
+                writeRow(new WrappedRow(row, r, r == record.fromRowIndex ? record.recordIndex : null));
             }
             return false;
         }
+        
+        protected void writeRow(WrappedRow wrappedRow) {
+            try {
+                // serialized on its own first, so that a row failing to be
+                // serialized is not partially written
+                generator.writeRawValue(writer.writeValueAsString(wrappedRow));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (rowCount == rowIndices.length) {
+                rowIndices = Arrays.copyOf(rowIndices, rowCount * 2);
+            }
+            rowIndices[rowCount++] = wrappedRow.rowIndex;
+        }
     }
 }
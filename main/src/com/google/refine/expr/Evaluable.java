@@ -35,6 +35,10 @@ package com.google.refine.expr;
 
 import java.util.Properties;
 
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
 /**
  * Interface for evaluable expressions in any arbitrary language.
  */
@@ -46,4 +50,30 @@ public interface Evaluable {
      * @return
      */
     public Object evaluate(Properties bindings);
+
+    /**
+     * Evaluate this expression on several rows of a project, each row being
+     * bound as by {@link ExpressionUtils#bind}. Expressions which can compute
+     * their values for many rows at once override this, the default being to
+     * evaluate the rows one after the other.
+     * 
+     * @param project
+     * @param columnName the column the expression is based on
+     * @param cellIndex the cell index of that column, or -1
+     * @param rowIndices the rows to evaluate, in any order
+     * @param count the number of rows to evaluate, from the start of rowIndices
+     * @param results receives the value of rowIndices[i] at position i
+     */
+    default public void evaluateRows(
+            Project project, String columnName, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        Properties bindings = ExpressionUtils.createBindings(project);
+        for (int i = 0; i < count; i++) {
+            int rowIndex = rowIndices[i];
+            Row row = project.rows.get(rowIndex);
+            Cell cell = cellIndex < 0 ? null : row.getCell(cellIndex);
+
+            ExpressionUtils.bind(bindings, row, rowIndex, columnName, cell);
+            results[i] = evaluate(bindings);
+        }
+    }
 }
@@ -43,6 +43,7 @@ import java.util.Set;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.refine.grel.ast.VariableExpr;
 import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
 import com.google.refine.model.Row;
@@ -99,6 +100,15 @@ public class ExpressionUtils {
         }
     }
 
+    /**
+     * @return true if the expression can be evaluated on several threads at
+     *      once, each with its own bindings
+     */
+    static public boolean isThreadSafe(Evaluable eval) {
+        // only GREL expressions are known not to keep any state
+        return eval.getClass().getPackage() == VariableExpr.class.getPackage();
+    }
+
     static public boolean isError(Object o) {
         return o instanceof EvalError;
     }
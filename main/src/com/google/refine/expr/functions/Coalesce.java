@@ -37,9 +37,9 @@ import java.util.Properties;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Coalesce implements Function {
+public class Coalesce implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
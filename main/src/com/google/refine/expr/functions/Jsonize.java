@@ -36,10 +36,10 @@ package com.google.refine.expr.functions;
 import java.io.IOException;
 import java.util.Properties;
 
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 import com.google.refine.util.ParsingUtilities;
 
-public class Jsonize implements Function {
+public class Jsonize implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -40,9 +40,9 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.google.refine.expr.EvalError;
 import com.google.refine.expr.HasFieldsList;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Length implements Function {
+public class Length implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
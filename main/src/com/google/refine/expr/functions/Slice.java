@@ -39,9 +39,9 @@ import java.util.Properties;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.expr.HasFieldsList;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Slice implements Function {
+public class Slice implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
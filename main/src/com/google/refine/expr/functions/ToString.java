@@ -39,10 +39,10 @@ import java.util.Properties;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 import com.google.refine.util.StringUtils;
 
-public class ToString implements Function {
+public class ToString implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -39,9 +39,9 @@ import java.util.Properties;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Type implements Function {
+public class Type implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -41,10 +41,10 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 import com.google.refine.util.JSONUtilities;
 
-public class InArray implements Function {
+public class InArray implements PureFunction {
 
     @Override
     @SuppressWarnings("unchecked")
@@ -41,9 +41,9 @@ import com.google.refine.expr.EvalError;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.expr.util.JsonValueConverter;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Join implements Function {
+public class Join implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -40,9 +40,9 @@ import java.util.Properties;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Inc implements Function {
+public class Inc implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
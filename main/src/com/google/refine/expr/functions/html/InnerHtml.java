@@ -40,9 +40,9 @@ import org.jsoup.nodes.Element;
 import com.google.refine.expr.EvalError;
 import com.google.refine.expr.functions.xml.InnerXml;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class InnerHtml implements Function {
+public class InnerHtml implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
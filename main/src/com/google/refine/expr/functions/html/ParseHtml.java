@@ -38,9 +38,9 @@ import java.util.Properties;
 import com.google.refine.expr.EvalError;
 import com.google.refine.expr.functions.xml.ParseXml;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class ParseHtml implements Function {
+public class ParseHtml implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -35,9 +35,9 @@ package com.google.refine.expr.functions.math;
 
 import java.util.Properties;
 
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Pow implements Function {
+public class Pow implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -40,9 +40,9 @@ import java.util.Properties;
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.refine.expr.EvalError;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Diff implements Function {
+public class Diff implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
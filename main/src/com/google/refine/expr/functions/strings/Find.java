@@ -34,9 +34,9 @@ import java.util.regex.Pattern;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Find implements Function {
+public class Find implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -56,7 +56,7 @@ public class Find implements Function {
             
             if (s != null && p != null && p instanceof Pattern) {
                 
-                Pattern pattern = (p instanceof String) ? Pattern.compile((String) p) : (Pattern) p;
+                Pattern pattern = (Pattern) p;
 
                 Matcher matcher = pattern.matcher(s.toString());
                 
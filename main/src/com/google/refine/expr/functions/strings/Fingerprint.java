@@ -37,9 +37,9 @@ import java.util.Properties;
 
 import com.google.refine.clustering.binning.FingerprintKeyer;
 import com.google.refine.clustering.binning.Keyer;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Fingerprint implements Function {
+public class Fingerprint implements PureFunction {
 
     static Keyer fingerprint = new FingerprintKeyer();
 
@@ -39,9 +39,9 @@ import org.apache.commons.codec.digest.DigestUtils;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class MD5 implements Function {
+public class MD5 implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
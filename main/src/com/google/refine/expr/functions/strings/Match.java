@@ -39,9 +39,10 @@ import java.util.regex.Pattern;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
+import com.google.refine.util.PatternCache;
 
-public class Match implements Function {
+public class Match implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -51,7 +52,7 @@ public class Match implements Function {
             
             if (s != null && p != null && (p instanceof String || p instanceof Pattern)) {
                 
-                Pattern pattern = (p instanceof String) ? Pattern.compile((String) p) : (Pattern) p;
+                Pattern pattern = (p instanceof String) ? PatternCache.compile((String) p) : (Pattern) p;
 
                 Matcher matcher = pattern.matcher(s.toString());
                 
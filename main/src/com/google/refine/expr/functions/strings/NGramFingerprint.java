@@ -40,9 +40,9 @@ import com.google.refine.clustering.binning.Keyer;
 import com.google.refine.clustering.binning.NGramFingerprintKeyer;
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class NGramFingerprint implements Function {
+public class NGramFingerprint implements PureFunction {
 
     static Keyer ngram_fingerprint = new NGramFingerprintKeyer();
     
@@ -38,10 +38,10 @@ import java.util.Properties;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 import com.google.refine.util.ParsingUtilities;
 
-public class ParseJson implements Function {
+public class ParseJson implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -37,9 +37,9 @@ import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Partition implements Function {
+public class Partition implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
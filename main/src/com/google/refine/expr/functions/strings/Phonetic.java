@@ -42,9 +42,9 @@ import com.google.refine.clustering.binning.MetaphoneKeyer;
 import com.google.refine.clustering.binning.SoundexKeyer;
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Phonetic implements Function {
+public class Phonetic implements PureFunction {
 
     // TODO: We could probably lazily initialize these when needed for efficiency
     static private Metaphone3Keyer metaphone3 = new Metaphone3Keyer();
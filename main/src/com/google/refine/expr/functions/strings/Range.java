@@ -32,7 +32,7 @@ import java.util.regex.Pattern;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
 /**
  * Implements the logic behind the range function.
@@ -43,7 +43,7 @@ import com.google.refine.grel.Function;
  * and 0 becomes the range start. c is optional and represents the step (increment) 
  * for the generated sequence.
  */
-public class Range implements Function {
+public class Range implements PureFunction {
 
     private static final String SEPARATOR = ",";
 
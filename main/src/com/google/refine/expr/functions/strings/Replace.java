@@ -38,9 +38,9 @@ import java.util.regex.Pattern;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Replace implements Function {
+public class Replace implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -38,11 +38,11 @@ import java.util.Properties;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
 import au.com.bytecode.opencsv.CSVParser;
 
-public class SmartSplit implements Function {
+public class SmartSplit implements PureFunction {
 
     static final protected CSVParser s_tabParser = new CSVParser(
         '\t',
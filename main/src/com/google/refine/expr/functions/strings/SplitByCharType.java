@@ -39,9 +39,9 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class SplitByCharType implements Function {
+public class SplitByCharType implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -37,9 +37,9 @@ import java.util.Properties;
 
 import com.google.common.base.CharMatcher;
 import com.google.refine.expr.EvalError;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Trim implements Function {
+public class Trim implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
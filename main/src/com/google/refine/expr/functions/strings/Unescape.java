@@ -41,9 +41,9 @@ import org.apache.commons.text.StringEscapeUtils;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class Unescape implements Function {
+public class Unescape implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
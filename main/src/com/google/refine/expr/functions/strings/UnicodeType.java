@@ -35,9 +35,9 @@ package com.google.refine.expr.functions.strings;
 
 import java.util.Properties;
 
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class UnicodeType implements Function {
+public class UnicodeType implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -40,9 +40,9 @@ import org.jsoup.parser.Parser;
 
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
-import com.google.refine.grel.Function;
+import com.google.refine.grel.PureFunction;
 
-public class ParseXml implements Function {
+public class ParseXml implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -35,6 +35,7 @@ package com.google.refine.grel;
 
 import java.util.Properties;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -57,4 +58,13 @@ public interface Function  {
     
     @JsonProperty("returns")
     public String getReturns();
+
+    /**
+     * @return true if the result of the function only depends on its arguments,
+     *      see {@link PureFunction}
+     */
+    @JsonIgnore
+    default public boolean isPure() {
+        return false;
+    }
 }
@@ -36,20 +36,25 @@ package com.google.refine.grel;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ParsingException;
 import com.google.refine.expr.functions.arrays.ArgsToArray;
+import com.google.refine.expr.functions.strings.Match;
 import com.google.refine.grel.Scanner.NumberToken;
 import com.google.refine.grel.Scanner.RegexToken;
 import com.google.refine.grel.Scanner.Token;
 import com.google.refine.grel.Scanner.TokenType;
 import com.google.refine.grel.ast.ControlCallExpr;
+import com.google.refine.grel.ast.ExpressionOptimizer;
 import com.google.refine.grel.ast.FieldAccessorExpr;
 import com.google.refine.grel.ast.FunctionCallExpr;
 import com.google.refine.grel.ast.LiteralExpr;
 import com.google.refine.grel.ast.OperatorCallExpr;
+import com.google.refine.grel.ast.PatternLiteralExpr;
 import com.google.refine.grel.ast.VariableExpr;
+import com.google.refine.util.PatternCache;
 
 public class Parser {
     protected Scanner   _scanner;
@@ -64,7 +69,7 @@ public class Parser {
         _scanner = new Scanner(s, from, to);
         _token = _scanner.next(true);
 
-        _root = parseExpression();
+        _root = ExpressionOptimizer.optimize(parseExpression());
     }
 
     public Evaluable getExpression() {
@@ -175,7 +180,7 @@ public class Parser {
             RegexToken t = (RegexToken) _token;
 
             try {
-                Pattern pattern = Pattern.compile(_token.text, t.caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+                Pattern pattern = PatternCache.compile(_token.text, t.caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
                 eval = new LiteralExpr(pattern);
                 next(false);
             } catch (Exception e) {
@@ -224,7 +229,7 @@ public class Parser {
                     }
                     eval = new ControlCallExpr(argsA, c);
                 } else {
-                    eval = new FunctionCallExpr(makeArray(args), f);
+                    eval = new FunctionCallExpr(foldPatternArguments(f, makeArray(args)), f);
                 }
             }
         } else if (_token.type == TokenType.Delimiter && _token.text.equals("(")) {
@@ -269,7 +274,7 @@ public class Parser {
                     List<Evaluable> args = parseExpressionList(")");
                     args.add(0, eval);
 
-                    eval = new FunctionCallExpr(makeArray(args), f);
+                    eval = new FunctionCallExpr(foldPatternArguments(f, makeArray(args)), f);
                 } else {
                     eval = new FieldAccessorExpr(eval, identifier);
                 }
@@ -288,6 +293,25 @@ public class Parser {
         return eval;
     }
 
+    /**
+     * Compiles the string literals which a function reads as regular expressions
+     * once, instead of for each row the expression is evaluated on. Invalid
+     * regular expressions are left to fail when evaluated, as before.
+     */
+    protected Evaluable[] foldPatternArguments(Function f, Evaluable[] args) {
+        if (f instanceof Match && args.length == 2 && args[1].getClass() == LiteralExpr.class) {
+            Object regex = args[1].evaluate(null);
+            if (regex instanceof String) {
+                try {
+                    args[1] = new PatternLiteralExpr((String) regex, PatternCache.compile((String) regex));
+                } catch (PatternSyntaxException e) {
+                    // reported by the function
+                }
+            }
+        }
+        return args;
+    }
+
     /**
      *  <expression-list> := <empty>
      *                     | <expression> ( "," <expression> )*
@@ -40,7 +40,11 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.expr.HasFields;
+import com.google.refine.expr.functions.Get;
 import com.google.refine.expr.util.JsonValueConverter;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
 
 /**
  * An abstract syntax tree node encapsulating a field accessor,
@@ -73,6 +77,58 @@ public class FieldAccessorExpr implements Evaluable {
         }
     }
 
+    @Override
+    public void evaluateRows(
+            Project project, String columnName, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        if ("value".equals(_fieldName)) {
+            if (_inner instanceof VariableExpr && "cell".equals(((VariableExpr) _inner)._name)) {
+                getCellValues(project, cellIndex, rowIndices, count, results);
+                return;
+            }
+            String cellColumnName = getCellColumnName(_inner);
+            if (cellColumnName != null) {
+                Column column = project.columnModel.getColumnByName(cellColumnName);
+                getCellValues(project, column == null ? -1 : column.getCellIndex(), rowIndices, count, results);
+                return;
+            }
+        }
+        Evaluable.super.evaluateRows(project, columnName, cellIndex, rowIndices, count, results);
+    }
+
+    /**
+     * @return the name of the column of a cell accessed as cells["name"] or
+     *      cells.name, or null if the expression is not such an access
+     */
+    static protected String getCellColumnName(Evaluable e) {
+        if (e instanceof FieldAccessorExpr) {
+            FieldAccessorExpr accessor = (FieldAccessorExpr) e;
+            if (isVariable(accessor._inner, "cells")) {
+                return accessor._fieldName;
+            }
+        } else if (e instanceof FunctionCallExpr) {
+            FunctionCallExpr call = (FunctionCallExpr) e;
+            if (call._function instanceof Get && call._args.length == 2 && isVariable(call._args[0], "cells")
+                    && call._args[1] instanceof LiteralExpr && ((LiteralExpr) call._args[1])._value instanceof String) {
+                return (String) ((LiteralExpr) call._args[1])._value;
+            }
+        }
+        return null;
+    }
+
+    static private boolean isVariable(Evaluable e, String name) {
+        return e instanceof VariableExpr && name.equals(((VariableExpr) e)._name);
+    }
+
+    /**
+     * Reads the values of the cells of some rows directly, as "value" would be bound.
+     */
+    static protected void getCellValues(Project project, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        for (int i = 0; i < count; i++) {
+            Cell cell = cellIndex < 0 ? null : project.rows.get(rowIndices[i]).getCell(cellIndex);
+            results[i] = cell == null ? null : cell.value;
+        }
+    }
+
     @Override
     public String toString() {
         return _inner.toString() + "." + _fieldName;
@@ -39,6 +39,7 @@ import com.google.refine.expr.EvalError;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.grel.Function;
+import com.google.refine.model.Project;
 
 /**
  * An abstract syntax tree node encapsulating a function call. The function's
@@ -63,8 +64,12 @@ public class FunctionCallExpr implements Evaluable {
             if (ExpressionUtils.isError(v)) {
                 return v; // bubble up the error
             }
-             args[i] = v;
+            args[i] = v;
         }
+        return call(bindings, args);
+    }
+
+    protected Object call(Properties bindings, Object[] args) {
         try {
             return _function.call(bindings, args);
         } catch (Exception e) {
@@ -72,6 +77,67 @@ public class FunctionCallExpr implements Evaluable {
         }
     }
 
+    /**
+     * Calls of pure functions whose arguments are all constant but one are
+     * evaluated by evaluating that argument on all the rows first.
+     */
+    @Override
+    public void evaluateRows(
+            Project project, String columnName, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        int variable = getVariableArgument(_args);
+        if (variable < 0 || !_function.isPure()) {
+            Evaluable.super.evaluateRows(project, columnName, cellIndex, rowIndices, count, results);
+            return;
+        }
+        _args[variable].evaluateRows(project, columnName, cellIndex, rowIndices, count, results);
+
+        Properties bindings = new Properties(); // not read by pure functions
+        for (int i = 0; i < count; i++) {
+            Object error = getError(_args, variable, results[i]);
+            results[i] = error != null ? error : call(bindings, getArguments(_args, variable, results[i]));
+        }
+    }
+
+    /**
+     * @return the position of the only argument which is not a literal, or -1
+     */
+    static protected int getVariableArgument(Evaluable[] args) {
+        int variable = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (!(args[i] instanceof LiteralExpr)) {
+                if (variable >= 0) {
+                    return -1;
+                }
+                variable = i;
+            }
+        }
+        return variable;
+    }
+
+    /**
+     * @return the first argument which is an error, given the value of the variable one, or null
+     */
+    static protected Object getError(Evaluable[] argExprs, int variable, Object value) {
+        for (int i = 0; i < argExprs.length; i++) {
+            Object v = i == variable ? value : ((LiteralExpr) argExprs[i])._value;
+            if (ExpressionUtils.isError(v)) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the values of the arguments, given the value of the variable one
+     */
+    static protected Object[] getArguments(Evaluable[] argExprs, int variable, Object value) {
+        Object[] args = new Object[argExprs.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = i == variable ? value : ((LiteralExpr) argExprs[i])._value;
+        }
+        return args;
+    }
+
     @Override
     public String toString() {
         StringBuffer sb = new StringBuffer();
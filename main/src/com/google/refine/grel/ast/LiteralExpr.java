@@ -33,10 +33,12 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.grel.ast;
 
+import java.util.Arrays;
 import java.util.Properties;
 
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.google.refine.expr.Evaluable;
+import com.google.refine.model.Project;
 
 /**
  * An abstract syntax tree node encapsulating a literal value.
@@ -53,6 +55,12 @@ public class LiteralExpr implements Evaluable {
         return _value;
     }
 
+    @Override
+    public void evaluateRows(
+            Project project, String columnName, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        Arrays.fill(results, 0, count, _value);
+    }
+
     @Override
     public String toString() {
         return _value instanceof String ? new TextNode((String) _value).toString() : _value.toString();
@@ -37,6 +37,7 @@ import java.util.Properties;
 
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.model.Project;
 
 /**
  * An abstract syntax tree node encapsulating an operator call, such as "+".
@@ -60,7 +61,30 @@ public class OperatorCallExpr implements Evaluable {
             }
             args[i] = v;
         }
+        return apply(args);
+    }
+
+    /**
+     * Comparisons and arithmetic with constants are evaluated by evaluating
+     * the other operand on all the rows first.
+     */
+    @Override
+    public void evaluateRows(
+            Project project, String columnName, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        int variable = FunctionCallExpr.getVariableArgument(_args);
+        if (variable < 0) {
+            Evaluable.super.evaluateRows(project, columnName, cellIndex, rowIndices, count, results);
+            return;
+        }
+        _args[variable].evaluateRows(project, columnName, cellIndex, rowIndices, count, results);
+
+        for (int i = 0; i < count; i++) {
+            Object error = FunctionCallExpr.getError(_args, variable, results[i]);
+            results[i] = error != null ? error : apply(FunctionCallExpr.getArguments(_args, variable, results[i]));
+        }
+    }
 
+    protected Object apply(Object[] args) {
         if (args.length == 2) {
             if (args[0] != null && args[1] != null) {
                 if (isIntegral(args[0]) && isIntegral(args[1])) {
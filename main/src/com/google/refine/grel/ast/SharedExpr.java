@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.grel.ast;
+
+import java.util.Properties;
+
+import com.google.refine.expr.Evaluable;
+
+/**
+ * A sub-expression which occurs several times in an expression. It is
+ * evaluated at most once per evaluation of the enclosing {@link SharedExprScope},
+ * all the occurrences sharing the same slot of its memo.
+ */
+public class SharedExpr implements Evaluable {
+    static final ThreadLocal<Object[]> s_memo = new ThreadLocal<>();
+    static final Object UNSET = new Object();
+
+    final protected Evaluable _inner;
+    final protected int       _slot;
+
+    public SharedExpr(Evaluable inner, int slot) {
+        _inner = inner;
+        _slot = slot;
+    }
+
+    @Override
+    public Object evaluate(Properties bindings) {
+        Object[] memo = s_memo.get();
+        if (memo == null) {
+            return _inner.evaluate(bindings);
+        }
+        Object v = memo[_slot];
+        if (v == UNSET) {
+            v = _inner.evaluate(bindings);
+            // mutable values are recomputed, as each occurrence may modify its own copy
+            memo[_slot] = ExpressionOptimizer.isImmutable(v) ? v : UNSET;
+        }
+        return v;
+    }
+
+    @Override
+    public String toString() {
+        return _inner.toString();
+    }
+}
@@ -36,6 +36,7 @@ package com.google.refine.grel.ast;
 import java.util.Properties;
 
 import com.google.refine.expr.Evaluable;
+import com.google.refine.model.Project;
 
 /**
  * An abstract syntax tree node encapsulating the retrieval of a variable's content.
@@ -52,6 +53,16 @@ public class VariableExpr implements Evaluable {
         return bindings.get(_name);
     }
 
+    @Override
+    public void evaluateRows(
+            Project project, String columnName, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        if ("value".equals(_name)) {
+            FieldAccessorExpr.getCellValues(project, cellIndex, rowIndices, count, results);
+        } else {
+            Evaluable.super.evaluateRows(project, columnName, cellIndex, rowIndices, count, results);
+        }
+    }
+
     @Override
     public String toString() {
         return _name;
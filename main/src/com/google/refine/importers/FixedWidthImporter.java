@@ -27,12 +27,10 @@
 package com.google.refine.importers;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
@@ -178,8 +176,8 @@ public class FixedWidthImporter extends TabularImportingParserBase {
     
     static public int[] guessColumnWidths(File file, String encoding) {
         try {
-            InputStream is = new FileInputStream(file);
-            Reader reader = (encoding != null) ? new InputStreamReader(is, encoding) : new InputStreamReader(is);
+            // lines sampled across the file
+            Reader reader = new StringReader(String.join("", ImporterUtilities.sampleBlocks(file, encoding)));
             LineNumberReader lineNumberReader = new LineNumberReader(reader);
 
             try {
@@ -240,7 +238,6 @@ public class FixedWidthImporter extends TabularImportingParserBase {
             } finally {
                 lineNumberReader.close();
                 reader.close();
-                is.close();
             }
         } catch (UnsupportedEncodingException e) {
             e.printStackTrace();
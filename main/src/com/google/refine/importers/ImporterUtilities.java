@@ -36,8 +36,17 @@ package com.google.refine.importers;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,9 +67,16 @@ public class ImporterUtilities {
         if (text.length() > 0) {
             String text2 = text.trim();
             if (text2.length() > 0) {
-                try {
-                    return Long.parseLong(text2);
-                } catch (NumberFormatException e) {
+                int kind = classifyNumber(text2);
+                if (kind == NOT_A_NUMBER) {
+                    return text;
+                }
+                
+                if (kind != DECIMAL) {
+                    try {
+                        return Long.parseLong(text2);
+                    } catch (NumberFormatException e) {
+                    }
                 }
     
                 try {
@@ -74,6 +90,136 @@ public class ImporterUtilities {
         }
         return text;
     }
+    
+    final static private int NOT_A_NUMBER = 0;
+    final static private int INTEGER = 1;
+    final static private int DECIMAL = 2;
+    final static private int UNKNOWN = 3;
+    
+    /**
+     * Cheaply classifies a trimmed string so that parseCellValue only calls
+     * the (exception throwing) number parsers on strings which may succeed.
+     * Most cells of a text column are rejected after looking at their first
+     * character or two.
+     * 
+     * @return NOT_A_NUMBER if neither Long.parseLong nor Double.parseDouble
+     *      can return a finite number for the string, INTEGER if it is an
+     *      optionally signed run of ASCII digits, DECIMAL if only Double.parseDouble
+     *      might accept it, or UNKNOWN if it contains non-ASCII characters
+     *      and all parsers must be tried.
+     */
+    static private int classifyNumber(String s) {
+        int length = s.length();
+        int start = 0;
+        char first = s.charAt(0);
+        if (first == '+' || first == '-') {
+            if (length == 1) {
+                return NOT_A_NUMBER;
+            }
+            start = 1;
+        }
+        
+        boolean digitsOnly = true;
+        for (int i = start; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                continue;
+            } else if (c >= 128) {
+                // Long.parseLong accepts non-ASCII Unicode digits
+                return UNKNOWN;
+            } else if (i == start && c != '.') {
+                // Only "NaN" and "Infinity" can start with something else,
+                // and neither is kept as a number
+                return NOT_A_NUMBER;
+            } else if (!isDoubleChar(c)) {
+                return NOT_A_NUMBER;
+            }
+            digitsOnly = false;
+        }
+        return digitsOnly ? INTEGER : DECIMAL;
+    }
+    
+    /**
+     * Characters which can appear past the first position in a decimal or
+     * hexadecimal floating point literal accepted by Double.parseDouble,
+     * including exponents and the f/F/d/D type suffixes.
+     */
+    static private boolean isDoubleChar(char c) {
+        return c == '.' || c == '+' || c == '-' ||
+            c == 'x' || c == 'X' || c == 'p' || c == 'P' ||
+            (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    /**
+     * Number of bytes, or of characters for small files, read from a file to
+     * guess its format
+     */
+    static final public int SAMPLE_SIZE = 64 * 1024;
+    static final int SAMPLE_BLOCKS = 4;
+    static final int SAMPLE_BLOCK_LINES = 25;
+    
+    /**
+     * Reads blocks of whole lines spread evenly across a file, so that its
+     * format is guessed from more than its first lines. Files no larger than
+     * SAMPLE_SIZE, and files in encodings where a new line is not a single
+     * byte, are returned as a single block read from their start.
+     */
+    static public List<String> sampleBlocks(File file, String encoding) throws IOException {
+        Charset charset;
+        try {
+            charset = encoding != null ? Charset.forName(encoding) : Charset.defaultCharset();
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(encoding);
+        }
+        long length = file.length();
+        if (length <= SAMPLE_SIZE || !Arrays.equals("\n".getBytes(charset), new byte[] { '\n' })) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(file), charset)) {
+                char[] chars = new char[SAMPLE_SIZE];
+                int total = 0;
+                int c;
+                while (total < chars.length && (c = reader.read(chars, total, chars.length - total)) > 0) {
+                    total += c;
+                }
+                return Collections.singletonList(new String(chars, 0, total));
+            }
+        }
+        
+        int blockSize = SAMPLE_SIZE / SAMPLE_BLOCKS;
+        byte[] bytes = new byte[blockSize];
+        List<String> blocks = new ArrayList<String>(SAMPLE_BLOCKS);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (int i = 0; i < SAMPLE_BLOCKS; i++) {
+                raf.seek(i * (length - blockSize) / (SAMPLE_BLOCKS - 1));
+                raf.readFully(bytes);
+                
+                // blocks after the first one start with the line following their offset
+                int from = 0;
+                if (i > 0) {
+                    while (from < bytes.length && bytes[from] != '\n') {
+                        from++;
+                    }
+                    from++;
+                }
+                int to = from;
+                int lines = 0;
+                while (to < bytes.length && lines < SAMPLE_BLOCK_LINES) {
+                    if (bytes[to++] == '\n') {
+                        lines++;
+                    }
+                }
+                // leave out the incomplete last line, unless it is the only one
+                if (lines > 0 && lines < SAMPLE_BLOCK_LINES) {
+                    while (bytes[to - 1] != '\n') {
+                        to--;
+                    }
+                }
+                if (to > from) {
+                    blocks.add(new String(bytes, from, to - from, charset));
+                }
+            }
+        }
+        return blocks;
+    }
 
     static public int getIntegerOption(String name, Properties options, int def) {
         int value = def;
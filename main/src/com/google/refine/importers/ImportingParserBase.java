@@ -148,7 +148,7 @@ abstract public class ImportingParserBase implements ImportingParser {
         pushImportingOptions(metadata, fileSource, options);
     }
 
-    private void pushImportingOptions(ProjectMetadata metadata, String fileSource, ObjectNode options) {
+    protected void pushImportingOptions(ProjectMetadata metadata, String fileSource, ObjectNode options) {
         options.put("fileSource", fileSource);
         // set the import options to metadata:
         metadata.appendImportOptionMetadata(options);
@@ -84,17 +84,23 @@ public class JsonImporter extends TreeImportingParserBase {
     public ObjectNode createParserUIInitializationData(ImportingJob job,
             List<ObjectNode> fileRecords, String format) {
         ObjectNode options = super.createParserUIInitializationData(job, fileRecords, format);
+        JSONUtilities.safePut(options, "jsonLines", false);
         if (fileRecords.size() > 0) {
-            try {
-                ObjectNode firstFileRecord = fileRecords.get(0);
-                File file = ImportingUtilities.getFile(job, firstFileRecord);
-                JsonFactory factory = new JsonFactory();
-                JsonParser parser = factory.createParser(file);
-
+            ObjectNode firstFileRecord = fileRecords.get(0);
+            File file = ImportingUtilities.getFile(job, firstFileRecord);
+            JsonFactory factory = new JsonFactory();
+            try (JsonParser parser = factory.createParser(file)) {
                 PreviewParsingState state = new PreviewParsingState();
                 JsonNode rootValue = parseForPreview(parser, state);
                 if (rootValue != null) {
-                    JSONUtilities.safePut(options, "dom", rootValue);
+                    ArrayNode rootValues = parseRemainingRootValuesForPreview(parser, state, rootValue);
+                    if (rootValues != null) {
+                        // Several top-level values (JSON lines): present them as one array
+                        JSONUtilities.safePut(options, "jsonLines", true);
+                        JSONUtilities.safePut(options, "dom", rootValues);
+                    } else {
+                        JSONUtilities.safePut(options, "dom", rootValue);
+                    }
                 }
             } catch (IOException e) {
                 logger.error("Error generating parser UI initialization data for JSON file", e);
@@ -104,6 +110,30 @@ public class JsonImporter extends TreeImportingParserBase {
         return options;
     }
     
+    /**
+     * Looks ahead, within the preview token budget, for further top-level values
+     * following the first one, as found in JSON lines (newline-delimited JSON) files.
+     * 
+     * @return an array of all the top-level values read, or null if the first
+     *      value was the only one seen
+     */
+    final static private ArrayNode parseRemainingRootValuesForPreview(
+            JsonParser parser, PreviewParsingState state, JsonNode firstValue) {
+        ArrayNode result = null;
+        while (state.tokenCount < PREVIEW_PARSING_LIMIT) {
+            JsonNode value = parseForPreview(parser, state);
+            if (value == null) {
+                break;
+            }
+            if (result == null) {
+                result = ParsingUtilities.mapper.createArrayNode();
+                result.add(firstValue);
+            }
+            result.add(value);
+        }
+        return result;
+    }
+    
     final static private JsonNode parseForPreview(JsonParser parser, PreviewParsingState state, JsonToken token)
             throws JsonParseException, IOException {
         if (token != null) {
@@ -203,8 +233,9 @@ public class JsonImporter extends TreeImportingParserBase {
             ImportingJob job, String fileSource, InputStream is,
             ImportColumnGroup rootColumnGroup, int limit, ObjectNode options, List<Exception> exceptions) {
         
+        boolean jsonLines = JSONUtilities.getBoolean(options, "jsonLines", false);
         parseOneFile(project, metadata, job, fileSource,
-            new JSONTreeReader(is), rootColumnGroup, limit, options, exceptions);
+            new JSONTreeReader(is, jsonLines), rootColumnGroup, limit, options, exceptions);
         
         super.parseOneFile(project, metadata, job, fileSource, is, rootColumnGroup, limit, options, exceptions);
     }
@@ -219,18 +250,54 @@ public class JsonImporter extends TreeImportingParserBase {
         private JsonToken next = null;
         private String fieldName = ANONYMOUS;
         private Serializable fieldValue = null;
+        
+        private final boolean wrapRootValues;
+        private boolean rootArrayOpened = false;
+        private boolean rootArrayClosed = false;
 
         
         public JSONTreeReader(InputStream is) {
+            this(is, false);
+        }
+        
+        /**
+         * @param is
+         *      the stream to read JSON from
+         * @param wrapRootValues
+         *      true to expose the sequence of top-level values of the stream
+         *      (as found in JSON lines files) as the elements of a single
+         *      enclosing array, so that they can be imported one record at a time
+         */
+        public JSONTreeReader(InputStream is, boolean wrapRootValues) {
+            this.wrapRootValues = wrapRootValues;
             try {
                 parser = factory.createParser(is);
                 current = null;
-                next  = parser.nextToken(); 
+                next  = nextToken(); 
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
         
+        private JsonToken nextToken() throws IOException {
+            if (!wrapRootValues) {
+                return parser.nextToken();
+            }
+            if (!rootArrayOpened) {
+                rootArrayOpened = true;
+                return JsonToken.START_ARRAY;
+            }
+            if (rootArrayClosed) {
+                return null;
+            }
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                rootArrayClosed = true;
+                return JsonToken.END_ARRAY;
+            }
+            return token;
+        }
+        
         /**
          * Does nothing. All Json is treated as elements
          */
@@ -356,7 +423,7 @@ public class JsonImporter extends TreeImportingParserBase {
                         }
                     }
                 }
-                next = parser.nextToken();
+                next = nextToken();
             } catch (JsonParseException e) {
                 throw new TreeReaderException(e.getOriginalMessage());
             } catch (IOException e) {
@@ -60,6 +60,12 @@ public class LineBasedImporter extends TabularImportingParserBase {
         return options;
     }
 
+    @Override
+    protected boolean canReusePreviewRows(ObjectNode options) {
+        // ignoreLines and headerLines are consumed while parsing
+        return false;
+    }
+
     @Override
     public void parseOneFile(
         Project project,
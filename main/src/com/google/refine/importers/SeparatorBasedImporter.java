@@ -34,12 +34,10 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.importers;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -209,17 +207,19 @@ public class SeparatorBasedImporter extends TabularImportingParserBase {
     // TODO: Move this to the CSV project?
     static public Separator guessSeparator(File file, String encoding, boolean handleQuotes) {
         try {
-            InputStream is = new FileInputStream(file);
-            Reader reader = encoding != null ? new InputStreamReader(is, encoding) : new InputStreamReader(is);
-            LineNumberReader lineNumberReader = new LineNumberReader(reader);
-
-            try {
-                List<Separator> separators = new ArrayList<SeparatorBasedImporter.Separator>();
-                Map<Character, Separator> separatorMap = new HashMap<Character, SeparatorBasedImporter.Separator>();
-                
-                int totalChars = 0;
-                int lineCount = 0;
+            List<Separator> separators = new ArrayList<SeparatorBasedImporter.Separator>();
+            Map<Character, Separator> separatorMap = new HashMap<Character, SeparatorBasedImporter.Separator>();
+            
+            int totalChars = 0;
+            int lineCount = 0;
+            // the lines are sampled across the file, in blocks assumed to start outside of quotes
+            for (String block : ImporterUtilities.sampleBlocks(file, encoding)) {
+                LineNumberReader lineNumberReader = new LineNumberReader(new StringReader(block));
                 boolean inQuote = false;
+                for (Separator separator : separators) {
+                    separator.currentLineCount = 0;
+                }
+                
                 String s;
                 while (totalChars < 64 * 1024 &&
                        lineCount < 100 &&
@@ -261,34 +261,30 @@ public class SeparatorBasedImporter extends TabularImportingParserBase {
                         }
                     }
                 }
+            }
+            
+            if (separators.size() > 0) {
+                for (Separator separator : separators) {
+                    separator.averagePerLine = separator.totalCount / (double) lineCount;
+                     separator.stddev = Math.sqrt(
+                             (((double)lineCount * separator.totalOfSquaredCount) - (separator.totalCount * separator.totalCount))
+                                    / ((double)lineCount*(lineCount-1))
+                        );
+                }
                 
-                if (separators.size() > 0) {
-                    for (Separator separator : separators) {
-                        separator.averagePerLine = separator.totalCount / (double) lineCount;
-                         separator.stddev = Math.sqrt(
-                                 (((double)lineCount * separator.totalOfSquaredCount) - (separator.totalCount * separator.totalCount))
-                                        / ((double)lineCount*(lineCount-1))
-                            );
-                    }
-                    
-                    Collections.sort(separators, new Comparator<Separator>() {
-                        @Override
-                        public int compare(Separator sep0, Separator sep1) {
-                            return Double.compare(sep0.stddev / sep0.averagePerLine, 
-                            sep1.stddev / sep1.averagePerLine);
-                        }
-                    });
-                    
-                    Separator separator = separators.get(0);
-                    if (separator.stddev / separator.averagePerLine < 0.1) {
-                        return separator;
+                Collections.sort(separators, new Comparator<Separator>() {
+                    @Override
+                    public int compare(Separator sep0, Separator sep1) {
+                        return Double.compare(sep0.stddev / sep0.averagePerLine, 
+                        sep1.stddev / sep1.averagePerLine);
                     }
-                   
+                });
+                
+                Separator separator = separators.get(0);
+                if (separator.stddev / separator.averagePerLine < 0.1) {
+                    return separator;
                 }
-            } finally {
-                lineNumberReader.close();
-                reader.close();
-                is.close();
+               
             }
         } catch (UnsupportedEncodingException e) {
             e.printStackTrace();
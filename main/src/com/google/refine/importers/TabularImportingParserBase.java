@@ -37,12 +37,15 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.refine.ProjectMetadata;
 import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.importers.ImporterUtilities.MultiFileReadingProgress;
 import com.google.refine.importing.ImportingJob;
+import com.google.refine.importing.ImportingUtilities;
 import com.google.refine.model.Cell;
 import com.google.refine.model.Column;
 import com.google.refine.model.Project;
@@ -77,6 +80,100 @@ abstract public class TabularImportingParserBase extends ImportingParserBase {
         super(useInputStream);
     }
     
+    /**
+     * Options which are only used by readTable to turn raw rows of cells
+     * into project rows. Previews which differ from the previous one only
+     * by these options reuse the raw rows read for that preview instead
+     * of parsing the files again.
+     */
+    final static private String[] TABLE_OPTIONS = {
+        "ignoreLines", "headerLines", "skipDataLines", "limit",
+        "storeBlankRows", "storeBlankCellsAsNulls", "guessCellValueTypes",
+        "trimStrings", "includeFileSources", "fileSource", "projectName", "projectTags"
+    };
+    
+    /**
+     * Number of raw rows read past the end of a preview, so that the next
+     * preview can still be served from the sample if it needs a few more rows
+     * (e.g. because more header lines are requested).
+     */
+    final static private int PREVIEW_LOOKAHEAD_ROWS = 100;
+    
+    // The sample being recorded by the preview parsed in the current thread
+    final static private ThreadLocal<PreviewSample> s_recording = new ThreadLocal<>();
+    
+    /**
+     * Whether the raw rows read by this parser depend only on the options
+     * which are not in TABLE_OPTIONS, so that they can be reused across previews.
+     * Parsers which adjust table options themselves while parsing should
+     * return false.
+     */
+    protected boolean canReusePreviewRows(ObjectNode options) {
+        // column names supplied as options force the number of header lines
+        return !options.has("columnNames");
+    }
+    
+    @Override
+    public void parse(Project project, ProjectMetadata metadata,
+            final ImportingJob job, List<ObjectNode> fileRecords, String format,
+            int limit, ObjectNode options, List<Exception> exceptions) {
+        if (limit <= 0 || !canReusePreviewRows(options)) {
+            super.parse(project, metadata, job, fileRecords, format, limit, options, exceptions);
+            return;
+        }
+        
+        String previewKey = getPreviewKey(format, fileRecords, options);
+        Object cached = job.getPreviewCache(previewKey);
+        if (cached instanceof PreviewSample
+                && ((PreviewSample) cached).canReplay(fileRecords.size(), limit, options)) {
+            ((PreviewSample) cached).replay(this, project, metadata, job, limit, options, exceptions);
+            return;
+        }
+        
+        PreviewSample sample = new PreviewSample();
+        int exceptionCount = exceptions.size();
+        s_recording.set(sample);
+        try {
+            super.parse(project, metadata, job, fileRecords, format, limit, options, exceptions);
+        } finally {
+            s_recording.remove();
+        }
+        if (!job.canceled && exceptions.size() == exceptionCount) {
+            job.setPreviewCache(previewKey, sample);
+        }
+    }
+    
+    @Override
+    public void parseOneFile(
+        Project project,
+        ProjectMetadata metadata,
+        ImportingJob job,
+        ObjectNode fileRecord,
+        int limit,
+        ObjectNode options,
+        List<Exception> exceptions,
+        final MultiFileReadingProgress progress
+    ) throws IOException {
+        PreviewSample sample = s_recording.get();
+        if (sample != null) {
+            sample.startFile(ImportingUtilities.getFileSource(fileRecord));
+        }
+        super.parseOneFile(project, metadata, job, fileRecord, limit, options, exceptions, progress);
+    }
+    
+    static private String getPreviewKey(String format, List<ObjectNode> fileRecords, ObjectNode options) {
+        ObjectNode parsingOptions = options.deepCopy();
+        parsingOptions.remove(Arrays.asList(TABLE_OPTIONS));
+        
+        StringBuffer sb = new StringBuffer();
+        sb.append(format).append('\n');
+        for (ObjectNode fileRecord : fileRecords) {
+            sb.append(JSONUtilities.getString(fileRecord, "location", "")).append('\n');
+        }
+        sb.append(parsingOptions.toString());
+        return sb.toString();
+    }
+    
     static public void readTable(
         Project project,
         ProjectMetadata metadata,
@@ -114,6 +211,13 @@ abstract public class TabularImportingParserBase extends ImportingParserBase {
         List<String> columnNames = new ArrayList<String>();
         boolean hasOurOwnColumnNames = headerLines > 0;
         
+        PreviewTable previewTable = null;
+        PreviewSample sample = s_recording.get();
+        if (sample != null) {
+            previewTable = sample.startTable(fileSource);
+            reader = previewTable.record(reader);
+        }
+        
         List<Object> cells = null;
         int rowsWithData = 0;
         
@@ -201,10 +305,149 @@ abstract public class TabularImportingParserBase extends ImportingParserBase {
                     }
                 }
             }
+            
+            if (previewTable != null) {
+                previewTable.readAhead(PREVIEW_LOOKAHEAD_ROWS);
+            }
         } catch (IOException e) {
             exceptions.add(e);
         }
     }
+    
+    /**
+     * The raw rows read from the selected files while generating a preview.
+     */
+    static private class PreviewSample {
+        final List<PreviewFile> files = new ArrayList<PreviewFile>();
+        
+        void startFile(String fileSource) {
+            files.add(new PreviewFile(fileSource));
+        }
+        
+        PreviewTable startTable(String fileSource) {
+            PreviewTable table = new PreviewTable(fileSource);
+            if (files.size() > 0) {
+                files.get(files.size() - 1).tables.add(table);
+            }
+            return table;
+        }
+        
+        /**
+         * Checks that the recorded rows are enough to produce the preview for
+         * the given table options, without knowing how many blank rows will be
+         * dropped: each table must either have been read to its end, or hold
+         * at least as many rows as readTable can consume for these options.
+         */
+        boolean canReplay(int fileCount, int limit, ObjectNode options) {
+            if (files.size() != fileCount) {
+                return false;
+            }
+            int limit2 = JSONUtilities.getInt(options, "limit", -1);
+            if (limit2 <= 0 || limit2 > limit) {
+                limit2 = limit;
+            }
+            int neededRows = Math.max(0, JSONUtilities.getInt(options, "ignoreLines", -1))
+                    + Math.max(0, JSONUtilities.getInt(options, "headerLines", 1))
+                    + Math.max(0, JSONUtilities.getInt(options, "skipDataLines", 0))
+                    + limit2;
+            for (PreviewFile file : files) {
+                for (PreviewTable table : file.tables) {
+                    if (!table.complete && table.rows.size() < neededRows + table.blankRows) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        
+        void replay(TabularImportingParserBase parser, Project project, ProjectMetadata metadata,
+                ImportingJob job, int limit, ObjectNode options, List<Exception> exceptions) {
+            for (PreviewFile file : files) {
+                if (job.canceled) {
+                    break;
+                }
+                for (PreviewTable table : file.tables) {
+                    readTable(project, metadata, job, table.replay(), table.fileSource, limit, options, exceptions);
+                }
+                parser.pushImportingOptions(metadata, file.fileSource, options);
+                
+                if (limit > 0 && project.rows.size() >= limit) {
+                    break;
+                }
+            }
+        }
+    }
+    
+    static private class PreviewFile {
+        final String fileSource;
+        final List<PreviewTable> tables = new ArrayList<PreviewTable>();
+        
+        PreviewFile(String fileSource) {
+            this.fileSource = fileSource;
+        }
+    }
+    
+    static private class PreviewTable {
+        final String fileSource;
+        final List<List<Object>> rows = new ArrayList<List<Object>>();
+        boolean complete = false;
+        int blankRows = 0;
+        TableDataReader source;
+        
+        PreviewTable(String fileSource) {
+            this.fileSource = fileSource;
+        }
+        
+        TableDataReader record(final TableDataReader reader) {
+            source = reader;
+            return new TableDataReader() {
+                @Override
+                public List<Object> getNextRowOfCells() throws IOException {
+                    return readNextRow();
+                }
+            };
+        }
+        
+        private List<Object> readNextRow() throws IOException {
+            List<Object> cells = source.getNextRowOfCells();
+            if (cells == null) {
+                complete = true;
+            } else {
+                rows.add(cells);
+                if (!hasData(cells)) {
+                    blankRows++;
+                }
+            }
+            return cells;
+        }
+        
+        void readAhead(int count) throws IOException {
+            for (int i = 0; i < count && !complete; i++) {
+                readNextRow();
+            }
+            source = null;
+        }
+        
+        TableDataReader replay() {
+            return new TableDataReader() {
+                int next = 0;
+                
+                @Override
+                public List<Object> getNextRowOfCells() throws IOException {
+                    return next < rows.size() ? rows.get(next++) : null;
+                }
+            };
+        }
+        
+        static private boolean hasData(List<Object> cells) {
+            for (Object value : cells) {
+                if (value instanceof Cell || ExpressionUtils.isNonBlankData(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 
     public void parseOneFile(Project project, ProjectMetadata metadata, ImportingJob job, String fileSource,
             Reader dataReader, int limit, ObjectNode options, List<Exception> exceptions) {
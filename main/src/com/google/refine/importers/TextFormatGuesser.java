@@ -27,11 +27,9 @@
 package com.google.refine.importers;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 
 import com.google.refine.importing.FormatGuesser;
@@ -41,8 +39,8 @@ public class TextFormatGuesser implements FormatGuesser {
     @Override
     public String guess(File file, String encoding, String seedFormat) {
         try {
-            InputStream is = new FileInputStream(file);
-            Reader reader = encoding != null ? new InputStreamReader(is, encoding) : new InputStreamReader(is);
+            // lines sampled across the file
+            Reader reader = new StringReader(String.join("", ImporterUtilities.sampleBlocks(file, encoding)));
 
             try {
                 int totalBytes = 0;
@@ -96,7 +94,6 @@ public class TextFormatGuesser implements FormatGuesser {
                 return "text/line-based";
             } finally {
                 reader.close();
-                is.close();
             }
         } catch (UnsupportedEncodingException e) {
             e.printStackTrace();
@@ -36,7 +36,9 @@ package com.google.refine.importing;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 
@@ -67,6 +69,21 @@ public class ImportingJob  {
     
     final private Object lock = new Object();
     
+    // Number of intermediate parsing results kept at most, for the options
+    // of the last previews
+    final static private int MAX_PREVIEW_CACHE_ENTRIES = 4;
+    
+    // Intermediate parsing results a parser keeps between previews, keyed by
+    // a description of the options they were produced with
+    final private Map<String, Object> previewCache = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > MAX_PREVIEW_CACHE_ENTRIES;
+        }
+    };
+    
     public ImportingJob(long id, File dir) {
         this.id = id;
         this.dir = dir;
@@ -186,7 +203,39 @@ public class ImportingJob  {
         metadata = new ProjectMetadata();
     }
     
+    /**
+     * Retrieves the intermediate parsing results stored by a recent
+     * preview, if they were stored under the given key.
+     * 
+     * @param key
+     *      a description of the options the results must have been produced with
+     * @return the stored results, or null if there are none for that key
+     */
+    public Object getPreviewCache(String key) {
+        synchronized (lock) {
+            return previewCache.get(key);
+        }
+    }
+    
+    /**
+     * Stores intermediate parsing results for later previews of this job,
+     * replacing any results stored previously under the same key. The
+     * results of the least recently used keys are dropped.
+     */
+    public void setPreviewCache(String key, Object value) {
+        synchronized (lock) {
+            if (value == null) {
+                previewCache.remove(key);
+            } else {
+                previewCache.put(key, value);
+            }
+        }
+    }
+    
     public void dispose() {
+        synchronized (lock) {
+            previewCache.clear();
+        }
         if (project != null) {
             project.dispose();
             project = null;
@@ -33,6 +33,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.importing;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -89,10 +90,15 @@ import com.google.refine.importing.UrlRewriter.Result;
 import com.google.refine.model.Project;
 import com.google.refine.util.JSONUtilities;
 import com.google.refine.util.ParsingUtilities;
+import com.google.refine.util.TrackingInputStream;
 
 public class ImportingUtilities {
     final static protected Logger logger = LoggerFactory.getLogger("importing-utilities");
     
+    // Size of the buffers placed under decompressing streams, which otherwise
+    // read their input in tiny chunks (or byte by byte, for bzip2)
+    final static private int DECOMPRESSION_BUFFER_SIZE = 64 * 1024;
+    
     static public interface Progress {
         public void setProgress(String message, int percent);
         public boolean isCanceled();
@@ -193,6 +199,8 @@ public class ImportingUtilities {
         };
         
         DiskFileItemFactory fileItemFactory = new DiskFileItemFactory();
+        // Spool uploads next to their final location so that they can be moved there
+        fileItemFactory.setRepository(rawDataDir);
         
         ServletFileUpload upload = new ServletFileUpload(fileItemFactory);
         upload.setProgressListener(new ProgressListener() {
@@ -375,7 +383,10 @@ public class ImportingUtilities {
                         "Saving file " + fileName + " locally (" + formatBytes(fileSize) + " bytes)",
                         calculateProgressPercent(update.totalExpectedSize, update.totalRetrievedSize));
                     
-                    JSONUtilities.safePut(fileRecord, "size", saveStreamToFile(stream, file, null));
+                    // Move the spooled upload into place rather than copying it
+                    stream.close();
+                    fileItem.write(file);
+                    JSONUtilities.safePut(fileRecord, "size", file.length());
                     if (postProcessRetrievedFile(rawDataDir, file, fileRecord, fileRecords, progress)) {
                         archiveCount++;
                     }
@@ -534,7 +545,7 @@ public class ImportingUtilities {
         String mimeType = JSONUtilities.getString(fileRecord, "declaredMimeType", null);
         String contentEncoding = JSONUtilities.getString(fileRecord, "declaredEncoding", null);
         
-        InputStream archiveIS = tryOpenAsArchive(file, mimeType, contentEncoding);
+        InputStream archiveIS = tryOpenAsArchive(file, mimeType, contentEncoding, progress);
         if (archiveIS != null) {
             try {
                 if (explodeArchive(rawDataDir, archiveIS, fileRecord, fileRecords, progress)) {
@@ -550,7 +561,7 @@ public class ImportingUtilities {
             }
         }
         
-        InputStream uncompressedIS = tryOpenAsCompressedFile(file, mimeType, contentEncoding);
+        InputStream uncompressedIS = tryOpenAsCompressedFile(file, mimeType, contentEncoding, progress);
         if (uncompressedIS != null) {
             try {
                 File file2 = uncompressFile(rawDataDir, uncompressedIS, fileRecord, progress);
@@ -589,28 +600,64 @@ public class ImportingUtilities {
     }
     
     static public InputStream tryOpenAsArchive(File file, String mimeType, String contentType) {
+        return tryOpenAsArchive(file, mimeType, contentType, null);
+    }
+    
+    /**
+     * @param progress
+     *      if not null, notified of the share of the archive read so far
+     *      as the returned stream is consumed
+     */
+    static public InputStream tryOpenAsArchive(File file, String mimeType, String contentType, Progress progress) {
         String fileName = file.getName();
         try {
             if (fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz")) {
-                return new TarInputStream(new GZIPInputStream(new FileInputStream(file)));
+                return new TarInputStream(new GZIPInputStream(
+                    openCompressedFile(file, progress), DECOMPRESSION_BUFFER_SIZE));
             } else if (fileName.endsWith(".tar.bz2")) {
-                return new TarInputStream(new CBZip2InputStream(new FileInputStream(file)));
+                return new TarInputStream(new CBZip2InputStream(openCompressedFile(file, progress)));
             } else if (fileName.endsWith(".tar") || "application/x-tar".equals(contentType)) {
-                return new TarInputStream(new FileInputStream(file));
+                return new TarInputStream(openCompressedFile(file, progress));
             } else if (fileName.endsWith(".zip") 
                     || "application/x-zip-compressed".equals(contentType)
                     || "application/zip".equals(contentType) 
                     || "application/x-compressed".equals(contentType)
                     || "multipar/x-zip".equals(contentType)) {
-                return new ZipInputStream(new FileInputStream(file));
+                return new ZipInputStream(openCompressedFile(file, progress));
             } else if (fileName.endsWith(".kmz")) {
-                return new ZipInputStream(new FileInputStream(file));
+                return new ZipInputStream(openCompressedFile(file, progress));
             }
         } catch (IOException e) {
         }
         return null;
     }
     
+    /**
+     * Opens a compressed or archive file for a single buffered pass,
+     * reporting the percentage of it read so far when a progress is given.
+     */
+    static private InputStream openCompressedFile(File file, final Progress progress) throws FileNotFoundException {
+        InputStream is = new FileInputStream(file);
+        final long length = file.length();
+        if (progress != null && length > 0) {
+            is = new TrackingInputStream(is) {
+                int lastPercent = -1;
+                
+                @Override
+                protected long track(long bytesRead) {
+                    long l = super.track(bytesRead);
+                    int percent = (int) (this.bytesRead * 100 / length);
+                    if (percent != lastPercent) {
+                        lastPercent = percent;
+                        progress.setProgress(null, percent);
+                    }
+                    return l;
+                }
+            };
+        }
+        return new BufferedInputStream(is, DECOMPRESSION_BUFFER_SIZE);
+    }
+    
     static public boolean explodeArchive(
         File rawDataDir,
         InputStream archiveIS,
@@ -687,16 +734,25 @@ public class ImportingUtilities {
     }
     
     static public InputStream tryOpenAsCompressedFile(File file, String mimeType, String contentEncoding) {
+        return tryOpenAsCompressedFile(file, mimeType, contentEncoding, null);
+    }
+    
+    /**
+     * @param progress
+     *      if not null, notified of the share of the compressed file read so far
+     *      as the returned stream is consumed
+     */
+    static public InputStream tryOpenAsCompressedFile(File file, String mimeType, String contentEncoding, Progress progress) {
         String fileName = file.getName();
         try {
             if (fileName.endsWith(".gz") 
                     || "gzip".equals(contentEncoding) 
                     || "x-gzip".equals(contentEncoding)
                     || "application/x-gzip".equals(mimeType)) {                
-                return new GZIPInputStream(new FileInputStream(file));
+                return new GZIPInputStream(openCompressedFile(file, progress), DECOMPRESSION_BUFFER_SIZE);
             } else if (fileName.endsWith(".bz2")
                     ||"application/x-bzip2".equals(mimeType)) {
-                InputStream is = new FileInputStream(file);
+                InputStream is = openCompressedFile(file, progress);
                 is.mark(4);
                 if (!(is.read() == 'B' && is.read() == 'Z')) {
                     // No BZ prefix as appended by command line tools.  Reset and hope for the best
@@ -116,6 +116,17 @@ public class Column  {
         return _reconStats;
     }
     
+    /**
+     * A precomputed value which can forget the cells of some rows rather
+     * than be cleared when they change.
+     */
+    public interface RowDependentPrecompute {
+        /**
+         * @return false if the precomputed value cannot be kept
+         */
+        boolean invalidateRows(int[] rowIndices);
+    }
+    
     /**
      * Clear all cached precomputed values.
      * <p>
@@ -124,20 +135,32 @@ public class Column  {
      * {@link com.google.refine.LookupCacheManager#flushLookupsInvolvingProjectColumn(long, String)}
      * e.g. ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProjectColumn(project.id, column.getName())
      */
-    public void clearPrecomputes() {
+    synchronized public void clearPrecomputes() {
         if (_precomputes != null) {
             _precomputes.clear();
         }
     }
     
-    public Object getPrecompute(String key) {
+    /**
+     * Clear the cached precomputed values after cells of some rows of the
+     * column changed. Precomputed values which depend on each row separately
+     * only forget these rows.
+     */
+    synchronized public void clearPrecomputes(int[] rowIndices) {
+        if (_precomputes != null) {
+            _precomputes.values().removeIf(precompute -> !(precompute instanceof RowDependentPrecompute)
+                    || !((RowDependentPrecompute) precompute).invalidateRows(rowIndices));
+        }
+    }
+    
+    synchronized public Object getPrecompute(String key) {
         if (_precomputes != null) {
             return _precomputes.get(key);
         }
         return null;
     }
     
-    public void setPrecompute(String key, Object value) {
+    synchronized public void setPrecompute(String key, Object value) {
         if (_precomputes == null) {
             _precomputes = new HashMap<String, Object>();
         }
@@ -93,7 +93,7 @@ public class MassCellChange implements Change {
             
             if (_commonColumnName != null) {
                 Column column = project.columnModel.getColumnByName(_commonColumnName);
-                column.clearPrecomputes();
+                column.clearPrecomputes(getRowIndices());
                 ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProjectColumn(project.id, _commonColumnName);
             }
             
@@ -114,7 +114,7 @@ public class MassCellChange implements Change {
             
             if (_commonColumnName != null) {
                 Column column = project.columnModel.getColumnByName(_commonColumnName);
-                column.clearPrecomputes();
+                column.clearPrecomputes(getRowIndices());
                 ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProjectColumn(project.id, _commonColumnName);
             }
             
@@ -124,6 +124,14 @@ public class MassCellChange implements Change {
         }
     }
     
+    protected int[] getRowIndices() {
+        int[] rowIndices = new int[_cellChanges.length];
+        for (int i = 0; i < rowIndices.length; i++) {
+            rowIndices[i] = _cellChanges[i].row;
+        }
+        return rowIndices;
+    }
+    
     @Override
     public void save(Writer writer, Properties options) throws IOException {
         if (_commonColumnName != null) {
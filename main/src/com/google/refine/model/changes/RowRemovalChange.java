@@ -90,6 +90,8 @@ public class RowRemovalChange implements Change {
                 project.rows.add(index, row);
             }
             
+            project.columnModel.clearPrecomputes();
+            
             project.update();
         }
     }
@@ -64,6 +64,8 @@ public class RowReorderChange implements Change {
 
             project.rows.clear();
             project.rows.addAll(newRows);
+            // some precomputed values are indexed by row
+            project.columnModel.clearPrecomputes();
             project.update();
         }
     }
@@ -88,6 +90,7 @@ public class RowReorderChange implements Change {
 
             project.rows.clear();
             project.rows.addAll(oldRows);
+            project.columnModel.clearPrecomputes();
             project.update();
         }
     }
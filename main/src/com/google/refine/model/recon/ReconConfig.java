@@ -105,6 +105,23 @@ abstract public class ReconConfig  {
     
     abstract public int getBatchSize();
     
+    /**
+     * Upper bound for the batch size when it is adapted to the latency of the service.
+     * Defaults to {@link #getBatchSize()}, which only lets batches shrink.
+     */
+    @JsonIgnore
+    public int getMaxBatchSize() {
+        return getBatchSize();
+    }
+    
+    /**
+     * Number of batches which may be sent to the service at the same time.
+     */
+    @JsonIgnore
+    public int getMaxConcurrentBatches() {
+        return 1;
+    }
+    
     abstract public String getBriefDescription(Project project, String columnName);
     
     abstract public ReconJob createJob(
@@ -119,6 +136,14 @@ abstract public class ReconConfig  {
     
     abstract public Recon createNewRecon(long historyEntryID);
     
+    /**
+     * Returns the result of a job which was already obtained from the service,
+     * or null if the job has to be sent in a batch.
+     */
+    public Recon getCachedRecon(ReconJob job, long historyEntryID) {
+        return null;
+    }
+    
     public void save(Writer writer) {
         try {
             ParsingUtilities.defaultWriter.writeValue(writer, this);
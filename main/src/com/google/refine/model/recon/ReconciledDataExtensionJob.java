@@ -36,20 +36,33 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 package com.google.refine.model.recon;
 
-import java.io.DataOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.io.Writer;
-import java.net.URL;
-import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
@@ -58,6 +71,10 @@ import com.fasterxml.jackson.annotation.JsonView;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.refine.ProjectManager;
+import com.google.refine.RefineServlet;
 import com.google.refine.expr.functions.ToDate;
 import com.google.refine.model.ReconCandidate;
 import com.google.refine.model.ReconType;
@@ -65,7 +82,7 @@ import com.google.refine.util.JSONUtilities;
 import com.google.refine.util.JsonViews;
 import com.google.refine.util.ParsingUtilities;
 
-public class ReconciledDataExtensionJob {
+public class ReconciledDataExtensionJob implements Closeable {
 
     
     static public class DataExtensionProperty  {
@@ -155,34 +172,108 @@ public class ReconciledDataExtensionJob {
         }
     }
     
+    /**
+     * Number of entities sent to the service in one query
+     */
+    static final public int BATCH_SIZE = 10;
+    static final public int DEFAULT_CONCURRENT_BATCHES = 2;
+
+    /**
+     * Records already returned by services, keyed by endpoint, properties
+     * and entity, so that extending other columns with the same properties
+     * does not query them again.
+     */
+    static final protected Cache<String, ObjectNode> s_recordCache = CacheBuilder.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+    static final protected Cache<String, List<ColumnInfo>> s_columnCache = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+
     final public DataExtensionConfig extension;
     final public String              endpoint;
     final public List<ColumnInfo>    columns = new ArrayList<ColumnInfo>();
+    final protected String           cacheKey;
+    protected CloseableHttpClient    httpClient;
     
     public ReconciledDataExtensionJob(DataExtensionConfig obj, String endpoint) {
         this.extension = obj;
         this.endpoint = endpoint;
+        String properties;
+        try {
+            properties = ParsingUtilities.saveWriter.writeValueAsString(obj.properties);
+        } catch (IOException e) {
+            // cannot happen when writing to a string
+            properties = String.valueOf(System.identityHashCode(obj));
+        }
+        this.cacheKey = endpoint + "\n" + properties;
     }
     
     public Map<String, ReconciledDataExtensionJob.DataExtension> extend(
         Set<String> ids,
         Map<String, ReconCandidate> reconCandidateMap
     ) throws Exception {
+        Map<String, ObjectNode> records = getCachedRecords(ids);
+        if (records.size() < ids.size()) {
+            Set<String> missing = new HashSet<String>(ids);
+            missing.removeAll(records.keySet());
+            records.putAll(fetchRecords(missing));
+        }
+        return collectResults(records, reconCandidateMap);
+    }
+
+    /**
+     * Looks up records returned by earlier queries with the same properties.
+     * Nothing is returned until the column metadata of these properties is
+     * known, as it is needed to interpret the records.
+     */
+    public Map<String, ObjectNode> getCachedRecords(Collection<String> ids) {
+        Map<String, ObjectNode> records = new HashMap<String, ObjectNode>();
+        synchronized (columns) {
+            if (columns.isEmpty()) {
+                List<ColumnInfo> cachedColumns = s_columnCache.getIfPresent(cacheKey);
+                if (cachedColumns == null) {
+                    return records;
+                }
+                columns.addAll(cachedColumns);
+            }
+        }
+        for (String id : ids) {
+            ObjectNode record = s_recordCache.getIfPresent(cacheKey + "\n" + id);
+            if (record != null) {
+                records.put(id, record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Queries the service for the records of some entities. This can be
+     * called from several threads at once.
+     *
+     * @return the records returned by the service, by entity id
+     */
+    public Map<String, ObjectNode> fetchRecords(Set<String> ids) throws Exception {
         StringWriter writer = new StringWriter();
         formulateQuery(ids, extension, writer);
 
         String query = writer.toString();
-        InputStream is = performQuery(this.endpoint, query);
+        InputStream is = performQuery(getHttpClient(), this.endpoint, query);
         try {
         	ObjectNode o = ParsingUtilities.mapper.readValue(is, ObjectNode.class);
           
-            if(columns.size() == 0) {
-                // Extract the column metadata
-            	List<ColumnInfo> newColumns = ParsingUtilities.mapper.convertValue(o.get("meta"), new TypeReference<List<ColumnInfo>>() {});  
-            	columns.addAll(newColumns);
+            synchronized (columns) {
+                if (columns.size() == 0) {
+                    // Extract the column metadata
+                    List<ColumnInfo> newColumns = ParsingUtilities.mapper.convertValue(o.get("meta"), new TypeReference<List<ColumnInfo>>() {});  
+                    columns.addAll(newColumns);
+                    s_columnCache.put(cacheKey, newColumns);
+                }
             }
           
-            Map<String, ReconciledDataExtensionJob.DataExtension> map = new HashMap<String, ReconciledDataExtensionJob.DataExtension>();
+            Map<String, ObjectNode> map = new HashMap<String, ObjectNode>();
             if (o.has("rows") && o.get("rows") instanceof ObjectNode){
                 ObjectNode records = (ObjectNode) o.get("rows");
                 
@@ -190,12 +281,8 @@ public class ReconciledDataExtensionJob {
                 for (String id : ids) {
                     if (records.has(id) && records.get(id) instanceof ObjectNode) {
                         ObjectNode record = (ObjectNode) records.get(id);
-                        
-                        ReconciledDataExtensionJob.DataExtension ext = collectResult(record, reconCandidateMap);
-                        
-                        if (ext != null) {
-                            map.put(id, ext);
-                        }
+                        map.put(id, record);
+                        s_recordCache.put(cacheKey + "\n" + id, record);
                     }
                 }
             }
@@ -206,27 +293,88 @@ public class ReconciledDataExtensionJob {
         }
     }
 
-    static protected InputStream performQuery(String endpoint, String query) throws IOException {
-        URL url = new URL(endpoint);
+    /**
+     * Turns records into cell values. Reconciled values are shared through
+     * the candidate map, which is not thread-safe.
+     */
+    public Map<String, ReconciledDataExtensionJob.DataExtension> collectResults(
+        Map<String, ObjectNode> records,
+        Map<String, ReconCandidate> reconCandidateMap
+    ) {
+        Map<String, ReconciledDataExtensionJob.DataExtension> map = new HashMap<String, ReconciledDataExtensionJob.DataExtension>();
+        for (Map.Entry<String, ObjectNode> entry : records.entrySet()) {
+            ReconciledDataExtensionJob.DataExtension ext = collectResult(entry.getValue(), reconCandidateMap);
+            if (ext != null) {
+                map.put(entry.getKey(), ext);
+            }
+        }
+        return map;
+    }
 
-        URLConnection connection = url.openConnection();
-        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        connection.setConnectTimeout(5000);
-        connection.setDoOutput(true);
+    /**
+     * Number of queries which can be sent to the service at the same time,
+     * set by the "dataExtension.concurrentBatches" preference.
+     */
+    public int getMaxConcurrentBatches() {
+        if (ProjectManager.singleton == null) {
+            return DEFAULT_CONCURRENT_BATCHES;
+        }
+        return Math.max(1, ProjectManager.singleton.getPreferenceStore()
+                .getInt("dataExtension.concurrentBatches", DEFAULT_CONCURRENT_BATCHES));
+    }
 
-        DataOutputStream dos = new DataOutputStream(connection.getOutputStream());
-        try {
-            String body = "extend=" + ParsingUtilities.encode(query);
+    /**
+     * Queries of this job are sent through one client, which keeps
+     * connections to the service alive between batches until the job
+     * is closed.
+     */
+    synchronized protected CloseableHttpClient getHttpClient() {
+        if (httpClient == null) {
+            int concurrency = getMaxConcurrentBatches();
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(concurrency);
+            connectionManager.setDefaultMaxPerRoute(concurrency);
+            httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(5000)
+                            .setSocketTimeout(60000)
+                            .build())
+                    .setUserAgent(RefineServlet.getUserAgent())
+                    .build();
+        }
+        return httpClient;
+    }
 
-            dos.writeBytes(body);
-        } finally {
-            dos.flush();
-            dos.close();
+    /**
+     * Closes the connections of this job.
+     */
+    @Override
+    synchronized public void close() {
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            httpClient = null;
         }
+    }
 
-        connection.connect();
+    static protected InputStream performQuery(CloseableHttpClient client, String endpoint, String query) throws IOException {
+        HttpPost post = new HttpPost(endpoint);
+        post.setEntity(new UrlEncodedFormEntity(
+                Collections.singletonList(new BasicNameValuePair("extend", query)), StandardCharsets.UTF_8));
 
-        return connection.getInputStream();
+        CloseableHttpResponse response = client.execute(post);
+        StatusLine statusLine = response.getStatusLine();
+        if (statusLine.getStatusCode() >= 400) {
+            response.close();
+            throw new IOException("Server returned HTTP response code: " + statusLine.getStatusCode()
+                    + " for URL: " + endpoint);
+        }
+        // closing the stream hands the connection back to the pool
+        return response.getEntity().getContent();
     }
 
     
@@ -59,8 +59,10 @@ import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.refine.ProjectManager;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
@@ -77,6 +79,7 @@ public class StandardReconConfig extends ReconConfig {
     
 	private static final String DEFAULT_SCHEMA_SPACE = "http://localhost/schema";
 	private static final String DEFAULT_IDENTIFIER_SPACE = "http://localhost/identifier";
+	private static final int DEFAULT_CONCURRENT_BATCHES = 2;
     
     static public class ColumnDetail  {
         @JsonProperty("column")
@@ -235,6 +238,22 @@ public class StandardReconConfig extends ReconConfig {
     public int getBatchSize() {
         return 10;
     }
+    
+    @Override
+    @JsonIgnore
+    public int getMaxBatchSize() {
+        return 50;
+    }
+    
+    @Override
+    @JsonIgnore
+    public int getMaxConcurrentBatches() {
+        if (ProjectManager.singleton == null) {
+            return DEFAULT_CONCURRENT_BATCHES;
+        }
+        return Math.max(1, ProjectManager.singleton.getPreferenceStore()
+                .getInt("reconciliation.concurrentBatches", DEFAULT_CONCURRENT_BATCHES));
+    }
 
     @Override
     public String getBriefDescription(Project project, String columnName) {
@@ -486,6 +505,7 @@ public class StandardReconConfig extends ReconConfig {
                                 ArrayNode results = (ArrayNode) o2.get("result");
 
                                 recon = createReconServiceResults(text, results, historyEntryID);
+                                ReconCache.getInstance().put(service, job.code, results.toString());
                             } else {
                                 logger.warn("Service error for text: " + text + "\n  Job code: " + job.code + "\n  Response: " + o2.toString());
                             }
@@ -525,6 +545,25 @@ public class StandardReconConfig extends ReconConfig {
         return recon;
     }
 
+    @Override
+    public Recon getCachedRecon(ReconJob job, long historyEntryID) {
+        StandardReconJob standardJob = (StandardReconJob) job;
+        String results = ReconCache.getInstance().get(service, standardJob.code);
+        if (results != null) {
+            try {
+                JsonNode node = ParsingUtilities.mapper.readTree(results);
+                if (node instanceof ArrayNode) {
+                    Recon recon = createReconServiceResults(standardJob.text, (ArrayNode) node, historyEntryID);
+                    recon.service = service;
+                    return recon;
+                }
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable cached results for " + standardJob.code, e);
+            }
+        }
+        return null;
+    }
+
     protected Recon createReconServiceResults(String text, ArrayNode resultsList, long historyEntryID) throws IOException {
         Recon recon = new Recon(historyEntryID, identifierSpace, schemaSpace);
         List<ReconResult> results = ParsingUtilities.mapper.convertValue(resultsList, new TypeReference<List<ReconResult>>() {});
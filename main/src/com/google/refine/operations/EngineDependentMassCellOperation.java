@@ -34,7 +34,9 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.operations;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -46,10 +48,16 @@ import com.google.refine.history.Change;
 import com.google.refine.history.HistoryEntry;
 import com.google.refine.model.Column;
 import com.google.refine.model.Project;
+import com.google.refine.model.Row;
 import com.google.refine.model.changes.CellChange;
 import com.google.refine.model.changes.MassCellChange;
 
 abstract public class EngineDependentMassCellOperation extends EngineDependentOperation {
+    /**
+     * Minimum number of rows visited by each visitor when visiting in parallel
+     */
+    static final int MIN_PARTITION_SIZE = 4096;
+    
     @JsonIgnore
     final protected String    _columnName;
     @JsonIgnore
@@ -74,10 +82,14 @@ abstract public class EngineDependentMassCellOperation extends EngineDependentOp
         List<CellChange> cellChanges = new ArrayList<CellChange>(project.rows.size());
         
         FilteredRows filteredRows = engine.getAllFilteredRows();
-        try {
-            filteredRows.accept(project, createRowVisitor(project, cellChanges, historyEntryID));
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (isRowIndependent()) {
+            visitInParallel(project, filteredRows, cellChanges, historyEntryID);
+        } else {
+            try {
+                filteredRows.accept(project, createRowVisitor(project, cellChanges, historyEntryID));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
         }
         
         String description = createDescription(column, cellChanges);
@@ -86,6 +98,90 @@ abstract public class EngineDependentMassCellOperation extends EngineDependentOp
             historyEntryID, project, description, this, createChange(project, column, cellChanges));
     }
     
+    /**
+     * Visits the filtered rows by partitions, each partition with its own
+     * visitor and on its own thread, then gathers the changes in row order.
+     */
+    protected void visitInParallel(Project project, FilteredRows filteredRows,
+            List<CellChange> cellChanges, long historyEntryID) throws Exception {
+        int[] rowIndices = getRowIndices(project, filteredRows);
+        
+        int partitionSize = Math.max(MIN_PARTITION_SIZE,
+                rowIndices.length / (Runtime.getRuntime().availableProcessors() * 4) + 1);
+        int partitionCount = (rowIndices.length + partitionSize - 1) / partitionSize;
+        
+        List<List<CellChange>> partitionChanges = new ArrayList<>(partitionCount);
+        List<RowVisitor> visitors = new ArrayList<>(partitionCount);
+        for (int p = 0; p < partitionCount; p++) {
+            List<CellChange> changes = new ArrayList<CellChange>();
+            partitionChanges.add(changes);
+            visitors.add(createRowVisitor(project, changes, historyEntryID));
+        }
+        
+        IntStream partitions = IntStream.range(0, partitionCount);
+        try {
+            (partitionCount > 1 ? partitions.parallel() : partitions).forEach(p -> {
+                RowVisitor visitor = visitors.get(p);
+                int to = Math.min(rowIndices.length, (p + 1) * partitionSize);
+                try {
+                    visitor.start(project);
+                    for (int i = p * partitionSize; i < to; i++) {
+                        visitor.visit(project, rowIndices[i], project.rows.get(rowIndices[i]));
+                    }
+                } finally {
+                    visitor.end(project);
+                }
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        
+        for (List<CellChange> changes : partitionChanges) {
+            cellChanges.addAll(changes);
+        }
+    }
+    
+    static protected int[] getRowIndices(Project project, FilteredRows filteredRows) {
+        RowIndexCollector collector = new RowIndexCollector();
+        filteredRows.accept(project, collector);
+        return Arrays.copyOf(collector.rowIndices, collector.count);
+    }
+    
+    static protected class RowIndexCollector implements RowVisitor {
+        int[] rowIndices = new int[1024];
+        int count = 0;
+        
+        @Override
+        public void start(Project project) {
+            // nothing to do
+        }
+
+        @Override
+        public void end(Project project) {
+            // nothing to do
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, Row row) {
+            if (count == rowIndices.length) {
+                rowIndices = Arrays.copyOf(rowIndices, count * 2);
+            }
+            rowIndices[count++] = rowIndex;
+            return false;
+        }
+    }
+    
+    /**
+     * Operations whose visitor changes each row regardless of the rows visited
+     * before it, and can be used on any thread, return true so that their rows
+     * are visited in parallel, one visitor per partition of the rows. Those
+     * visitors must not stop the visit early. Operations carrying anything from
+     * one row to the next, such as fill down, must keep the default.
+     */
+    protected boolean isRowIndependent() {
+        return false;
+    }
+    
     protected Change createChange(Project project, Column column, List<CellChange> cellChanges) {
         return new MassCellChange(
             cellChanges, column.getName(), _updateRowContextDependencies);
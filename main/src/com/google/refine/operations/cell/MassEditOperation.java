@@ -47,6 +47,7 @@ import com.google.refine.browsing.RowVisitor;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.expr.MetaParser;
+import com.google.refine.expr.ParsingException;
 import com.google.refine.model.Cell;
 import com.google.refine.model.Column;
 import com.google.refine.model.Project;
@@ -140,6 +141,16 @@ public class MassEditOperation extends EngineDependentMassCellOperation {
             " cells in column " + column.getName();
     }
 
+    @Override
+    protected boolean isRowIndependent() {
+        // each row is edited on its own, but only some expressions can be evaluated on several threads
+        try {
+            return ExpressionUtils.isThreadSafe(MetaParser.parse(_expression));
+        } catch (ParsingException e) {
+            return false;
+        }
+    }
+
     @Override
     protected RowVisitor createRowVisitor(Project project, List<CellChange> cellChanges, long historyEntryID) throws Exception {
         Column column = project.columnModel.getColumnByName(_columnName);
@@ -50,6 +50,7 @@ import com.google.refine.model.Column;
 import com.google.refine.model.Project;
 import com.google.refine.model.Row;
 import com.google.refine.model.changes.MassRowChange;
+import com.google.refine.util.PatternCache;
 
 public class MultiValuedCellSplitOperation extends AbstractOperation {
     final protected String  _columnName;
@@ -171,6 +172,8 @@ public class MultiValuedCellSplitOperation extends AbstractOperation {
         int keyCellIndex = keyColumn.getCellIndex();
 
         List<Row> newRows = new ArrayList<Row>();
+        // compiled for the first non-blank cell
+        Pattern pattern = null;
         
         int oldRowCount = project.rows.size();
         for (int r = 0; r < oldRowCount; r++) {
@@ -203,7 +206,9 @@ public class MultiValuedCellSplitOperation extends AbstractOperation {
                 }
             }
             else if (_regex) {
-                Pattern pattern = Pattern.compile(_separator);
+                if (pattern == null) {
+                    pattern = PatternCache.compile(_separator);
+                }
                 values = pattern.split(s);
             } else {
                 values = StringUtils.splitByWholeSeparatorPreserveAllTokens(s, _separator);
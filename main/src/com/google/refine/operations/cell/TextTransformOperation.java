@@ -44,6 +44,7 @@ import com.google.refine.browsing.RowVisitor;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.expr.MetaParser;
+import com.google.refine.expr.ParsingException;
 import com.google.refine.expr.WrappedCell;
 import com.google.refine.model.Cell;
 import com.google.refine.model.Column;
@@ -63,6 +64,11 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
     @JsonProperty("repeatCount")
     final protected int     _repeatCount;
     
+    /**
+     * Number of rows whose expression is evaluated at once
+     */
+    static final int BATCH_SIZE = 1024;
+    
     static public OnError stringToOnError(String s) {
         if ("set-to-blank".equalsIgnoreCase(s)) {
             return OnError.SetToBlank;
@@ -117,6 +123,16 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
             " cells in column " + column.getName() + ": " + _expression;
     }
 
+    @Override
+    protected boolean isRowIndependent() {
+        // each row is transformed on its own, but only some expressions can be evaluated on several threads
+        try {
+            return ExpressionUtils.isThreadSafe(MetaParser.parse(_expression));
+        } catch (ParsingException e) {
+            return false;
+        }
+    }
+
     @Override
     protected RowVisitor createRowVisitor(Project project, List<CellChange> cellChanges, long historyEntryID) throws Exception {
         Column column = project.columnModel.getColumnByName(_columnName);
@@ -138,6 +154,10 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
                 return this;
             }
             
+            int[]               pendingRows = new int[BATCH_SIZE];
+            Object[]            pendingValues = new Object[BATCH_SIZE];
+            int                 pendingCount = 0;
+            
             @Override
             public void start(Project project) {
                 // nothing to do
@@ -145,19 +165,35 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
 
             @Override
             public void end(Project project) {
-                // nothing to do
+                flushRows(project);
             }
 
             @Override
             public boolean visit(Project project, int rowIndex, Row row) {
+                // rows are evaluated by batches, when enough of them were visited
+                pendingRows[pendingCount++] = rowIndex;
+                if (pendingCount == BATCH_SIZE) {
+                    flushRows(project);
+                }
+                return false;
+            }
+            
+            private void flushRows(Project project) {
+                eval.evaluateRows(project, _columnName, cellIndex, pendingRows, pendingCount, pendingValues);
+                for (int i = 0; i < pendingCount; i++) {
+                    int rowIndex = pendingRows[i];
+                    transformRow(rowIndex, project.rows.get(rowIndex), pendingValues[i]);
+                    pendingValues[i] = null;
+                }
+                pendingCount = 0;
+            }
+            
+            private void transformRow(int rowIndex, Row row, Object o) {
                 Cell cell = row.getCell(cellIndex);
                 Cell newCell = null;
 
                 Object oldValue = cell != null ? cell.value : null;
 
-                ExpressionUtils.bind(bindings, row, rowIndex, _columnName, cell);
-
-                Object o = eval.evaluate(bindings);
                 if (o == null) {
                     if (oldValue != null) {
                         CellChange cellChange = new CellChange(rowIndex, cellIndex, cell, null);
@@ -172,7 +208,7 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
                         Serializable newValue = ExpressionUtils.wrapStorable(o);
                         if (ExpressionUtils.isError(newValue)) {
                             if (_onError == OnError.KeepOriginal) {
-                                return false;
+                                return;
                             } else if (_onError == OnError.SetToBlank) {
                                 newValue = null;
                             }
@@ -203,8 +239,6 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
                         cellChanges.add(cellChange);
                     }
                 }
-                
-                return false;
             }
         }.init(column.getCellIndex(), bindings, cellChanges, eval);
     }
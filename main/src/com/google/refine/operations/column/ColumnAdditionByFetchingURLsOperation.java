@@ -40,16 +40,43 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.http.HttpEntity;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.refine.RefineServlet;
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.EngineConfig;
 import com.google.refine.browsing.FilteredRows;
@@ -70,10 +97,19 @@ import com.google.refine.operations.EngineDependentOperation;
 import com.google.refine.operations.OnError;
 import com.google.refine.process.LongRunningProcess;
 import com.google.refine.process.Process;
+import com.google.refine.util.HostRateLimiter;
+import com.google.refine.util.HttpResponseCache;
 import com.google.refine.util.ParsingUtilities;
 
 
 public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperation {
+    // Timeouts of a request, to connect and between two packets of the response
+    final static int CONNECT_TIMEOUT_MS = 30000;
+    final static int SOCKET_TIMEOUT_MS = 60000;
+    
+    // Time waited before scheduling again when no request is in flight
+    final static long IDLE_WAIT_MS = 100;
+    
     public static final class HttpHeader  {
         @JsonProperty("name")
         final public String name;
@@ -100,6 +136,23 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
     final protected int        _delay;
     final protected boolean    _cacheResponses;
     final protected List<HttpHeader>  _httpHeadersJson;
+    final protected Integer    _concurrency;
+    final protected Integer    _maxRequestsPerHost;
+
+    public ColumnAdditionByFetchingURLsOperation(
+        EngineConfig   engineConfig,
+        String         baseColumnName,
+        String         urlExpression,
+        OnError        onError,
+        String         newColumnName,
+        int            columnInsertIndex,
+        int            delay,
+        boolean        cacheResponses,
+        List<HttpHeader>      httpHeadersJson
+    ) {
+        this(engineConfig, baseColumnName, urlExpression, onError, newColumnName, columnInsertIndex,
+                delay, cacheResponses, httpHeadersJson, null, null);
+    }
 
     @JsonCreator
     public ColumnAdditionByFetchingURLsOperation(
@@ -120,7 +173,11 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
         @JsonProperty("cacheResponses")
         boolean        cacheResponses,
         @JsonProperty("httpHeadersJson")
-        List<HttpHeader>      httpHeadersJson
+        List<HttpHeader>      httpHeadersJson,
+        @JsonProperty("concurrency")
+        Integer        concurrency,
+        @JsonProperty("maxRequestsPerHost")
+        Integer        maxRequestsPerHost
     ) {
         super(engineConfig);
 
@@ -134,6 +191,8 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
         _delay = delay;
         _cacheResponses = cacheResponses;
         _httpHeadersJson = httpHeadersJson;
+        _concurrency = concurrency;
+        _maxRequestsPerHost = maxRequestsPerHost;
     }
     
     @JsonProperty("newColumnName")
@@ -175,6 +234,25 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
     public boolean getCacheResponses() {
         return _cacheResponses;
     }
+    
+    /**
+     * Maximum number of URLs fetched at the same time, 1 if null.
+     */
+    @JsonProperty("concurrency")
+    @JsonInclude(Include.NON_NULL)
+    public Integer getConcurrency() {
+        return _concurrency;
+    }
+    
+    /**
+     * Maximum number of URLs of a single host fetched at the same time, 1 if null.
+     * Each request to a host is followed by the delay before its slot is reused.
+     */
+    @JsonProperty("maxRequestsPerHost")
+    @JsonInclude(Include.NON_NULL)
+    public Integer getMaxRequestsPerHost() {
+        return _maxRequestsPerHost;
+    }
 
     @Override
     protected String getBriefDescription(Project project) {
@@ -215,6 +293,9 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
         final protected long          _historyEntryID;
         protected int                 _cellIndex;
         protected LoadingCache<String, Serializable> _urlCache;
+        protected CloseableHttpClient _httpClient;
+        protected HttpResponseCache   _responseCache;
+        protected Map<String, String> _cacheKeyHeaders;
 
         public ColumnAdditionByFetchingURLsProcess(
             Project project,
@@ -229,7 +310,17 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
             _eval = eval;
             _historyEntryID = HistoryEntry.allocateID();
             _urlCache = null;
+            _responseCache = null;
             if (cacheResponses) {
+                _responseCache = HttpResponseCache.getInstance();
+                _cacheKeyHeaders = new TreeMap<String, String>();
+                if (_httpHeadersJson != null) {
+                    for (HttpHeader header : _httpHeadersJson) {
+                        if (header.value != null && !header.value.isEmpty()) {
+                            _cacheKeyHeaders.put(header.name.toLowerCase(), header.value);
+                        }
+                    }
+                }
                 _urlCache = CacheBuilder.newBuilder()
                 .maximumSize(2048)
                 .expireAfterWrite(10, TimeUnit.MINUTES)
@@ -237,23 +328,14 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
                      new CacheLoader<String, Serializable>() {
                         public Serializable load(String urlString) throws Exception {
                             Serializable result = fetch(urlString);
-                            try {
-                                // Always sleep for the delay, no matter how long the
-                                // request took. This is more responsible than substracting
-                                // the time spend requesting the URL, because it naturally
-                                // slows us down if the server is busy and takes a long time
-                                // to reply.
-                                if (_delay > 0) {
-                                    Thread.sleep(_delay);
-                                }
-                            } catch (InterruptedException e) {
-                                result = null;
-                            }
-
                             if (result == null) {
                                 // the load method should not return any null value
                                 throw new Exception("null result returned by fetch");
                             }
+                            if (result instanceof String) {
+                                // errors are not kept, so that they are retried next time
+                                _responseCache.put(HttpResponseCache.makeKey(urlString, _cacheKeyHeaders), (String) result);
+                            }
                             return result;
                         }
                         });
@@ -282,30 +364,123 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
             FilteredRows filteredRows = _engine.getAllFilteredRows();
             filteredRows.accept(_project, createRowVisitor(urls));
 
-            List<CellAtRow> responseBodies = new ArrayList<CellAtRow>(urls.size());
+            int concurrency = _concurrency == null ? 1 : Math.max(1, _concurrency);
+            int maxRequestsPerHost = _maxRequestsPerHost == null ? 1 : Math.max(1, _maxRequestsPerHost);
+            
+            // URLs are queued per host so that a host waiting for its delay does not hold back the others
+            String[] hosts = new String[urls.size()];
+            Map<String, Deque<Integer>> urlsByHost = new LinkedHashMap<String, Deque<Integer>>();
             for (int i = 0; i < urls.size(); i++) {
-                CellAtRow urlData = urls.get(i);
-                String urlString = urlData.cell.value.toString();
-
-                Serializable response = null;
-                if (_urlCache != null) {
-                    response = cachedFetch(urlString);
-                } else {
-                    response = fetch(urlString);
+                hosts[i] = getHost(urls.get(i).cell.value.toString());
+                Deque<Integer> queue = urlsByHost.get(hosts[i]);
+                if (queue == null) {
+                    queue = new ArrayDeque<Integer>();
+                    urlsByHost.put(hosts[i], queue);
                 }
-
-                if (response != null) {
-                    CellAtRow cellAtRow = new CellAtRow(
-                            urlData.row,
-                            new Cell(response, null));
-
-                    responseBodies.add(cellAtRow);
+                queue.add(i);
+            }
+            
+            final Serializable[] responses = new Serializable[urls.size()];
+            HostRateLimiter rateLimiter = new HostRateLimiter(_delay, maxRequestsPerHost);
+            ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+            CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(executor);
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(concurrency);
+            connectionManager.setDefaultMaxPerRoute(concurrency);
+            _httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(CONNECT_TIMEOUT_MS)
+                            .setSocketTimeout(SOCKET_TIMEOUT_MS)
+                            .build())
+                    .setUserAgent(RefineServlet.getUserAgent())
+                    .build();
+            
+            try {
+                int inFlight = 0;
+                int done = 0;
+                while (!_canceled && done < urls.size()) {
+                    long now = System.currentTimeMillis();
+                    long wait = -1;
+                    Iterator<Map.Entry<String, Deque<Integer>>> i = urlsByHost.entrySet().iterator();
+                    while (inFlight < concurrency && i.hasNext()) {
+                        Map.Entry<String, Deque<Integer>> entry = i.next();
+                        Deque<Integer> queue = entry.getValue();
+                        
+                        // cached responses do not count against the rate limit
+                        Serializable cached;
+                        while (!queue.isEmpty() && (cached = getCachedResponse(urls.get(queue.peekFirst()))) != null) {
+                            responses[queue.pollFirst()] = cached;
+                            done++;
+                        }
+                        if (queue.isEmpty()) {
+                            i.remove();
+                            continue;
+                        }
+                        
+                        long hostWait = rateLimiter.tryAcquire(entry.getKey(), now);
+                        if (hostWait == 0) {
+                            final int index = queue.pollFirst();
+                            final String urlString = urls.get(index).cell.value.toString();
+                            completionService.submit(new Callable<Integer>() {
+                                @Override
+                                public Integer call() {
+                                    responses[index] = _urlCache != null ? cachedFetch(urlString) : fetch(urlString);
+                                    return index;
+                                }
+                            });
+                            inFlight++;
+                            if (queue.isEmpty()) {
+                                i.remove();
+                            }
+                        } else if (hostWait > 0) {
+                            wait = wait < 0 ? hostWait : Math.min(wait, hostWait);
+                        }
+                    }
+                    
+                    if (inFlight == 0 && urlsByHost.isEmpty()) {
+                        // the remaining responses were all cached
+                        continue;
+                    }
+                    if (inFlight == 0 && wait < 0) {
+                        // nothing to wait for, which the rate limiter should not allow: do not spin
+                        wait = IDLE_WAIT_MS;
+                    }
+                    try {
+                        Future<Integer> future = inFlight == concurrency || wait < 0 ?
+                                completionService.take() :
+                                completionService.poll(wait, TimeUnit.MILLISECONDS);
+                        if (future != null) {
+                            int index = future.get();
+                            rateLimiter.release(hosts[index], System.currentTimeMillis());
+                            inFlight--;
+                            done++;
+                        }
+                    } catch (InterruptedException e) {
+                        if (_canceled) {
+                            break;
+                        }
+                    } catch (ExecutionException e) {
+                        // fetch() does not throw
+                        throw new IllegalStateException(e.getCause());
+                    }
+                    
+                    _progress = done * 100 / urls.size();
                 }
-
-                _progress = i * 100 / urls.size();
-
-                if (_canceled) {
-                    break;
+            } finally {
+                executor.shutdownNow();
+                try {
+                    _httpClient.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+            
+            // the new column is filled in row order, whatever order the responses came in
+            List<CellAtRow> responseBodies = new ArrayList<CellAtRow>(urls.size());
+            for (int i = 0; i < urls.size(); i++) {
+                if (responses[i] != null) {
+                    responseBodies.add(new CellAtRow(urls.get(i).row, new Cell(responses[i], null)));
                 }
             }
 
@@ -334,6 +509,35 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
             }
         }
 
+        /**
+         * Looks a URL up in the responses of this process, then in the
+         * responses kept in the workspace by earlier fetches.
+         */
+        Serializable getCachedResponse(CellAtRow urlData) {
+            if (_urlCache == null) {
+                return null;
+            }
+            String urlString = urlData.cell.value.toString();
+            Serializable response = _urlCache.getIfPresent(urlString);
+            if (response == null) {
+                String body = _responseCache.get(HttpResponseCache.makeKey(urlString, _cacheKeyHeaders));
+                if (body != null) {
+                    _urlCache.put(urlString, body);
+                    response = body;
+                }
+            }
+            return response;
+        }
+
+        String getHost(String urlString) {
+            try {
+                String host = new URL(urlString).getHost();
+                return host == null ? "" : host.toLowerCase();
+            } catch (MalformedURLException e) {
+                return "";
+            }
+        }
+
         Serializable fetch(String urlString) {
             URL url = null;
             try {
@@ -342,6 +546,10 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
                 return null;
             }
 
+            if (_httpClient != null && ("http".equals(url.getProtocol()) || "https".equals(url.getProtocol()))) {
+                return fetchHttp(urlString);
+            }
+
             try {
                 URLConnection urlConnection = url.openConnection();
                 urlConnection.setRequestProperty("Accept-Encoding", "gzip");
@@ -400,6 +608,45 @@ public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperat
             }
         }
 
+        /**
+         * Fetches a URL through the pooled client of the process, which keeps
+         * connections to each host alive between requests.
+         */
+        Serializable fetchHttp(String urlString) {
+            try {
+                HttpGet httpGet = new HttpGet(urlString);
+                if (_httpHeadersJson != null) {
+                    for (int i = 0; i < _httpHeadersJson.size(); i++) {
+                        String headerLabel = _httpHeadersJson.get(i).name;
+                        String headerValue = _httpHeadersJson.get(i).value;
+                        if (headerValue != null && !headerValue.isEmpty()) {
+                            httpGet.setHeader(headerLabel, headerValue);
+                        }
+                    }
+                }
+
+                CloseableHttpResponse response = _httpClient.execute(httpGet);
+                try {
+                    StatusLine statusLine = response.getStatusLine();
+                    HttpEntity entity = response.getEntity();
+                    String body = entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+                    if (statusLine.getStatusCode() >= 400) {
+                        String message = String.format("HTTP error %d : %s | %s",
+                                statusLine.getStatusCode(),
+                                statusLine.getReasonPhrase(),
+                                body);
+                        return _onError == OnError.StoreError ? new EvalError(message) : null;
+                    }
+                    return body;
+                } finally {
+                    response.close();
+                }
+            } catch (Exception e) {
+                return _onError == OnError.StoreError ?
+                        new EvalError(e.getMessage()) : null;
+            }
+        }
+
         RowVisitor createRowVisitor(List<CellAtRow> cellsAtRows) {
             return new RowVisitor() {
                 int              cellIndex;
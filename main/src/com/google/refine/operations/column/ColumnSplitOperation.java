@@ -57,6 +57,7 @@ import com.google.refine.model.Project;
 import com.google.refine.model.Row;
 import com.google.refine.model.changes.ColumnSplitChange;
 import com.google.refine.operations.EngineDependentOperation;
+import com.google.refine.util.PatternCache;
 
 public class ColumnSplitOperation extends EngineDependentOperation {
     final protected String     _columnName;
@@ -238,7 +239,7 @@ public class ColumnSplitOperation extends EngineDependentOperation {
                 };
             };
         } else if (_regex) {
-            Pattern pattern = Pattern.compile(_separator);
+            Pattern pattern = PatternCache.compile(_separator);
             
             rowVisitor = new ColumnSplitRowVisitor(column.getCellIndex(), columnNames, rowIndices, tuples) {
                 Pattern _pattern;
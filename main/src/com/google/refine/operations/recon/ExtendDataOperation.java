@@ -36,13 +36,21 @@ package com.google.refine.operations.recon;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.EngineConfig;
 import com.google.refine.browsing.FilteredRows;
@@ -194,45 +202,69 @@ public class ExtendDataOperation extends EngineDependentOperation {
             }.init(rowIndices));
         }
         
-        protected int extendRows(
-            List<Integer> rowIndices, 
-            List<DataExtension> dataExtensions, 
-            int from, 
-            int limit,
-            Map<String, ReconCandidate> reconCandidateMap
-        ) {
-            Set<String> ids = new HashSet<String>();
+        /**
+         * Fetches the records of the given entities, in batches sent to the
+         * service concurrently. Entities whose records are cached are not sent.
+         */
+        protected Map<String, ObjectNode> fetchRecords(Set<String> ids) {
+            Map<String, ObjectNode> records = _job.getCachedRecords(ids);
             
-            int end;
-            for (end = from; end < limit && ids.size() < 10; end++) {
-                int index = rowIndices.get(end);
-                Row row = _project.rows.get(index);
-                Cell cell = row.getCell(_cellIndex);
-                
-                ids.add(cell.recon.match.id);
+            List<Set<String>> batches = new ArrayList<Set<String>>();
+            Set<String> batch = new HashSet<String>();
+            for (String id : ids) {
+                if (records.containsKey(id)) {
+                    continue;
+                }
+                batch.add(id);
+                if (batch.size() == ReconciledDataExtensionJob.BATCH_SIZE) {
+                    batches.add(batch);
+                    batch = new HashSet<String>();
+                }
             }
-            
-            Map<String, DataExtension> map = null;
-            try {
-                map = _job.extend(ids, reconCandidateMap);
-            } catch (Exception e) {
-                map = new HashMap<String, DataExtension>();
+            if (!batch.isEmpty()) {
+                batches.add(batch);
+            }
+            if (batches.isEmpty()) {
+                return records;
             }
             
-            for (int i = from; i < end; i++) {
-                int index = rowIndices.get(i);
-                Row row = _project.rows.get(index);
-                Cell cell = row.getCell(_cellIndex);
-                String guid = cell.recon.match.id;
+            int threads = Math.min(_job.getMaxConcurrentBatches(), batches.size());
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CompletionService<Map<String, ObjectNode>> completionService =
+                    new ExecutorCompletionService<Map<String, ObjectNode>>(executor);
+            try {
+                // batches are queued up front so that the next one is sent as soon as a thread is free
+                for (final Set<String> batchIds : batches) {
+                    completionService.submit(new Callable<Map<String, ObjectNode>>() {
+                        @Override
+                        public Map<String, ObjectNode> call() {
+                            try {
+                                return _job.fetchRecords(batchIds);
+                            } catch (Exception e) {
+                                return new HashMap<String, ObjectNode>();
+                            }
+                        }
+                    });
+                }
                 
-                if (map.containsKey(guid)) {
-                    dataExtensions.add(map.get(guid));
-                } else {
-                    dataExtensions.add(null);
+                int cached = records.size();
+                for (int i = 0; i < batches.size() && !_canceled; i++) {
+                    try {
+                        records.putAll(completionService.take().get());
+                    } catch (InterruptedException e) {
+                        if (_canceled) {
+                            break;
+                        }
+                    } catch (ExecutionException e) {
+                        // the tasks catch their exceptions
+                        throw new IllegalStateException(e.getCause());
+                    }
+                    _progress = (cached + (i + 1) * (ids.size() - cached) / batches.size()) * 100 / ids.size();
                 }
+            } finally {
+                executor.shutdownNow();
             }
-            
-            return end;
+            return records;
         }
         
         @Override
@@ -247,21 +279,24 @@ public class ExtendDataOperation extends EngineDependentOperation {
                 e2.printStackTrace();
             }
             
-            int start = 0;
+            // each entity is only fetched once, however many rows it is matched in
+            Set<String> ids = new LinkedHashSet<String>();
+            for (int index : rowIndices) {
+                ids.add(_project.rows.get(index).getCell(_cellIndex).recon.match.id);
+            }
+            
+            Map<String, ObjectNode> records;
+            try {
+                records = fetchRecords(ids);
+            } finally {
+                _job.close();
+            }
             Map<String, ReconCandidate> reconCandidateMap = new HashMap<String, ReconCandidate>();
+            Map<String, DataExtension> map = _job.collectResults(records, reconCandidateMap);
             
-            while (start < rowIndices.size()) {
-                int end = extendRows(rowIndices, dataExtensions, start, rowIndices.size(), reconCandidateMap);
-                start = end;
-                
-                _progress = end * 100 / rowIndices.size();
-                try {
-                    Thread.sleep(200);
-                } catch (InterruptedException e) {
-                    if (_canceled) {
-                        break;
-                    }
-                }
+            for (int index : rowIndices) {
+                String guid = _project.rows.get(index).getCell(_cellIndex).recon.match.id;
+                dataExtensions.add(map.get(guid));
             }
             
             if (!_canceled) {
@@ -88,6 +88,11 @@ public class ReconClearSimilarCellsOperation extends EngineDependentMassCellOper
             _similarValue + "\" in column " + _columnName;
     }
 
+    @Override
+    protected boolean isRowIndependent() {
+        return true;
+    }
+
     @Override
     protected RowVisitor createRowVisitor(final Project project, final List<CellChange> cellChanges, final long historyEntryID) throws Exception {
         Column column = project.columnModel.getColumnByName(_columnName);
@@ -34,16 +34,30 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.operations.recon;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.refine.browsing.Engine;
@@ -60,6 +74,7 @@ import com.google.refine.model.Recon;
 import com.google.refine.model.Row;
 import com.google.refine.model.changes.CellChange;
 import com.google.refine.model.changes.ReconChange;
+import com.google.refine.model.recon.ReconCache;
 import com.google.refine.model.recon.ReconConfig;
 import com.google.refine.model.recon.ReconJob;
 import com.google.refine.model.recon.StandardReconConfig;
@@ -71,6 +86,16 @@ import com.google.refine.util.ParsingUtilities;
 public class ReconOperation extends EngineDependentOperation {
     final static Logger logger = LoggerFactory.getLogger("recon-operation");
     
+    /**
+     * Number of times a job is sent at most before it is given a blank recon.
+     */
+    final static int MAX_TRIALS = 3;
+    
+    /**
+     * Time before a failed job is sent again, doubled after each failure.
+     */
+    final static long RETRY_DELAY_MS = 500;
+    
     final protected String      _columnName;
     final protected ReconConfig _reconConfig;
     
@@ -125,12 +150,43 @@ public class ReconOperation extends EngineDependentOperation {
         final public ReconJob job;
         final public List<ReconEntry> entries = new ArrayList<ReconEntry>();
         public int trials = 0;
+        public long retryAt = 0;
         
         public JobGroup(ReconJob job) {
             this.job = job;
         }
     }
     
+    /**
+     * Adapts the number of jobs sent in each batch to the latency of the service:
+     * batches grow while they are answered quickly and shrink when they are slow
+     * or fail.
+     */
+    static protected class BatchSizer {
+        static final protected long FAST_BATCH_MILLIS = 1000;
+        static final protected long SLOW_BATCH_MILLIS = 5000;
+        
+        final protected int _maxBatchSize;
+        protected int _batchSize;
+        
+        public BatchSizer(int initialBatchSize, int maxBatchSize) {
+            _batchSize = Math.max(1, initialBatchSize);
+            _maxBatchSize = Math.max(_batchSize, maxBatchSize);
+        }
+        
+        synchronized public int getBatchSize() {
+            return _batchSize;
+        }
+        
+        synchronized public void record(int batchSize, long millis, boolean failed) {
+            if (failed || millis > SLOW_BATCH_MILLIS) {
+                _batchSize = Math.max(1, _batchSize / 2);
+            } else if (millis < FAST_BATCH_MILLIS && batchSize >= _batchSize) {
+                _batchSize = Math.min(_maxBatchSize, _batchSize + Math.max(1, _batchSize / 2));
+            }
+        }
+    }
+    
     public class ReconProcess extends LongRunningProcess implements Runnable {
         final protected Project      _project;
         final protected EngineConfig _engineConfig;
@@ -163,6 +219,9 @@ public class ReconOperation extends EngineDependentOperation {
                 "         \"facetType\" : \"range\"\n" + 
                 "}";
         protected JsonNode _addJudgmentFacet, _addScoreFacet;
+        @JsonProperty("cacheHits")
+        @JsonInclude(Include.NON_DEFAULT)
+        protected int _cacheHits;
         
         public ReconProcess(
             Project project, 
@@ -233,6 +292,50 @@ public class ReconOperation extends EngineDependentOperation {
             });
         }
         
+        /**
+         * One call to the reconciliation service, run on a worker thread.
+         */
+        protected class Batch implements Callable<Batch> {
+            final protected List<Integer> indices;
+            final protected List<ReconJob> jobs;
+            protected List<Recon> recons;
+            protected long millis;
+            
+            protected Batch(List<Integer> indices, List<JobGroup> groups) {
+                this.indices = indices;
+                this.jobs = new ArrayList<ReconJob>(indices.size());
+                for (int index : indices) {
+                    jobs.add(groups.get(index).job);
+                }
+            }
+            
+            @Override
+            public Batch call() {
+                long start = System.currentTimeMillis();
+                try {
+                    recons = _reconConfig.batchRecon(jobs, _historyEntryID);
+                } catch (RuntimeException e) {
+                    logger.error("Reconciliation batch failed", e);
+                    recons = Collections.emptyList();
+                }
+                millis = System.currentTimeMillis() - start;
+                return this;
+            }
+            
+            protected Recon getRecon(int j) {
+                return recons != null && j < recons.size() ? recons.get(j) : null;
+            }
+            
+            protected boolean failed() {
+                for (int j = 0; j < jobs.size(); j++) {
+                    if (getRecon(j) != null) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        
         @Override
         public void run() {
             try {
@@ -242,9 +345,12 @@ public class ReconOperation extends EngineDependentOperation {
                 e2.printStackTrace();
             }
             
-            Map<String, JobGroup> jobKeyToGroup = new HashMap<String, JobGroup>();
+            Map<String, Integer> jobKeyToGroup = new HashMap<String, Integer>();
+            List<JobGroup> groups = new ArrayList<JobGroup>();
+            int[] entryGroups = new int[_entries.size()];
             
-            for (ReconEntry entry : _entries) {
+            for (int e = 0; e < _entries.size(); e++) {
+                ReconEntry entry = _entries.get(e);
                 ReconJob job = _reconConfig.createJob(
                     _project, 
                     entry.rowIndex, 
@@ -254,78 +360,131 @@ public class ReconOperation extends EngineDependentOperation {
                 );
                 
                 String key = job.getStringKey();
-                JobGroup group = jobKeyToGroup.get(key);
-                if (group == null) {
-                    group = new JobGroup(job);
-                    jobKeyToGroup.put(key, group);
+                Integer groupIndex = jobKeyToGroup.get(key);
+                if (groupIndex == null) {
+                    groupIndex = groups.size();
+                    groups.add(new JobGroup(job));
+                    jobKeyToGroup.put(key, groupIndex);
                 }
-                group.entries.add(entry);
+                groups.get(groupIndex).entries.add(entry);
+                entryGroups[e] = groupIndex;
             }
             
-            int batchSize = _reconConfig.getBatchSize();
+            Recon[] recons = new Recon[groups.size()];
+            Deque<Integer> pending = new ArrayDeque<Integer>(groups.size());
+            // failed jobs, by the time they can be sent again
+            PriorityQueue<Integer> delayed = new PriorityQueue<Integer>(
+                    (a, b) -> Long.compare(groups.get(a).retryAt, groups.get(b).retryAt));
             int done = 0;
+            for (int i = 0; i < groups.size(); i++) {
+                // values already reconciled against the same service are not sent again
+                Recon recon = _reconConfig.getCachedRecon(groups.get(i).job, _historyEntryID);
+                if (recon != null) {
+                    recon.judgmentBatchSize = groups.get(i).entries.size();
+                    recons[i] = recon;
+                    done++;
+                } else {
+                    pending.add(i);
+                }
+            }
+            _cacheHits = done;
+            if (!groups.isEmpty()) {
+                _progress = done * 100 / groups.size();
+            }
             
-            List<CellChange> cellChanges = new ArrayList<CellChange>(_entries.size());
-            List<JobGroup> groups = new ArrayList<JobGroup>(jobKeyToGroup.values());
-            
-            List<ReconJob> jobs = new ArrayList<ReconJob>(batchSize);
-            Map<ReconJob, JobGroup> jobToGroup = new HashMap<ReconJob, ReconOperation.JobGroup>();
+            int concurrency = Math.max(1, _reconConfig.getMaxConcurrentBatches());
+            BatchSizer batchSizer = new BatchSizer(_reconConfig.getBatchSize(), _reconConfig.getMaxBatchSize());
+            ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+            CompletionService<Batch> completionService = new ExecutorCompletionService<Batch>(executor);
+            int inFlight = 0;
             
-            for (int i = 0; i < groups.size(); /* don't increment here */) {
-                while (jobs.size() < batchSize && i < groups.size()) {
-                    JobGroup group = groups.get(i++);
-                    
-                    jobs.add(group.job);
-                    jobToGroup.put(group.job, group);
-                }
-                
-                List<Recon> recons = _reconConfig.batchRecon(jobs, _historyEntryID);
-                for (int j = jobs.size() - 1; j >= 0; j--) {
-                    ReconJob job = jobs.get(j);
-                    Recon    recon = j < recons.size() ? recons.get(j) : null;
-                    JobGroup group = jobToGroup.get(job);
-                    List<ReconEntry> entries = group.entries;
-                    
-                    if (recon == null) {
-                        group.trials++;
-                        if (group.trials < 3) {
-                            logger.warn("Re-trying job including cell containing: " + entries.get(0).cell.value);
-                            continue; // try again next time
+            try {
+                while (!_canceled && (inFlight > 0 || !pending.isEmpty() || !delayed.isEmpty())) {
+                    long now = System.currentTimeMillis();
+                    while (!delayed.isEmpty() && groups.get(delayed.peek()).retryAt <= now) {
+                        pending.add(delayed.poll());
+                    }
+                    while (inFlight < concurrency && !pending.isEmpty()) {
+                        int batchSize = batchSizer.getBatchSize();
+                        List<Integer> indices = new ArrayList<Integer>(batchSize);
+                        while (indices.size() < batchSize && !pending.isEmpty()) {
+                            indices.add(pending.poll());
                         }
-                        logger.warn("Failed after 3 trials for job including cell containing: " + entries.get(0).cell.value);
+                        completionService.submit(new Batch(indices, groups));
+                        inFlight++;
                     }
                     
-                    jobToGroup.remove(job);
-                    jobs.remove(j);
-                    done++;
-                    
-                    if (recon == null) {
-                        recon = _reconConfig.createNewRecon(_historyEntryID);
+                    Batch batch;
+                    try {
+                        long wait = delayed.isEmpty() ? -1 : Math.max(0, groups.get(delayed.peek()).retryAt - now);
+                        if (inFlight == 0) {
+                            // only failed jobs are left, waiting to be sent again
+                            Thread.sleep(wait);
+                            continue;
+                        }
+                        Future<Batch> future = wait < 0 ?
+                                completionService.take() :
+                                completionService.poll(wait, TimeUnit.MILLISECONDS);
+                        if (future == null) {
+                            continue;
+                        }
+                        batch = future.get();
+                    } catch (InterruptedException e) {
+                        if (_canceled) {
+                            break;
+                        }
+                        continue;
+                    } catch (ExecutionException e) {
+                        // Batch.call() does not throw
+                        throw new IllegalStateException(e.getCause());
                     }
-                    recon.judgmentBatchSize = entries.size();
+                    inFlight--;
+                    batchSizer.record(batch.indices.size(), batch.millis, batch.failed());
                     
-                    for (ReconEntry entry : entries) {
-                        Cell oldCell = entry.cell;
-                        Cell newCell = new Cell(oldCell.value, recon);
+                    for (int j = 0; j < batch.indices.size(); j++) {
+                        int groupIndex = batch.indices.get(j);
+                        JobGroup group = groups.get(groupIndex);
+                        List<ReconEntry> entries = group.entries;
+                        Recon recon = batch.getRecon(j);
                         
-                        CellChange cellChange = new CellChange(
-                            entry.rowIndex, 
-                            _cellIndex, 
-                            oldCell, 
-                            newCell
-                        );
-                        cellChanges.add(cellChange);
+                        if (recon == null) {
+                            group.trials++;
+                            if (group.trials < MAX_TRIALS) {
+                                logger.warn("Re-trying job including cell containing: " + entries.get(0).cell.value);
+                                // try again with a later batch, once the service had time to recover
+                                group.retryAt = System.currentTimeMillis() + (RETRY_DELAY_MS << (group.trials - 1));
+                                delayed.add(groupIndex);
+                                continue;
+                            }
+                            logger.warn("Failed after " + MAX_TRIALS + " trials for job including cell containing: " + entries.get(0).cell.value);
+                            recon = _reconConfig.createNewRecon(_historyEntryID);
+                        }
+                        recon.judgmentBatchSize = entries.size();
+                        recons[groupIndex] = recon;
+                        done++;
                     }
+                    
+                    _progress = done * 100 / groups.size();
                 }
+            } finally {
+                executor.shutdownNow();
+                ReconCache.getInstance().save();
+            }
+            
+            // assemble the changes in row order, whatever order the batches completed in
+            List<CellChange> cellChanges = new ArrayList<CellChange>(_entries.size());
+            for (int e = 0; e < _entries.size() && !_canceled; e++) {
+                ReconEntry entry = _entries.get(e);
+                Cell oldCell = entry.cell;
+                Cell newCell = new Cell(oldCell.value, recons[entryGroups[e]]);
                 
-                _progress = done * 100 / groups.size();
-                try {
-                    Thread.sleep(50);
-                } catch (InterruptedException e) {
-                    if (_canceled) {
-                        break;
-                    }
-                }
+                CellChange cellChange = new CellChange(
+                    entry.rowIndex, 
+                    _cellIndex, 
+                    oldCell, 
+                    newCell
+                );
+                cellChanges.add(cellChange);
             }
             
             if (!_canceled) {
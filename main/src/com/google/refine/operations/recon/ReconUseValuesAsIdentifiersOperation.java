@@ -84,6 +84,11 @@ public class ReconUseValuesAsIdentifiersOperation extends EngineDependentMassCel
         return "Use values as reconciliation identifiers in column " + _columnName;
     }
 
+    @Override
+    protected boolean isRowIndependent() {
+        return true;
+    }
+
     @Override
     protected RowVisitor createRowVisitor(Project project, List<CellChange> cellChanges, long historyEntryID)
             throws Exception {
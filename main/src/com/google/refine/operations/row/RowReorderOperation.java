@@ -48,9 +48,8 @@ import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 import com.google.refine.model.Row;
 import com.google.refine.model.changes.RowReorderChange;
+import com.google.refine.sorting.IndexSorter;
 import com.google.refine.sorting.SortingConfig;
-import com.google.refine.sorting.SortingRecordVisitor;
-import com.google.refine.sorting.SortingRowVisitor;
 
 public class RowReorderOperation extends AbstractOperation {
     final protected Mode _mode;
@@ -87,30 +86,24 @@ public class RowReorderOperation extends AbstractOperation {
         engine.setMode(_mode);
 
         List<Integer> rowIndices = new ArrayList<Integer>();
-        if (_mode == Mode.RowBased) {
-            RowVisitor visitor = new IndexingVisitor(rowIndices);
-            if (_sorting != null) {
-                SortingRowVisitor srv = new SortingRowVisitor(visitor);
-
-                srv.initializeFromConfig(project, _sorting);
-                if (srv.hasCriteria()) {
-                    visitor = srv;
+        IndexSorter sorter = _sorting != null ? new IndexSorter(project, _sorting) : null;
+        if (sorter != null && sorter.hasCriteria()) {
+            if (_mode == Mode.RowBased) {
+                for (int rowIndex : sorter.sortRows(range(project.rows.size()))) {
+                    rowIndices.add(rowIndex);
                 }
-            }
-
-            engine.getAllRows().accept(project, visitor);
-        } else {
-            RecordVisitor visitor = new IndexingVisitor(rowIndices);
-            if (_sorting != null) {
-                SortingRecordVisitor srv = new SortingRecordVisitor(visitor);
-
-                srv.initializeFromConfig(project, _sorting);
-                if (srv.hasCriteria()) {
-                    visitor = srv;
+            } else {
+                for (int recordIndex : sorter.sortRecords(range(project.recordModel.getRecordCount()))) {
+                    Record record = project.recordModel.getRecord(recordIndex);
+                    for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
+                        rowIndices.add(r);
+                    }
                 }
             }
-
-            engine.getAllRecords().accept(project, visitor);
+        } else if (_mode == Mode.RowBased) {
+            engine.getAllRows().accept(project, new IndexingVisitor(rowIndices));
+        } else {
+            engine.getAllRecords().accept(project, new IndexingVisitor(rowIndices));
         }
 
         return new HistoryEntry(
@@ -122,6 +115,14 @@ public class RowReorderOperation extends AbstractOperation {
         );
     }
 
+    static protected int[] range(int size) {
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
     static protected class IndexingVisitor implements RowVisitor, RecordVisitor {
         List<Integer> _indices;
 
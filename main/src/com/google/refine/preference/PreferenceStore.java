@@ -67,6 +67,24 @@ public class PreferenceStore  {
         return _prefs.get(key);
     }
     
+    /**
+     * @return the preference as an integer, whether it was stored as a number
+     *      or as a string, or the default value if it is missing or invalid
+     */
+    public int getInt(String key, int def) {
+        Object v = _prefs.get(key);
+        if (v instanceof Number) {
+            return ((Number) v).intValue();
+        } else if (v != null) {
+            try {
+                return Integer.parseInt(v.toString().trim());
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+        return def;
+    }
+    
     @JsonIgnore
     public Set<String> getKeys() {
         return _prefs.keySet();
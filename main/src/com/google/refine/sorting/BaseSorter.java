@@ -68,34 +68,39 @@ abstract public class BaseSorter {
         }
 
         public int compare(Project project, Object o1, int i1, Object o2, int i2) {
-            Criterion c = _criteria[criterionIndex];
-            Object key1 = getKey(project, o1, i1);
-            Object key2 = getKey(project, o2, i2);
-
-            if (key1 == null) {
-                if (key2 == null) {
-                    return 0;
-                } else if (key2 instanceof EvalError) {
-                    return c.blankPosition - c.errorPosition;
-                } else {
-                    return c.blankPosition;
-                }
-            } else if (key1 instanceof EvalError) {
-                if (key2 == null) {
-                    return c.errorPosition - c.blankPosition;
-                } else if (key2 instanceof EvalError) {
-                    return 0;
-                } else {
-                    return c.errorPosition;
-                }
+            return compareKeys(_criteria[criterionIndex], _keyMakers[criterionIndex],
+                    getKey(project, o1, i1), getKey(project, o2, i2));
+        }
+    }
+
+    /**
+     * Compares two keys of a criterion, placing blanks and errors where the
+     * criterion says and reversing the order of the other keys if needed.
+     */
+    static int compareKeys(Criterion c, KeyMaker keyMaker, Object key1, Object key2) {
+        if (key1 == null) {
+            if (key2 == null) {
+                return 0;
+            } else if (key2 instanceof EvalError) {
+                return c.blankPosition - c.errorPosition;
+            } else {
+                return c.blankPosition;
+            }
+        } else if (key1 instanceof EvalError) {
+            if (key2 == null) {
+                return c.errorPosition - c.blankPosition;
+            } else if (key2 instanceof EvalError) {
+                return 0;
+            } else {
+                return c.errorPosition;
+            }
+        } else {
+            if (key2 == null) {
+                return -c.blankPosition;
+            } else if (key2 instanceof EvalError) {
+                return -c.errorPosition;
             } else {
-                if (key2 == null) {
-                    return -c.blankPosition;
-                } else if (key2 instanceof EvalError) {
-                    return -c.errorPosition;
-                } else {
-                    return _keyMakers[criterionIndex].compareKeys(key1, key2) * multiplier;
-                }
+                return keyMaker.compareKeys(key1, key2) * (c.reverse ? -1 : 1);
             }
         }
     }
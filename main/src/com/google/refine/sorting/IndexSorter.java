@@ -0,0 +1,410 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.sorting;
+
+import java.text.CollationKey;
+import java.time.Instant;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.model.Project;
+import com.google.refine.sorting.Criterion.KeyMaker;
+
+/**
+ * Sorts the indices of rows or records by the criteria of a sorting
+ * configuration, in the same order as {@link SortingRowVisitor} and
+ * {@link SortingRecordVisitor}.
+ * 
+ * The keys of all rows or records are made upfront, into one typed column
+ * per criterion, and both the keys and the sort are computed in parallel.
+ * Each column ranks blanks and errors relative to the other keys, so that
+ * comparing two rows mostly compares primitives.
+ */
+public class IndexSorter {
+
+    /**
+     * Number of indices below which keys are made and indices are sorted
+     * by a single thread.
+     */
+    static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    /**
+     * Compares two positions in an array of indices.
+     */
+    public interface IndexComparator {
+        int compare(int position1, int position2);
+    }
+
+    final protected Project _project;
+    final protected Criterion[] _criteria;
+
+    public IndexSorter(Project project, SortingConfig config) {
+        _project = project;
+        _criteria = config.getCriteria();
+    }
+
+    public boolean hasCriteria() {
+        return _criteria.length > 0;
+    }
+
+    /**
+     * @param rowIndices indices of rows, in increasing order
+     * @return the same indices, sorted
+     */
+    public int[] sortRows(int[] rowIndices) {
+        return sort(rowIndices, false);
+    }
+
+    /**
+     * @param recordIndices indices of records, in increasing order
+     * @return the same indices, sorted
+     */
+    public int[] sortRecords(int[] recordIndices) {
+        return sort(recordIndices, true);
+    }
+
+    protected int[] sort(int[] indices, boolean records) {
+        KeyColumn[] columns = new KeyColumn[_criteria.length];
+        for (int c = 0; c < _criteria.length; c++) {
+            columns[c] = makeKeys(_criteria[c], indices, records);
+        }
+
+        int[] positions = new int[indices.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        sort(positions, (p1, p2) -> {
+            int result = 0;
+            for (int c = 0; result == 0 && c < columns.length; c++) {
+                result = columns[c].compare(p1, p2);
+            }
+            return result;
+        });
+
+        int[] sorted = new int[indices.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = indices[positions[i]];
+        }
+        return sorted;
+    }
+
+    protected KeyColumn makeKeys(Criterion criterion, int[] indices, boolean records) {
+        KeyColumn column = KeyColumn.create(criterion, indices.length);
+        int chunks = (indices.length + SEQUENTIAL_THRESHOLD - 1) / SEQUENTIAL_THRESHOLD;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            // key makers are not shared between threads
+            KeyMaker keyMaker = criterion.createKeyMaker();
+            int to = Math.min(indices.length, (chunk + 1) * SEQUENTIAL_THRESHOLD);
+            for (int i = chunk * SEQUENTIAL_THRESHOLD; i < to; i++) {
+                int index = indices[i];
+                column.set(i, records ?
+                        keyMaker.makeKey(_project, _project.recordModel.getRecord(index)) :
+                        keyMaker.makeKey(_project, _project.rows.get(index), index));
+            }
+        });
+        return column;
+    }
+
+    /**
+     * The keys of one criterion. Each key is stored as a code, which ranks
+     * blanks, errors and other keys as {@link BaseSorter} does, and for
+     * other keys as a value of the type of the criterion.
+     */
+    static abstract protected class KeyColumn {
+        static final int VALUE = 0;
+        static final int BLANK = 1;
+        static final int ERROR = 2;
+
+        /**
+         * The rank of each key in the upper bits, and its kind in the lower two bits.
+         */
+        final protected byte[] codes;
+        final protected byte valueCode;
+        final protected byte blankCode;
+        final protected byte errorCode;
+        final protected int multiplier;
+
+        protected KeyColumn(Criterion criterion, int size) {
+            codes = new byte[size];
+            // ranks keep the relative order of the positions, values being at 0
+            valueCode = code(0, criterion.blankPosition, criterion.errorPosition, VALUE);
+            blankCode = code(criterion.blankPosition, 0, criterion.errorPosition, BLANK);
+            errorCode = code(criterion.errorPosition, 0, criterion.blankPosition, ERROR);
+            multiplier = criterion.reverse ? -1 : 1;
+        }
+
+        static private byte code(int position, int other1, int other2, int kind) {
+            int rank = (position > other1 ? 1 : 0) + (position > other2 ? 1 : 0);
+            return (byte) (rank << 2 | kind);
+        }
+
+        static protected KeyColumn create(Criterion criterion, int size) {
+            if (criterion instanceof NumberCriterion) {
+                return new NumberKeyColumn(criterion, size);
+            } else if (criterion instanceof DateCriterion) {
+                return new DateKeyColumn(criterion, size);
+            } else if (criterion instanceof BooleanCriterion) {
+                return new BooleanKeyColumn(criterion, size);
+            } else if (criterion instanceof StringCriterion) {
+                return new StringKeyColumn(criterion, size);
+            } else {
+                return new ObjectKeyColumn(criterion, size);
+            }
+        }
+
+        protected void set(int position, Object key) {
+            if (key == null) {
+                codes[position] = blankCode;
+            } else if (key instanceof EvalError) {
+                codes[position] = errorCode;
+            } else {
+                codes[position] = valueCode;
+                setValue(position, key);
+            }
+        }
+
+        protected int compare(int p1, int p2) {
+            int code1 = codes[p1];
+            int code2 = codes[p2];
+            if (code1 >> 2 != code2 >> 2) {
+                return (code1 >> 2) - (code2 >> 2);
+            } else if (code1 == valueCode && code2 == valueCode) {
+                return compareValues(p1, p2) * multiplier;
+            }
+            return 0;
+        }
+
+        abstract protected void setValue(int position, Object key);
+
+        abstract protected int compareValues(int p1, int p2);
+    }
+
+    static protected class NumberKeyColumn extends KeyColumn {
+        final double[] values;
+
+        NumberKeyColumn(Criterion criterion, int size) {
+            super(criterion, size);
+            values = new double[size];
+        }
+
+        @Override
+        protected void setValue(int position, Object key) {
+            values[position] = ((Number) key).doubleValue();
+        }
+
+        @Override
+        protected int compareValues(int p1, int p2) {
+            double d1 = values[p1];
+            double d2 = values[p2];
+            return d1 < d2 ? -1 : (d1 > d2 ? 1 : 0);
+        }
+    }
+
+    static protected class DateKeyColumn extends KeyColumn {
+        final long[] seconds;
+        final int[] nanos;
+
+        DateKeyColumn(Criterion criterion, int size) {
+            super(criterion, size);
+            seconds = new long[size];
+            nanos = new int[size];
+        }
+
+        @Override
+        protected void setValue(int position, Object key) {
+            Instant instant = (Instant) key;
+            seconds[position] = instant.getEpochSecond();
+            nanos[position] = instant.getNano();
+        }
+
+        @Override
+        protected int compareValues(int p1, int p2) {
+            int c = Long.compare(seconds[p1], seconds[p2]);
+            return c != 0 ? c : Integer.compare(nanos[p1], nanos[p2]);
+        }
+    }
+
+    static protected class BooleanKeyColumn extends KeyColumn {
+        final boolean[] values;
+
+        BooleanKeyColumn(Criterion criterion, int size) {
+            super(criterion, size);
+            values = new boolean[size];
+        }
+
+        @Override
+        protected void setValue(int position, Object key) {
+            values[position] = (Boolean) key;
+        }
+
+        @Override
+        protected int compareValues(int p1, int p2) {
+            return Boolean.compare(values[p1], values[p2]);
+        }
+    }
+
+    /**
+     * Keeps the bytes of collation keys, which compare as unsigned bytes
+     * in the same order as the keys.
+     */
+    static protected class StringKeyColumn extends KeyColumn {
+        final byte[][] values;
+
+        StringKeyColumn(Criterion criterion, int size) {
+            super(criterion, size);
+            values = new byte[size][];
+        }
+
+        @Override
+        protected void setValue(int position, Object key) {
+            values[position] = ((CollationKey) key).toByteArray();
+        }
+
+        @Override
+        protected int compareValues(int p1, int p2) {
+            byte[] b1 = values[p1];
+            byte[] b2 = values[p2];
+            int length = Math.min(b1.length, b2.length);
+            for (int i = 0; i < length; i++) {
+                if (b1[i] != b2[i]) {
+                    return (b1[i] & 0xff) - (b2[i] & 0xff);
+                }
+            }
+            return b1.length - b2.length;
+        }
+    }
+
+    /**
+     * Compares the keys of criteria of other types with their key maker.
+     */
+    static protected class ObjectKeyColumn extends KeyColumn {
+        final Object[] values;
+        final KeyMaker keyMaker;
+
+        ObjectKeyColumn(Criterion criterion, int size) {
+            super(criterion, size);
+            values = new Object[size];
+            keyMaker = criterion.createKeyMaker();
+        }
+
+        @Override
+        protected void setValue(int position, Object key) {
+            values[position] = key;
+        }
+
+        @Override
+        protected int compareValues(int p1, int p2) {
+            return keyMaker.compareKeys(values[p1], values[p2]);
+        }
+    }
+
+    /**
+     * Sorts an array of positions with a stable parallel merge sort.
+     */
+    static public void sort(int[] positions, IndexComparator comparator) {
+        int[] buffer = new int[positions.length];
+        if (positions.length <= SEQUENTIAL_THRESHOLD) {
+            mergeSort(positions, buffer, 0, positions.length, comparator);
+        } else {
+            ForkJoinPool.commonPool().invoke(new MergeSortTask(positions, buffer, 0, positions.length, comparator));
+        }
+    }
+
+    static protected class MergeSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int[] positions;
+        final int[] buffer;
+        final int from;
+        final int to;
+        final IndexComparator comparator;
+
+        MergeSortTask(int[] positions, int[] buffer, int from, int to, IndexComparator comparator) {
+            this.positions = positions;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                mergeSort(positions, buffer, from, to, comparator);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                    new MergeSortTask(positions, buffer, from, middle, comparator),
+                    new MergeSortTask(positions, buffer, middle, to, comparator));
+                merge(positions, buffer, from, middle, to, comparator);
+            }
+        }
+    }
+
+    static void mergeSort(int[] positions, int[] buffer, int from, int to, IndexComparator comparator) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int p = positions[i];
+                int j = i;
+                while (j > from && comparator.compare(positions[j - 1], p) > 0) {
+                    positions[j] = positions[j - 1];
+                    j--;
+                }
+                positions[j] = p;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(positions, buffer, from, middle, comparator);
+        mergeSort(positions, buffer, middle, to, comparator);
+        merge(positions, buffer, from, middle, to, comparator);
+    }
+
+    /**
+     * Merges two consecutive sorted ranges, taking from the first one on ties.
+     */
+    static void merge(int[] positions, int[] buffer, int from, int middle, int to, IndexComparator comparator) {
+        if (comparator.compare(positions[middle - 1], positions[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(positions, from, buffer, from, to - from);
+        int i = from;
+        int j = middle;
+        int k = from;
+        while (i < middle && j < to) {
+            positions[k++] = comparator.compare(buffer[i], buffer[j]) <= 0 ? buffer[i++] : buffer[j++];
+        }
+        while (i < middle) {
+            positions[k++] = buffer[i++];
+        }
+        while (j < to) {
+            positions[k++] = buffer[j++];
+        }
+    }
+}
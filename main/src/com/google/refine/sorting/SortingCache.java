@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.sorting;
+
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.browsing.RecordVisitor;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import com.google.refine.model.Row;
+import com.google.refine.util.ProjectStateCache;
+
+/**
+ * Keeps the sorted indices of the rows or records selected by the facets,
+ * so that paging through a sorted view does not sort the project again
+ * for each page.
+ * 
+ * Entries are keyed by the state of the project and the engine and sorting
+ * configurations. Values are only softly referenced.
+ */
+public class SortingCache extends ProjectStateCache<int[]> {
+
+    static final public int MAX_ENTRIES = 20;
+
+    static private final SortingCache s_instance = new SortingCache();
+
+    public SortingCache() {
+        super(MAX_ENTRIES, true);
+    }
+
+    static public SortingCache getInstance() {
+        return s_instance;
+    }
+
+    /**
+     * Returns the indices of the rows, or of the records in records mode,
+     * selected by an engine, in sorted order.
+     * 
+     * @param engineConfig the configuration the engine was initialized from,
+     *      or null if it was not
+     */
+    public int[] getSortedIndices(Project project, Engine engine, EngineConfig engineConfig,
+            SortingConfig sortingConfig) throws JsonProcessingException {
+        String key = makeKey(project, engine.getMode(), engineConfig, sortingConfig);
+        return get(key, () -> computeSortedIndices(project, engine, sortingConfig));
+    }
+
+    static protected int[] computeSortedIndices(Project project, Engine engine, SortingConfig sortingConfig) {
+        IndexCollector collector = new IndexCollector();
+        IndexSorter sorter = new IndexSorter(project, sortingConfig);
+        if (engine.getMode() == Mode.RowBased) {
+            engine.getAllFilteredRows().accept(project, collector);
+            return sorter.sortRows(collector.getIndices());
+        } else {
+            engine.getFilteredRecords().accept(project, collector);
+            return sorter.sortRecords(collector.getIndices());
+        }
+    }
+
+    static protected class IndexCollector implements RowVisitor, RecordVisitor {
+        int[] indices = new int[1024];
+        int size = 0;
+
+        @Override
+        public void start(Project project) {
+            // nothing to do
+        }
+
+        @Override
+        public void end(Project project) {
+            // nothing to do
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, Row row) {
+            add(rowIndex);
+            return false;
+        }
+
+        @Override
+        public boolean visit(Project project, Record record) {
+            add(record.recordIndex);
+            return false;
+        }
+
+        protected void add(int index) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+            indices[size++] = index;
+        }
+
+        public int[] getIndices() {
+            return Arrays.copyOf(indices, size);
+        }
+    }
+}
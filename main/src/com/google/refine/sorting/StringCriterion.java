@@ -58,10 +58,13 @@ public class StringCriterion extends Criterion {
     
     @Override
     public KeyMaker createKeyMaker() {
+        // collators are synchronized, so each key maker gets its own one
+        // to let keys be made in parallel
+        final Collator keyCollator = (Collator) collator.clone();
         return new KeyMaker() {
             @Override
             protected Object makeKey(Object value) {
-                return collator.getCollationKey((ExpressionUtils.isNonBlankData(value) 
+                return keyCollator.getCollationKey((ExpressionUtils.isNonBlankData(value) 
                         && !(value instanceof String)) ? value.toString() : (String) value);
             }
 
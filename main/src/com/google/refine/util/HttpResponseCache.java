@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package com.google.refine.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.io.FileProjectManager;
+import com.google.refine.preference.PreferenceStore;
+
+/**
+ * Keeps the bodies of HTTP responses in the workspace, so that fetching the
+ * same URLs again, for instance when replaying operations, does not hit the
+ * network. Each response is stored compressed in its own file, named after a
+ * digest of the URL and the request headers. Responses expire after a
+ * configurable time, and the least recently used ones are deleted when the
+ * cache grows beyond its quota.
+ */
+public class HttpResponseCache {
+
+    final static Logger logger = LoggerFactory.getLogger("http-response-cache");
+
+    static final public String DIR_NAME = "url-cache";
+    static final public int DEFAULT_TTL_DAYS = 30;
+    static final public int DEFAULT_MAX_SIZE_MB = 200;
+
+    static private HttpResponseCache s_instance;
+
+    final protected File _dir;
+    final protected long _ttlMillis;
+    final protected long _maxBytes;
+    // total size of the cached files, computed when first needed
+    protected long _size = -1;
+
+    /**
+     * @param dir where to store the responses, or null to disable the cache
+     * @param ttlMillis how long responses are kept
+     * @param maxBytes how much disk space the compressed responses may use
+     */
+    public HttpResponseCache(File dir, long ttlMillis, long maxBytes) {
+        _dir = dir;
+        _ttlMillis = ttlMillis;
+        _maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache of the workspace, configured by the
+     * "urlFetching.cache.ttlDays" and "urlFetching.cache.maxSizeMB" preferences.
+     */
+    static synchronized public HttpResponseCache getInstance() {
+        if (s_instance == null) {
+            File dir = null;
+            if (ProjectManager.singleton instanceof FileProjectManager) {
+                dir = new File(((FileProjectManager) ProjectManager.singleton).getWorkspaceDir(), DIR_NAME);
+            }
+            PreferenceStore prefs = ProjectManager.singleton != null
+                    ? ProjectManager.singleton.getPreferenceStore() : new PreferenceStore();
+            s_instance = new HttpResponseCache(
+                    dir,
+                    prefs.getInt("urlFetching.cache.ttlDays", DEFAULT_TTL_DAYS) * 24L * 3600L * 1000L,
+                    prefs.getInt("urlFetching.cache.maxSizeMB", DEFAULT_MAX_SIZE_MB) * 1024L * 1024L);
+        }
+        return s_instance;
+    }
+
+    static synchronized public void setInstance(HttpResponseCache cache) {
+        s_instance = cache;
+    }
+
+    /**
+     * Responses are keyed by URL and request headers, since headers such as
+     * Accept or Authorization can change what a server returns.
+     *
+     * @param headers the request headers, sorted by name
+     */
+    static public String makeKey(String url, Map<String, String> headers) {
+        StringBuilder sb = new StringBuilder(url);
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                sb.append('\n').append(header.getKey()).append(": ").append(header.getValue());
+            }
+        }
+        return DigestUtils.sha256Hex(sb.toString());
+    }
+
+    protected File getFile(String key) {
+        return new File(_dir, key + ".gz");
+    }
+
+    /**
+     * @return the cached body of the response, or null
+     */
+    public String get(String key) {
+        if (_dir == null) {
+            return null;
+        }
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        String body = null;
+        try (InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+            long expires = Long.parseLong(readLine(is));
+            if (expires >= now) {
+                body = ParsingUtilities.inputStreamToString(is, "UTF-8");
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Could not read cached response " + file, e);
+        }
+        // expired and unreadable responses are removed once the file is closed
+        if (body == null) {
+            remove(file);
+        } else {
+            // the modification time orders responses for eviction
+            synchronized (this) {
+                file.setLastModified(now);
+            }
+        }
+        return body;
+    }
+
+    public void put(String key, String body) {
+        if (_dir == null) {
+            return;
+        }
+        if (!_dir.exists() && !_dir.mkdirs()) {
+            logger.warn("Could not create response cache directory " + _dir);
+            return;
+        }
+        File tempFile;
+        try {
+            tempFile = File.createTempFile(key, ".temp", _dir);
+        } catch (IOException e) {
+            logger.warn("Could not create cached response in " + _dir, e);
+            return;
+        }
+        try (OutputStream os = new GZIPOutputStream(new FileOutputStream(tempFile))) {
+            os.write(Long.toString(System.currentTimeMillis() + _ttlMillis).getBytes(StandardCharsets.UTF_8));
+            os.write('\n');
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("Could not write cached response " + tempFile, e);
+            tempFile.delete();
+            return;
+        }
+
+        synchronized (this) {
+            computeSize();
+            File file = getFile(key);
+            long replaced = file.length();
+            if (file.exists() && !file.delete()) {
+                tempFile.delete();
+                return;
+            }
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                _size -= replaced;
+                return;
+            }
+            _size += file.length() - replaced;
+            if (_size > _maxBytes) {
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Deletes all cached responses.
+     */
+    synchronized public void clear() {
+        if (_dir == null) {
+            return;
+        }
+        File[] files = _dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        _size = 0;
+    }
+
+    synchronized public long getSize() {
+        computeSize();
+        return _size;
+    }
+
+    protected void computeSize() {
+        if (_size >= 0) {
+            return;
+        }
+        _size = 0;
+        File[] files = _dir == null ? null : _dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.getName().endsWith(".temp")) {
+                    _size += file.length();
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used responses until the cache uses
+     * no more than 90% of its quota.
+     */
+    protected void evict() {
+        File[] files = _dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        // modification times are read once before sorting, as they change
+        // when responses are read
+        long[] times = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            times[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> times[i]));
+        long target = _maxBytes * 9 / 10;
+        for (int i : order) {
+            File file = files[i];
+            if (_size <= target) {
+                break;
+            }
+            if (file.getName().endsWith(".temp")) {
+                // still being written
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                _size -= length;
+            }
+        }
+    }
+
+    synchronized protected void remove(File file) {
+        long length = file.length();
+        if (file.delete() && _size >= 0) {
+            _size -= length;
+        }
+    }
+
+    static protected String readLine(InputStream is) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(16);
+        int c;
+        while ((c = is.read()) != -1 && c != '\n') {
+            line.write(c);
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.browsing.facets;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellChange;
+
+public class ScatterplotRasterizerTests extends RefineTest {
+
+    static final int SIZE = 50;
+
+    Project project;
+    Column x;
+    Column y;
+
+    @BeforeMethod
+    public void setUp() throws IOException, ModelException {
+        project = createProjectWithColumns("scatterplot", "x", "y");
+        x = project.columnModel.getColumnByName("x");
+        y = project.columnModel.getColumnByName("y");
+        Random random = new Random(3);
+        // enough rows to be counted in parallel
+        for (int i = 0; i < 2 * ScatterplotRasterizer.SEQUENTIAL_THRESHOLD; i++) {
+            Row row = new Row(2);
+            row.setCell(0, new Cell(random.nextInt(1000) / 10.0, null));
+            row.setCell(1, i % 10 == 0 ? new Cell("text", null) : new Cell(random.nextInt(100), null));
+            project.rows.add(row);
+        }
+        project.update();
+    }
+
+    protected ScatterplotRasterizer makeRasterizer(int dim, int rotation) {
+        return new ScatterplotRasterizer(
+                ScatterplotAxis.getAxis(project, x, 0, 100, dim),
+                ScatterplotAxis.getAxis(project, y, 0, 100, dim),
+                SIZE, rotation);
+    }
+
+    /**
+     * The pixel a row falls in, from the coordinates used by the facet.
+     */
+    protected int expectedPixel(int rowIndex, int dim, int rotation) {
+        Row row = project.rows.get(rowIndex);
+        Object vx = row.getCellValue(0);
+        Object vy = row.getCellValue(1);
+        if (!(vx instanceof Number && vy instanceof Number)) {
+            return -1;
+        }
+        AffineTransform t = ScatterplotFacet.createRotationMatrix(rotation, SIZE);
+        Point2D.Double p = ScatterplotFacet.translateCoordinates(
+                new Point2D.Double(((Number) vx).doubleValue(), ((Number) vy).doubleValue()),
+                0, 100, 0, 100, dim, dim, SIZE, t);
+        double line = SIZE - p.y;
+        if (p.x < 0 || p.x > SIZE || line < 0 || line > SIZE) {
+            return -1;
+        }
+        return Math.min((int) line, SIZE - 1) * SIZE + Math.min((int) p.x, SIZE - 1);
+    }
+
+    @Test
+    public void testCountAllRows() {
+        int[] dims = { ScatterplotFacet.LIN, ScatterplotFacet.LOG };
+        int[] rotations = { ScatterplotFacet.NO_ROTATION, ScatterplotFacet.ROTATE_CW, ScatterplotFacet.ROTATE_CCW };
+        for (int dim : dims) {
+            for (int rotation : rotations) {
+                int[] expected = new int[SIZE * SIZE];
+                ScatterplotRasterizer rasterizer = makeRasterizer(dim, rotation);
+                for (int r = 0; r < project.rows.size(); r++) {
+                    int pixel = expectedPixel(r, dim, rotation);
+                    if (pixel >= 0) {
+                        expected[pixel]++;
+                    }
+                    assertEquals(rasterizer.getPixel(r), pixel);
+                }
+                int[] counts = rasterizer.countAllRows();
+                assertEquals(counts, expected);
+            }
+        }
+    }
+
+    @Test
+    public void testCountRows() {
+        ScatterplotRasterizer rasterizer = makeRasterizer(ScatterplotFacet.LIN, ScatterplotFacet.NO_ROTATION);
+        int[] rowIndices = { 1, 2, 3, 10, 30000 };
+        int[] counts = rasterizer.countRows(rowIndices);
+        int[] expected = new int[SIZE * SIZE];
+        for (int r : rowIndices) {
+            if (rasterizer.getPixel(r) >= 0) {
+                expected[rasterizer.getPixel(r)]++;
+            }
+        }
+        assertEquals(counts, expected);
+        assertEquals(rasterizer.getPixel(10), -1);
+    }
+
+    @Test
+    public void testAxisIsKeptUntilColumnChanges() {
+        ScatterplotAxis axis = ScatterplotAxis.getAxis(project, x, 0, 100, ScatterplotFacet.LIN);
+        assertSame(ScatterplotAxis.getAxis(project, x, 0, 100, ScatterplotFacet.LIN), axis);
+
+        new CellChange(0, 0, project.rows.get(0).getCell(0), new Cell(50, null)).apply(project);
+        ScatterplotAxis changed = ScatterplotAxis.getAxis(project, x, 0, 100, ScatterplotFacet.LIN);
+        assertTrue(changed != axis);
+        assertEquals(changed.getPosition(0, 100), 50.0);
+    }
+
+    @Test
+    public void testRender() {
+        ScatterplotRasterizer rasterizer = makeRasterizer(ScatterplotFacet.LIN, ScatterplotFacet.NO_ROTATION);
+        int[] counts = new int[SIZE * SIZE];
+        counts[3 * SIZE + 7] = 1;
+        counts[10 * SIZE + 20] = 5;
+        int[] baseCounts = new int[SIZE * SIZE];
+        baseCounts[0] = 1;
+
+        BufferedImage dots = rasterizer.render(baseCounts, Color.gray, counts, Color.red, 1, false);
+        assertEquals(dots.getWidth(), SIZE);
+        assertEquals(dots.getRGB(7, 3), Color.red.getRGB());
+        assertEquals(dots.getRGB(0, 0), Color.gray.getRGB());
+        assertEquals(dots.getRGB(8, 3) >>> 24, 0);
+
+        // small dots make pixels partly opaque, more so with more rows
+        BufferedImage small = rasterizer.render(null, null, counts, Color.red, 0.5, false);
+        int alpha = small.getRGB(7, 3) >>> 24;
+        assertTrue(alpha > 0 && alpha < 255);
+        assertTrue((small.getRGB(20, 10) >>> 24) > alpha);
+
+        BufferedImage heatmap = rasterizer.render(null, null, counts, Color.red, 1, true);
+        assertEquals(heatmap.getRGB(20, 10) >>> 24, 255);
+        assertTrue((heatmap.getRGB(7, 3) >>> 24) < 255);
+    }
+}
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.browsing.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.filters.ExpressionNumberComparisonRowFilter;
+import com.google.refine.expr.MetaParser;
+import com.google.refine.expr.ParsingException;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.model.changes.MassRowChange;
+
+public class NumericBinIndexTests extends RefineTest {
+
+    Project project;
+    Column column;
+
+    @BeforeMethod
+    public void setUp() throws IOException, ModelException {
+        project = createProjectWithColumns("bins", "key", "value");
+        column = project.columnModel.getColumnByName("value");
+        Random random = new Random(7);
+        // enough rows to be evaluated in parallel
+        for (int i = 0; i < 5 * RowValueIndex.CHUNK_SIZE; i++) {
+            Row row = new Row(2);
+            if (i % 3 == 0) {
+                row.setCell(0, new Cell("k" + i, null));
+            }
+            int n = random.nextInt(10);
+            if (n < 6) {
+                row.setCell(1, new Cell(random.nextInt(2000) / 10.0 - 50, null));
+            } else if (n == 6) {
+                row.setCell(1, new Cell(random.nextInt(100) + "," + random.nextInt(100), null));
+            } else if (n == 7) {
+                row.setCell(1, new Cell("text", null));
+            } else if (n == 8) {
+                row.setCell(1, new Cell(Double.POSITIVE_INFINITY, null));
+            }
+            project.rows.add(row);
+        }
+        project.update();
+    }
+
+    protected ExpressionBasedRowEvaluable makeEvaluable(String expression) throws ParsingException {
+        return new ExpressionBasedRowEvaluable("value", column.getCellIndex(), MetaParser.parse(expression));
+    }
+
+    /**
+     * Hides the expression from the index, which then evaluates rows again.
+     */
+    protected RowEvaluable hide(RowEvaluable rowEvaluable) {
+        return new RowEvaluable() {
+            @Override
+            public Object eval(Project project, int rowIndex, Row row, Properties bindings) {
+                return rowEvaluable.eval(project, rowIndex, row, bindings);
+            }
+        };
+    }
+
+    protected void assertSameBins(NumericBinIndex index, NumericBinIndex expected) {
+        assertEquals(index.getMin(), expected.getMin());
+        assertEquals(index.getMax(), expected.getMax());
+        assertEquals(index.getStep(), expected.getStep());
+        assertEquals(index.getBins(), expected.getBins());
+        assertEquals(index.getNumericRowCount(), expected.getNumericRowCount());
+        assertEquals(index.getNonNumericRowCount(), expected.getNonNumericRowCount());
+        assertEquals(index.getBlankRowCount(), expected.getBlankRowCount());
+        assertEquals(index.getErrorRowCount(), expected.getErrorRowCount());
+        assertEquals(index.isNumeric(), expected.isNumeric());
+    }
+
+    protected void assertSameFilteredBins(NumericBinIndex index, RowEvaluable rowEvaluable, boolean records) {
+        Engine engine = new Engine(project);
+        ExpressionNumericValueBinner indexed = new ExpressionNumericValueBinner(rowEvaluable, index);
+        NumericBinIndex evaluatedIndex = records ? new NumericBinRecordIndex(project, hide(rowEvaluable))
+                : new NumericBinRowIndex(project, hide(rowEvaluable));
+        ExpressionNumericValueBinner evaluated = new ExpressionNumericValueBinner(hide(rowEvaluable), evaluatedIndex);
+        assertNotNull(indexed._rowValues);
+        assertNull(evaluated._rowValues);
+        if (records) {
+            engine.getAllRecords().accept(project, indexed);
+            engine.getAllRecords().accept(project, evaluated);
+        } else {
+            engine.getAllRows().accept(project, indexed);
+            engine.getAllRows().accept(project, evaluated);
+        }
+        assertEquals(indexed.bins, evaluated.bins);
+        assertEquals(indexed.numericCount, evaluated.numericCount);
+        assertEquals(indexed.nonNumericCount, evaluated.nonNumericCount);
+        assertEquals(indexed.blankCount, evaluated.blankCount);
+        assertEquals(indexed.errorCount, evaluated.errorCount);
+    }
+
+    @Test
+    public void testFilteredBinsFromRowValues() throws ParsingException {
+        String[] expressions = { "value", "value.split(',')", "forEach(value.split(','), v, v.toNumber())" };
+        for (String expression : expressions) {
+            ExpressionBasedRowEvaluable rowEvaluable = makeEvaluable(expression);
+            assertSameFilteredBins(new NumericBinRowIndex(project, rowEvaluable), rowEvaluable, false);
+            assertSameFilteredBins(new NumericBinRecordIndex(project, rowEvaluable), rowEvaluable, true);
+        }
+    }
+
+    @Test
+    public void testFilterFromRowValues() throws ParsingException {
+        ExpressionBasedRowEvaluable rowEvaluable = makeEvaluable("forEach(value.split(','), v, v.toNumber())");
+        NumericBinIndex index = new NumericBinRowIndex(project, rowEvaluable);
+        boolean[][] selections = { { true, false, false, false }, { false, true, true, false },
+                { true, false, false, true }, { false, false, true, true } };
+        for (boolean[] s : selections) {
+            ExpressionNumberComparisonRowFilter indexed = new ExpressionNumberComparisonRowFilter(
+                    rowEvaluable, index.getRowValues(), s[0], s[1], s[2], s[3]) {
+                @Override
+                protected boolean checkValue(double d) {
+                    return d >= 10 && d < 42.5;
+                }
+            };
+            ExpressionNumberComparisonRowFilter evaluated = new ExpressionNumberComparisonRowFilter(
+                    rowEvaluable, s[0], s[1], s[2], s[3]) {
+                @Override
+                protected boolean checkValue(double d) {
+                    return d >= 10 && d < 42.5;
+                }
+            };
+            for (int i = 0; i < project.rows.size(); i++) {
+                Row row = project.rows.get(i);
+                assertEquals(indexed.filterRow(project, i, row), evaluated.filterRow(project, i, row));
+            }
+        }
+    }
+
+    @Test
+    public void testChangedRowsAreEvaluatedAgain() throws ParsingException {
+        ExpressionBasedRowEvaluable rowEvaluable = makeEvaluable("value");
+        NumericBinIndex index = new NumericBinRowIndex(project, rowEvaluable);
+        column.setPrecompute("numeric-bin:row-based:value", index);
+        index.getBins();
+
+        int cellIndex = column.getCellIndex();
+        for (int r = 0; r < 3; r++) {
+            Cell oldCell = project.rows.get(r).getCell(cellIndex);
+            new CellChange(r, cellIndex, oldCell, new Cell(1000.0 + r, null)).apply(project);
+        }
+        new CellChange(3, cellIndex, project.rows.get(3).getCell(cellIndex), null).apply(project);
+
+        // the index was kept, and follows the changes
+        assertSame(column.getPrecompute("numeric-bin:row-based:value"), index);
+        assertSameBins(index, new NumericBinRowIndex(project, hide(rowEvaluable)));
+        assertEquals(index.getMax(), 1100.0);
+        assertSameFilteredBins(index, rowEvaluable, false);
+    }
+
+    @Test
+    public void testExpressionsDependingOnOtherCells() throws ParsingException {
+        ExpressionBasedRowEvaluable rowEvaluable = makeEvaluable("if(row.index % 2 == 0, value, 0)");
+        assertFalse(rowEvaluable.dependsOnCellOnly());
+        assertTrue(makeEvaluable("value.toNumber() * 2").dependsOnCellOnly());
+
+        NumericBinIndex index = new NumericBinRowIndex(project, rowEvaluable);
+        assertNull(index.getRowValues());
+        column.setPrecompute("numeric-bin:row-based:expression", index);
+        int cellIndex = column.getCellIndex();
+        new CellChange(0, cellIndex, project.rows.get(0).getCell(cellIndex), new Cell(1000.0, null)).apply(project);
+        assertNull(column.getPrecompute("numeric-bin:row-based:expression"));
+    }
+
+    @Test
+    public void testRevertedRowChangesDropTheIndex() throws ParsingException {
+        ExpressionBasedRowEvaluable rowEvaluable = makeEvaluable("value");
+        int cellIndex = column.getCellIndex();
+        // as many rows as before, as denormalizing a project does
+        List<Row> newRows = new ArrayList<>(project.rows.size());
+        for (Row row : project.rows) {
+            Row newRow = row.dup();
+            newRow.setCell(cellIndex, new Cell(1000.0, null));
+            newRows.add(newRow);
+        }
+        MassRowChange change = new MassRowChange(newRows);
+        change.apply(project);
+
+        NumericBinIndex index = new NumericBinRowIndex(project, rowEvaluable);
+        column.setPrecompute("numeric-bin:row-based:value", index);
+        assertEquals(index.getMin(), 1000.0);
+
+        change.revert(project);
+        assertNull(column.getPrecompute("numeric-bin:row-based:value"));
+        NumericBinIndex reverted = new NumericBinRowIndex(project, rowEvaluable);
+        assertSameBins(reverted, new NumericBinRowIndex(project, hide(rowEvaluable)));
+        assertSameFilteredBins(reverted, rowEvaluable, false);
+    }
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.browsing.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Random;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.RowFilter;
+import com.google.refine.browsing.facets.TextSearchFacet.TextSearchFacetConfig;
+import com.google.refine.browsing.filters.CandidateRowFilter;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.util.ParsingUtilities;
+
+public class TextIndexTests extends RefineTest {
+
+    static final String ALPHABET = "abcABC xyz.ΣσςİIiı";
+
+    Project project;
+    Column column;
+
+    @BeforeMethod
+    public void setUp() throws IOException, ModelException {
+        project = createProjectWithColumns("text", "text");
+        column = project.columnModel.getColumnByName("text");
+        Random random = new Random(11);
+        for (int i = 0; i < 3 * TextIndex.CHUNK_SIZE; i++) {
+            Row row = new Row(1);
+            if (i % 50 == 0) {
+                row.setCell(0, new Cell(i, null));
+            } else if (i % 50 != 1) {
+                StringBuilder sb = new StringBuilder();
+                int length = random.nextInt(12);
+                for (int j = 0; j < length; j++) {
+                    sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                }
+                row.setCell(0, new Cell(sb.toString(), null));
+            }
+            project.rows.add(row);
+        }
+        project.update();
+        ProjectManager.singleton.getPreferenceStore().put("facets.textSearch.indexMinRows", 0);
+        // a placeholder, so that facets do not start indexing in the background
+        column.setPrecompute(TextIndex.KEY, new TextIndex(project, column.getCellIndex()));
+    }
+
+    protected RowFilter getRowFilter(String query, String mode, boolean caseSensitive, boolean invert)
+            throws IOException {
+        String json = "{\"type\":\"text\",\"name\":\"text\",\"columnName\":\"text\","
+                + "\"mode\":\"" + mode + "\",\"caseSensitive\":" + caseSensitive + ","
+                + "\"invert\":" + invert + ",\"query\":" + ParsingUtilities.mapper.writeValueAsString(query) + "}";
+        return ParsingUtilities.mapper.readValue(json, TextSearchFacetConfig.class).apply(project).getRowFilter(project);
+    }
+
+    @Test
+    public void testSameRowsAsWithoutIndex() throws IOException {
+        String[][] queries = {
+                { "abc", "text" }, { "ABC", "text" }, { "c x", "text" }, { "σσ", "text" }, { "ΣΣ", "text" },
+                { "ςa", "text" }, { "İi", "text" }, { "i̇", "text" }, { "a.b", "text" }, { "150", "text" },
+                { "ab", "text" }, { "zzzz", "text" },
+                { "abc", "regex" }, { "a.c", "regex" }, { "ab?c+y", "regex" }, { "[ab]cx", "regex" },
+                { "\\.ab", "regex" }, { "^abc$", "regex" }, { "Σσ", "regex" }, { "ab|yz", "regex" },
+                { "a{2}bc", "regex" }, { "\\x41bc", "regex" }, { "1\\d0", "regex" }
+        };
+        RowFilter[][] expected = new RowFilter[queries.length][4];
+        for (int q = 0; q < queries.length; q++) {
+            for (int options = 0; options < 4; options++) {
+                expected[q][options] = getRowFilter(queries[q][0], queries[q][1], options % 2 == 0, options / 2 == 1);
+                assertFalse(expected[q][options] instanceof CandidateRowFilter);
+            }
+        }
+
+        TextIndex index = (TextIndex) column.getPrecompute(TextIndex.KEY);
+        index.build();
+        int narrowed = 0;
+        for (int q = 0; q < queries.length; q++) {
+            for (int options = 0; options < 4; options++) {
+                RowFilter filter = getRowFilter(queries[q][0], queries[q][1], options % 2 == 0, options / 2 == 1);
+                if (filter instanceof CandidateRowFilter) {
+                    narrowed++;
+                }
+                for (int r = 0; r < project.rows.size(); r++) {
+                    Row row = project.rows.get(r);
+                    assertEquals(filter.filterRow(project, r, row), expected[q][options].filterRow(project, r, row),
+                            Arrays.toString(queries[q]) + " " + options + " " + row.getCellValue(0));
+                }
+            }
+        }
+        assertTrue(narrowed > 0);
+    }
+
+    @Test
+    public void testChangedRowsAreCandidates() {
+        TextIndex index = new TextIndex(project, column.getCellIndex());
+        index.build();
+        column.setPrecompute(TextIndex.KEY, index);
+
+        BitSet candidates = index.getCandidates(Collections.singletonList("needle"));
+        assertEquals(candidates.cardinality(), 0);
+
+        new CellChange(5, 0, project.rows.get(5).getCell(0), new Cell("a needle", null)).apply(project);
+        assertTrue(column.getPrecompute(TextIndex.KEY) == index);
+        candidates = index.getCandidates(Collections.singletonList("needle"));
+        assertTrue(candidates.get(5));
+        assertEquals(candidates.cardinality(), 1);
+
+        assertNull(index.getCandidates(Collections.singletonList("ne")));
+    }
+
+    @Test
+    public void testSmallProjectsAreNotIndexed() {
+        column.setPrecompute(TextIndex.KEY, null);
+        ProjectManager.singleton.getPreferenceStore().put("facets.textSearch.indexMinRows", project.rows.size() + 1);
+        assertNull(TextIndex.getIndex(project, column));
+        assertNull(column.getPrecompute(TextIndex.KEY));
+
+        ProjectManager.singleton.getPreferenceStore().put("facets.textSearch.indexMinRows", -1);
+        assertNull(TextIndex.getIndex(project, column));
+        assertNull(column.getPrecompute(TextIndex.KEY));
+    }
+
+    @Test
+    public void testDroppedIndexIsReplaced() {
+        TextIndex index = new TextIndex(project, column.getCellIndex());
+        index.build();
+        column.setPrecompute(TextIndex.KEY, index);
+        assertTrue(TextIndex.getIndex(project, column) == index);
+        assertTrue(index.getMemorySize() > 0);
+
+        index.drop();
+        assertNull(index.getCandidates(Collections.singletonList("abc")));
+        assertNull(TextIndex.getIndex(project, column));
+        assertFalse(column.getPrecompute(TextIndex.KEY) == index);
+    }
+
+    @Test
+    public void testPostingsEncoding() {
+        int[] rows = { 0, 1, 127, 128, 300, 16384, 16385, 5000000 };
+        byte[] postings = new byte[5 * rows.length];
+        int position = 0;
+        int previous = 0;
+        for (int row : rows) {
+            assertEquals(TextIndex.getDeltaLength(row - previous),
+                    TextIndex.writeDelta(postings, position, row - previous) - position);
+            position = TextIndex.writeDelta(postings, position, row - previous);
+            previous = row;
+        }
+
+        int[] decoded = new int[position];
+        assertEquals(TextIndex.decode(postings, 0, position, decoded), rows.length);
+        assertEquals(Arrays.copyOf(decoded, rows.length), rows);
+
+        int[] other = { 1, 2, 128, 16385, 5000000, 6000000 };
+        int size = TextIndex.intersect(other, other.length, postings, 0, position);
+        assertEquals(Arrays.copyOf(other, size), new int[] { 1, 128, 16385, 5000000 });
+    }
+
+    @Test
+    public void testRequiredLiterals() {
+        assertEquals(TextIndex.getRequiredLiterals("abc"), Arrays.asList("abc"));
+        assertEquals(TextIndex.getRequiredLiterals("ab?cd*ef+g"), Arrays.asList("a", "c", "ef", "g"));
+        assertEquals(TextIndex.getRequiredLiterals("^abc\\.d[x-z]+efg\\d$"), Arrays.asList("abc.d", "efg"));
+        assertEquals(TextIndex.getRequiredLiterals("abc{2,3}def"), Arrays.asList("ab", "def"));
+        assertEquals(TextIndex.getRequiredLiterals("[]abc]def"), Collections.emptyList());
+        assertEquals(TextIndex.getRequiredLiterals("abc|def"), Collections.emptyList());
+        assertEquals(TextIndex.getRequiredLiterals("(abc)?def"), Collections.emptyList());
+        assertEquals(TextIndex.getRequiredLiterals("\\u0041bc"), Collections.emptyList());
+    }
+}
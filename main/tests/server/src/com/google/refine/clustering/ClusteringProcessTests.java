@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.clustering;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.util.ParsingUtilities;
+
+public class ClusteringProcessTests extends RefineTest {
+
+    static final String binningJson = "{\"type\":\"binning\",\"function\":\"fingerprint\",\"column\":\"column\",\"params\":{}}";
+    static final String knnJson = "{\"type\":\"knn\",\"function\":\"levenshtein\",\"column\":\"column\","
+            + "\"params\":{\"radius\":%d,\"blocking-ngram-size\":2}}";
+
+    Project project;
+    EngineConfig engineConfig = new EngineConfig(Collections.emptyList(), Mode.RowBased);
+    ClusteringCache cache = ClusteringCache.getInstance();
+
+    @BeforeMethod
+    public void setUp() {
+        project = createCSVProject("column\n"
+                + "Apple pie\n"
+                + "apple  pie\n"
+                + "apple pies\n"
+                + "Banana\n"
+                + "banana\n"
+                + "cherry\n");
+        cache.clear();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        cache.clear();
+    }
+
+    protected ClusteringProcess startProcess(String configJson) throws Exception {
+        ClustererConfig config = ParsingUtilities.mapper.readValue(configJson, ClustererConfig.class);
+        String scope = ClusteringCache.makeScope(project, "column", engineConfig);
+        String key = ClusteringCache.makeKey(scope, config);
+        return cache.startProcess(key, () -> {
+            Clusterer clusterer = config.apply(project);
+            clusterer.setCacheScope(scope);
+            return new ClusteringProcess(cache, key, "Clustering", clusterer, new Engine(project));
+        });
+    }
+
+    @Test
+    public void testSameClustersAsSynchronousComputation() throws Exception {
+        ClusteringProcess process = startProcess(binningJson);
+        assertTrue(process.waitFor(10000));
+        assertEquals(process.getProgress(), 100);
+
+        Clusterer clusterer = ParsingUtilities.mapper.readValue(binningJson, ClustererConfig.class).apply(project);
+        clusterer.computeClusters(new Engine(project));
+        assertEquals(process.getClusters(), ParsingUtilities.defaultWriter.writeValueAsString(clusterer));
+
+        String key = ClusteringCache.makeKey(ClusteringCache.makeScope(project, "column", engineConfig),
+                ParsingUtilities.mapper.readValue(binningJson, ClustererConfig.class));
+        assertEquals(cache.getIfPresent(key), process.getClusters());
+        assertNull(cache.getProcess(key));
+    }
+
+    @Test
+    public void testDistinctValuesSharedInScope() throws Exception {
+        assertTrue(startProcess(String.format(knnJson, 1)).waitFor(10000));
+        String scope = ClusteringCache.makeScope(project, "column", engineConfig);
+        Object values = cache.getIfPresent(scope + "\nvalues");
+        assertTrue(values instanceof Clusterer.DistinctValues);
+        assertEquals(((Clusterer.DistinctValues) values).values.size(), 6);
+
+        // changing the radius or the keyer does not collect the values again
+        ClusteringProcess process = startProcess(String.format(knnJson, 2));
+        assertTrue(process.waitFor(10000));
+        process.getClusters();
+        assertTrue(startProcess(binningJson).waitFor(10000));
+        assertSame(cache.getIfPresent(scope + "\nvalues"), values);
+    }
+
+    @Test
+    public void testScopeChangesWithFacetsAndColumns() throws IOException {
+        String scope = ClusteringCache.makeScope(project, "column", engineConfig);
+        assertEquals(ClusteringCache.makeScope(project, "column", engineConfig), scope);
+        assertNotEquals(ClusteringCache.makeScope(project, "other", engineConfig), scope);
+        assertNotEquals(ClusteringCache.makeScope(project, "column",
+                new EngineConfig(Collections.emptyList(), Mode.RecordBased)), scope);
+
+        // as when rows are imported, no history entry is added
+        project.rows.add(new Row(1));
+        assertNotEquals(ClusteringCache.makeScope(project, "column", engineConfig), scope);
+    }
+
+    @Test(expectedExceptions = CancellationException.class)
+    public void testCanceledClusterer() throws Exception {
+        Clusterer clusterer = ParsingUtilities.mapper.readValue(binningJson, ClustererConfig.class).apply(project);
+        clusterer.setCacheScope(ClusteringCache.makeScope(project, "column", engineConfig));
+        clusterer.cancel();
+        try {
+            clusterer.computeClusters(new Engine(project));
+        } finally {
+            assertNull(cache.getIfPresent(clusterer._scope + "\nvalues"));
+        }
+    }
+
+    @Test
+    public void testCancellationOfAnotherClustererInScope() throws Exception {
+        String scope = ClusteringCache.makeScope(project, "column", engineConfig);
+        ClustererConfig config = ParsingUtilities.mapper.readValue(binningJson, ClustererConfig.class);
+        Clusterer canceled = config.apply(project);
+        canceled.setCacheScope(scope);
+        Clusterer other = config.apply(project);
+        other.setCacheScope(scope);
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch cancel = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                canceled.getCached("test", () -> {
+                    loading.countDown();
+                    try {
+                        cancel.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    canceled.cancel();
+                    canceled.checkCanceled();
+                    return "canceled";
+                });
+            } catch (CancellationException e) {
+                // expected
+            }
+        });
+        thread.start();
+        loading.await();
+        // the other clusterer waits for the load of the canceled one, which then fails
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            cancel.countDown();
+        }).start();
+        assertEquals(other.getCached("test", () -> "loaded"), "loaded");
+        thread.join();
+    }
+}
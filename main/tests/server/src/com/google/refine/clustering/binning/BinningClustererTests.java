@@ -29,6 +29,12 @@ package com.google.refine.clustering.binning;
 import static org.testng.Assert.assertEquals;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.testng.annotations.Test;
 
@@ -36,8 +42,10 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.google.refine.RefineTest;
 import com.google.refine.browsing.Engine;
+import com.google.refine.clustering.ClusteredEntry;
 import com.google.refine.clustering.binning.BinningClusterer.BinningClustererConfig;
 import com.google.refine.model.Project;
+import com.google.refine.model.Row;
 import com.google.refine.util.ParsingUtilities;
 import com.google.refine.util.TestUtils;
 
@@ -96,4 +104,39 @@ public class BinningClustererTests extends RefineTest {
         clusterer.computeClusters(new Engine(project));
         assertEquals(clusterer.getJsonRepresentation().size(), 1);
     }
+
+    @Test
+    public void testSameClustersAsPerRowKeys() throws IOException {
+        StringBuilder csv = new StringBuilder("column\n");
+        String[] variants = { "%d apples", "Apples %d", "%d  Apples.", "apples, %d" };
+        for (int i = 0; i < 6000; i++) {
+            csv.append(String.format(variants[(i * 7) % variants.length], i % 1500)).append('\n');
+        }
+        Project project = createCSVProject(csv.toString());
+        BinningClustererConfig config = ParsingUtilities.mapper.readValue(configJson, BinningClustererConfig.class);
+        BinningClusterer clusterer = config.apply(project);
+        clusterer.computeClusters(new Engine(project));
+
+        // clusters as computed by keying each row
+        Keyer keyer = new FingerprintKeyer();
+        Map<String, Map<String, Integer>> map = new HashMap<>();
+        for (Row row : project.rows) {
+            String s = row.getCell(0).value.toString();
+            map.computeIfAbsent(keyer.key(s), k -> new TreeMap<>()).merge(s, 1, Integer::sum);
+        }
+        List<Map<String, Integer>> expected = new ArrayList<>(map.values());
+        Collections.sort(expected, new BinningClusterer.SizeComparator());
+        expected.removeIf(m -> m.size() < 2);
+
+        List<List<ClusteredEntry>> expectedClusters = new ArrayList<>();
+        for (Map<String, Integer> m : expected) {
+            List<ClusteredEntry> cluster = new ArrayList<>();
+            m.entrySet().stream()
+                    .sorted(new BinningClusterer.EntriesComparator())
+                    .forEach(e -> cluster.add(new ClusteredEntry(e.getKey(), e.getValue())));
+            expectedClusters.add(cluster);
+        }
+        assertEquals(ParsingUtilities.mapper.writeValueAsString(clusterer),
+                ParsingUtilities.mapper.writeValueAsString(expectedClusters));
+    }
 }
@@ -31,6 +31,11 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.clustering.binning;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
@@ -97,6 +102,68 @@ public class KeyerTests extends RefineTest {
         }
     }
     
+    @Test
+    public void testFingerprintKeyerMatchesSteps() {
+        FingerprintKeyer fingerprint = new FingerprintKeyer();
+        for (String s : differentialCorpus()) {
+            Assert.assertEquals(fingerprint.key(s), fingerprint.keyInSteps(s),
+                    "Fingerprint for string: " + s + " failed");
+        }
+    }
+
+    @Test
+    public void testNGramKeyerMatchesSteps() {
+        NGramFingerprintKeyer ngram = new NGramFingerprintKeyer();
+        for (String s : differentialCorpus()) {
+            for (int size = 1; size <= 4; size++) {
+                Assert.assertEquals(ngram.key(s, size), ngram.keyInSteps(s, size),
+                        "NGram fingerprint of size " + size + " for string: " + s + " failed");
+            }
+        }
+    }
+
+    @Test
+    public void testKeyersInTurkishLocale() {
+        Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            FingerprintKeyer fingerprint = new FingerprintKeyer();
+            NGramFingerprintKeyer ngram = new NGramFingerprintKeyer();
+            for (String s : new String[] { "Istanbul İSTANBUL", "DIŞ dış", "İzmir" }) {
+                Assert.assertEquals(fingerprint.key(s), fingerprint.keyInSteps(s));
+                Assert.assertEquals(ngram.key(s), ngram.keyInSteps(s, 2));
+            }
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    /**
+     * Random strings mixing words, punctuation, control characters, spaces,
+     * letters with diacritics and characters which the keyers do not fold with tables.
+     */
+    private static List<String> differentialCorpus() {
+        String alphabet = "aAbBzZ09 \t\n\r\u000B\f\u0000\u001F\u007F.,;-_'\"!?()[]{}@#~"
+                + "\u00A0\u0085\u00C0\u00E9\u00C9\u00DF\u00D8\u00FF\u0100\u0130\u0131\u0141\u0178\u017F"
+                + "\u0180\u03A3\u03C3\u0410\u4E2D\u2019\u2003\u0301";
+        String[] words = { "paris", "Paris", "PARÍS", "straße", "Ölfass", "ĳssel", "Σίσυφος", "İzmir", "東京", "\uD83D\uDE00" };
+        Random random = new Random(12345);
+        List<String> corpus = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(i % 100 == 0 ? 2000 : 30);
+            while (sb.length() < length) {
+                if (random.nextInt(4) == 0) {
+                    sb.append(words[random.nextInt(words.length)]);
+                } else {
+                    sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+            }
+            corpus.add(sb.toString());
+        }
+        return corpus;
+    }
+
     @Test
     public void testNGramKeyer() {    
         keyer = new NGramFingerprintKeyer();
@@ -26,9 +26,19 @@
  ******************************************************************************/
 package com.google.refine.clustering.knn;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.testng.annotations.Test;
 
@@ -86,4 +96,102 @@ public class kNNClustererTests extends RefineTest {
     	
     	assertTrue(clusterer.getJsonRepresentation().isEmpty());
     }
+
+    @Test
+    public void testEditDistanceBounds() {
+        EditDistance distance = new EditDistance();
+        Random random = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            String a = randomString(random);
+            String b = randomString(random);
+            int common = BlockingClusteringEngine.commonCount(
+                    BlockingClusteringEngine.bigrams(a),
+                    BlockingClusteringEngine.bigrams(b));
+            assertTrue(distance.lowerBound(a.length(), b.length(), common) <= distance.compute(a, b),
+                    "bound too high for " + a + " and " + b);
+        }
+    }
+
+    @Test
+    public void testBoundsIgnoreLocaleCaseMappings() {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr"));
+        try {
+            EditDistance distance = new EditDistance();
+            // 'I' lowercases to a dotless 'ı' in Turkish, and 'İ' to two characters
+            // outside of Turkish, while the distance compares 'i' with both
+            for (String[] pair : new String[][] { { "IIIIab", "iiiiab" }, { "İİİİİİab", "iiiiiiab" } }) {
+                assertTrue(distance.compute(pair[0], pair[1]) <= 1.0);
+                BlockingClusteringEngine engine = new BlockingClusteringEngine(distance, 2, 1.0);
+                assertEquals(engine.getClusters(Arrays.asList(pair)).size(), 1, pair[0]);
+            }
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testSameClustersAsAllPairs() {
+        Random random = new Random(1);
+        List<String> values = new ArrayList<>();
+        for (int n = 0; n < 300; n++) {
+            String value = randomString(random);
+            if (!values.contains(value)) {
+                values.add(value);
+            }
+        }
+        EditDistance distance = new EditDistance();
+        BlockingClusteringEngine engine = new BlockingClusteringEngine(distance, 2, 2.0);
+        Set<Set<Serializable>> clusters = new HashSet<>(engine.getClusters(values));
+
+        Set<Set<Serializable>> expected = new HashSet<>();
+        for (String a : values) {
+            Set<Serializable> cluster = new TreeSet<>();
+            cluster.add(a);
+            for (String b : values) {
+                if (a != b && shareNgram(engine, a, b) && distance.compute(a, b) <= 2.0) {
+                    cluster.add(b);
+                }
+            }
+            if (cluster.size() > 1) {
+                expected.add(cluster);
+            }
+        }
+        assertTrue(expected.size() > 10);
+        assertEquals(clusters, expected);
+        assertEquals(engine.getProgress(), 100);
+    }
+
+    @Test
+    public void testValuesOfLargeBlocksAreCompared() {
+        // all values share their first n-gram, in a single block
+        List<String> values = new ArrayList<>();
+        for (int n = 0; n < 3000; n++) {
+            values.add(String.format(Locale.ROOT, "xy%04d", n));
+        }
+        BlockingClusteringEngine engine = new BlockingClusteringEngine(new EditDistance(), 2, 1.0);
+        List<Set<Serializable>> clusters = engine.getClusters(values);
+        assertEquals(clusters.size(), values.size());
+        assertTrue(clusters.stream().anyMatch(c -> c.contains("xy0000") && c.contains("xy0001")));
+    }
+
+    private static boolean shareNgram(BlockingClusteringEngine engine, String a, String b) {
+        Set<String> ngrams = new HashSet<>(Arrays.asList(engine.ngrams(a)));
+        for (String ngram : engine.ngrams(b)) {
+            if (ngrams.contains(ngram)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String randomString(Random random) {
+        String alphabet = "abcAB .";
+        StringBuilder sb = new StringBuilder();
+        int length = 2 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
 }
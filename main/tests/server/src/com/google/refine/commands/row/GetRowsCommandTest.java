@@ -28,9 +28,11 @@ package com.google.refine.commands.row;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.io.StringWriter;
 
 import javax.servlet.ServletException;
@@ -43,7 +45,12 @@ import org.testng.annotations.Test;
 import com.google.refine.RefineTest;
 import com.google.refine.commands.Command;
 import com.google.refine.commands.row.GetRowsCommand;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
+import com.google.refine.model.Recon;
+import com.google.refine.model.Row;
+import com.google.refine.util.ParsingUtilities;
 import com.google.refine.util.TestUtils;
 
 public class GetRowsCommandTest extends RefineTest {
@@ -139,4 +146,89 @@ public class GetRowsCommandTest extends RefineTest {
         command.doPost(request, response);
         TestUtils.assertEqualAsJson(recordJson, writer.toString());
     }
+    
+    @Test
+    public void testJsonOutputSortedRows() throws ServletException, IOException {
+        String rowJson = "{\n" + 
+                "       \"filtered\" : 2,\n" + 
+                "       \"limit\" : 1,\n" + 
+                "       \"mode\" : \"row-based\",\n" + 
+                "       \"pool\" : {\n" + 
+                "         \"recons\" : { }\n" + 
+                "       },\n" + 
+                "       \"rows\" : [ {\n" + 
+                "         \"cells\" : [ {\n" + 
+                "           \"v\" : \"c\"\n" + 
+                "         }, {\n" + 
+                "           \"v\" : \"d\"\n" + 
+                "         } ],\n" + 
+                "         \"flagged\" : false,\n" + 
+                "         \"i\" : 0,\n" + 
+                "         \"starred\" : false\n" + 
+                "       } ],\n" + 
+                "       \"start\" : 1,\n" + 
+                "       \"total\" : 2\n" + 
+                "     }";
+        
+        when(request.getParameter("engine")).thenReturn("{\"mode\":\"row-based\",\"facets\":[]}");
+        when(request.getParameter("sorting")).thenReturn(
+                "{\"criteria\":[{\"valueType\":\"string\",\"column\":\"b\",\"reverse\":true}]}");
+        when(request.getParameter("start")).thenReturn("1");
+        when(request.getParameter("limit")).thenReturn("1");
+        command.doPost(request, response);
+        TestUtils.assertEqualAsJson(rowJson, writer.toString());
+    }
+    
+    @Test
+    public void testJsonOutputPagedRowsWithRecons() throws ServletException, IOException {
+        Recon recon = new Recon(0L, "http://www.wikidata.org/entity/", "http://www.wikidata.org/prop/direct/");
+        project.rows.get(0).setCell(0, new Cell("c", recon));
+        project.rows.get(1).setCell(1, new Cell("f", recon));
+        
+        when(request.getParameter("engine")).thenReturn("{\"mode\":\"row-based\",\"facets\":[]}");
+        when(request.getParameter("limit")).thenReturn("1");
+        command.doPost(request, response);
+        String firstPage = writer.toString();
+        
+        // the filtered count is cached by the first request
+        writer.getBuffer().setLength(0);
+        command.doPost(request, response);
+        TestUtils.assertEqualAsJson(firstPage, writer.toString());
+        
+        JsonNode result = ParsingUtilities.mapper.readTree(firstPage);
+        assertEquals(result.get("filtered").asInt(), 2);
+        assertEquals(result.get("rows").size(), 1);
+        assertEquals(result.get("pool").get("recons").size(), 1);
+        assertEquals(result.get("pool").get("recons").get(Long.toString(recon.id)).get("id").asLong(), recon.id);
+    }
+    
+    @Test
+    public void testErrorAfterFirstRowsEndsTheOutput() throws ServletException, IOException {
+        // more rows than buffered by the JSON generator
+        for (int i = 0; i < 1000; i++) {
+            Row row = new Row(2);
+            row.setCell(0, new Cell("value " + i, null));
+            project.rows.add(row);
+        }
+        Row last = new Row(2);
+        project.rows.add(last);
+        last.setCell(0, new Cell(new Serializable() {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            public String toString() {
+                throw new IllegalStateException("unprintable");
+            }
+        }, null));
+        
+        when(request.getParameter("engine")).thenReturn("{\"mode\":\"row-based\",\"facets\":[]}");
+        when(request.getParameter("limit")).thenReturn(Integer.toString(project.rows.size()));
+        command.doPost(request, response);
+        
+        // the rows written before the error are complete, and followed by the error
+        JsonNode result = ParsingUtilities.mapper.readTree(writer.toString());
+        assertEquals(result.get("code").asText(), "error");
+        assertEquals(result.get("rows").size(), project.rows.size() - 1);
+        assertEquals(result.get("rows").get(project.rows.size() - 2).get("cells").get(0).get("v").asText(), "value 999");
+    }
 }
@@ -33,7 +33,9 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.grel;
 
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
 
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -48,7 +50,11 @@ import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.expr.MetaParser;
 import com.google.refine.expr.ParsingException;
+import com.google.refine.expr.functions.math.RandomNumber;
+import com.google.refine.expr.functions.strings.Trim;
 import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.util.ParsingUtilities;
 
 public class GrelTests extends RefineTest {
 
@@ -207,6 +213,115 @@ public class GrelTests extends RefineTest {
             }
     }
     
+    @Test
+    public void testLiteralPatternsAreCompiledOnce() throws ParsingException {
+        Evaluable eval = MetaParser.parse("grel:\"12-34\".match(\"(\\\\d+)-(\\\\d+)\")");
+        Assert.assertEquals(eval.toString(), "Match(\"12-34\", \"(\\\\d+)-(\\\\d+)\")");
+        Assert.assertEquals((Object[]) eval.evaluate(bindings), new String[] { "12", "34" });
+
+        // invalid regular expressions still fail when evaluated
+        eval = MetaParser.parse("grel:match(\"12\", \"(\")");
+        Assert.assertTrue(eval.evaluate(bindings) instanceof EvalError);
+    }
+    
+    @Test
+    public void testConstantSubExpressionsAreFolded() throws ParsingException {
+        Evaluable eval = MetaParser.parse("grel:\"a,b\".split(\",\")");
+        Assert.assertEquals(eval.toString(), "Split(\"a,b\", \",\")");
+        Object first = eval.evaluate(bindings);
+        Assert.assertEquals((Object[]) first, new String[] { "a", "b" });
+        Assert.assertSame(eval.evaluate(bindings), first);
+
+        eval = MetaParser.parse("grel:value + (1 + 2) * 3");
+        Assert.assertEquals(eval.toString(), "value + 1 + 2 * 3");
+        bindings.put("value", 1);
+        Assert.assertEquals(eval.evaluate(bindings), 10L);
+
+        // functions which are not pure are called on every evaluation
+        eval = MetaParser.parse("grel:randomNumber(0, 1000000)");
+        Set<Object> values = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            values.add(eval.evaluate(bindings));
+        }
+        Assert.assertTrue(values.size() > 1);
+
+        // errors raised by constants are only reported when evaluating
+        eval = MetaParser.parse("grel:1 / 0");
+        try {
+            eval.evaluate(bindings);
+            Assert.fail("Expected the division to fail");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRepeatedSubExpressionsAreShared() throws ParsingException {
+        bindings.put("value", " a,b ");
+        Evaluable eval = MetaParser.parse("grel:value.trim().length() + value.trim().length()");
+        Assert.assertEquals(eval.toString(), "Length(Trim(value)) + Length(Trim(value))");
+        Assert.assertEquals(eval.evaluate(bindings), 6L);
+
+        eval = MetaParser.parse("grel:[value.split(\",\"), value.split(\",\")]");
+        Object[] result = (Object[]) eval.evaluate(bindings);
+        Assert.assertSame(result[0], result[1]);
+        // values are not kept from one evaluation to the next
+        bindings.put("value", "c");
+        Assert.assertEquals((Object[]) ((Object[]) eval.evaluate(bindings))[0], new String[] { "c" });
+
+        // occurrences evaluated with a variable rebound are not shared
+        bindings.put("value", "abcd");
+        eval = MetaParser.parse("grel:with(\"x\", value, value.length()) + value.length()");
+        Assert.assertEquals(eval.evaluate(bindings), 5L);
+        eval = MetaParser.parse("grel:forEach([\"a\", \"bb\"], value, value.length()).join(\",\") + value.length()");
+        Assert.assertEquals(eval.evaluate(bindings), "1,24");
+    }
+
+    @Test
+    public void testPurityIsNotSerialized() throws Exception {
+        Assert.assertTrue(new Trim().isPure());
+        Assert.assertFalse(new RandomNumber().isPure());
+        Assert.assertFalse(ParsingUtilities.defaultWriter.writeValueAsString(new Trim()).contains("pure"));
+    }
+    
+    @Test
+    public void testBatchEvaluationMatchesRowEvaluation() throws ParsingException {
+        Project project = createCSVProject("a,b\n x ,1\nY,2\n,3\nz,\n");
+        int cellIndex = project.columnModel.getColumnByName("a").getCellIndex();
+        int[] rowIndices = { 3, 0, 2, 1 };
+        String tests[] = {
+                "value",
+                "cell.value",
+                "cells[\"b\"].value",
+                "cells.b.value",
+                "cells[\"missing\"].value",
+                "value.trim().toUppercase()",
+                "value.trim() == \"x\"",
+                "value.length()",
+                "\"<\" + value + \">\"",
+                "rowIndex",
+                "forEach([1, 2], v, value).join(\",\")",
+                "1 + 2",
+        };
+        for (String test : tests) {
+            Evaluable eval = MetaParser.parse("grel:" + test);
+            Object[] results = new Object[rowIndices.length];
+            eval.evaluateRows(project, "a", cellIndex, rowIndices, rowIndices.length, results);
+
+            Properties rowBindings = ExpressionUtils.createBindings(project);
+            for (int i = 0; i < rowIndices.length; i++) {
+                Row row = project.rows.get(rowIndices[i]);
+                ExpressionUtils.bind(rowBindings, row, rowIndices[i], "a", row.getCell(cellIndex));
+                Object expected = eval.evaluate(rowBindings);
+                if (expected instanceof EvalError) {
+                    Assert.assertTrue(results[i] instanceof EvalError, "Wrong result for expression: " + test);
+                } else {
+                    Assert.assertEquals(results[i], expected, "Wrong result for expression: " + test);
+                }
+            }
+        }
+    }
+    
     private void parseEval(Properties bindings, String[] test)
     throws ParsingException {
         Evaluable eval = MetaParser.parse("grel:" + test[0]);
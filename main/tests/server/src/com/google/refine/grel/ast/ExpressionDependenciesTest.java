@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.grel.ast;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.expr.MetaParser;
+import com.google.refine.expr.ParsingException;
+
+public class ExpressionDependenciesTest {
+
+    protected boolean dependsOnCellOnly(String expression) throws ParsingException {
+        return ExpressionDependencies.dependsOnCellOnly(MetaParser.parse("grel:" + expression));
+    }
+
+    @Test
+    public void testCellOnlyExpressions() throws ParsingException {
+        String[] expressions = {
+                "value",
+                "value.toNumber() * 2",
+                "cell.recon.match.id",
+                "columnName + ':' + value",
+                "if(isBlank(value), 0, value.length())",
+                "forEach(value.split(','), v, v.toNumber())",
+                "forEachIndex(value.split(','), i, v, i + v)",
+                "filter(value.split(','), v, v != '')",
+                "forRange(0, value.length(), 1, i, value[i])",
+                "with(value, row, row.length())",
+                "get(value.split(','), 0)",
+                // folded into a constant
+                "'a'.toUppercase() + value",
+                // shared between both occurrences
+                "value.trim() + value.trim()",
+        };
+        for (String expression : expressions) {
+            assertTrue(dependsOnCellOnly(expression), expression);
+        }
+    }
+
+    @Test
+    public void testContextDependentExpressions() throws ParsingException {
+        String[] expressions = {
+                "row.index",
+                "rowIndex + value",
+                "if(row.index % 2 == 0, value, 0)",
+                "cells['a'].value",
+                "recon.match.id",
+                "record.cells",
+                "project",
+                "row.index + row.index",
+                "forEach(cells, c, c)",
+                "forEach(value.split(','), v, row)",
+                "with(row, v, value)",
+                "cross(value, 'p', 'c')",
+                "facetCount(value, 'value', 'a')",
+                "value.reinterpret('utf-8')",
+                "now()",
+                "randomNumber(0, 10)",
+        };
+        for (String expression : expressions) {
+            assertFalse(dependsOnCellOnly(expression), expression);
+        }
+    }
+}
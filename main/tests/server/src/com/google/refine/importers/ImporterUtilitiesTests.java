@@ -38,6 +38,11 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -69,6 +74,43 @@ public class ImporterUtilitiesTests extends RefineTest {
         Assert.assertEquals(response, END_QUOTES_SHOULD_BE_RETAINED);
     }
 
+    @Test
+    public void parseCellValueMatchesPlainParsing(){
+        String[] corpus = new String[] {
+            "", " ", "a", "abc", "12", " 12 ", "+12", "-12", "+", "-", "012",
+            "9223372036854775807", "9223372036854775808", "-9223372036854775809",
+            "1.5", "-1.5", ".5", "5.", "1e10", "1E-3", "1e400", "-1e400", "1.5f", "2d", "2D",
+            "0x1p3", "0x1.8p1", "0x10", "NaN", "-Infinity", "Infinity", "1,000", "1 000",
+            "12abc", "abc12", "1-2", "--1", "1_000", "\u0661\u0662", "\u0661.5", "12\u00a0",
+            "2010-05-26", "e5", "f", "0xp3", "1.2.3", "Fun", "Dead"
+        };
+        for (String text : corpus) {
+            Assert.assertEquals(ImporterUtilities.parseCellValue(text), parseCellValueByTrial(text), text);
+        }
+    }
+
+    /**
+     * Straightforward parsing by trial and error, which
+     * ImporterUtilities.parseCellValue must always agree with.
+     */
+    private static Serializable parseCellValueByTrial(String text) {
+        String text2 = text.trim();
+        if (text2.length() > 0) {
+            try {
+                return Long.parseLong(text2);
+            } catch (NumberFormatException e) {
+            }
+            try {
+                double d = Double.parseDouble(text2);
+                if (!Double.isInfinite(d) && !Double.isNaN(d)) {
+                    return d;
+                }
+            } catch (NumberFormatException e) {
+            }
+        }
+        return text;
+    }
+
     @Test
     public void getIntegerOption(){
         Properties options = mock(Properties.class);
@@ -180,4 +222,37 @@ public class ImporterUtilitiesTests extends RefineTest {
         Assert.assertEquals(c1.getName(), "Column 2");
         Assert.assertEquals(newColumnNames.size(), 2);
     }
+
+    @Test
+    public void testSampleBlocksSpreadAcrossFile() throws IOException {
+        File file = File.createTempFile("sample", ".csv");
+        file.deleteOnExit();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append("line ").append(i).append(",value\n");
+        }
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        
+        List<String> blocks = ImporterUtilities.sampleBlocks(file, "UTF-8");
+        Assert.assertEquals(blocks.size(), 4);
+        Assert.assertTrue(blocks.get(0).startsWith("line 0,value\n"));
+        // the last block is read from the end of the file
+        Assert.assertTrue(Integer.parseInt(blocks.get(3).substring(5, blocks.get(3).indexOf(','))) > 19000);
+        for (String block : blocks) {
+            // only whole lines are sampled
+            Assert.assertTrue(block.matches("(line \\d+,value\n){1,25}"), block);
+        }
+        Assert.assertEquals(SeparatorBasedImporter.guessSeparator(file, "UTF-8").separator, ',');
+    }
+    
+    @Test
+    public void testSampleBlocksOfSmallFile() throws IOException {
+        File file = File.createTempFile("sample", ".csv");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "a,b\nc,d".getBytes(StandardCharsets.UTF_8));
+        
+        List<String> blocks = ImporterUtilities.sampleBlocks(file, "UTF-8");
+        Assert.assertEquals(blocks.size(), 1);
+        Assert.assertEquals(blocks.get(0), "a,b\nc,d");
+    }
 }
@@ -34,6 +34,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.importers;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -41,6 +42,8 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
+import org.mockito.Mockito;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
@@ -58,6 +61,7 @@ import com.google.refine.importing.ImportingJob;
 import com.google.refine.model.Row;
 import com.google.refine.util.JSONUtilities;
 import com.google.refine.util.ParsingUtilities;
+import com.google.refine.util.TestUtils;
 
 import com.google.refine.importers.tree.ImportColumnGroup;
 
@@ -463,6 +467,65 @@ public class JsonImporterTests extends ImporterTest {
         assertProjectCreated(project, 63, 63, 8);
     }   
     
+    @Test
+    public void testJsonLines() {
+        ObjectNode options = getOptions(job, SUT, JsonImporter.ANONYMOUS, false);
+        JSONUtilities.safePut(options, "jsonLines", true);
+        RunTest(getJsonLinesSample(), options);
+
+        log(project);
+        assertProjectCreated(project, 4, 6);
+
+        Row row = project.rows.get(5);
+        Assert.assertNotNull(row);
+        Assert.assertEquals(row.getCell(1).value, "Author 6, The");
+    }
+
+    @Test
+    public void testJsonLinesWithLimit() {
+        ObjectNode options = getOptions(job, SUT, JsonImporter.ANONYMOUS, false);
+        JSONUtilities.safePut(options, "jsonLines", true);
+        JSONUtilities.safePut(options, "limit", 2);
+        RunTest(getJsonLinesSample(), options);
+
+        assertProjectCreated(project, 4, 2);
+    }
+
+    @Test
+    public void testJsonLinesDetectedInPreview() throws IOException {
+        File dir = TestUtils.createTempDirectory("openrefine-json-preview-test");
+        Mockito.when(job.getRawDataDir()).thenReturn(dir);
+        File file = new File(dir, "sample.jsonl");
+        FileUtils.writeStringToFile(file, getJsonLinesSample(), "UTF-8");
+        ObjectNode fileRecord = ParsingUtilities.mapper.createObjectNode();
+        JSONUtilities.safePut(fileRecord, "location", "sample.jsonl");
+        List<ObjectNode> fileRecords = new ArrayList<>();
+        fileRecords.add(fileRecord);
+
+        ObjectNode options = SUT.createParserUIInitializationData(job, fileRecords, "text/json");
+
+        Assert.assertTrue(JSONUtilities.getBoolean(options, "jsonLines", false));
+        Assert.assertTrue(options.get("dom").isArray());
+        Assert.assertEquals(options.get("dom").size(), 6);
+    }
+
+    @Test
+    public void testJsonArrayNotDetectedAsJsonLines() throws IOException {
+        File dir = TestUtils.createTempDirectory("openrefine-json-preview-test");
+        Mockito.when(job.getRawDataDir()).thenReturn(dir);
+        File file = new File(dir, "sample.json");
+        FileUtils.writeStringToFile(file, getSample(), "UTF-8");
+        ObjectNode fileRecord = ParsingUtilities.mapper.createObjectNode();
+        JSONUtilities.safePut(fileRecord, "location", "sample.json");
+        List<ObjectNode> fileRecords = new ArrayList<>();
+        fileRecords.add(fileRecord);
+
+        ObjectNode options = SUT.createParserUIInitializationData(job, fileRecords, "text/json");
+
+        Assert.assertFalse(JSONUtilities.getBoolean(options, "jsonLines", true));
+        Assert.assertEquals(options.get("dom").size(), 6);
+    }
+
     //------------helper methods---------------
 
     private static String getTypicalElement(int id){
@@ -497,6 +560,15 @@ public class JsonImporterTests extends ImporterTest {
         return sb.toString();
     }
     
+    static String getJsonLinesSample(){
+        StringBuilder sb = new StringBuilder();
+        for(int i = 1; i < 7; i++){
+            sb.append(getTypicalElement(i));
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+    
     private static ObjectNode getOptions(ImportingJob job, TreeImportingParserBase parser, String pathSelector, boolean trimStrings) {
         ObjectNode options = parser.createParserUIInitializationData(
                 job, new LinkedList<>(), "text/json");
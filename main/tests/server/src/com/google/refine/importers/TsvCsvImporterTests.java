@@ -33,7 +33,16 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.importers;
 
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
 
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -43,8 +52,13 @@ import org.testng.annotations.BeforeTest;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.refine.ProjectMetadata;
 import com.google.refine.importers.SeparatorBasedImporter;
+import com.google.refine.model.Project;
+import com.google.refine.util.JSONUtilities;
 import com.google.refine.util.ParsingUtilities;
+import com.google.refine.util.TestUtils;
 
 public class TsvCsvImporterTests extends ImporterTest {
 
@@ -593,6 +607,93 @@ public class TsvCsvImporterTests extends ImporterTest {
         Assert.assertEquals(project.rows.get(0).cells.get(2).value, "data3");
     }
     
+    @Test
+    public void previewReusesRowsWhenOnlyTableOptionsChange() throws IOException {
+        File dir = TestUtils.createTempDirectory("openrefine-preview-test");
+        when(job.getRawDataDir()).thenReturn(dir);
+        File file = new File(dir, "data.csv");
+        FileUtils.writeStringToFile(file, "a,b\n1,2\n3,4\n5,6\n", "UTF-8");
+        List<ObjectNode> fileRecords = getFileRecords("data.csv");
+        ObjectNode options = SUT.createParserUIInitializationData(job, fileRecords, "text/line-based/*sv");
+        JSONUtilities.safePut(options, "separator", ",");
+        List<Exception> exceptions = new ArrayList<Exception>();
+
+        SUT.parse(project, metadata, job, fileRecords, "text/line-based/*sv", 100, options, exceptions);
+        Assert.assertEquals(project.rows.size(), 3);
+
+        // the file is not read again for a preview which only changes table options
+        file.delete();
+        Project project2 = new Project();
+        ObjectNode options2 = options.deepCopy();
+        JSONUtilities.safePut(options2, "headerLines", 0);
+        JSONUtilities.safePut(options2, "skipDataLines", 1);
+        SUT.parse(project2, new ProjectMetadata(), job, fileRecords, "text/line-based/*sv", 100, options2, exceptions);
+        Assert.assertEquals(exceptions.size(), 0);
+        Assert.assertEquals(project2.rows.size(), 3);
+        Assert.assertEquals(project2.rows.get(0).getCellValue(0), "1");
+        Assert.assertEquals(project2.columnModel.columns.get(0).getName(), "Column 1");
+
+        // but it is for one which changes how the file is parsed
+        ObjectNode options3 = options.deepCopy();
+        JSONUtilities.safePut(options3, "separator", "\\t");
+        SUT.parse(new Project(), new ProjectMetadata(), job, fileRecords, "text/line-based/*sv", 100, options3, exceptions);
+        Assert.assertEquals(exceptions.size(), 1);
+    }
+
+    @Test
+    public void previewReusesRowsOfSeveralParsingOptions() throws IOException {
+        File dir = TestUtils.createTempDirectory("openrefine-preview-test");
+        when(job.getRawDataDir()).thenReturn(dir);
+        File file = new File(dir, "data.csv");
+        FileUtils.writeStringToFile(file, "a,b\tc\n1,2\t3\n", "UTF-8");
+        List<ObjectNode> fileRecords = getFileRecords("data.csv");
+        ObjectNode commas = SUT.createParserUIInitializationData(job, fileRecords, "text/line-based/*sv");
+        JSONUtilities.safePut(commas, "separator", ",");
+        ObjectNode tabs = commas.deepCopy();
+        JSONUtilities.safePut(tabs, "separator", "\\t");
+        List<Exception> exceptions = new ArrayList<Exception>();
+
+        SUT.parse(new Project(), new ProjectMetadata(), job, fileRecords, "text/line-based/*sv", 100, commas, exceptions);
+        SUT.parse(new Project(), new ProjectMetadata(), job, fileRecords, "text/line-based/*sv", 100, tabs, exceptions);
+
+        // switching back and forth between both options does not read the file again
+        file.delete();
+        Project project2 = new Project();
+        SUT.parse(project2, new ProjectMetadata(), job, fileRecords, "text/line-based/*sv", 100, commas, exceptions);
+        Project project3 = new Project();
+        SUT.parse(project3, new ProjectMetadata(), job, fileRecords, "text/line-based/*sv", 100, tabs, exceptions);
+        Assert.assertEquals(exceptions.size(), 0);
+        Assert.assertEquals(project2.rows.get(0).getCellValue(1), "2\t3");
+        Assert.assertEquals(project3.rows.get(0).getCellValue(0), "1,2");
+    }
+
+    @Test
+    public void previewReadsFileAgainWhenSampleIsTooShort() throws IOException {
+        File dir = TestUtils.createTempDirectory("openrefine-preview-test");
+        when(job.getRawDataDir()).thenReturn(dir);
+        StringBuffer sb = new StringBuffer("a,b\n");
+        for (int i = 0; i < 400; i++) {
+            sb.append(i).append(",x\n");
+        }
+        FileUtils.writeStringToFile(new File(dir, "data.csv"), sb.toString(), "UTF-8");
+        List<ObjectNode> fileRecords = getFileRecords("data.csv");
+        ObjectNode options = SUT.createParserUIInitializationData(job, fileRecords, "text/line-based/*sv");
+        JSONUtilities.safePut(options, "separator", ",");
+        List<Exception> exceptions = new ArrayList<Exception>();
+
+        SUT.parse(project, metadata, job, fileRecords, "text/line-based/*sv", 100, options, exceptions);
+        Assert.assertEquals(project.rows.size(), 100);
+
+        Project project2 = new Project();
+        ObjectNode options2 = options.deepCopy();
+        JSONUtilities.safePut(options2, "skipDataLines", 250);
+        SUT.parse(project2, new ProjectMetadata(), job, fileRecords, "text/line-based/*sv", 100, options2, exceptions);
+        Assert.assertEquals(exceptions.size(), 0);
+        Assert.assertEquals(project2.rows.size(), 100);
+        Assert.assertEquals(project2.rows.get(0).getCellValue(0), "250");
+        Assert.assertEquals(project2.rows.get(99).getCellValue(0), "349");
+    }
+
     //---------------------read tests------------------------
     @Test
     public void readCsvWithProperties() {
@@ -671,6 +772,13 @@ public class TsvCsvImporterTests extends ImporterTest {
         whenGetBooleanOption("trimStrings", options, trimStrings);
     }
     
+    private static List<ObjectNode> getFileRecords(String location) {
+        ObjectNode fileRecord = ParsingUtilities.mapper.createObjectNode();
+        JSONUtilities.safePut(fileRecord, "location", location);
+        JSONUtilities.safePut(fileRecord, "fileName", location);
+        return Collections.singletonList(fileRecord);
+    }
+
     protected void prepareOptions(
             String sep, int limit, int skip, int ignoreLines,
             int headerLines, boolean guessValueType, boolean ignoreQuotes, String quoteCharacter, String columnNames) {
@@ -27,9 +27,15 @@
 package com.google.refine.importing;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.io.FileUtils;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -71,6 +77,42 @@ public class ImportingUtilitiesTests extends ImporterTest {
     	ImportingUtilities.allocateFile(tempDir, "../../tmp/script.sh");
     }
     
+    @Test
+    public void testUncompressGzipFileReportsProgress() throws IOException {
+        File tempDir = TestUtils.createTempDirectory("openrefine-gzip-test");
+        File file = new File(tempDir, "data.csv.gz");
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < 10000; i++) {
+            sb.append(i).append(",row ").append(i).append('\n');
+        }
+        try (OutputStream os = new GZIPOutputStream(new FileOutputStream(file))) {
+            os.write(sb.toString().getBytes("UTF-8"));
+        }
+        ObjectNode fileRecord = ParsingUtilities.mapper.createObjectNode();
+        JSONUtilities.safePut(fileRecord, "fileName", "data.csv.gz");
+        JSONUtilities.safePut(fileRecord, "location", "data.csv.gz");
+        ArrayNode fileRecords = ParsingUtilities.mapper.createArrayNode();
+        final List<Integer> percents = new ArrayList<>();
+
+        boolean archive = ImportingUtilities.postProcessRetrievedFile(tempDir, file, fileRecord, fileRecords,
+            new ImportingUtilities.Progress() {
+                @Override
+                public void setProgress(String message, int percent) {
+                    percents.add(percent);
+                }
+                @Override
+                public boolean isCanceled() {
+                    return false;
+                }
+            });
+
+        Assert.assertFalse(archive);
+        Assert.assertFalse(file.exists());
+        Assert.assertEquals(JSONUtilities.getString(fileRecord, "location", null), "data.csv");
+        Assert.assertEquals(FileUtils.readFileToString(new File(tempDir, "data.csv"), "UTF-8"), sb.toString());
+        Assert.assertTrue(percents.contains(100));
+    }
+
     private ObjectNode getNestedOptions(ImportingJob job, TreeImportingParserBase parser) {
         ObjectNode options = parser.createParserUIInitializationData(
                 job, new LinkedList<>(), "text/json");
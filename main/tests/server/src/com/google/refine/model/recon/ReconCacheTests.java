@@ -0,0 +1,70 @@
+package com.google.refine.model.recon;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.util.TestUtils;
+
+public class ReconCacheTests {
+
+    @Test
+    public void testGetAndPut() {
+        ReconCache cache = new ReconCache(null, 3600000L, 10);
+        assertNull(cache.get("http://service", "{\"query\":\"a\"}"));
+        cache.put("http://service", "{\"query\":\"a\"}", "[]");
+        assertEquals(cache.get("http://service", "{\"query\":\"a\"}"), "[]");
+        assertNull(cache.get("http://other", "{\"query\":\"a\"}"));
+    }
+
+    @Test
+    public void testExpiredEntriesAreIgnored() {
+        ReconCache cache = new ReconCache(null, -1L, 10);
+        cache.put("http://service", "q", "[]");
+        assertNull(cache.get("http://service", "q"));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        ReconCache cache = new ReconCache(null, 3600000L, 2);
+        cache.put("s", "a", "1");
+        cache.put("s", "b", "2");
+        cache.get("s", "a");
+        cache.put("s", "c", "3");
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.get("s", "a"), "1");
+        assertNull(cache.get("s", "b"));
+        assertEquals(cache.get("s", "c"), "3");
+    }
+
+    @Test
+    public void testInvalidateService() {
+        ReconCache cache = new ReconCache(null, 3600000L, 10);
+        cache.put("s1", "a", "1");
+        cache.put("s1", "b", "2");
+        cache.put("s2", "a", "3");
+        assertEquals(cache.invalidate("s1"), 2);
+        assertNull(cache.get("s1", "a"));
+        assertEquals(cache.get("s2", "a"), "3");
+        assertEquals(cache.invalidateAll(), 1);
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testSaveAndReload() throws IOException {
+        File dir = TestUtils.createTempDirectory("recon-cache");
+        File file = new File(dir, ReconCache.FILE_NAME);
+        ReconCache cache = new ReconCache(file, 3600000L, 10);
+        cache.put("s", "{\"query\":\"a\nb\"}", "[{\"id\":\"Q1\"}]");
+        cache.save();
+
+        ReconCache reloaded = new ReconCache(file, 3600000L, 10);
+        assertEquals(reloaded.get("s", "{\"query\":\"a\nb\"}"), "[{\"id\":\"Q1\"}]");
+        assertEquals(reloaded.size(), 1);
+    }
+}
@@ -356,4 +356,36 @@ public class StandardReconConfigTests extends RefineTest {
     	stub.computeFeatures(recon, null);
     	assertNotNull(recon.features);
     }
+    
+    @Test
+    public void testGetCachedRecon() throws Exception {
+        ReconCache.setInstance(new ReconCache(null, 3600000L, 100));
+        try {
+            String json = "{\"mode\":\"standard-service\","
+                    + "\"service\":\"http://my.service.com/api\","
+                    + "\"identifierSpace\":\"http://www.wikidata.org/entity/\","
+                    + "\"schemaSpace\":\"http://www.wikidata.org/prop/direct/\","
+                    + "\"type\":{\"id\":\"Q5\",\"name\":\"human\"},"
+                    + "\"autoMatch\":true,"
+                    + "\"columnDetails\":[]}";
+            StandardReconConfig config = StandardReconConfig.reconstruct(json);
+            ReconJob job = config.createSimpleJob("Douglas Adams");
+            assertNull(config.getCachedRecon(job, 1234L));
+            
+            ReconCache.getInstance().put("http://my.service.com/api", ((StandardReconConfig.StandardReconJob) job).code,
+                    "[{\"id\":\"Q42\",\"name\":\"Douglas Adams\",\"score\":100,\"match\":true,\"type\":[]}]");
+            Recon recon = config.getCachedRecon(job, 1234L);
+            assertNotNull(recon);
+            assertEquals(recon.judgmentHistoryEntry, 1234L);
+            assertEquals(recon.judgment, Recon.Judgment.Matched);
+            assertEquals(recon.match.id, "Q42");
+            assertEquals(recon.service, "http://my.service.com/api");
+            
+            // other services do not see these results
+            StandardReconConfig other = StandardReconConfig.reconstruct(json.replace("my.service.com", "other.service.com"));
+            assertNull(other.getCachedRecon(other.createSimpleJob("Douglas Adams"), 1234L));
+        } finally {
+            ReconCache.setInstance(null);
+        }
+    }
 }
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.operations.cell;
+
+import java.util.Properties;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Test;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.model.AbstractOperation;
+import com.google.refine.model.Project;
+import com.google.refine.operations.OnError;
+import com.google.refine.operations.OperationRegistry;
+import com.google.refine.process.Process;
+import com.google.refine.util.ParsingUtilities;
+import com.google.refine.util.TestUtils;
+
+public class TextTransformOperationTests extends RefineTest {
+
+    static final int ROW_COUNT = 20000;
+
+    Project project = null;
+
+    @BeforeSuite
+    public void registerOperation() {
+        OperationRegistry.registerOperation(getCoreModule(), "text-transform", TextTransformOperation.class);
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        StringBuilder sb = new StringBuilder("key,value\n");
+        for (int i = 0; i < ROW_COUNT; i++) {
+            sb.append(i % 3 == 0 ? "skip" : "v" + i).append(',').append(i).append('\n');
+        }
+        project = createCSVProject(sb.toString());
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        ProjectManager.singleton.deleteProject(project.id);
+    }
+
+    @Test
+    public void serializeTextTransformOperation() throws Exception {
+        String json = "{\"op\":\"core/text-transform\","
+                + "\"description\":\"Text transform on cells in column key using expression grel:value.toUppercase()\","
+                + "\"engineConfig\":{\"mode\":\"row-based\",\"facets\":[]},"
+                + "\"columnName\":\"key\",\"expression\":\"grel:value.toUppercase()\","
+                + "\"onError\":\"keep-original\",\"repeat\":false,\"repeatCount\":10}";
+        TestUtils.isSerializedTo(ParsingUtilities.mapper.readValue(json, TextTransformOperation.class), json);
+    }
+
+    @Test
+    public void testTransformManyRows() throws Exception {
+        AbstractOperation op = new TextTransformOperation(
+                EngineConfig.reconstruct("{\"mode\":\"row-based\",\"facets\":[]}"),
+                "key",
+                "grel:if(value == \"skip\", value, value + \"-\" + rowIndex)",
+                OnError.KeepOriginal,
+                false, 0);
+        Process process = op.createProcess(project, new Properties());
+        process.performImmediate();
+
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Assert.assertEquals(project.rows.get(i).cells.get(0).value, i % 3 == 0 ? "skip" : "v" + i + "-" + i);
+        }
+        // only the changed cells are recorded
+        int changed = ROW_COUNT - (ROW_COUNT + 2) / 3;
+        Assert.assertTrue(project.history.getLastPastEntries(1).get(0).description
+                .startsWith("Text transform on " + changed + " cells"));
+        project.history.undoRedo(0);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Assert.assertEquals(project.rows.get(i).cells.get(0).value, i % 3 == 0 ? "skip" : "v" + i);
+        }
+    }
+}
@@ -34,10 +34,15 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.operations.column;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -62,7 +67,9 @@ import com.google.refine.operations.column.ColumnAdditionByFetchingURLsOperation
 import com.google.refine.process.Process;
 import com.google.refine.process.ProcessManager;
 import com.google.refine.util.ParsingUtilities;
+import com.google.refine.util.HttpResponseCache;
 import com.google.refine.util.TestUtils;
+import com.sun.net.httpserver.HttpServer;
 
 
 public class ColumnAdditionByFetchingURLsOperationTests extends RefineTest {
@@ -298,4 +305,144 @@ public class ColumnAdditionByFetchingURLsOperationTests extends RefineTest {
         Assert.assertEquals(headersUsed.get("accept").asText(), acceptValue);
     }
 
+    @Test
+    public void serializeWithConcurrency() throws Exception {
+        String concurrentJson = json.substring(0, json.length() - 1)
+                + ",\"concurrency\":4,\"maxRequestsPerHost\":2}";
+        TestUtils.isSerializedTo(ParsingUtilities.mapper.readValue(concurrentJson, ColumnAdditionByFetchingURLsOperation.class), concurrentJson);
+    }
+
+    /**
+     * Fetch from a local server which answers slowly, on two hosts
+     */
+    @Test
+    public void testConcurrentFetching() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        HttpServer server = startServer(running, maxRunning, new AtomicInteger());
+        try {
+            int port = server.getAddress().getPort();
+            for (int i = 0; i < 12; i++) {
+                Row row = new Row(2);
+                String host = i % 2 == 0 ? "localhost" : "127.0.0.1";
+                row.setCell(0, new Cell("http://" + host + ":" + port + "/" + (i == 5 ? "missing" : "row" + i), null));
+                project.rows.add(row);
+            }
+
+            EngineDependentOperation op = new ColumnAdditionByFetchingURLsOperation(engine_config,
+                    "fruits",
+                    "value",
+                    OnError.StoreError,
+                    "fetched",
+                    1,
+                    0,
+                    false,
+                    null,
+                    4,
+                    2);
+            Process process = op.createProcess(project, options);
+            process.startPerforming(project.getProcessManager());
+            long start = System.currentTimeMillis();
+            while (process.isRunning() && System.currentTimeMillis() - start < 20000) {
+                Thread.sleep(50);
+            }
+            Assert.assertFalse(process.isRunning());
+
+            int newCol = project.columnModel.getColumnByName("fetched").getCellIndex();
+            for (int i = 0; i < 12; i++) {
+                Object value = project.rows.get(i).getCellValue(newCol);
+                if (i == 5) {
+                    Assert.assertTrue(ExpressionUtils.isError(value));
+                } else {
+                    Assert.assertEquals(value, "row" + i);
+                }
+            }
+            Assert.assertTrue(maxRunning.get() > 1);
+            Assert.assertTrue(maxRunning.get() <= 4);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Responses kept in the workspace are reused when the operation is applied again
+     */
+    @Test
+    public void testResponsesAreReusedAcrossRuns() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(new AtomicInteger(), new AtomicInteger(), requests);
+        HttpResponseCache.setInstance(new HttpResponseCache(
+                TestUtils.createTempDirectory("url-cache"), 3600000L, 1024 * 1024));
+        try {
+            int port = server.getAddress().getPort();
+            for (int i = 0; i < 4; i++) {
+                Row row = new Row(2);
+                row.setCell(0, new Cell("http://localhost:" + port + "/row" + i, null));
+                project.rows.add(row);
+            }
+            runFetch("first");
+            Assert.assertEquals(requests.get(), 4);
+
+            Row row = new Row(2);
+            row.setCell(0, new Cell("http://localhost:" + port + "/row4", null));
+            project.rows.add(row);
+            runFetch("second");
+            // only the new URL is fetched
+            Assert.assertEquals(requests.get(), 5);
+            int newCol = project.columnModel.getColumnByName("second").getCellIndex();
+            for (int i = 0; i < 5; i++) {
+                Assert.assertEquals(project.rows.get(i).getCellValue(newCol), "row" + i);
+            }
+        } finally {
+            HttpResponseCache.setInstance(null);
+            server.stop(0);
+        }
+    }
+
+    private void runFetch(String columnName) throws Exception {
+        EngineDependentOperation op = new ColumnAdditionByFetchingURLsOperation(engine_config,
+                "fruits",
+                "value",
+                OnError.StoreError,
+                columnName,
+                1,
+                0,
+                true,
+                null);
+        Process process = op.createProcess(project, options);
+        process.startPerforming(project.getProcessManager());
+        long start = System.currentTimeMillis();
+        while (process.isRunning() && System.currentTimeMillis() - start < 20000) {
+            Thread.sleep(50);
+        }
+        Assert.assertFalse(process.isRunning());
+    }
+
+    /**
+     * Starts a local server which answers slowly with the path of the request,
+     * or with a 404 error for "/missing".
+     */
+    private HttpServer startServer(AtomicInteger running, AtomicInteger maxRunning, AtomicInteger requests) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            byte[] body = exchange.getRequestURI().getPath().substring(1).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(exchange.getRequestURI().getPath().equals("/missing") ? 404 : 200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
 }
@@ -33,6 +33,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.operations.recon;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -49,9 +50,11 @@ import java.util.Properties;
 import java.util.Set;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -61,6 +64,7 @@ import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.refine.ProjectManager;
 import com.google.refine.RefineTest;
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.EngineConfig;
@@ -80,6 +84,8 @@ import com.google.refine.util.ParsingUtilities;
 import com.google.refine.util.TestUtils;
 
 @PrepareForTest(ReconciledDataExtensionJob.class)
+// the SSL context of the real HTTP client cannot be loaded by the mocking class loader
+@PowerMockIgnore("javax.net.ssl.*")
 public class ExtendDataOperationTests extends RefineTest {
 
     static final String ENGINE_JSON_URLS = "{\"mode\":\"row-based\"}}";
@@ -232,10 +238,10 @@ public class ExtendDataOperationTests extends RefineTest {
     	Answer<InputStream> mockedResponse = new Answer<InputStream>() {
 			@Override
 			public InputStream answer(InvocationOnMock invocation) throws Throwable {
-				return fakeHttpCall(invocation.getArgument(0), invocation.getArgument(1));
+				return fakeHttpCall(invocation.getArgument(1), invocation.getArgument(2));
 			}
     	};
-    	PowerMockito.doAnswer(mockedResponse).when(ReconciledDataExtensionJob.class, "performQuery", anyString(), anyString());
+    	PowerMockito.doAnswer(mockedResponse).when(ReconciledDataExtensionJob.class, "performQuery", any(CloseableHttpClient.class), anyString(), anyString());
     }
     
     @AfterMethod
@@ -243,6 +249,16 @@ public class ExtendDataOperationTests extends RefineTest {
     	mockedResponses.clear();
     }
 
+    @Test
+    public void testConcurrentBatchesHaveTheirOwnPreference() throws Exception {
+        ProjectManager.singleton.getPreferenceStore().put("reconciliation.concurrentBatches", 5);
+        ProjectManager.singleton.getPreferenceStore().put("dataExtension.concurrentBatches", 3);
+        DataExtensionConfig extension = DataExtensionConfig.reconstruct("{\"properties\":[{\"id\":\"P297\"}]}");
+        ReconciledDataExtensionJob job = new ReconciledDataExtensionJob(extension, RECON_SERVICE);
+        Assert.assertEquals(job.getMaxConcurrentBatches(), 3);
+        job.close();
+    }
+
     @Test
     public void testFetchStrings() throws Exception {
   
@@ -405,6 +421,58 @@ public class ExtendDataOperationTests extends RefineTest {
         Assert.assertTrue(project.columnModel.getColumnByName("currency").getReconStats().matchedTopics == 5);
     }
     
+    /**
+     * Entities matched in several rows are fetched once, and records are
+     * reused when extending again with the same properties
+     */
+    @Test
+    public void testFetchDeduplicatedAndCached() throws Exception {
+        Row row = new Row(2);
+        row.setCell(0, reconciledCell("Japan", "Q17"));
+        project.rows.add(row);
+
+        DataExtensionConfig extension = DataExtensionConfig.reconstruct("{\"properties\":[{\"id\":\"P36\",\"name\":\"capital\"}]}");
+        mockHttpCall("{\"ids\":[\"Q863\",\"Q794\",\"Q17\",\"Q30\"],\"properties\":[{\"id\":\"P36\"}]}",
+                "{"
+              + "\"rows\": {"
+              + "    \"Q794\": {\"P36\": [{\"str\": \"Tehran\"}]},"
+              + "    \"Q863\": {\"P36\": [{\"str\": \"Dushanbe\"}]},"
+              + "    \"Q30\": {\"P36\": [{\"str\": \"Washington, D.C.\"}]},"
+              + "    \"Q17\": {\"P36\": [{\"str\": \"Tokyo\"}]}"
+              + "},"
+              + "\"meta\": ["
+              + "   {\"name\": \"capital\", \"id\": \"P36\"}"
+              + "]}");
+
+        EngineDependentOperation op = new ExtendDataOperation(engine_config,
+                "country",
+                RECON_SERVICE,
+                RECON_IDENTIFIER_SPACE,
+                RECON_SCHEMA_SPACE,
+                extension,
+                1);
+        LongRunningProcessStub process = new LongRunningProcessStub(op.createProcess(project, options));
+        process.run();
+        Assert.assertEquals(project.rows.get(1).getCellValue(1), "Tokyo");
+        Assert.assertEquals(project.rows.get(4).getCellValue(1), "Tokyo");
+
+        // the service is not queried again
+        mockedResponses.clear();
+        op = new ExtendDataOperation(engine_config,
+                "country",
+                RECON_SERVICE,
+                RECON_IDENTIFIER_SPACE,
+                RECON_SCHEMA_SPACE,
+                extension,
+                1);
+        process = new LongRunningProcessStub(op.createProcess(project, options));
+        process.run();
+        int newCol = project.columnModel.columns.get(1).getCellIndex();
+        Assert.assertEquals(newCol, 2);
+        Assert.assertEquals(project.rows.get(0).getCellValue(newCol), "Tehran");
+        Assert.assertEquals(project.rows.get(4).getCellValue(newCol), "Tokyo");
+    }
+
     private void mockHttpCall(String query, String response) throws IOException {
     	mockedResponses.put(ParsingUtilities.mapper.readTree(query), response);
     }
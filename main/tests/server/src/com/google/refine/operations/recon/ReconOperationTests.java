@@ -28,14 +28,26 @@ package com.google.refine.operations.recon;
 
 import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.testng.Assert;
 import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Test;
 
 import com.google.refine.RefineTest;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
+import com.google.refine.model.Recon;
+import com.google.refine.model.Row;
 import com.google.refine.model.recon.ReconConfig;
+import com.google.refine.model.recon.ReconJob;
 import com.google.refine.model.recon.StandardReconConfig;
 import com.google.refine.operations.OperationRegistry;
 import com.google.refine.operations.recon.ReconOperation;
@@ -108,4 +120,107 @@ public class ReconOperationTests extends RefineTest {
         com.google.refine.process.Process process = op.createProcess(project, new Properties());
         TestUtils.isSerializedTo(process, String.format(processJson, process.hashCode()));
     }
+    
+    @Test
+    public void reconcileWithConcurrentBatches() throws Exception {
+        StringBuilder csv = new StringBuilder("name\n");
+        for (int i = 0; i < 60; i++) {
+            csv.append("v").append(i % 40).append("\n");
+        }
+        Project project = createCSVProject(csv.toString());
+        
+        FlakyReconConfig config = new FlakyReconConfig();
+        ReconOperation op = new ReconOperation(EngineConfig.reconstruct("{\"mode\":\"row-based\",\"facets\":[]}"), "name", config);
+        ReconOperation.ReconProcess process = (ReconOperation.ReconProcess) op.createProcess(project, new Properties());
+        process.run();
+        
+        Assert.assertEquals(project.history.getLastPastEntries(1).size(), 1);
+        for (Row row : project.rows) {
+            Cell cell = row.getCell(0);
+            Assert.assertNotNull(cell.recon);
+            if ("v13".equals(cell.value)) {
+                // failed three times, so a blank recon is used
+                Assert.assertEquals(config.calls.get("v13").get(), 3);
+                Assert.assertEquals(cell.recon.judgmentAction, "unknown");
+            } else {
+                Assert.assertEquals(cell.recon.judgmentAction, cell.value);
+            }
+        }
+        // retried jobs succeed on their second trial
+        Assert.assertEquals(config.calls.get("v7").get(), 2);
+        // and are sent again after a delay which grows with each failure
+        List<Long> times = config.callTimes.get("v13");
+        Assert.assertTrue(times.get(1) - times.get(0) >= ReconOperation.RETRY_DELAY_MS);
+        Assert.assertTrue(times.get(2) - times.get(1) >= 2 * ReconOperation.RETRY_DELAY_MS);
+        Assert.assertEquals(config.calls.get("v1").get(), 1);
+        // duplicate values are only reconciled once and share their recon
+        Assert.assertSame(project.rows.get(0).getCell(0).recon, project.rows.get(40).getCell(0).recon);
+        Assert.assertEquals(project.rows.get(0).getCell(0).recon.judgmentBatchSize, 2);
+    }
+    
+    private static class FlakyReconConfig extends ReconConfig {
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        final Map<String, List<Long>> callTimes = new ConcurrentHashMap<>();
+        
+        private static class TextJob extends ReconJob {
+            final String text;
+            
+            TextJob(String text) {
+                this.text = text;
+            }
+            
+            @Override
+            public String getStringKey() {
+                return text;
+            }
+        }
+        
+        @Override
+        public int getBatchSize() {
+            return 3;
+        }
+        
+        @Override
+        public int getMaxConcurrentBatches() {
+            return 4;
+        }
+        
+        @Override
+        public String getBriefDescription(Project project, String columnName) {
+            return "test";
+        }
+        
+        @Override
+        public ReconJob createJob(Project project, int rowIndex, Row row, String columnName, Cell cell) {
+            return new TextJob(cell.value.toString());
+        }
+        
+        @Override
+        public List<Recon> batchRecon(List<ReconJob> jobs, long historyEntryID) {
+            List<Recon> recons = new ArrayList<>();
+            for (ReconJob job : jobs) {
+                String text = ((TextJob) job).text;
+                int trial = calls.computeIfAbsent(text, k -> new AtomicInteger()).incrementAndGet();
+                callTimes.computeIfAbsent(text, k -> new CopyOnWriteArrayList<>()).add(System.currentTimeMillis());
+                if (text.equals("v13") || (text.endsWith("7") && trial == 1)) {
+                    recons.add(null);
+                } else {
+                    Recon recon = createNewRecon(historyEntryID);
+                    recon.judgmentAction = text;
+                    recons.add(recon);
+                }
+            }
+            return recons;
+        }
+        
+        @Override
+        public Recon createNewRecon(long historyEntryID) {
+            return new Recon(historyEntryID, null, null);
+        }
+        
+        @Override
+        public String getMode() {
+            return "test";
+        }
+    }
 }
@@ -89,6 +89,23 @@ public class RowReorderOperationTests extends RefineTest {
     }
 
    
+    @Test
+    public void testSortRecords() throws Exception {
+        String sortingJson = "{\"criteria\":[{\"column\":\"first\",\"valueType\":\"string\",\"reverse\":true,\"blankPosition\":2,\"errorPosition\":1}]}";
+        SortingConfig sortingConfig = SortingConfig.reconstruct(sortingJson);
+        AbstractOperation op = new RowReorderOperation(
+                Mode.RecordBased, sortingConfig
+                );
+        Process process = op.createProcess(project, new Properties());
+        process.performImmediate();
+        
+        // records are sorted by their greatest value, and keep their rows together
+        Assert.assertEquals("h", project.rows.get(0).cells.get(1).value);
+        Assert.assertEquals("f", project.rows.get(1).cells.get(1).value);
+        Assert.assertEquals("b", project.rows.get(2).cells.get(1).value);
+        Assert.assertEquals("d", project.rows.get(3).cells.get(1).value);
+    }
+    
     @Test
     public void serializeRowReorderOperation() throws Exception {
         String json = "  {\n" + 
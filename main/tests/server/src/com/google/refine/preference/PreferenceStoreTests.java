@@ -26,6 +26,7 @@
  ******************************************************************************/
 package com.google.refine.preference;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -69,4 +70,15 @@ public class PreferenceStoreTests {
         assertFalse(prefStore.isDirty());
     }
     
+    @Test
+    public void getIntPreference() {
+        PreferenceStore prefStore = new PreferenceStore();
+        prefStore.put("number", 12);
+        prefStore.put("string", " 34");
+        prefStore.put("invalid", "many");
+        assertEquals(prefStore.getInt("number", 1), 12);
+        assertEquals(prefStore.getInt("string", 1), 34);
+        assertEquals(prefStore.getInt("invalid", 1), 1);
+        assertEquals(prefStore.getInt("missing", 1), 1);
+    }
 }
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.sorting;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.browsing.RecordVisitor;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.model.Cell;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import com.google.refine.model.Row;
+
+public class IndexSorterTests extends RefineTest {
+
+    static final String[] WORDS = { "apple", "Apple", "banana", "Émile", "emile", "", "10", "9", "true" };
+
+    Project project;
+
+    @BeforeMethod
+    public void setUp() throws IOException, ModelException {
+        project = createProjectWithColumns("sorting", "key", "number", "text", "date");
+        Random random = new Random(42);
+        // more rows than sorted by a single thread
+        for (int i = 0; i < 3 * IndexSorter.SEQUENTIAL_THRESHOLD; i++) {
+            Row row = new Row(4);
+            if (random.nextInt(3) > 0) {
+                row.setCell(0, new Cell("k" + random.nextInt(100), null));
+            }
+            int n = random.nextInt(10);
+            if (n < 7) {
+                row.setCell(1, new Cell(random.nextInt(50), null));
+            } else if (n == 7) {
+                row.setCell(1, new Cell(random.nextInt(50) + ".5", null));
+            } else if (n == 8) {
+                row.setCell(1, new Cell("not a number", null));
+            }
+            String word = WORDS[random.nextInt(WORDS.length + 1) % WORDS.length];
+            if (random.nextInt(10) > 0) {
+                row.setCell(2, new Cell(word, null));
+            }
+            n = random.nextInt(10);
+            if (n < 8) {
+                row.setCell(3, new Cell(OffsetDateTime.of(2000 + random.nextInt(5), 1, 1, 0, 0, 0,
+                        random.nextInt(3) * 1000, ZoneOffset.UTC), null));
+            } else if (n == 8) {
+                row.setCell(3, new Cell("not a date", null));
+            }
+            project.rows.add(row);
+        }
+        project.update();
+        SortingCache.getInstance().clear();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        SortingCache.getInstance().clear();
+    }
+
+    protected SortingConfig makeConfig(String criteria) throws IOException {
+        return SortingConfig.reconstruct("{\"criteria\":[" + criteria + "]}");
+    }
+
+    protected int[] sortWithVisitor(SortingConfig config, Mode mode) {
+        Engine engine = new Engine(project);
+        engine.setMode(mode);
+        List<Integer> indices = new ArrayList<>();
+        if (mode == Mode.RowBased) {
+            SortingRowVisitor visitor = new SortingRowVisitor(new RowVisitor() {
+                @Override
+                public void start(Project project) {
+                }
+
+                @Override
+                public void end(Project project) {
+                }
+
+                @Override
+                public boolean visit(Project project, int rowIndex, Row row) {
+                    indices.add(rowIndex);
+                    return false;
+                }
+            });
+            visitor.initializeFromConfig(project, config);
+            engine.getAllFilteredRows().accept(project, visitor);
+        } else {
+            SortingRecordVisitor visitor = new SortingRecordVisitor(new RecordVisitor() {
+                @Override
+                public void start(Project project) {
+                }
+
+                @Override
+                public void end(Project project) {
+                }
+
+                @Override
+                public boolean visit(Project project, Record record) {
+                    indices.add(record.recordIndex);
+                    return false;
+                }
+            });
+            visitor.initializeFromConfig(project, config);
+            engine.getAllRecords().accept(project, visitor);
+        }
+        return indices.stream().mapToInt(i -> i).toArray();
+    }
+
+    protected int[] sortWithCache(SortingConfig config, Mode mode) throws IOException {
+        Engine engine = new Engine(project);
+        engine.setMode(mode);
+        EngineConfig engineConfig = new EngineConfig(Collections.emptyList(), mode);
+        return SortingCache.getInstance().getSortedIndices(project, engine, engineConfig, config);
+    }
+
+    protected void assertSameOrder(String criteria) throws IOException {
+        SortingConfig config = makeConfig(criteria);
+        assertEquals(sortWithCache(config, Mode.RowBased), sortWithVisitor(config, Mode.RowBased));
+        assertEquals(sortWithCache(config, Mode.RecordBased), sortWithVisitor(config, Mode.RecordBased));
+    }
+
+    @Test
+    public void testSortByNumber() throws IOException {
+        assertSameOrder("{\"valueType\":\"number\",\"column\":\"number\",\"blankPosition\":1,\"errorPosition\":2}");
+        assertSameOrder("{\"valueType\":\"number\",\"column\":\"number\",\"reverse\":true,"
+                + "\"blankPosition\":-1,\"errorPosition\":1}");
+    }
+
+    @Test
+    public void testSortByString() throws IOException {
+        assertSameOrder("{\"valueType\":\"string\",\"column\":\"text\"}");
+        assertSameOrder("{\"valueType\":\"string\",\"column\":\"text\",\"reverse\":true,\"blankPosition\":-1}");
+    }
+
+    @Test
+    public void testSortByBooleanAndDate() throws IOException {
+        assertSameOrder("{\"valueType\":\"boolean\",\"column\":\"text\"}");
+        assertSameOrder("{\"valueType\":\"date\",\"column\":\"text\",\"errorPosition\":-1}");
+        assertSameOrder("{\"valueType\":\"date\",\"column\":\"date\"}");
+        assertSameOrder("{\"valueType\":\"date\",\"column\":\"date\",\"reverse\":true,\"errorPosition\":-1}");
+    }
+
+    @Test
+    public void testBlankAndErrorPositions() throws IOException {
+        int[][] positions = { { -2, -1 }, { -1, -2 }, { 1, -1 }, { -1, 1 }, { 2, 1 }, { 1, 1 }, { -1, -1 } };
+        for (int[] p : positions) {
+            assertSameOrder("{\"valueType\":\"number\",\"column\":\"number\",\"blankPosition\":" + p[0]
+                    + ",\"errorPosition\":" + p[1] + "}");
+        }
+    }
+
+    @Test
+    public void testSortBySeveralCriteria() throws IOException {
+        assertSameOrder("{\"valueType\":\"string\",\"column\":\"key\",\"reverse\":true},"
+                + "{\"valueType\":\"number\",\"column\":\"number\",\"errorPosition\":-2},"
+                + "{\"valueType\":\"string\",\"column\":\"text\"}");
+    }
+
+    @Test
+    public void testSortByMissingColumn() throws IOException {
+        assertSameOrder("{\"valueType\":\"string\",\"column\":\"missing\"}");
+    }
+
+    @Test
+    public void testSortedIndicesAreCached() throws IOException {
+        SortingConfig config = makeConfig("{\"valueType\":\"number\",\"column\":\"number\"}");
+        int[] first = sortWithCache(config, Mode.RowBased);
+        assertSame(sortWithCache(config, Mode.RowBased), first);
+
+        // another sorting configuration is sorted again
+        SortingConfig reversed = makeConfig("{\"valueType\":\"number\",\"column\":\"number\",\"reverse\":true}");
+        assertEquals(sortWithCache(reversed, Mode.RowBased), sortWithVisitor(reversed, Mode.RowBased));
+    }
+
+    @Test
+    public void testRowsAddedWithoutHistoryAreSortedAgain() throws IOException {
+        SortingConfig config = makeConfig("{\"valueType\":\"number\",\"column\":\"number\"}");
+        sortWithCache(config, Mode.RowBased);
+
+        // as when rows are imported, no history entry is added
+        Row row = new Row(4);
+        row.setCell(1, new Cell(-1, null));
+        project.rows.add(row);
+        project.update();
+
+        int[] sorted = sortWithCache(config, Mode.RowBased);
+        assertEquals(sorted.length, project.rows.size());
+        assertEquals(sorted, sortWithVisitor(config, Mode.RowBased));
+    }
+}
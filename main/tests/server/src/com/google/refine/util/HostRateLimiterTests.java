@@ -0,0 +1,48 @@
+package com.google.refine.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class HostRateLimiterTests {
+
+    @Test
+    public void testDelayAfterCompletion() {
+        HostRateLimiter limiter = new HostRateLimiter(500, 1);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 0), 0);
+        // the token is in use until the request completes
+        Assert.assertEquals(limiter.tryAcquire("example.com", 100), -1);
+        limiter.release("example.com", 300);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 400), 400);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 800), 0);
+    }
+
+    @Test
+    public void testHostsAreIndependent() {
+        HostRateLimiter limiter = new HostRateLimiter(500, 1);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 0), 0);
+        Assert.assertEquals(limiter.tryAcquire("example.org", 0), 0);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 0), -1);
+    }
+
+    @Test
+    public void testSeveralTokensPerHost() {
+        HostRateLimiter limiter = new HostRateLimiter(100, 2);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 0), 0);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 0), 0);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 0), -1);
+        limiter.release("example.com", 50);
+        limiter.release("example.com", 80);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 100), 50);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 150), 0);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 150), 30);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 180), 0);
+    }
+
+    @Test
+    public void testNoDelay() {
+        HostRateLimiter limiter = new HostRateLimiter(0, 1);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 0), 0);
+        limiter.release("example.com", 10);
+        Assert.assertEquals(limiter.tryAcquire("example.com", 10), 0);
+    }
+}
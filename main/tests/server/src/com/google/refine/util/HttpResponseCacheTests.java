@@ -0,0 +1,90 @@
+package com.google.refine.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.TreeMap;
+
+import org.testng.annotations.Test;
+
+public class HttpResponseCacheTests {
+
+    @Test
+    public void testGetAndPut() throws IOException {
+        File dir = TestUtils.createTempDirectory("url-cache");
+        HttpResponseCache cache = new HttpResponseCache(dir, 3600000L, 1024 * 1024);
+        String key = HttpResponseCache.makeKey("http://example.com/a", null);
+        assertNull(cache.get(key));
+        cache.put(key, "body with\r\nseveral lines é");
+        assertEquals(cache.get(key), "body with\r\nseveral lines é");
+
+        // responses survive the cache instance
+        HttpResponseCache reopened = new HttpResponseCache(dir, 3600000L, 1024 * 1024);
+        assertEquals(reopened.get(key), "body with\r\nseveral lines é");
+        assertTrue(reopened.getSize() > 0);
+    }
+
+    @Test
+    public void testKeyDependsOnHeaders() {
+        String plain = HttpResponseCache.makeKey("http://example.com/a", new TreeMap<String, String>());
+        assertEquals(HttpResponseCache.makeKey("http://example.com/a", null), plain);
+        assertNotEquals(HttpResponseCache.makeKey("http://example.com/a",
+                Collections.singletonMap("accept", "application/json")), plain);
+        assertNotEquals(HttpResponseCache.makeKey("http://example.com/b", null), plain);
+    }
+
+    @Test
+    public void testExpiredResponsesAreIgnored() throws IOException {
+        File dir = TestUtils.createTempDirectory("url-cache");
+        HttpResponseCache cache = new HttpResponseCache(dir, -1L, 1024 * 1024);
+        String key = HttpResponseCache.makeKey("http://example.com/a", null);
+        cache.put(key, "body");
+        assertNull(cache.get(key));
+        assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResponsesAreEvicted() throws IOException {
+        File dir = TestUtils.createTempDirectory("url-cache");
+        String a = HttpResponseCache.makeKey("http://example.com/a", null);
+        String b = HttpResponseCache.makeKey("http://example.com/b", null);
+        String c = HttpResponseCache.makeKey("http://example.com/c", null);
+        HttpResponseCache cache = new HttpResponseCache(dir, 3600000L, 1024 * 1024);
+        cache.put(a, "a");
+        cache.put(b, "b");
+        long entrySize = cache.getSize() / 2;
+        new File(dir, a + ".gz").setLastModified(1000L);
+        new File(dir, b + ".gz").setLastModified(2000L);
+
+        // room for two responses only
+        HttpResponseCache small = new HttpResponseCache(dir, 3600000L, entrySize * 2 + entrySize / 2);
+        small.put(c, "c");
+        assertNull(small.get(a));
+        assertEquals(small.get(b), "b");
+        assertEquals(small.get(c), "c");
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        File dir = TestUtils.createTempDirectory("url-cache");
+        HttpResponseCache cache = new HttpResponseCache(dir, 3600000L, 1024 * 1024);
+        String key = HttpResponseCache.makeKey("http://example.com/a", null);
+        cache.put(key, "body");
+        cache.clear();
+        assertNull(cache.get(key));
+        assertFalse(new File(dir, key + ".gz").exists());
+    }
+
+    @Test
+    public void testDisabledWithoutDirectory() {
+        HttpResponseCache cache = new HttpResponseCache(null, 3600000L, 1024 * 1024);
+        cache.put("key", "body");
+        assertNull(cache.get("key"));
+    }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.browsing.facets;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonSubTypes.Type;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.google.refine.model.Project;
+
+
+/**
+ * Represents the configuration of a facet, as stored
+ * in the engine configuration and in the JSON serialization
+ * of operations. It does not contain the actual values displayed by
+ * the facet.
+ * 
+ * @author Antonin Delpeuch
+ *
+ */
+@JsonTypeInfo(
+        use=JsonTypeInfo.Id.NAME,
+        include=JsonTypeInfo.As.PROPERTY,
+        property="type")
+@JsonSubTypes({
+    @Type(value = ListFacet.ListFacetConfig.class, name = "list"),
+    @Type(value = RangeFacet.RangeFacetConfig.class, name = "range"),
+    @Type(value = TimeRangeFacet.TimeRangeFacetConfig.class, name = "timerange"),
+    @Type(value = TextSearchFacet.TextSearchFacetConfig.class, name = "text"),
+    @Type(value = ScatterplotFacet.ScatterplotFacetConfig.class, name = "scatterplot") })
+public interface FacetConfig  {   
+    /**
+     * Instantiates the given facet on a particular project.
+     * @param project
+     * @return a computed facet on the given project.
+     */
+    public Facet apply(Project project);
+    
+    /**
+     * The facet type as stored in json.
+     */
+    @JsonIgnore // already included by @JsonTypeInfo
+    public String getJsonType();
+}
@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.browsing.facets;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+/**
+ * Draws scatterplots by counting the rows which fall in each pixel, and
+ * shading the pixels from these counts. Counting only reads the positions
+ * precomputed for each axis, and runs in parallel.
+ */
+public class ScatterplotRasterizer {
+
+    /**
+     * Below this number of rows, counts are not made in parallel.
+     */
+    static final int SEQUENTIAL_THRESHOLD = 16384;
+
+    final protected ScatterplotAxis _x;
+    final protected ScatterplotAxis _y;
+    final protected int _size;
+    final protected int _rotation;
+
+    // coefficients of the rotation, applied after scaling positions to the size
+    final protected double _m00, _m01, _m02, _m10, _m11, _m12;
+
+    public ScatterplotRasterizer(ScatterplotAxis x, ScatterplotAxis y, int size, int rotation) {
+        _x = x;
+        _y = y;
+        _size = size;
+        _rotation = rotation;
+
+        double[] m = new double[6];
+        AffineTransform t = ScatterplotFacet.createRotationMatrix(rotation, size);
+        (t != null ? t : new AffineTransform()).getMatrix(m);
+        _m00 = m[0];
+        _m10 = m[1];
+        _m01 = m[2];
+        _m11 = m[3];
+        _m02 = m[4];
+        _m12 = m[5];
+    }
+
+    /**
+     * @return the index of the pixel a row falls in, or -1 if it is not drawn
+     */
+    protected int getPixel(int rowIndex) {
+        double x = _x.getPosition(rowIndex, _size);
+        double y = _y.getPosition(rowIndex, _size);
+        if (_rotation != ScatterplotFacet.NO_ROTATION) {
+            double rotatedX = x * _m00 + y * _m01 + _m02;
+            y = x * _m10 + y * _m11 + _m12;
+            x = rotatedX;
+        }
+        int column = toPixel(x);
+        // the y axis goes up
+        int line = toPixel(_size - y);
+        return column < 0 || line < 0 ? -1 : line * _size + column;
+    }
+
+    protected int toPixel(double d) {
+        if (!(d >= 0 && d <= _size)) {
+            return -1;
+        }
+        // values at the end of the range are drawn in the last pixel
+        return Math.min((int) d, _size - 1);
+    }
+
+    /**
+     * @return the number of rows in each pixel, line by line from the top
+     */
+    public int[] countAllRows() {
+        int rowCount = Math.min(_x.getRowCount(), _y.getRowCount());
+        return count(IntStream.range(0, rowCount), rowCount);
+    }
+
+    public int[] countRows(int[] rowIndices) {
+        return count(IntStream.of(rowIndices), rowIndices.length);
+    }
+
+    public int[] countRows(Project project, FilteredRows filteredRows) {
+        RowCollector collector = new RowCollector();
+        filteredRows.accept(project, collector);
+        return countRows(collector.getRowIndices());
+    }
+
+    protected int[] count(IntStream rowIndices, int rowCount) {
+        int pixelCount = _size * _size;
+        return (rowCount < SEQUENTIAL_THRESHOLD ? rowIndices : rowIndices.parallel()).collect(
+            () -> new int[pixelCount],
+            (counts, r) -> {
+                int pixel = getPixel(r);
+                if (pixel >= 0) {
+                    counts[pixel]++;
+                }
+            },
+            (counts, other) -> {
+                for (int p = 0; p < pixelCount; p++) {
+                    counts[p] += other[p];
+                }
+            });
+    }
+
+    /**
+     * Draws the scatterplot.
+     * 
+     * @param baseCounts counts of rows drawn below, or null
+     * @param baseColor color of the rows drawn below
+     * @param counts counts of rows drawn on top
+     * @param color color of the rows drawn on top
+     * @param dot width of the dot drawn for each row, in pixels
+     * @param heatmap whether to shade pixels by the number of rows they contain
+     *      instead of drawing dots
+     */
+    public BufferedImage render(int[] baseCounts, Color baseColor, int[] counts, Color color,
+            double dot, boolean heatmap) {
+        BufferedImage image = new BufferedImage(_size, _size, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D g2 = (Graphics2D) image.getGraphics();
+
+        if (_rotation != ScatterplotFacet.NO_ROTATION) {
+            /*
+             *  Fill in the negative quadrants to give a hint of how the plot has been rotated.
+             */
+            Graphics2D g2r = (Graphics2D) g2.create();
+            g2r.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            AffineTransform t = AffineTransform.getTranslateInstance(0, _size);
+            t.scale(1, -1);
+            t.concatenate(ScatterplotFacet.createRotationMatrix(_rotation, _size));
+            g2r.setTransform(t);
+            g2r.setPaint(Color.lightGray);
+            g2r.fillRect(-_size, 0, _size, _size);
+            g2r.fillRect(0, -_size, _size, _size);
+            g2r.dispose();
+        }
+
+        if (baseCounts != null) {
+            g2.drawImage(shade(baseCounts, baseColor, dot, heatmap), 0, 0, null);
+        }
+        g2.drawImage(shade(counts, color, dot, heatmap), 0, 0, null);
+        g2.dispose();
+        return image;
+    }
+
+    protected BufferedImage shade(int[] counts, Color color, double dot, boolean heatmap) {
+        int pixelCount = _size * _size;
+        float[] opacities = heatmap ? shadeDensity(counts) : shadeDots(counts, dot);
+
+        BufferedImage layer = new BufferedImage(_size, _size, BufferedImage.TYPE_INT_ARGB);
+        int[] data = ((DataBufferInt) layer.getRaster().getDataBuffer()).getData();
+        int rgb = color.getRGB() & 0xffffff;
+        for (int p = 0; p < pixelCount; p++) {
+            int alpha = Math.round(opacities[p] * 255);
+            if (alpha > 0) {
+                data[p] = alpha << 24 | rgb;
+            }
+        }
+        return layer;
+    }
+
+    /**
+     * Each pixel is as opaque as the log of its count, relative to the most
+     * populated pixel.
+     */
+    protected float[] shadeDensity(int[] counts) {
+        int max = 0;
+        for (int count : counts) {
+            max = Math.max(max, count);
+        }
+        float[] opacities = new float[counts.length];
+        if (max > 0) {
+            double scale = Math.log1p(max);
+            for (int p = 0; p < counts.length; p++) {
+                opacities[p] = (float) (Math.log1p(counts[p]) / scale);
+            }
+        }
+        return opacities;
+    }
+
+    /**
+     * Draws a square dot centered on each pixel containing rows, as many
+     * times as it contains rows. Pixels partly covered by a dot are made
+     * partly opaque, as if the dots were drawn with antialiasing.
+     */
+    protected float[] shadeDots(int[] counts, double dot) {
+        float[] transparencies = new float[counts.length];
+        Arrays.fill(transparencies, 1f);
+        double half = dot / 2;
+        for (int p = 0; p < counts.length; p++) {
+            int count = counts[p];
+            if (count == 0) {
+                continue;
+            }
+            double centerX = p % _size + 0.5;
+            double centerY = p / _size + 0.5;
+            int fromX = Math.max(0, (int) Math.floor(centerX - half));
+            int toX = Math.min(_size, (int) Math.ceil(centerX + half));
+            int fromY = Math.max(0, (int) Math.floor(centerY - half));
+            int toY = Math.min(_size, (int) Math.ceil(centerY + half));
+            for (int line = fromY; line < toY; line++) {
+                double coverY = Math.min(centerY + half, line + 1) - Math.max(centerY - half, line);
+                for (int column = fromX; column < toX; column++) {
+                    double coverX = Math.min(centerX + half, column + 1) - Math.max(centerX - half, column);
+                    double cover = Math.min(1, coverX * coverY);
+                    if (cover > 0) {
+                        transparencies[line * _size + column] *= (float) Math.pow(1 - cover, count);
+                    }
+                }
+            }
+        }
+        for (int p = 0; p < transparencies.length; p++) {
+            transparencies[p] = 1 - transparencies[p];
+        }
+        return transparencies;
+    }
+
+    static protected class RowCollector implements RowVisitor {
+        int[] rowIndices = new int[1024];
+        int size = 0;
+
+        @Override
+        public void start(Project project) {
+            // nothing to do
+        }
+
+        @Override
+        public void end(Project project) {
+            // nothing to do
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, Row row) {
+            if (size == rowIndices.length) {
+                rowIndices = Arrays.copyOf(rowIndices, size * 2);
+            }
+            rowIndices[size++] = rowIndex;
+            return false;
+        }
+
+        public int[] getRowIndices() {
+            return Arrays.copyOf(rowIndices, size);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.browsing.util;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.RowFilter;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+/**
+ * Encapsulate logic for visiting rows that match all give row filters. Also visit
+ * context rows and dependent rows if configured so.
+ * 
+ * Rows are judged by batches, so that filters can evaluate their expressions
+ * on many rows at once.
+ */
+public class ConjunctiveFilteredRows implements FilteredRows {
+    final protected List<RowFilter> _rowFilters = new LinkedList<RowFilter>();
+    
+    public void add(RowFilter rowFilter) {
+        _rowFilters.add(rowFilter);
+    }
+    
+    /**
+     * Number of rows judged at once by each filter
+     */
+    static final int BATCH_SIZE = 1024;
+
+    @Override
+    public void accept(Project project, RowVisitor visitor) {
+        try {
+            visitor.start(project);
+
+            int c = project.rows.size();
+            int[] rowIndices = new int[Math.min(c, BATCH_SIZE)];
+            for (int from = 0; from < c; from += BATCH_SIZE) {
+                int count = Math.min(c - from, BATCH_SIZE);
+                for (int i = 0; i < count; i++) {
+                    rowIndices[i] = from + i;
+                }
+                count = matchRows(project, rowIndices, count);
+
+                for (int i = 0; i < count; i++) {
+                    int rowIndex = rowIndices[i];
+                    if (visitRow(project, visitor, rowIndex, project.rows.get(rowIndex))) {
+                        return;
+                    }
+                }
+            }
+        } finally {
+            visitor.end(project);
+        }
+    }
+
+    /**
+     * Keeps the rows matching all filters at the start of rowIndices.
+     * 
+     * @return the number of rows kept
+     */
+    protected int matchRows(Project project, int[] rowIndices, int count) {
+        for (RowFilter rowFilter : _rowFilters) {
+            if (count == 0) {
+                break;
+            }
+            count = rowFilter.filterRows(project, rowIndices, count);
+        }
+        return count;
+    }
+
+    protected boolean visitRow(Project project, RowVisitor visitor, int rowIndex, Row row) {
+        return visitor.visit(project, rowIndex, row);
+    }
+}
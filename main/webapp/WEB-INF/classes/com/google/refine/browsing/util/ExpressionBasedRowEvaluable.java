@@ -0,0 +1,84 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.browsing.util;
+
+import java.util.Properties;
+
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.grel.ast.ExpressionDependencies;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+public class ExpressionBasedRowEvaluable implements RowEvaluable {
+    final protected String         _columnName;
+    final protected int            _cellIndex;
+    final protected Evaluable      _eval;
+    
+    public ExpressionBasedRowEvaluable(
+        String columnName, int cellIndex, Evaluable eval) {
+    
+        _columnName = columnName;
+        _cellIndex = cellIndex;
+        _eval = eval;
+    }
+
+    @Override
+    public Object eval(
+            Project project, int rowIndex, Row row, Properties bindings) {
+        
+        Cell cell = row.getCell(_cellIndex);
+
+        ExpressionUtils.bind(bindings, row, rowIndex, _columnName, cell);
+        
+        return _eval.evaluate(bindings);
+    }
+    
+    /**
+     * @return true if the expression is known to only depend on the cell it is
+     *      evaluated on, so that its results remain valid for the rows whose
+     *      cell did not change
+     */
+    public boolean dependsOnCellOnly() {
+        return isThreadSafe() && ExpressionDependencies.dependsOnCellOnly(_eval);
+    }
+    
+    /**
+     * @return true if several rows can be evaluated at once, each with its own bindings
+     */
+    public boolean isThreadSafe() {
+        return ExpressionUtils.isThreadSafe(_eval);
+    }
+}
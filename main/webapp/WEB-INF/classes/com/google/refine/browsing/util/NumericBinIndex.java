@@ -0,0 +1,280 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.browsing.util;
+
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+
+/**
+ * A utility class for computing the base bins that form the base histograms of 
+ * numeric range facets. It evaluates an expression on all the rows of a project to
+ * get numeric values, determines how many bins to distribute those values in, and 
+ * bins the rows accordingly.
+ * 
+ * This class processes all rows rather than just the filtered rows because it
+ * needs to compute the base bins of a numeric range facet, which remain unchanged 
+ * as the user interacts with the facet.
+ * 
+ * The values of the rows are kept in a {@link RowValueIndex}, along with the bin
+ * of each numeric value, so that the histograms of the filtered rows can be
+ * computed without evaluating the expression again.
+ */
+abstract public class NumericBinIndex implements Column.RowDependentPrecompute {
+    
+    static final protected RowValueIndex.Classifier s_classifier = new RowValueIndex.Classifier() {
+        @Override
+        public byte classify(Object value) {
+            if (value instanceof Number) {
+                double d = ((Number) value).doubleValue();
+                return Double.isInfinite(d) || Double.isNaN(d) ? RowValueIndex.ERROR : RowValueIndex.VALUE;
+            }
+            return RowValueIndex.OTHER;
+        }
+
+        @Override
+        public long toLong(Object value) {
+            return Double.doubleToRawLongBits(((Number) value).doubleValue());
+        }
+    };
+    
+    final protected Project _project;
+    final protected RowValueIndex _rowValues;
+    
+    protected int _totalValueCount;
+    protected int _numbericValueCount;
+    protected double _min;
+    protected double _max;
+    protected double _step;
+    protected int[]  _bins;
+    /*
+     * Bin of each value of the rows, or -1
+     */
+    protected int[]  _valueBins;
+    
+    protected int _numericRowCount;
+    protected int _nonNumericRowCount;
+    protected int _blankRowCount;
+    protected int _errorRowCount;
+    
+    /**
+     * Counts the rows, or records, which have numeric values, non-numeric
+     * values, blanks and errors.
+     */
+    abstract protected void countRows();
+    
+    public NumericBinIndex(Project project, RowEvaluable rowEvaluable) {
+        _project = project;
+        _rowValues = new RowValueIndex(project, rowEvaluable, s_classifier);
+        computeBins();
+    }
+    
+    @Override
+    public boolean invalidateRows(int[] rowIndices) {
+        return _rowValues.invalidateRows(rowIndices);
+    }
+    
+    /**
+     * Evaluates the rows which changed since the bins were computed, and
+     * computes the bins again if needed.
+     */
+    synchronized protected void update() {
+        if (_rowValues.update()) {
+            computeBins();
+        }
+    }
+    
+    protected void computeBins() {
+        _min = Double.POSITIVE_INFINITY;
+        _max = Double.NEGATIVE_INFINITY;
+        _numericRowCount = 0;
+        _nonNumericRowCount = 0;
+        _blankRowCount = 0;
+        _errorRowCount = 0;
+        
+        RowValueIndex values = _rowValues;
+        int valueCount = values.getValueCount();
+        _totalValueCount = valueCount;
+        _numbericValueCount = 0;
+        for (int i = 0; i < valueCount; i++) {
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                double d = Double.longBitsToDouble(values.getValue(i));
+                _min = Math.min(_min, d);
+                _max = Math.max(_max, d);
+                _numbericValueCount++;
+            }
+        }
+        
+        countRows();
+        
+        _valueBins = new int[valueCount];
+        if (_min >= _max) {
+            _step = 1;
+            _min = Math.min(_min, _max);
+            _max = _min+_step;
+            _bins = new int[1];
+            
+            computeValueBins();
+            return;
+        }
+        
+        double diff = _max - _min;
+        
+        _step = 1;
+        if (diff > 10) {
+            while (_step * 100 < diff) {
+                _step *= 10;
+            }
+        } else {
+            while (_step * 100 > diff) {
+                _step /= 10;
+            }
+        }
+        
+        double originalMax = _max;
+        _min = (Math.floor(_min / _step) * _step);
+        _max = (Math.ceil(_max / _step) * _step);
+        
+        double binCount = (_max - _min) / _step;
+        if (binCount > 100) {
+            _step *= 2;
+            binCount = (binCount + 1) / 2;
+        }
+        
+        if (_max <= originalMax) {
+            _max += _step;
+            binCount++;
+        }
+        
+        _bins = new int[(int) Math.round(binCount)];
+        for (int i = 0; i < valueCount; i++) {
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                double d = Double.longBitsToDouble(values.getValue(i));
+                int bin = Math.max((int) Math.floor((d - _min) / _step),0);
+                _bins[bin]++;
+            }
+        }
+        computeValueBins();
+    }
+    
+    protected void computeValueBins() {
+        RowValueIndex values = _rowValues;
+        for (int i = 0; i < _valueBins.length; i++) {
+            int bin = -1;
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                double d = Double.longBitsToDouble(values.getValue(i));
+                bin = (int) Math.floor((d - _min) / _step);
+                if (bin >= _bins.length) {
+                    bin = -1;
+                }
+            }
+            _valueBins[i] = Math.max(bin, -1);
+        }
+    }
+    
+    protected void countRow(byte kinds) {
+        if ((kinds & RowValueIndex.ERROR) != 0) {
+            _errorRowCount++;
+        }
+        if ((kinds & RowValueIndex.BLANK) != 0) {
+            _blankRowCount++;
+        }
+        if ((kinds & RowValueIndex.VALUE) != 0) {
+            _numericRowCount++;
+        }
+        if ((kinds & RowValueIndex.OTHER) != 0) {
+            _nonNumericRowCount++;
+        }
+    }
+    
+    synchronized public boolean isNumeric() {
+        update();
+        return _numbericValueCount > _totalValueCount / 2;
+    }
+
+    synchronized public double getMin() {
+        update();
+        return _min;
+    }
+
+    synchronized public double getMax() {
+        update();
+        return _max;
+    }
+
+    synchronized public double getStep() {
+        update();
+        return _step;
+    }
+
+    synchronized public int[] getBins() {
+        update();
+        return _bins;
+    }
+    
+    synchronized public int getNumericRowCount() {
+        update();
+        return _numericRowCount;
+    }
+
+    synchronized public int getNonNumericRowCount() {
+        update();
+        return _nonNumericRowCount;
+    }
+
+    synchronized public int getBlankRowCount() {
+        update();
+        return _blankRowCount;
+    }
+
+    synchronized public int getErrorRowCount() {
+        update();
+        return _errorRowCount;
+    }
+    
+    /**
+     * @return the values of the rows, if they can be used instead of
+     *      evaluating the expression, or null
+     */
+    synchronized public RowValueIndex getRowValues() {
+        update();
+        return _rowValues.dependsOnCellOnly() ? _rowValues : null;
+    }
+    
+    /**
+     * @return the bin of the value at a position of the row values, or -1
+     */
+    public int getValueBin(int position) {
+        return _valueBins[position];
+    }
+}
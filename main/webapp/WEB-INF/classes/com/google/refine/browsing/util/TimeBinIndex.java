@@ -0,0 +1,270 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.browsing.util;
+
+import java.time.OffsetDateTime;
+
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+
+/**
+ * A utility class for computing the base bins that form the base histograms of 
+ * temporal range facets. It evaluates an expression on all the rows of a project to
+ * get temporal values, determines how many bins to distribute those values in, and 
+ * bins the rows accordingly.
+ * 
+ * This class processes all rows rather than just the filtered rows because it
+ * needs to compute the base bins of a temporal range facet, which remain unchanged 
+ * as the user interacts with the facet.
+ * 
+ * Like {@link NumericBinIndex}, it keeps the values of the rows and the bin of
+ * each temporal value.
+ */
+abstract public class TimeBinIndex implements Column.RowDependentPrecompute {
+    
+    static final protected RowValueIndex.Classifier s_classifier = new RowValueIndex.Classifier() {
+        @Override
+        public byte classify(Object value) {
+            return value instanceof OffsetDateTime ? RowValueIndex.VALUE : RowValueIndex.OTHER;
+        }
+
+        @Override
+        public long toLong(Object value) {
+            return ((OffsetDateTime) value).toInstant().toEpochMilli();
+        }
+    };
+    
+    final protected Project _project;
+    final protected RowValueIndex _rowValues;
+    
+    protected int _totalValueCount;
+    protected int _timeValueCount;
+    protected long _min;
+    protected long _max;
+    protected long _step;
+    protected int[] _bins;
+    /*
+     * Bin of each value of the rows, or -1
+     */
+    protected int[] _valueBins;
+    
+    protected int _timeRowCount;
+    protected int _nonTimeRowCount;
+    protected int _blankRowCount;
+    protected int _errorRowCount;
+    
+    protected long[] steps = { 
+            1,                  // msec
+            1000,               // sec
+            1000*60,            // min
+            1000*60*60,         // hour
+            1000*60*60*24,      // day
+            1000*60*60*24*7,    // week
+            1000l*2629746l,       // month (average Gregorian year / 12)
+            1000l*31556952l,      // year (average Gregorian year)
+            1000l*31556952l*10l,   // decade 
+            1000l*31556952l*100l,  // century 
+            1000l*31556952l*1000l, // millennium 
+    };
+    
+    /**
+     * Counts the rows, or records, which have temporal values, other
+     * values, blanks and errors.
+     */
+    abstract protected void countRows();
+    
+    public TimeBinIndex(Project project, RowEvaluable rowEvaluable) {
+        _project = project;
+        _rowValues = new RowValueIndex(project, rowEvaluable, s_classifier);
+        computeBins();
+    }
+    
+    @Override
+    public boolean invalidateRows(int[] rowIndices) {
+        return _rowValues.invalidateRows(rowIndices);
+    }
+    
+    /**
+     * Evaluates the rows which changed since the bins were computed, and
+     * computes the bins again if needed.
+     */
+    synchronized protected void update() {
+        if (_rowValues.update()) {
+            computeBins();
+        }
+    }
+    
+    protected void computeBins() {
+        _min = Long.MAX_VALUE;
+        _max = Long.MIN_VALUE;
+        _timeRowCount = 0;
+        _nonTimeRowCount = 0;
+        _blankRowCount = 0;
+        _errorRowCount = 0;
+        
+        RowValueIndex values = _rowValues;
+        int valueCount = values.getValueCount();
+        _totalValueCount = valueCount;
+        _timeValueCount = 0;
+        for (int i = 0; i < valueCount; i++) {
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                long t = values.getValue(i);
+                _min = Math.min(_min, t);
+                _max = Math.max(_max, t);
+                _timeValueCount++;
+            }
+        }
+        
+        countRows();
+        
+        _valueBins = new int[valueCount];
+        if (_min >= _max) {
+            _step = 1;
+            _min = Math.min(_min, _max);
+            _max = _step;
+            _bins = new int[1];
+            
+            computeValueBins();
+            return;
+        }
+        
+        long diff = _max - _min;
+
+        for (long step : steps) {
+            _step = step;
+            if (diff / _step <= 100) {
+                break;
+            } 
+        }
+
+        _bins = new int[(int) (diff / _step) + 1];
+        for (int i = 0; i < valueCount; i++) {
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                int bin = (int) Math.max((values.getValue(i) - _min) / _step,0);
+                _bins[bin]++;
+            }
+        }
+        computeValueBins();
+    }
+    
+    protected void computeValueBins() {
+        RowValueIndex values = _rowValues;
+        for (int i = 0; i < _valueBins.length; i++) {
+            int bin = -1;
+            if (values.getKind(i) == RowValueIndex.VALUE) {
+                bin = (int) Math.floor((double) (values.getValue(i) - _min) / (double) _step);
+                if (bin >= _bins.length) {
+                    bin = -1;
+                }
+            }
+            _valueBins[i] = Math.max(bin, -1);
+        }
+    }
+    
+    protected void countRow(byte kinds) {
+        if ((kinds & RowValueIndex.ERROR) != 0) {
+            _errorRowCount++;
+        }
+        if ((kinds & RowValueIndex.BLANK) != 0) {
+            _blankRowCount++;
+        }
+        if ((kinds & RowValueIndex.VALUE) != 0) {
+            _timeRowCount++;
+        }
+        if ((kinds & RowValueIndex.OTHER) != 0) {
+            _nonTimeRowCount++;
+        }
+    }
+    
+    synchronized public boolean isTemporal() {
+        update();
+        return _timeValueCount > _totalValueCount / 2;
+    }
+
+    synchronized public long getMin() {
+        update();
+        return _min;
+    }
+
+    synchronized public long getMax() {
+        update();
+        return _max;
+    }
+
+    synchronized public long getStep() {
+        update();
+        return _step;
+    }
+
+    synchronized public int[] getBins() {
+        update();
+        return _bins;
+    }
+    
+    synchronized public int getTimeRowCount() {
+        update();
+        return _timeRowCount;
+    }
+
+    synchronized public int getNonTimeRowCount() {
+        update();
+        return _nonTimeRowCount;
+    }
+
+    synchronized public int getBlankRowCount() {
+        update();
+        return _blankRowCount;
+    }
+
+    synchronized public int getErrorRowCount() {
+        update();
+        return _errorRowCount;
+    }
+    
+    /**
+     * @return the values of the rows, if they can be used instead of
+     *      evaluating the expression, or null
+     */
+    synchronized public RowValueIndex getRowValues() {
+        update();
+        return _rowValues.dependsOnCellOnly() ? _rowValues : null;
+    }
+    
+    /**
+     * @return the bin of the value at a position of the row values, or -1
+     */
+    public int getValueBin(int position) {
+        return _valueBins[position];
+    }
+}
@@ -0,0 +1,256 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.clustering.binning;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.google.refine.browsing.Engine;
+import com.google.refine.clustering.ClusteredEntry;
+import com.google.refine.clustering.Clusterer;
+import com.google.refine.clustering.ClustererConfig;
+import com.google.refine.model.Project;
+
+public class BinningClusterer extends Clusterer {
+    
+    public static class BinningClustererConfig extends ClustererConfig {
+       
+        @JsonIgnore
+        private String _keyerName;
+        @JsonIgnore
+        private Keyer _keyer;
+        @JsonIgnore
+        private BinningParameters _parameters = null;
+        
+        @JsonIgnore
+        public Keyer getKeyer() {
+            return _keyer;
+        }
+        
+        @JsonProperty("function")
+        public void setKeyer(String keyerName) {
+        	_keyerName = keyerName;
+        	_keyer = KeyerFactory.get(_keyerName.toLowerCase());
+        }
+        
+        @JsonProperty("function")
+        public String getKeyerName() {
+        	return _keyerName;
+        }
+        
+        @JsonProperty("params")
+        @JsonInclude(Include.NON_NULL)
+        public BinningParameters getParameters() {
+            return _parameters;
+        }
+        
+        @JsonProperty("params")
+        public void setParameters(BinningParameters params) {
+        	_parameters = params;
+        }
+
+        @Override
+        public BinningClusterer apply(Project project) {
+            BinningClusterer clusterer = new BinningClusterer();
+            clusterer.initializeFromConfig(project, this);
+            return clusterer;
+        }
+
+        @Override
+        public String getType() {
+            return "binning";
+        }
+        
+    }
+    
+    public static class BinningParameters  {
+        @JsonProperty("ngram-size")
+        @JsonInclude(Include.NON_DEFAULT)
+        public int ngramSize = 0;
+    }
+
+    protected Keyer _keyer;
+    protected BinningParameters _parameters;
+    
+    final static Logger logger = LoggerFactory.getLogger("binning_clusterer");
+    
+    List<Map<String,Integer>> _clusters;
+
+    /**
+     * Number of distinct values from which keys are computed in parallel
+     */
+    static final int PARALLEL_THRESHOLD = 1000;
+
+    final AtomicInteger _keysDone = new AtomicInteger();
+    volatile int _keyCount = 0;
+
+    protected Object[] getKeyerParams() {
+        if (_keyer instanceof NGramFingerprintKeyer && _parameters != null) {
+            return new Object[] { _parameters.ngramSize };
+        }
+        return null;
+    }
+
+    /**
+     * Computes the key of each distinct value. Keys can be expensive to
+     * compute, so they are only computed once per distinct value, and
+     * cached for the other clusterers of the same keyer.
+     */
+    protected String[] getKeys(List<String> values) {
+        Object[] params = getKeyerParams();
+        String name = "keys\n" + _keyer.getClass().getName() + "\n" + Arrays.toString(params);
+        return getCached(name, () -> {
+            int size = values.size();
+            String[] keys = new String[size];
+            _keyCount = size;
+            IntStream indices = IntStream.range(0, size);
+            if (size >= PARALLEL_THRESHOLD && _keyer.isThreadSafe()) {
+                indices = indices.parallel();
+            }
+            indices.forEach(i -> {
+                if (!_canceled) {
+                    keys[i] = _keyer.key(values.get(i), params);
+                    _keysDone.incrementAndGet();
+                }
+            });
+            checkCanceled();
+            return keys;
+        });
+    }
+
+    /**
+     * Groups the distinct values by key. Keys are inserted in the order
+     * of the first occurrence of their values, like the rows were visited.
+     */
+    protected Map<String,Map<String,Integer>> getMap(DistinctValues distinct, String[] keys) {
+        Map<String,Map<String,Integer>> map = new HashMap<String,Map<String,Integer>>();
+        for (int i = 0; i < keys.length; i++) {
+            Map<String,Integer> m = map.get(keys[i]);
+            if (m == null) {
+                m = new TreeMap<String,Integer>();
+                map.put(keys[i], m);
+            }
+            m.put(distinct.values.get(i), distinct.counts[i]);
+        }
+        return map;
+    }
+            
+    public static class SizeComparator implements Comparator<Map<String,Integer>>, Serializable {
+        private static final long serialVersionUID = -1390696157208674054L;
+        @Override
+        public int compare(Map<String,Integer> o1, Map<String,Integer> o2) {
+            int s1 = o1.size();
+            int s2 = o2.size();
+            if (o1 == o2) {
+                int total1 = 0;
+                for (int i : o1.values()) {
+                    total1 += i;
+                }
+                int total2 = 0;
+                for (int i : o2.values()) {
+                    total2 += i;
+                }
+                return total2 - total1;
+            } else {
+                return s2 - s1;
+            }
+        }
+    }
+
+    public static class EntriesComparator implements Comparator<Entry<String,Integer>>, Serializable {
+        private static final long serialVersionUID = 2763378036791777964L;
+        @Override
+        public int compare(Entry<String,Integer> o1, Entry<String,Integer> o2) {
+            return o2.getValue() - o1.getValue();
+        }
+    }
+    
+    public void initializeFromConfig(Project project, BinningClustererConfig config) {
+        super.initializeFromConfig(project, config);
+        _keyer = config.getKeyer();
+        _parameters = config.getParameters();
+    }
+
+    @Override
+    public void computeClusters(Engine engine) {
+        DistinctValues distinct = getDistinctValues(engine);
+        Map<String,Map<String,Integer>> map = getMap(distinct, getKeys(distinct.values));
+        _clusters = new ArrayList<Map<String,Integer>>(map.values());
+        Collections.sort(_clusters, new SizeComparator());
+    }
+
+    @Override
+    public int getProgress() {
+        int count = _keyCount;
+        return count == 0 ? 0 : _keysDone.get() * 100 / count;
+    }
+    
+    protected static Map<String,Object> entryToMap(Entry<String,Integer> entry) {
+        Map<String,Object> map = new HashMap<>();
+        map.put("v", entry.getKey());
+        map.put("c", entry.getValue());
+        return map;
+    }
+    
+    @JsonValue
+    public List<List<ClusteredEntry>> getJsonRepresentation() {
+        EntriesComparator c = new EntriesComparator();
+        return _clusters.stream()
+        		.filter(m -> m.size() > 1)
+                .map(m -> m.entrySet().stream()
+                        .sorted(c)
+                        .map(e -> new ClusteredEntry(e.getKey(), e.getValue()))
+                        .collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+}
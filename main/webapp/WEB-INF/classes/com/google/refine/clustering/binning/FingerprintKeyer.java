@@ -0,0 +1,518 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.clustering.binning;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Computes keys made of the distinct words of a string, sorted, lowercased
+ * and without punctuation or diacritics.
+ * 
+ * Strings made of Latin-1 and Latin Extended-A characters, which are most
+ * of the strings in practice, are keyed in a single pass over a buffer reused
+ * by the thread, with the characters folded by a table. Other strings go
+ * through the equivalent steps with regular expressions and string sets.
+ */
+public class FingerprintKeyer extends Keyer {
+
+    // Punctuation and control characters (except for TAB which we need for split to work)
+    static final Pattern punctctrl = Pattern.compile("\\p{Punct}|[\\x00-\\x08\\x0A-\\x1F\\x7F]");
+
+    /**
+     * Characters folded by tables: their lowercase form is the same in all
+     * locales but the few ones checked by {@link #hasSimpleLowerCase()}
+     */
+    static final int TABLE_SIZE = 0x180;
+    /**
+     * Strings longer than this are keyed in steps, so that thread buffers stay small
+     */
+    static final int MAX_BUFFERED_LENGTH = 1 << 16;
+
+    static final char REMOVED = '\u0000';
+    static final char SEPARATOR = ' ';
+    static final char UNSUPPORTED = '\uFFFF';
+
+    /**
+     * The ASCII equivalent of each lowercase character
+     */
+    static final char[] ASCII = new char[TABLE_SIZE];
+    /**
+     * How each character is keyed: removed, separating words, or folded
+     */
+    static final char[] FOLDED = new char[TABLE_SIZE];
+
+    static {
+        for (char c = 0; c < TABLE_SIZE; c++) {
+            ASCII[c] = translate(c);
+            char lower = Character.toLowerCase(c);
+            if (c == '\u0130') {
+                // lowercased to two characters
+                FOLDED[c] = UNSUPPORTED;
+            } else if (punctctrl.matcher(String.valueOf(lower)).matches()) {
+                FOLDED[c] = REMOVED;
+            } else if (Character.isWhitespace(translate(lower))) {
+                FOLDED[c] = SEPARATOR;
+            } else {
+                FOLDED[c] = translate(lower);
+            }
+        }
+    }
+
+    /**
+     * Working memory of the keyers, reused by each thread. The words or
+     * n-grams of a string are ranges of its folded characters, which are
+     * sorted by their order of indices.
+     */
+    static protected class Buffer {
+        char[] chars = new char[64];
+        char[] out = new char[64];
+        int[] starts = new int[16];
+        int[] lengths = new int[16];
+        int[] order = new int[16];
+        int[] temp = new int[16];
+        int count;
+
+        void reset(int length) {
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            count = 0;
+        }
+
+        void addRange(int start, int length) {
+            if (count == starts.length) {
+                int size = count * 2;
+                starts = Arrays.copyOf(starts, size);
+                lengths = Arrays.copyOf(lengths, size);
+                order = new int[size];
+                temp = new int[size];
+            }
+            starts[count] = start;
+            lengths[count] = length;
+            count++;
+        }
+
+        char[] out(int length) {
+            if (out.length < length) {
+                out = new char[Math.max(length, out.length * 2)];
+            }
+            return out;
+        }
+
+        /**
+         * Compares two ranges like {@link String#compareTo(String)}
+         */
+        int compare(int a, int b) {
+            int startA = starts[a];
+            int startB = starts[b];
+            int length = Math.min(lengths[a], lengths[b]);
+            for (int k = 0; k < length; k++) {
+                int d = chars[startA + k] - chars[startB + k];
+                if (d != 0) {
+                    return d;
+                }
+            }
+            return lengths[a] - lengths[b];
+        }
+
+        /**
+         * Sorts the ranges, in place of {@link #order}
+         */
+        void sort() {
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            sort(0, count);
+        }
+
+        private void sort(int from, int to) {
+            if (to - from <= 8) {
+                for (int i = from + 1; i < to; i++) {
+                    int range = order[i];
+                    int j = i - 1;
+                    while (j >= from && compare(order[j], range) > 0) {
+                        order[j + 1] = order[j];
+                        j--;
+                    }
+                    order[j + 1] = range;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            sort(from, middle);
+            sort(middle, to);
+            if (compare(order[middle - 1], order[middle]) <= 0) {
+                return;
+            }
+            System.arraycopy(order, from, temp, from, to - from);
+            int i = from;
+            int j = middle;
+            for (int k = from; k < to; k++) {
+                if (j >= to || (i < middle && compare(temp[i], temp[j]) <= 0)) {
+                    order[k] = temp[i++];
+                } else {
+                    order[k] = temp[j++];
+                }
+            }
+        }
+
+        /**
+         * @return whether the ranges at these positions of the order are equal
+         */
+        boolean sameAsPrevious(int position) {
+            return position > 0 && compare(order[position - 1], order[position]) == 0;
+        }
+    }
+
+    static final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    @Override
+    public String key(String s, Object... o) {
+        if (s == null || o !=null && o.length > 0) {
+            throw new IllegalArgumentException("Fingerprint keyer accepts a single string parameter");
+        }
+        int length = s.length();
+        if (length > MAX_BUFFERED_LENGTH || !hasSimpleLowerCase()) {
+            return keyInSteps(s);
+        }
+        Buffer b = buffers.get();
+        b.reset(length);
+        char[] chars = b.chars;
+        int n = 0;
+        int wordStart = -1;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            char f = c < TABLE_SIZE ? FOLDED[c] : UNSUPPORTED;
+            if (f == UNSUPPORTED) {
+                return keyInSteps(s);
+            } else if (f == SEPARATOR) {
+                if (wordStart >= 0) {
+                    b.addRange(wordStart, n - wordStart);
+                    wordStart = -1;
+                }
+            } else if (f != REMOVED) {
+                if (wordStart < 0) {
+                    wordStart = n;
+                }
+                chars[n++] = f;
+            }
+        }
+        if (wordStart >= 0) {
+            b.addRange(wordStart, n - wordStart);
+        }
+
+        b.sort(); // order words and dedupe
+        char[] out = b.out(n + b.count);
+        int size = 0;
+        for (int i = 0; i < b.count; i++) {
+            if (b.sameAsPrevious(i)) {
+                continue;
+            }
+            if (size > 0) {
+                out[size++] = ' ';
+            }
+            int word = b.order[i];
+            System.arraycopy(chars, b.starts[word], out, size, b.lengths[word]);
+            size += b.lengths[word];
+        }
+        return new String(out, 0, size);
+    }
+
+    /**
+     * Computes the key of any string, one step after the other.
+     */
+    protected String keyInSteps(String s) {
+        s = s.trim(); // first off, remove whitespace around the string
+        s = s.toLowerCase(); // then lowercase it
+        s = punctctrl.matcher(s).replaceAll(""); // then remove all punctuation and control chars
+        s = asciify(s); // find ASCII equivalent to characters
+        String[] frags = StringUtils.split(s); // split by whitespace
+        TreeSet<String> set = new TreeSet<String>();
+        for (String ss : frags) {
+            set.add(ss); // order fragments and dedupe
+        }
+        StringBuffer b = new StringBuffer();
+        Iterator<String> i = set.iterator();
+        while (i.hasNext()) {  // join ordered fragments back together
+            b.append(i.next());
+            if (i.hasNext()) {
+                b.append(' ');
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * @return whether the characters of the tables are lowercased the same in
+     *      the default locale as in the root locale
+     */
+    static protected boolean hasSimpleLowerCase() {
+        String language = Locale.getDefault().getLanguage();
+        return !("tr".equals(language) || "az".equals(language) || "lt".equals(language));
+    }
+
+    protected String asciify(String s) {
+        char[] c = s.toCharArray();
+        StringBuffer b = new StringBuffer();
+        for (char element : c) {
+            b.append(asciify(element));
+        }
+        return b.toString();
+    }
+
+    static protected char asciify(char c) {
+        return c < TABLE_SIZE ? ASCII[c] : translate(c);
+    }
+    
+    /**
+     * Translate the given unicode char in the closest ASCII representation
+     * NOTE: this function deals only with latin-1 supplement and latin-1 extended code charts
+     */
+    static private char translate(char c) {
+        switch(c) {
+            case '\u00C0':
+            case '\u00C1':
+            case '\u00C2':
+            case '\u00C3':
+            case '\u00C4':
+            case '\u00C5':
+            case '\u00E0':
+            case '\u00E1':
+            case '\u00E2':
+            case '\u00E3':
+            case '\u00E4':
+            case '\u00E5':
+            case '\u0100':
+            case '\u0101':
+            case '\u0102':
+            case '\u0103':
+            case '\u0104':
+            case '\u0105':
+                return 'a';
+            case '\u00C7':
+            case '\u00E7':
+            case '\u0106':
+            case '\u0107':
+            case '\u0108':
+            case '\u0109':
+            case '\u010A':
+            case '\u010B':
+            case '\u010C':
+            case '\u010D':
+                return 'c';
+            case '\u00D0':
+            case '\u00F0':
+            case '\u010E':
+            case '\u010F':
+            case '\u0110':
+            case '\u0111':
+                return 'd';
+            case '\u00C8':
+            case '\u00C9':
+            case '\u00CA':
+            case '\u00CB':
+            case '\u00E8':
+            case '\u00E9':
+            case '\u00EA':
+            case '\u00EB':
+            case '\u0112':
+            case '\u0113':
+            case '\u0114':
+            case '\u0115':
+            case '\u0116':
+            case '\u0117':
+            case '\u0118':
+            case '\u0119':
+            case '\u011A':
+            case '\u011B':
+                return 'e';
+            case '\u011C':
+            case '\u011D':
+            case '\u011E':
+            case '\u011F':
+            case '\u0120':
+            case '\u0121':
+            case '\u0122':
+            case '\u0123':
+                return 'g';
+            case '\u0124':
+            case '\u0125':
+            case '\u0126':
+            case '\u0127':
+                return 'h';
+            case '\u00CC':
+            case '\u00CD':
+            case '\u00CE':
+            case '\u00CF':
+            case '\u00EC':
+            case '\u00ED':
+            case '\u00EE':
+            case '\u00EF':
+            case '\u0128':
+            case '\u0129':
+            case '\u012A':
+            case '\u012B':
+            case '\u012C':
+            case '\u012D':
+            case '\u012E':
+            case '\u012F':
+            case '\u0130':
+            case '\u0131':
+                return 'i';
+            case '\u0134':
+            case '\u0135':
+                return 'j';
+            case '\u0136':
+            case '\u0137':
+            case '\u0138':
+                return 'k';
+            case '\u0139':
+            case '\u013A':
+            case '\u013B':
+            case '\u013C':
+            case '\u013D':
+            case '\u013E':
+            case '\u013F':
+            case '\u0140':
+            case '\u0141':
+            case '\u0142':
+                return 'l';
+            case '\u00D1':
+            case '\u00F1':
+            case '\u0143':
+            case '\u0144':
+            case '\u0145':
+            case '\u0146':
+            case '\u0147':
+            case '\u0148':
+            case '\u0149':
+            case '\u014A':
+            case '\u014B':
+                return 'n';
+            case '\u00D2':
+            case '\u00D3':
+            case '\u00D4':
+            case '\u00D5':
+            case '\u00D6':
+            case '\u00D8':
+            case '\u00F2':
+            case '\u00F3':
+            case '\u00F4':
+            case '\u00F5':
+            case '\u00F6':
+            case '\u00F8':
+            case '\u014C':
+            case '\u014D':
+            case '\u014E':
+            case '\u014F':
+            case '\u0150':
+            case '\u0151':
+                return 'o';
+            case '\u0154':
+            case '\u0155':
+            case '\u0156':
+            case '\u0157':
+            case '\u0158':
+            case '\u0159':
+                return 'r';
+            case '\u015A':
+            case '\u015B':
+            case '\u015C':
+            case '\u015D':
+            case '\u015E':
+            case '\u015F':
+            case '\u0160':
+            case '\u0161':
+            case '\u017F':
+                return 's';
+            case '\u0162':
+            case '\u0163':
+            case '\u0164':
+            case '\u0165':
+            case '\u0166':
+            case '\u0167':
+                return 't';
+            case '\u00D9':
+            case '\u00DA':
+            case '\u00DB':
+            case '\u00DC':
+            case '\u00F9':
+            case '\u00FA':
+            case '\u00FB':
+            case '\u00FC':
+            case '\u0168':
+            case '\u0169':
+            case '\u016A':
+            case '\u016B':
+            case '\u016C':
+            case '\u016D':
+            case '\u016E':
+            case '\u016F':
+            case '\u0170':
+            case '\u0171':
+            case '\u0172':
+            case '\u0173':
+                return 'u';
+            case '\u0174':
+            case '\u0175':
+                return 'w';
+            case '\u00DD':
+            case '\u00FD':
+            case '\u00FF':
+            case '\u0176':
+            case '\u0177':
+            case '\u0178':
+                return 'y';
+            case '\u0179':
+            case '\u017A':
+            case '\u017B':
+            case '\u017C':
+            case '\u017D':
+            case '\u017E':
+                return 'z';
+        }
+        return c;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+}
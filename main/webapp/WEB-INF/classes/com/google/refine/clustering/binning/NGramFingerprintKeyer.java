@@ -0,0 +1,140 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.clustering.binning;
+
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Computes keys made of the distinct n-grams of a string, sorted and
+ * concatenated, after removing punctuation, spaces and diacritics.
+ * 
+ * Like the {@link FingerprintKeyer}, most strings are keyed in a single pass
+ * over a buffer reused by the thread.
+ */
+public class NGramFingerprintKeyer extends FingerprintKeyer {
+
+    static final Pattern alphanum = Pattern.compile("\\p{Punct}|\\p{Cntrl}|\\p{Space}");
+
+    /**
+     * How each character is keyed: removed, or lowercased
+     */
+    static final char[] NGRAM_FOLDED = new char[TABLE_SIZE];
+
+    static {
+        for (char c = 0; c < TABLE_SIZE; c++) {
+            char lower = Character.toLowerCase(c);
+            if (c == '\u0130') {
+                NGRAM_FOLDED[c] = UNSUPPORTED;
+            } else if (alphanum.matcher(String.valueOf(lower)).matches()) {
+                NGRAM_FOLDED[c] = REMOVED;
+            } else {
+                NGRAM_FOLDED[c] = lower;
+            }
+        }
+    }
+    
+    @Override
+    public String key(String s, Object... o) {
+        int ngram_size = 2;
+        if (o != null && o.length > 0 && o[0] instanceof Number) {
+            ngram_size = (Integer) o[0];
+        }
+        int length = s.length();
+        if (ngram_size < 1 || length > MAX_BUFFERED_LENGTH || !hasSimpleLowerCase()) {
+            return keyInSteps(s, ngram_size);
+        }
+        Buffer b = buffers.get();
+        b.reset(length);
+        char[] chars = b.chars;
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            char f = c < TABLE_SIZE ? NGRAM_FOLDED[c] : UNSUPPORTED;
+            if (f == UNSUPPORTED) {
+                return keyInSteps(s, ngram_size);
+            } else if (f != REMOVED) {
+                chars[n++] = f;
+            }
+        }
+        for (int i = 0; i + ngram_size <= n; i++) {
+            b.addRange(i, ngram_size);
+        }
+
+        // n-grams are ordered before finding their ASCII equivalent
+        b.sort();
+        char[] out = b.out(b.count * ngram_size);
+        int size = 0;
+        for (int i = 0; i < b.count; i++) {
+            if (b.sameAsPrevious(i)) {
+                continue;
+            }
+            int start = b.starts[b.order[i]];
+            for (int k = 0; k < ngram_size; k++) {
+                out[size++] = asciify(chars[start + k]);
+            }
+        }
+        return new String(out, 0, size);
+    }
+
+    /**
+     * Computes the key of any string, one step after the other.
+     */
+    protected String keyInSteps(String s, int ngram_size) {
+        s = s.toLowerCase(); // then lowercase it
+        s = alphanum.matcher(s).replaceAll(""); // then remove all punctuation and control chars
+        TreeSet<String> set = ngram_split(s,ngram_size);
+        StringBuffer b = new StringBuffer();
+        Iterator<String> i = set.iterator();
+        while (i.hasNext()) { // join ordered fragments back together
+            b.append(i.next());
+        }
+        return asciify(b.toString()); // find ASCII equivalent to characters 
+    }
+
+    protected TreeSet<String> ngram_split(String s, int size) {
+        TreeSet<String> set = new TreeSet<String>();
+        char[] chars = s.toCharArray();
+        for (int i = 0; i + size <= chars.length; i++) {
+            set.add(new String(chars,i,size));
+        }
+        return set;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+}
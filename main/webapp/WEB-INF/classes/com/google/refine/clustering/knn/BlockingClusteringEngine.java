@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package com.google.refine.clustering.knn;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Finds the values which are within a given distance of each other.
+ * 
+ * Values are grouped in blocks sharing an n-gram of their normalized form,
+ * and distances are only computed between values of the same block. Each
+ * pair of values is only considered in the first block they share, and
+ * pairs are skipped when the bounds of the distance show that they are too
+ * far apart. Blocks are evaluated in parallel on the common fork-join pool.
+ * 
+ * A value is clustered with all the values within the radius around it.
+ */
+public class BlockingClusteringEngine {
+
+    /**
+     * Rows of large blocks are evaluated in chunks of this size, so that
+     * a single block does not keep one thread busy while the others are idle.
+     */
+    static final int ROWS_PER_TASK = 32;
+
+    static final Pattern extra = Pattern.compile("\\p{Cntrl}|\\p{Punct}");
+    static final Pattern whitespace = Pattern.compile("\\p{Space}+");
+
+    final protected SimilarityDistance _distance;
+    final protected int _ngramSize;
+    final protected double _radius;
+
+    protected final AtomicInteger _tasksDone = new AtomicInteger();
+    protected volatile int _taskCount = 0;
+    protected volatile boolean _canceled = false;
+
+    public BlockingClusteringEngine(SimilarityDistance distance, int ngramSize, double radius) {
+        _distance = distance;
+        _ngramSize = ngramSize;
+        _radius = radius;
+    }
+
+    /**
+     * @param values distinct values to cluster
+     * @return the clusters of more than one value, largest first
+     */
+    public List<Set<Serializable>> getClusters(List<String> values) {
+        int size = values.size();
+        String[] originals = values.toArray(new String[size]);
+        int[][] bigrams = new int[size][];
+        String[][] ngrams = new String[size][];
+        IntStream.range(0, size).parallel().forEach(i -> {
+            String s = originals[i];
+            ngrams[i] = ngrams(s);
+            bigrams[i] = bigrams(s);
+        });
+
+        // blocks of value indices by n-gram, in increasing order of indices
+        Map<String, Integer> blockIds = new HashMap<>();
+        List<int[]> blocks = new ArrayList<>();
+        int[] blockSizes = new int[16];
+        int[][] valueBlocks = new int[size][];
+        for (int i = 0; i < size; i++) {
+            valueBlocks[i] = new int[ngrams[i].length];
+            for (int k = 0; k < ngrams[i].length; k++) {
+                Integer id = blockIds.get(ngrams[i][k]);
+                if (id == null) {
+                    id = blocks.size();
+                    blockIds.put(ngrams[i][k], id);
+                    blocks.add(new int[4]);
+                    if (id == blockSizes.length) {
+                        blockSizes = Arrays.copyOf(blockSizes, id * 2);
+                    }
+                }
+                int[] block = blocks.get(id);
+                if (blockSizes[id] == block.length) {
+                    block = Arrays.copyOf(block, block.length * 2);
+                    blocks.set(id, block);
+                }
+                block[blockSizes[id]++] = i;
+                valueBlocks[i][k] = id;
+            }
+        }
+
+        for (int b = 0; b < blocks.size(); b++) {
+            blocks.set(b, Arrays.copyOf(blocks.get(b), blockSizes[b]));
+        }
+        IntStream.range(0, size).parallel().forEach(i -> Arrays.sort(valueBlocks[i]));
+
+        // values are sorted by length in each block, so that rows can stop
+        // as soon as the difference of lengths is too large
+        List<int[]> tasks = new ArrayList<>();
+        for (int b = 0; b < blocks.size(); b++) {
+            int[] block = blocks.get(b);
+            if (block.length < 2) {
+                continue;
+            }
+            blocks.set(b, Arrays.stream(block).boxed()
+                    .sorted(Comparator.comparingInt(i -> originals[i].length()))
+                    .mapToInt(Integer::intValue)
+                    .toArray());
+            for (int from = 0; from < block.length - 1; from += ROWS_PER_TASK) {
+                tasks.add(new int[] { b, from, Math.min(block.length - 1, from + ROWS_PER_TASK) });
+            }
+        }
+        _taskCount = tasks.size();
+
+        long[] pairs = tasks.parallelStream()
+                .flatMapToLong(task -> evaluateRows(blocks.get(task[0]), task[0], task[1], task[2],
+                        originals, bigrams, valueBlocks))
+                .toArray();
+        if (_canceled) {
+            throw new CancellationException("Clustering was canceled");
+        }
+
+        // the neighbours of each value, in increasing order of indices
+        Arrays.sort(pairs);
+        List<List<Integer>> neighbours = new ArrayList<>(Collections.nCopies(size, null));
+        for (long pair : pairs) {
+            int i = (int) (pair >>> 32);
+            int j = (int) pair;
+            addNeighbour(neighbours, i, j);
+            addNeighbour(neighbours, j, i);
+        }
+
+        Set<Set<Serializable>> clusters = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) {
+            if (neighbours.get(i) != null) {
+                Set<Serializable> cluster = new TreeSet<>();
+                cluster.add(values.get(i));
+                for (int j : neighbours.get(i)) {
+                    cluster.add(values.get(j));
+                }
+                clusters.add(cluster);
+            }
+        }
+        List<Set<Serializable>> result = new ArrayList<>(clusters);
+        Collections.sort(result, Comparator.comparingInt(c -> -c.size()));
+        return result;
+    }
+
+    /**
+     * Compares the values of some rows of a block with the values after them.
+     * 
+     * @return the pairs of close values, as the smallest index of the pair in the
+     *      upper half and the largest in the lower half
+     */
+    protected LongStream evaluateRows(int[] block, int blockId, int from, int to,
+            String[] originals, int[][] bigrams, int[][] valueBlocks) {
+        if (_canceled) {
+            _tasksDone.incrementAndGet();
+            return LongStream.empty();
+        }
+        LongStream.Builder pairs = LongStream.builder();
+        for (int r = from; r < to; r++) {
+            int i = block[r];
+            int lengthI = originals[i].length();
+            for (int c = r + 1; c < block.length; c++) {
+                int j = block[c];
+                int lengthJ = originals[j].length();
+                int maxCommon = Math.min(bigrams[i].length, bigrams[j].length);
+                if (_radius >= 0 && _distance.lowerBound(lengthI, lengthJ, maxCommon) > _radius) {
+                    // the following values are even longer
+                    break;
+                }
+                if (firstCommonBlock(valueBlocks[i], valueBlocks[j]) != blockId) {
+                    // evaluated in another block
+                    continue;
+                }
+                if (_radius >= 0 && _distance.lowerBound(lengthI, lengthJ, 0) > _radius
+                        && _distance.lowerBound(lengthI, lengthJ, commonCount(bigrams[i], bigrams[j])) > _radius) {
+                    continue;
+                }
+                if (_radius < 0 || _distance.compute(originals[i], originals[j]) <= _radius) {
+                    pairs.add(((long) Math.min(i, j) << 32) | Math.max(i, j));
+                }
+            }
+        }
+        _tasksDone.incrementAndGet();
+        return pairs.build();
+    }
+
+    /**
+     * @return the first block shared by two values, or -1
+     */
+    static protected int firstCommonBlock(int[] blocksA, int[] blocksB) {
+        int a = 0;
+        int b = 0;
+        while (a < blocksA.length && b < blocksB.length) {
+            if (blocksA[a] == blocksB[b]) {
+                return blocksA[a];
+            } else if (blocksA[a] < blocksB[b]) {
+                a++;
+            } else {
+                b++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of elements two sorted arrays have in common, with multiplicity
+     */
+    static protected int commonCount(int[] sortedA, int[] sortedB) {
+        int a = 0;
+        int b = 0;
+        int count = 0;
+        while (a < sortedA.length && b < sortedB.length) {
+            if (sortedA[a] == sortedB[b]) {
+                count++;
+                a++;
+                b++;
+            } else if (sortedA[a] < sortedB[b]) {
+                a++;
+            } else {
+                b++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the bigrams of a string as sorted pairs of characters, each
+     *      lowercased on its own like the Levenshtein distance compares them,
+     *      so that there are as many bigrams as in the original string
+     */
+    static protected int[] bigrams(String s) {
+        if (s.length() < 2) {
+            return new int[0];
+        }
+        int[] bigrams = new int[s.length() - 1];
+        for (int i = 0; i < bigrams.length; i++) {
+            bigrams[i] = (Character.toLowerCase(s.charAt(i)) << 16) | Character.toLowerCase(s.charAt(i + 1));
+        }
+        Arrays.sort(bigrams);
+        return bigrams;
+    }
+
+    /**
+     * Splits a value in n-grams the same way as the blocking of the
+     * Vicino library: punctuation, control characters and spaces are
+     * removed and the value is lowercased first.
+     * 
+     * @return the distinct n-grams of the value
+     */
+    protected String[] ngrams(String s) {
+        s = extra.matcher(s.trim()).replaceAll("");
+        s = whitespace.matcher(s).replaceAll("").toLowerCase();
+        Set<String> ngrams = new LinkedHashSet<>();
+        for (int i = 0; i + _ngramSize <= s.length(); i++) {
+            ngrams.add(s.substring(i, i + _ngramSize));
+        }
+        return ngrams.toArray(new String[ngrams.size()]);
+    }
+
+    static protected void addNeighbour(List<List<Integer>> neighbours, int i, int j) {
+        List<Integer> list = neighbours.get(i);
+        if (list == null) {
+            list = new ArrayList<>(2);
+            neighbours.set(i, list);
+        }
+        list.add(j);
+    }
+
+    /**
+     * @return the percentage of the pairs of values which were evaluated
+     */
+    public int getProgress() {
+        int count = _taskCount;
+        return count == 0 ? 0 : _tasksDone.get() * 100 / count;
+    }
+
+    /**
+     * Stops evaluating pairs of values, {@link #getClusters(List)} then
+     * throws a {@link CancellationException}.
+     */
+    public void cancel() {
+        _canceled = true;
+    }
+}
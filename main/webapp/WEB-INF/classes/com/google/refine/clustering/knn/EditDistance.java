@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package com.google.refine.clustering.knn;
+
+import edu.mit.simile.vicino.distances.LevenshteinDistance;
+
+/**
+ * The Levenshtein distance of the Vicino library, with bounds which let
+ * clustering skip most pairs of strings which are far apart.
+ */
+public class EditDistance extends VicinoDistance {
+
+	public EditDistance() {
+		super(new LevenshteinDistance());
+	}
+
+	/**
+	 * An edit changes the length by one at most, and destroys at most
+	 * two bigrams, while two strings at distance 0 share all their
+	 * max(lengthA, lengthB) - 1 bigrams.
+	 */
+	@Override
+	public double lowerBound(int lengthA, int lengthB, int commonBigrams) {
+		int lengthBound = Math.abs(lengthA - lengthB);
+		int bigramBound = (Math.max(lengthA, lengthB) - 1 - commonBigrams + 1) / 2;
+		return Math.max(lengthBound, bigramBound);
+	}
+}
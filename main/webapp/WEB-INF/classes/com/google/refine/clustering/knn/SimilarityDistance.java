@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (C) 2018, Antonin Delpeuch
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package com.google.refine.clustering.knn;
+
+/**
+ * A function that computes a similarity distance between
+ * two strings.
+ * 
+ * This is introduced to provide a clean interface for extensions, independent
+ * of the library currently used (Simile Vicino, unmaintained since 2010 as of
+ * December 2018).
+ */
+public interface SimilarityDistance {
+	/**
+	 * Compute the distance between two strings. This should return 0 when the
+	 * two arguments are equal, and rise as their differences increase.
+	 */
+	public double compute(String a, String b);
+	
+	/**
+	 * Returns a lower bound of the distance between two strings, computed from
+	 * their lengths and from the number of bigrams they have in common
+	 * (counted with multiplicity, after lowercasing each character). Clustering uses it to skip
+	 * pairs of strings which cannot be close enough, without computing
+	 * their distance.
+	 * 
+	 * The bound must not increase with the number of common bigrams, and must
+	 * not decrease as the difference between the lengths grows. Distances which
+	 * cannot be bounded this way return 0, which never skips any pair.
+	 */
+	public default double lowerBound(int lengthA, int lengthB, int commonBigrams) {
+		return 0;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.commands.browsing;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.clustering.Clusterer;
+import com.google.refine.clustering.ClustererConfig;
+import com.google.refine.clustering.ClusteringCache;
+import com.google.refine.clustering.ClusteringProcess;
+import com.google.refine.commands.Command;
+import com.google.refine.model.Project;
+import com.google.refine.util.ParsingUtilities;
+
+/**
+ * Computes the clusters of a column in a {@link ClusteringProcess}. Clusters
+ * which take more than a few seconds to compute are returned by later calls
+ * of the command with the same parameters: in the meantime, it responds with
+ * the progress of the process. The process can be stopped by calling the
+ * command with the "cancel" parameter.
+ */
+public class ComputeClustersCommand extends Command {
+
+    final static Logger logger = LoggerFactory.getLogger("compute-clusters_command");
+
+    /**
+     * How long the command waits for the clusters before responding with the progress
+     */
+    static final long WAIT_MILLIS = 2000;
+    
+    /**
+     * This command uses POST (probably to allow for larger parameters) but does not actually modify any state
+     * so we do not add CSRF protection to it.
+     */
+    @Override
+    public void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        
+        try {
+            Project project = getProject(request);
+            EngineConfig engineConfig = getEngineConfig(request);
+            String clusterer_conf = request.getParameter("clusterer");
+            ClustererConfig clustererConfig = ParsingUtilities.mapper.readValue(clusterer_conf, ClustererConfig.class);
+
+            ClusteringCache cache = ClusteringCache.getInstance();
+            String scope = ClusteringCache.makeScope(project, clustererConfig.getColumnName(), engineConfig);
+            String key = ClusteringCache.makeKey(scope, clustererConfig);
+
+            if ("true".equals(request.getParameter("cancel"))) {
+                ClusteringProcess process = cache.getProcess(key);
+                if (process != null) {
+                    process.cancel();
+                }
+                response.setHeader("Content-Type", "application/json");
+                respond(response, "{ \"code\" : \"ok\" }");
+                return;
+            }
+
+            String clusters = (String) cache.getIfPresent(key);
+            if (clusters == null) {
+                Engine engine = getEngine(request, project);
+                ClusteringProcess process = cache.startProcess(key, () -> {
+                    Clusterer clusterer = clustererConfig.apply(project);
+                    clusterer.setCacheScope(scope);
+                    logger.info("computing clusters [{}]", clustererConfig.getType());
+                    return new ClusteringProcess(cache, key, "Clustering column " + clustererConfig.getColumnName(),
+                            clusterer, engine);
+                });
+                if (!process.waitFor(WAIT_MILLIS)) {
+                    respondPending(response, process.getProgress());
+                    return;
+                }
+                clusters = process.getClusters();
+            }
+
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader("Content-Type", "application/json");
+            response.setHeader("Cache-Control", "no-cache");
+            respond(response, clusters);
+        } catch (Exception e) {
+            respondException(response, e);
+        }
+    }
+
+    protected void respondPending(HttpServletResponse response, int progress) throws IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Type", "application/json");
+        response.setHeader("Cache-Control", "no-cache");
+        JsonGenerator writer = ParsingUtilities.mapper.getFactory().createGenerator(response.getWriter());
+        writer.writeStartObject();
+        writer.writeStringField("code", "pending");
+        writer.writeNumberField("progress", progress);
+        writer.writeEndObject();
+        writer.flush();
+        writer.close();
+    }
+}
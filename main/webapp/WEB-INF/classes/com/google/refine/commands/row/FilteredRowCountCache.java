@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.commands.row;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.model.Project;
+import com.google.refine.util.ProjectStateCache;
+
+/**
+ * Keeps the number of rows, or of records in records mode, selected by the
+ * facets recently shown, so that pages of rows can be returned without
+ * visiting all the filtered rows after them.
+ * 
+ * Entries are keyed by the state of the project and the engine configuration.
+ */
+public class FilteredRowCountCache extends ProjectStateCache<Integer> {
+
+    static final public int MAX_ENTRIES = 1000;
+
+    static private final FilteredRowCountCache s_instance = new FilteredRowCountCache();
+
+    public FilteredRowCountCache() {
+        super(MAX_ENTRIES, false);
+    }
+
+    static public FilteredRowCountCache getInstance() {
+        return s_instance;
+    }
+
+    /**
+     * @param engineConfig the configuration the engine was initialized from,
+     *      or null if it was not
+     * @return the number of filtered rows or records, or null if it is not known
+     */
+    public Integer getCount(Project project, Mode mode, EngineConfig engineConfig) throws JsonProcessingException {
+        return getIfPresent(makeKey(project, mode, engineConfig));
+    }
+
+    public void putCount(Project project, Mode mode, EngineConfig engineConfig, int count)
+            throws JsonProcessingException {
+        put(makeKey(project, mode, engineConfig), count);
+    }
+}
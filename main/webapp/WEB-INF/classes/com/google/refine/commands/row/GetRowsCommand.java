@@ -0,0 +1,329 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.commands.row;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.browsing.FilteredRecords;
+import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.RecordVisitor;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.commands.Command;
+import com.google.refine.importing.ImportingJob;
+import com.google.refine.importing.ImportingManager;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import com.google.refine.model.Row;
+import com.google.refine.sorting.SortingCache;
+import com.google.refine.sorting.SortingConfig;
+import com.google.refine.util.ParsingUtilities;
+
+public class GetRowsCommand extends Command {
+    
+    protected static class WrappedRow  {
+        @JsonUnwrapped
+        protected final Row row;
+        @JsonProperty("i")
+        protected final int rowIndex;
+        @JsonProperty("j")
+        @JsonInclude(Include.NON_NULL)
+        protected final Integer recordIndex;
+        
+        protected WrappedRow(Row rowOrRecord, int rowIndex, Integer recordIndex) {
+            this.row = rowOrRecord;
+            this.rowIndex = rowIndex;
+            this.recordIndex = recordIndex;
+        }
+    }
+    
+    /**
+     * This command accepts both POST and GET. It is not CSRF-protected as it does not incur any state change.
+     */
+    
+    @Override
+    public void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        internalRespond(request, response);
+    }
+    
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        internalRespond(request, response);
+    }
+    
+    protected void internalRespond(HttpServletRequest request, HttpServletResponse response)
+        throws ServletException, IOException {
+        
+        try {
+            Project project = null;
+            
+            // This command also supports retrieving rows for an importing job.
+            String importingJobID = request.getParameter("importingJobID");
+            if (importingJobID != null) {
+                long jobID = Long.parseLong(importingJobID);
+                ImportingJob job = ImportingManager.getJob(jobID);
+                if (job != null) {
+                    project = job.project;
+                }
+            }
+            if (project == null) {
+                project = getProject(request);
+            }
+            
+            Engine engine = getEngine(request, project);
+            EngineConfig engineConfig = getEngineConfig(request);
+            Mode mode = engine.getMode();
+            String callback = request.getParameter("callback");
+            
+            int start = Math.min(project.rows.size(), Math.max(0, getIntegerParameter(request, "start", 0)));
+            int limit = Math.min(project.rows.size() - start, Math.max(0, getIntegerParameter(request, "limit", 20)));
+            
+            SortingConfig sortingConfig = null;
+            try {
+                String sortingJson = request.getParameter("sorting");
+                if (sortingJson != null) {
+                    sortingConfig = SortingConfig.reconstruct(sortingJson);
+                }
+            } catch (IOException e) {
+            }
+            
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader("Content-Type", callback == null ? "application/json" : "text/javascript");
+            
+            PrintWriter writer = response.getWriter();
+            if (callback != null) {
+                writer.write(callback);
+                writer.write("(");
+            }
+            
+            // rows are written out as they are visited, without keeping them
+            JsonGenerator generator = ParsingUtilities.mapper.getFactory().createGenerator(writer);
+            ObjectWriter valueWriter = ParsingUtilities.defaultWriter.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            generator.writeStartObject();
+            generator.writeFieldName("mode");
+            valueWriter.writeValue(generator, mode);
+            generator.writeArrayFieldStart("rows");
+            
+            RowWritingVisitor rwv = new RowWritingVisitor(start, limit, generator, valueWriter);
+            try {
+                if (sortingConfig != null && sortingConfig.getCriteria().length > 0) {
+                    // the sorted indices are cached, so only the requested page is visited
+                    int[] sorted = SortingCache.getInstance().getSortedIndices(
+                            project, engine, engineConfig, sortingConfig);
+                    for (int i = start; i < Math.min(sorted.length, start + limit); i++) {
+                        if (mode == Mode.RowBased) {
+                            rwv.internalVisit(project, sorted[i], project.rows.get(sorted[i]));
+                        } else {
+                            rwv.internalVisit(project, project.recordModel.getRecord(sorted[i]));
+                        }
+                    }
+                    rwv.total = sorted.length;
+                } else {
+                    // once the count is known, the rows after the page are not visited
+                    Integer count = FilteredRowCountCache.getInstance().getCount(project, mode, engineConfig);
+                    rwv.stopAfterPage = count != null;
+                    if (mode == Mode.RowBased) {
+                        FilteredRows filteredRows = engine.getAllFilteredRows();
+                        filteredRows.accept(project, rwv);
+                    } else {
+                        FilteredRecords filteredRecords = engine.getFilteredRecords();
+                        filteredRecords.accept(project, rwv);
+                    }
+                    if (count != null) {
+                        rwv.total = count;
+                    } else {
+                        FilteredRowCountCache.getInstance().putCount(project, mode, engineConfig, rwv.total);
+                    }
+                }
+            } catch (Exception e) {
+                // rows may have been sent already: end the array of the rows
+                // written, which are all complete, and report the error after it
+                logger.warn("Exception caught while writing rows", e);
+                generator.writeEndArray();
+                generator.writeStringField("code", "error");
+                generator.writeStringField("message", e instanceof UncheckedIOException
+                        ? e.getCause().getMessage() : e.getMessage());
+                generator.writeEndObject();
+                generator.flush();
+                if (callback != null) {
+                    writer.write(")");
+                }
+                return;
+            }
+            
+            generator.writeEndArray();
+            generator.writeNumberField("filtered", rwv.total);
+            generator.writeNumberField("total",
+                    mode == Mode.RowBased ? project.rows.size() : project.recordModel.getRecordCount());
+            generator.writeNumberField("start", start);
+            generator.writeNumberField("limit", limit);
+            
+            // Pool all the recons occuring in the rows written, each once
+            generator.writeObjectFieldStart("pool");
+            generator.writeObjectFieldStart("recons");
+            Set<Long> reconIds = new HashSet<>();
+            for (int i = 0; i < rwv.rowCount; i++) {
+                for (Cell c : project.rows.get(rwv.rowIndices[i]).cells) {
+                    if (c != null && c.recon != null && reconIds.add(c.recon.id)) {
+                        generator.writeFieldName(Long.toString(c.recon.id));
+                        valueWriter.writeValue(generator, c.recon);
+                    }
+                }
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+            
+            generator.writeEndObject();
+            generator.flush();
+            if (callback != null) {
+                writer.write(")");
+            }
+            
+            // metadata refresh for row mode and record mode
+	    if (project.getMetadata() != null) {
+            	project.getMetadata().setRowCount(project.rows.size());
+	    }
+        } catch (Exception e) {
+            respondException(response, e);
+        }
+    }
+    
+    /**
+     * Writes the rows of the requested page as they are visited, and counts
+     * the rows or records visited.
+     */
+    static protected class RowWritingVisitor implements RowVisitor, RecordVisitor {
+        final int           start;
+        final int           limit;
+        final JsonGenerator generator;
+        final ObjectWriter  writer;
+        
+        /*
+         * The rows written, from which the recons are pooled
+         */
+        public int[]        rowIndices = new int[16];
+        public int          rowCount = 0;
+        
+        public int total;
+        /*
+         * Whether to stop visiting once the page is written, when the
+         * total is known already
+         */
+        public boolean stopAfterPage = false;
+        
+        public RowWritingVisitor(int start, int limit, JsonGenerator generator, ObjectWriter writer) {
+            this.start = start;
+            this.limit = limit;
+            this.generator = generator;
+            this.writer = writer;
+        }
+        
+        @Override
+        public void start(Project project) {
+            // nothing to do
+        }
+        
+        @Override
+        public void end(Project project) {
+            // nothing to do
+        }
+        
+        @Override
+        public boolean visit(Project project, int rowIndex, Row row) {
+            if (total >= start && total < start + limit) {
+                internalVisit(project, rowIndex, row);
+            }
+            total++;
+            
+            return stopAfterPage && total >= start + limit;
+        }
+        
+        @Override
+        public boolean visit(Project project, Record record) {
+            if (total >= start && total < start + limit) {
+                internalVisit(project, record);
+            }
+            total++;
+            
+            return stopAfterPage && total >= start + limit;
+        }
+        
+        public boolean internalVisit(Project project, int rowIndex, Row row) {
+            writeRow(new WrappedRow(row, rowIndex, null));
+            return false;
+        }
+        
+        protected boolean internalVisit(Project project, Record record) {
+            for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
+                Row row = project.rows.get(r);
+                writeRow(new WrappedRow(row, r, r == record.fromRowIndex ? record.recordIndex : null));
+            }
+            return false;
+        }
+        
+        protected void writeRow(WrappedRow wrappedRow) {
+            try {
+                // serialized on its own first, so that a row failing to be
+                // serialized is not partially written
+                generator.writeRawValue(writer.writeValueAsString(wrappedRow));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (rowCount == rowIndices.length) {
+                rowIndices = Arrays.copyOf(rowIndices, rowCount * 2);
+            }
+            rowIndices[rowCount++] = wrappedRow.rowIndex;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018, Tony Opara
+ *        All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * - Redistributions of source code must retain the above copyright notice, this 
+ *   list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, 
+ *   this list of conditions and the following disclaimer in the documentation 
+ *   and/or other materials provided with the distribution.
+ * 
+ * Neither the name of Google nor the names of its contributors may be used to 
+ * endorse or promote products derived from this software without specific 
+ * prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.google.refine.exporters.sql;
+
+
+public class SqlData {
+    
+    private String columnName;
+    private Object value;
+    private String text;
+    public static final String SQL_TYPE_VARCHAR = "VARCHAR";
+    public static final String SQL_TYPE_CHAR = "CHAR";
+    public static final String SQL_TYPE_TEXT = "TEXT";
+    public static final String SQL_TYPE_INTEGER = "INTEGER";
+    public static final String SQL_TYPE_INT = "INT";
+    public static final String SQL_TYPE_NUMERIC = "NUMERIC";
+    public static final String SQL_TYPE_DATE = "DATE";
+    public static final String SQL_TYPE_TIMESTAMP = "TIMESTAMP";
+    
+    
+    
+    public SqlData(String columnName, Object value, String text) {
+        this.columnName = columnName;
+        this.value = value;
+        this.text = text;
+       
+    }
+
+    
+    public String getColumnName() {
+        return columnName;
+    }
+
+    
+    public Object getValue() {
+        return value;
+    }
+
+    
+    public String getText() {
+        return text;
+    }
+
+
+    @Override
+    public String toString() {
+        return "SqlData [columnName=" + columnName + ", value=" + value + ", text=" + text + "]";
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.expr;
+
+import java.util.Properties;
+
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+/**
+ * Interface for evaluable expressions in any arbitrary language.
+ */
+public interface Evaluable {
+    /**
+     * Evaluate this expression in the given environment (bindings).
+     * 
+     * @param bindings
+     * @return
+     */
+    public Object evaluate(Properties bindings);
+
+    /**
+     * Evaluate this expression on several rows of a project, each row being
+     * bound as by {@link ExpressionUtils#bind}. Expressions which can compute
+     * their values for many rows at once override this, the default being to
+     * evaluate the rows one after the other.
+     * 
+     * @param project
+     * @param columnName the column the expression is based on
+     * @param cellIndex the cell index of that column, or -1
+     * @param rowIndices the rows to evaluate, in any order
+     * @param count the number of rows to evaluate, from the start of rowIndices
+     * @param results receives the value of rowIndices[i] at position i
+     */
+    default public void evaluateRows(
+            Project project, String columnName, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        Properties bindings = ExpressionUtils.createBindings(project);
+        for (int i = 0; i < count; i++) {
+            int rowIndex = rowIndices[i];
+            Row row = project.rows.get(rowIndex);
+            Cell cell = cellIndex < 0 ? null : row.getCell(cellIndex);
+
+            ExpressionUtils.bind(bindings, row, rowIndex, columnName, cell);
+            results[i] = evaluate(bindings);
+        }
+    }
+}
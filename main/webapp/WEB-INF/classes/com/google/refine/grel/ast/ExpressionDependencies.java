@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.grel.ast;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.functions.Get;
+import com.google.refine.expr.functions.HasField;
+import com.google.refine.expr.functions.arrays.Sort;
+import com.google.refine.grel.Control;
+import com.google.refine.grel.Function;
+import com.google.refine.grel.controls.Filter;
+import com.google.refine.grel.controls.ForEach;
+import com.google.refine.grel.controls.ForEachIndex;
+import com.google.refine.grel.controls.ForNonBlank;
+import com.google.refine.grel.controls.ForRange;
+import com.google.refine.grel.controls.With;
+
+/**
+ * Tells which parts of a row a parsed expression can see, by looking at the
+ * variables it reads and the functions it calls.
+ */
+public class ExpressionDependencies {
+
+    /**
+     * Variables bound to the cell an expression is evaluated on, or to values
+     * which do not change from a row to another.
+     */
+    static final private Set<String> s_cellVariables = new HashSet<>(Arrays.asList(
+            "value", "cell", "columnName", "true", "false", "PI"));
+
+    /**
+     * Functions which are not pure, as they may return or modify mutable
+     * values, but which read nothing else than their arguments.
+     */
+    static final private Set<Class<? extends Function>> s_argumentOnlyFunctions = new HashSet<>(Arrays.asList(
+            Get.class, HasField.class, Sort.class));
+
+    /**
+     * Positions of the arguments of controls which name the variables they bind.
+     * The arguments after the first of them are evaluated with these variables bound.
+     */
+    static final private Map<Class<? extends Control>, int[]> s_bindingControls = new HashMap<>();
+    static {
+        s_bindingControls.put(Filter.class, new int[] { 1 });
+        s_bindingControls.put(ForEach.class, new int[] { 1 });
+        s_bindingControls.put(ForEachIndex.class, new int[] { 1, 2 });
+        s_bindingControls.put(ForNonBlank.class, new int[] { 1 });
+        s_bindingControls.put(ForRange.class, new int[] { 3 });
+        s_bindingControls.put(With.class, new int[] { 1 });
+    }
+
+    /**
+     * @return true if the expression only reads the cell it is evaluated on,
+     *      so that it returns the same result as long as the cell does not change
+     */
+    static public boolean dependsOnCellOnly(Evaluable root) {
+        return dependsOnCellOnly(root, new HashSet<>());
+    }
+
+    static protected boolean dependsOnCellOnly(Evaluable e, Set<String> locals) {
+        if (e instanceof LiteralExpr) {
+            return true;
+        } else if (e instanceof VariableExpr) {
+            String name = ((VariableExpr) e)._name;
+            return locals.contains(name) || s_cellVariables.contains(name);
+        } else if (e instanceof FieldAccessorExpr) {
+            return dependsOnCellOnly(((FieldAccessorExpr) e)._inner, locals);
+        } else if (e instanceof SharedExprScope) {
+            return dependsOnCellOnly(((SharedExprScope) e)._inner, locals);
+        } else if (e instanceof SharedExpr) {
+            return dependsOnCellOnly(((SharedExpr) e)._inner, locals);
+        } else if (e instanceof OperatorCallExpr) {
+            return argsDependOnCellOnly(((OperatorCallExpr) e)._args, locals);
+        } else if (e instanceof FunctionCallExpr) {
+            FunctionCallExpr call = (FunctionCallExpr) e;
+            return (call._function.isPure() || s_argumentOnlyFunctions.contains(call._function.getClass()))
+                    && argsDependOnCellOnly(call._args, locals);
+        } else if (e instanceof ControlCallExpr) {
+            ControlCallExpr call = (ControlCallExpr) e;
+            int[] names = s_bindingControls.get(call._control.getClass());
+            if (names == null) {
+                return argsDependOnCellOnly(call._args, locals);
+            }
+            Set<String> inner = new HashSet<>(locals);
+            Set<Evaluable> nameArgs = new HashSet<>();
+            for (int i : names) {
+                if (i >= call._args.length || !(call._args[i] instanceof VariableExpr)) {
+                    return false;
+                }
+                inner.add(((VariableExpr) call._args[i])._name);
+                nameArgs.add(call._args[i]);
+            }
+            for (int i = 0; i < call._args.length; i++) {
+                if (!nameArgs.contains(call._args[i])
+                        && !dependsOnCellOnly(call._args[i], i < names[0] ? locals : inner)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // other expressions may read anything
+        return false;
+    }
+
+    static private boolean argsDependOnCellOnly(Evaluable[] args, Set<String> locals) {
+        for (Evaluable arg : args) {
+            if (!dependsOnCellOnly(arg, locals)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.grel.ast;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.refine.expr.EvalError;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.grel.Control;
+import com.google.refine.grel.controls.If;
+import com.google.refine.grel.controls.IsBlank;
+import com.google.refine.grel.controls.IsEmptyString;
+import com.google.refine.grel.controls.IsError;
+import com.google.refine.grel.controls.IsNonBlank;
+import com.google.refine.grel.controls.IsNotNull;
+import com.google.refine.grel.controls.IsNull;
+import com.google.refine.grel.controls.IsNumeric;
+
+/**
+ * Rewrites a parsed expression so that it does less work per row:
+ * <ul>
+ * <li>operators and pure functions applied to constants are evaluated once,
+ * when the expression is parsed;</li>
+ * <li>pure sub-expressions which occur several times are evaluated once per
+ * row and their value is shared between the occurrences.</li>
+ * </ul>
+ * Only values which cannot be modified are kept, so that the optimized
+ * expression always returns the same results as the original one.
+ */
+public class ExpressionOptimizer {
+
+    /**
+     * Controls which evaluate their arguments in the bindings they are given.
+     * The arguments of other controls (forEach, with, …) may be evaluated with
+     * variables rebound, so they are never shared.
+     */
+    static final private Set<Class<? extends Control>> s_transparentControls = new HashSet<>(Arrays.asList(
+            If.class, IsBlank.class, IsEmptyString.class, IsError.class,
+            IsNonBlank.class, IsNotNull.class, IsNull.class, IsNumeric.class));
+
+    static public Evaluable optimize(Evaluable root) {
+        root = fold(root);
+
+        Map<Evaluable, String> keys = new IdentityHashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        computeKeys(root, keys, counts);
+
+        Map<String, Integer> slots = new HashMap<>();
+        root = share(root, keys, counts, slots);
+        return slots.isEmpty() ? root : new SharedExprScope(root, slots.size());
+    }
+
+    /**
+     * @return true if the value cannot be modified once computed, so that it
+     *      can be returned several times
+     */
+    static public boolean isImmutable(Object v) {
+        if (v == null || v instanceof String || v instanceof Boolean
+                || v instanceof Long || v instanceof Integer || v instanceof Double || v instanceof Float
+                || v instanceof Short || v instanceof Byte || v instanceof BigDecimal || v instanceof BigInteger
+                || v instanceof OffsetDateTime || v instanceof Pattern || v instanceof EvalError) {
+            return true;
+        } else if (v instanceof Object[]) {
+            // arrays are never modified by GREL functions, which copy them instead
+            for (Object o : (Object[]) v) {
+                if (!isImmutable(o)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    static protected Evaluable fold(Evaluable e) {
+        if (e instanceof FunctionCallExpr) {
+            FunctionCallExpr call = (FunctionCallExpr) e;
+            return foldArgs(e, call._args, call._function.isPure());
+        } else if (e instanceof OperatorCallExpr) {
+            return foldArgs(e, ((OperatorCallExpr) e)._args, true);
+        } else if (e instanceof ControlCallExpr) {
+            foldArgs(e, ((ControlCallExpr) e)._args, false);
+        } else if (e instanceof FieldAccessorExpr) {
+            FieldAccessorExpr accessor = (FieldAccessorExpr) e;
+            Evaluable inner = fold(accessor._inner);
+            if (inner != accessor._inner) {
+                return new FieldAccessorExpr(inner, accessor._fieldName);
+            }
+        }
+        return e;
+    }
+
+    static private Evaluable foldArgs(Evaluable e, Evaluable[] args, boolean foldable) {
+        for (int i = 0; i < args.length; i++) {
+            args[i] = fold(args[i]);
+            foldable &= args[i] instanceof LiteralExpr;
+        }
+        if (foldable) {
+            Object v;
+            try {
+                v = e.evaluate(new Properties());
+            } catch (Exception ex) {
+                // leave it to fail when evaluated
+                return e;
+            }
+            if (isImmutable(v)) {
+                return new ConstantExpr(v, e);
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Computes a key for each sub-expression, equal for structurally equal
+     * sub-expressions, and counts the occurrences of those which can be shared.
+     *
+     * @return the key of the expression, or null if it cannot be shared
+     */
+    static protected String computeKeys(Evaluable e, Map<Evaluable, String> keys, Map<String, Integer> counts) {
+        String key = null;
+        if (e instanceof LiteralExpr) {
+            key = literalKey(((LiteralExpr) e)._value);
+        } else if (e instanceof VariableExpr) {
+            key = "$" + ((VariableExpr) e)._name;
+        } else if (e instanceof FunctionCallExpr) {
+            FunctionCallExpr call = (FunctionCallExpr) e;
+            key = callKey(call._function.getClass().getName(), call._args, call._function.isPure(), keys, counts);
+        } else if (e instanceof OperatorCallExpr) {
+            OperatorCallExpr call = (OperatorCallExpr) e;
+            key = callKey(call._op, call._args, true, keys, counts);
+        } else if (e instanceof FieldAccessorExpr) {
+            FieldAccessorExpr accessor = (FieldAccessorExpr) e;
+            String inner = computeKeys(accessor._inner, keys, counts);
+            if (inner != null) {
+                key = inner + "." + new TextNode(accessor._fieldName).toString();
+            }
+        } else if (e instanceof ControlCallExpr) {
+            ControlCallExpr call = (ControlCallExpr) e;
+            if (s_transparentControls.contains(call._control.getClass())) {
+                for (Evaluable arg : call._args) {
+                    computeKeys(arg, keys, counts);
+                }
+            }
+        }
+
+        if (key != null) {
+            keys.put(e, key);
+            if (isShareable(e)) {
+                counts.merge(key, 1, Integer::sum);
+            }
+        }
+        return key;
+    }
+
+    static private String callKey(String name, Evaluable[] args, boolean pure,
+            Map<Evaluable, String> keys, Map<String, Integer> counts) {
+        StringBuffer sb = new StringBuffer(name).append('(');
+        for (int i = 0; i < args.length; i++) {
+            String arg = computeKeys(args[i], keys, counts);
+            if (arg == null) {
+                pure = false;
+            } else if (pure) {
+                sb.append(i > 0 ? "," : "").append(arg);
+            }
+        }
+        return pure ? sb.append(')').toString() : null;
+    }
+
+    static private String literalKey(Object v) {
+        if (v == null) {
+            return "null";
+        } else if (v instanceof String) {
+            return new TextNode((String) v).toString();
+        } else if (v instanceof Pattern) {
+            Pattern p = (Pattern) v;
+            return "/" + new TextNode(p.pattern()).toString() + "/" + p.flags();
+        } else if (v instanceof Number || v instanceof Boolean || v instanceof OffsetDateTime) {
+            return v.getClass().getSimpleName() + ":" + v.toString();
+        }
+        return null;
+    }
+
+    static private boolean isShareable(Evaluable e) {
+        return e instanceof FunctionCallExpr || e instanceof OperatorCallExpr || e instanceof FieldAccessorExpr;
+    }
+
+    static protected Evaluable share(Evaluable e, Map<Evaluable, String> keys,
+            Map<String, Integer> counts, Map<String, Integer> slots) {
+        String key = keys.get(e);
+        if (e instanceof FunctionCallExpr) {
+            shareArgs(((FunctionCallExpr) e)._args, keys, counts, slots);
+        } else if (e instanceof OperatorCallExpr) {
+            shareArgs(((OperatorCallExpr) e)._args, keys, counts, slots);
+        } else if (e instanceof FieldAccessorExpr) {
+            FieldAccessorExpr accessor = (FieldAccessorExpr) e;
+            Evaluable inner = share(accessor._inner, keys, counts, slots);
+            if (inner != accessor._inner) {
+                e = new FieldAccessorExpr(inner, accessor._fieldName);
+            }
+        } else if (e instanceof ControlCallExpr) {
+            ControlCallExpr call = (ControlCallExpr) e;
+            if (s_transparentControls.contains(call._control.getClass())) {
+                shareArgs(call._args, keys, counts, slots);
+            }
+        }
+
+        if (key != null && counts.getOrDefault(key, 0) > 1) {
+            Integer slot = slots.get(key);
+            if (slot == null) {
+                slot = slots.size();
+                slots.put(key, slot);
+            }
+            return new SharedExpr(e, slot);
+        }
+        return e;
+    }
+
+    static private void shareArgs(Evaluable[] args, Map<Evaluable, String> keys,
+            Map<String, Integer> counts, Map<String, Integer> slots) {
+        for (int i = 0; i < args.length; i++) {
+            args[i] = share(args[i], keys, counts, slots);
+        }
+    }
+}
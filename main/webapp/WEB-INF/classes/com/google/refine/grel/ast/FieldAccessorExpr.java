@@ -0,0 +1,136 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.grel.ast;
+
+import java.util.Properties;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.expr.HasFields;
+import com.google.refine.expr.functions.Get;
+import com.google.refine.expr.util.JsonValueConverter;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+
+/**
+ * An abstract syntax tree node encapsulating a field accessor,
+ * e.g., "cell.value" is accessing the field named "value" on the
+ * variable called "cell".
+ */
+public class FieldAccessorExpr implements Evaluable {
+    final protected Evaluable     _inner;
+    final protected String        _fieldName;
+    
+    public FieldAccessorExpr(Evaluable inner, String fieldName) {
+        _inner = inner;
+        _fieldName = fieldName;
+    }
+    
+    @Override
+    public Object evaluate(Properties bindings) {
+        Object o = _inner.evaluate(bindings);
+        if (ExpressionUtils.isError(o)) {
+            return o; // bubble the error up
+        } else if (o == null) {
+            return null;
+        } else if (o instanceof HasFields) {
+            return ((HasFields) o).getField(_fieldName, bindings);
+        } else if (o instanceof ObjectNode) {
+        	JsonNode value = ((ObjectNode) o).get(_fieldName);
+        	return JsonValueConverter.convert(value);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public void evaluateRows(
+            Project project, String columnName, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        if ("value".equals(_fieldName)) {
+            if (_inner instanceof VariableExpr && "cell".equals(((VariableExpr) _inner)._name)) {
+                getCellValues(project, cellIndex, rowIndices, count, results);
+                return;
+            }
+            String cellColumnName = getCellColumnName(_inner);
+            if (cellColumnName != null) {
+                Column column = project.columnModel.getColumnByName(cellColumnName);
+                getCellValues(project, column == null ? -1 : column.getCellIndex(), rowIndices, count, results);
+                return;
+            }
+        }
+        Evaluable.super.evaluateRows(project, columnName, cellIndex, rowIndices, count, results);
+    }
+
+    /**
+     * @return the name of the column of a cell accessed as cells["name"] or
+     *      cells.name, or null if the expression is not such an access
+     */
+    static protected String getCellColumnName(Evaluable e) {
+        if (e instanceof FieldAccessorExpr) {
+            FieldAccessorExpr accessor = (FieldAccessorExpr) e;
+            if (isVariable(accessor._inner, "cells")) {
+                return accessor._fieldName;
+            }
+        } else if (e instanceof FunctionCallExpr) {
+            FunctionCallExpr call = (FunctionCallExpr) e;
+            if (call._function instanceof Get && call._args.length == 2 && isVariable(call._args[0], "cells")
+                    && call._args[1] instanceof LiteralExpr && ((LiteralExpr) call._args[1])._value instanceof String) {
+                return (String) ((LiteralExpr) call._args[1])._value;
+            }
+        }
+        return null;
+    }
+
+    static private boolean isVariable(Evaluable e, String name) {
+        return e instanceof VariableExpr && name.equals(((VariableExpr) e)._name);
+    }
+
+    /**
+     * Reads the values of the cells of some rows directly, as "value" would be bound.
+     */
+    static protected void getCellValues(Project project, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        for (int i = 0; i < count; i++) {
+            Cell cell = cellIndex < 0 ? null : project.rows.get(rowIndices[i]).getCell(cellIndex);
+            results[i] = cell == null ? null : cell.value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return _inner.toString() + "." + _fieldName;
+    }
+}
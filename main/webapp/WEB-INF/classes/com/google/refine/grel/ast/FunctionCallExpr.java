@@ -0,0 +1,154 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.grel.ast;
+
+import java.util.Properties;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.grel.Function;
+import com.google.refine.model.Project;
+
+/**
+ * An abstract syntax tree node encapsulating a function call. The function's
+ * arguments are all evaluated down to values before the function is applied.
+ * If any argument is an error, the function is not applied, and the error is
+ * the result of the expression.
+ */
+public class FunctionCallExpr implements Evaluable {
+    final protected Evaluable[] _args;
+    final protected Function    _function;
+    
+    public FunctionCallExpr(Evaluable[] args, Function f) {
+        _args = args;
+        _function = f;
+    }
+                              
+    @Override
+    public Object evaluate(Properties bindings) {
+        Object[] args = new Object[_args.length];
+        for (int i = 0; i < _args.length; i++) {
+            Object v = _args[i].evaluate(bindings);
+            if (ExpressionUtils.isError(v)) {
+                return v; // bubble up the error
+            }
+            args[i] = v;
+        }
+        return call(bindings, args);
+    }
+
+    protected Object call(Properties bindings, Object[] args) {
+        try {
+            return _function.call(bindings, args);
+        } catch (Exception e) {
+            return new EvalError(e);
+        }
+    }
+
+    /**
+     * Calls of pure functions whose arguments are all constant but one are
+     * evaluated by evaluating that argument on all the rows first.
+     */
+    @Override
+    public void evaluateRows(
+            Project project, String columnName, int cellIndex, int[] rowIndices, int count, Object[] results) {
+        int variable = getVariableArgument(_args);
+        if (variable < 0 || !_function.isPure()) {
+            Evaluable.super.evaluateRows(project, columnName, cellIndex, rowIndices, count, results);
+            return;
+        }
+        _args[variable].evaluateRows(project, columnName, cellIndex, rowIndices, count, results);
+
+        Properties bindings = new Properties(); // not read by pure functions
+        for (int i = 0; i < count; i++) {
+            Object error = getError(_args, variable, results[i]);
+            results[i] = error != null ? error : call(bindings, getArguments(_args, variable, results[i]));
+        }
+    }
+
+    /**
+     * @return the position of the only argument which is not a literal, or -1
+     */
+    static protected int getVariableArgument(Evaluable[] args) {
+        int variable = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (!(args[i] instanceof LiteralExpr)) {
+                if (variable >= 0) {
+                    return -1;
+                }
+                variable = i;
+            }
+        }
+        return variable;
+    }
+
+    /**
+     * @return the first argument which is an error, given the value of the variable one, or null
+     */
+    static protected Object getError(Evaluable[] argExprs, int variable, Object value) {
+        for (int i = 0; i < argExprs.length; i++) {
+            Object v = i == variable ? value : ((LiteralExpr) argExprs[i])._value;
+            if (ExpressionUtils.isError(v)) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the values of the arguments, given the value of the variable one
+     */
+    static protected Object[] getArguments(Evaluable[] argExprs, int variable, Object value) {
+        Object[] args = new Object[argExprs.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = i == variable ? value : ((LiteralExpr) argExprs[i])._value;
+        }
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+        
+        for (Evaluable ev : _args) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(ev.toString());
+        }
+        
+        return _function.getClass().getSimpleName() + "(" + sb.toString() + ")";
+    }
+}
@@ -0,0 +1,398 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.importers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.refine.importing.ImportingJob;
+import com.google.refine.importing.ImportingUtilities;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.util.TrackingInputStream;
+
+public class ImporterUtilities {
+
+    static public Serializable parseCellValue(String text) {
+        if (text.length() > 0) {
+            String text2 = text.trim();
+            if (text2.length() > 0) {
+                int kind = classifyNumber(text2);
+                if (kind == NOT_A_NUMBER) {
+                    return text;
+                }
+                
+                if (kind != DECIMAL) {
+                    try {
+                        return Long.parseLong(text2);
+                    } catch (NumberFormatException e) {
+                    }
+                }
+    
+                try {
+                    double d = Double.parseDouble(text2);
+                    if (!Double.isInfinite(d) && !Double.isNaN(d)) {
+                        return d;
+                    }
+                } catch (NumberFormatException e) {
+                }
+            }
+        }
+        return text;
+    }
+    
+    final static private int NOT_A_NUMBER = 0;
+    final static private int INTEGER = 1;
+    final static private int DECIMAL = 2;
+    final static private int UNKNOWN = 3;
+    
+    /**
+     * Cheaply classifies a trimmed string so that parseCellValue only calls
+     * the (exception throwing) number parsers on strings which may succeed.
+     * Most cells of a text column are rejected after looking at their first
+     * character or two.
+     * 
+     * @return NOT_A_NUMBER if neither Long.parseLong nor Double.parseDouble
+     *      can return a finite number for the string, INTEGER if it is an
+     *      optionally signed run of ASCII digits, DECIMAL if only Double.parseDouble
+     *      might accept it, or UNKNOWN if it contains non-ASCII characters
+     *      and all parsers must be tried.
+     */
+    static private int classifyNumber(String s) {
+        int length = s.length();
+        int start = 0;
+        char first = s.charAt(0);
+        if (first == '+' || first == '-') {
+            if (length == 1) {
+                return NOT_A_NUMBER;
+            }
+            start = 1;
+        }
+        
+        boolean digitsOnly = true;
+        for (int i = start; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                continue;
+            } else if (c >= 128) {
+                // Long.parseLong accepts non-ASCII Unicode digits
+                return UNKNOWN;
+            } else if (i == start && c != '.') {
+                // Only "NaN" and "Infinity" can start with something else,
+                // and neither is kept as a number
+                return NOT_A_NUMBER;
+            } else if (!isDoubleChar(c)) {
+                return NOT_A_NUMBER;
+            }
+            digitsOnly = false;
+        }
+        return digitsOnly ? INTEGER : DECIMAL;
+    }
+    
+    /**
+     * Characters which can appear past the first position in a decimal or
+     * hexadecimal floating point literal accepted by Double.parseDouble,
+     * including exponents and the f/F/d/D type suffixes.
+     */
+    static private boolean isDoubleChar(char c) {
+        return c == '.' || c == '+' || c == '-' ||
+            c == 'x' || c == 'X' || c == 'p' || c == 'P' ||
+            (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    /**
+     * Number of bytes, or of characters for small files, read from a file to
+     * guess its format
+     */
+    static final public int SAMPLE_SIZE = 64 * 1024;
+    static final int SAMPLE_BLOCKS = 4;
+    static final int SAMPLE_BLOCK_LINES = 25;
+    
+    /**
+     * Reads blocks of whole lines spread evenly across a file, so that its
+     * format is guessed from more than its first lines. Files no larger than
+     * SAMPLE_SIZE, and files in encodings where a new line is not a single
+     * byte, are returned as a single block read from their start.
+     */
+    static public List<String> sampleBlocks(File file, String encoding) throws IOException {
+        Charset charset;
+        try {
+            charset = encoding != null ? Charset.forName(encoding) : Charset.defaultCharset();
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(encoding);
+        }
+        long length = file.length();
+        if (length <= SAMPLE_SIZE || !Arrays.equals("\n".getBytes(charset), new byte[] { '\n' })) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(file), charset)) {
+                char[] chars = new char[SAMPLE_SIZE];
+                int total = 0;
+                int c;
+                while (total < chars.length && (c = reader.read(chars, total, chars.length - total)) > 0) {
+                    total += c;
+                }
+                return Collections.singletonList(new String(chars, 0, total));
+            }
+        }
+        
+        int blockSize = SAMPLE_SIZE / SAMPLE_BLOCKS;
+        byte[] bytes = new byte[blockSize];
+        List<String> blocks = new ArrayList<String>(SAMPLE_BLOCKS);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (int i = 0; i < SAMPLE_BLOCKS; i++) {
+                raf.seek(i * (length - blockSize) / (SAMPLE_BLOCKS - 1));
+                raf.readFully(bytes);
+                
+                // blocks after the first one start with the line following their offset
+                int from = 0;
+                if (i > 0) {
+                    while (from < bytes.length && bytes[from] != '\n') {
+                        from++;
+                    }
+                    from++;
+                }
+                int to = from;
+                int lines = 0;
+                while (to < bytes.length && lines < SAMPLE_BLOCK_LINES) {
+                    if (bytes[to++] == '\n') {
+                        lines++;
+                    }
+                }
+                // leave out the incomplete last line, unless it is the only one
+                if (lines > 0 && lines < SAMPLE_BLOCK_LINES) {
+                    while (bytes[to - 1] != '\n') {
+                        to--;
+                    }
+                }
+                if (to > from) {
+                    blocks.add(new String(bytes, from, to - from, charset));
+                }
+            }
+        }
+        return blocks;
+    }
+
+    static public int getIntegerOption(String name, Properties options, int def) {
+        int value = def;
+        if (options.containsKey(name)) {
+            String s = options.getProperty(name);
+            if (s != null) {
+                try {
+                    value = Integer.parseInt(s);
+                } catch (NumberFormatException e) {
+                }
+            }
+        }
+        return value;
+    }
+
+    static public boolean getBooleanOption(String name, Properties options, boolean def) {
+        boolean value = def;
+        if (options.containsKey(name)) {
+            String s = options.getProperty(name);
+            if (s != null) {
+                value = "on".equalsIgnoreCase(s) || "1".equals(s) || Boolean.parseBoolean(s);
+            }
+        }
+        return value;
+    }
+
+    static public void appendColumnName(List<String> columnNames, int index, String name) {
+        name = name.trim();
+
+        while (columnNames.size() <= index) {
+            columnNames.add("");
+        }
+
+        if (!name.isEmpty()) {
+            String oldName = columnNames.get(index);
+            if (!oldName.isEmpty()) {
+                name = oldName + " " + name;
+            }
+
+            columnNames.set(index, name);
+        }
+    }
+
+    static public void ensureColumnsInRowExist(List<String> columnNames, Row row) {
+        int count = row.cells.size();
+        while (count > columnNames.size()) {
+            columnNames.add("");
+        }
+    }
+    
+    static public Column getOrAllocateColumn(Project project, List<String> currentFileColumnNames,
+            int index, boolean hasOurOwnColumnNames) {
+        if (index < currentFileColumnNames.size()) {
+            return project.columnModel.getColumnByName(currentFileColumnNames.get(index));
+        } else if (index >= currentFileColumnNames.size()) {
+            String prefix = "Column ";
+            int i = index + 1;
+            while (true) {
+                String columnName = prefix + i;
+                Column column = project.columnModel.getColumnByName(columnName);
+                if (column != null) {
+                    if (hasOurOwnColumnNames) {
+                        // Already taken name
+                        i++;
+                    } else {
+                        // Want to update currentFileColumnNames
+                        if(! currentFileColumnNames.contains(columnName)){
+                            currentFileColumnNames.add(columnName);
+                        }
+                        return column;
+                    }
+                } else {
+                    column = new Column(project.columnModel.allocateNewCellIndex(), columnName);
+                    try {
+                        project.columnModel.addColumn(project.columnModel.columns.size(), column, false);
+                    } catch (ModelException e) {
+                        // Ignore: shouldn't get in here since we just checked for duplicate names.
+                    }
+                    currentFileColumnNames.add(columnName);
+                    return column;
+                }
+            }
+        } else {
+            throw new RuntimeException("Unexpected code path");
+        }
+    }
+
+    static public void setupColumns(Project project, List<String> columnNames) {
+        Map<String, Integer> nameToIndex = new HashMap<String, Integer>();
+        for (int c = 0; c < columnNames.size(); c++) {
+            String cell = columnNames.get(c).trim();
+            if (cell.isEmpty()) {
+                cell = "Column";
+            } else if (cell.startsWith("\"") && cell.endsWith("\"")) {
+                // FIXME: is trimming quotation marks appropriate?
+                cell = cell.substring(1, cell.length() - 1).trim();
+            }
+            
+            if (nameToIndex.containsKey(cell)) {
+                int index = nameToIndex.get(cell);
+                nameToIndex.put(cell, index + 1);
+
+                cell = cell.contains(" ") ? (cell + " " + index) : (cell + index);
+            } else {
+                nameToIndex.put(cell, 2);
+            }
+            
+            columnNames.set(c, cell);
+            if (project.columnModel.getColumnByName(cell) == null) {
+                Column column = new Column(project.columnModel.allocateNewCellIndex(), cell);
+                try {
+                    project.columnModel.addColumn(project.columnModel.columns.size(), column, false);
+                } catch (ModelException e) {
+                    // Ignore: shouldn't get in here since we just checked for duplicate names.
+                }
+            }
+        }
+    }
+    
+    static public interface MultiFileReadingProgress {
+        public void startFile(String fileSource);
+        public void readingFile(String fileSource, long bytesRead);
+        public void endFile(String fileSource, long bytesRead);
+    }
+    
+    static public MultiFileReadingProgress createMultiFileReadingProgress(
+            final ImportingJob job, List<ObjectNode> fileRecords) {
+        long totalSize = 0;
+        for (ObjectNode fileRecord : fileRecords) {
+            File file = ImportingUtilities.getFile(job, fileRecord);
+            totalSize += file.length();
+        }
+        
+        final long totalSize2 = totalSize;
+        return new MultiFileReadingProgress() {
+            long totalBytesRead = 0;
+            
+            void setProgress(String fileSource, long bytesRead) {
+                job.setProgress(totalSize2 == 0 ? -1 : (int) (100 * (totalBytesRead + bytesRead) / totalSize2),
+                    "Reading " + fileSource);
+            }
+            
+            @Override
+            public void startFile(String fileSource) {
+                setProgress(fileSource, 0);
+            }
+
+            @Override
+            public void readingFile(String fileSource, long bytesRead) {
+                setProgress(fileSource, bytesRead);
+            }
+
+            @Override
+            public void endFile(String fileSource, long bytesRead) {
+                totalBytesRead += bytesRead;
+            }
+        };
+    }
+    
+    static public InputStream openAndTrackFile(
+            final String fileSource,
+            final File file,
+            final MultiFileReadingProgress progress) throws FileNotFoundException {
+        InputStream inputStream = new FileInputStream(file);
+        return progress == null ? inputStream : new TrackingInputStream(inputStream) {
+            @Override
+            protected long track(long bytesRead) {
+                long l = super.track(bytesRead);
+                
+                progress.readingFile(fileSource, this.bytesRead);
+                
+                return l;
+            }
+        };
+    }
+}
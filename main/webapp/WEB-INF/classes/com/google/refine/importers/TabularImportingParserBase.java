@@ -0,0 +1,456 @@
+/*
+
+Copyright 2011, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.importers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.refine.ProjectMetadata;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.importers.ImporterUtilities.MultiFileReadingProgress;
+import com.google.refine.importing.ImportingJob;
+import com.google.refine.importing.ImportingUtilities;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.util.JSONUtilities;
+
+abstract public class TabularImportingParserBase extends ImportingParserBase {
+    static public interface TableDataReader {
+        public List<Object> getNextRowOfCells() throws IOException;
+    }
+    
+    @Override
+    public ObjectNode createParserUIInitializationData(ImportingJob job,
+            List<ObjectNode> fileRecords, String format) {
+        ObjectNode options = super.createParserUIInitializationData(job, fileRecords, format);
+        
+        JSONUtilities.safePut(options, "ignoreLines", -1); // number of blank lines at the beginning to ignore
+        JSONUtilities.safePut(options, "headerLines", 1); // number of header lines
+        
+        JSONUtilities.safePut(options, "skipDataLines", 0); // number of initial data lines to skip
+        JSONUtilities.safePut(options, "storeBlankRows", true);
+        JSONUtilities.safePut(options, "storeBlankCellsAsNulls", true);
+        
+        return options;
+    }
+    
+    /**
+     * @param useInputStream true if parser takes an InputStream, false if it takes a Reader.
+     *  
+     */
+    protected TabularImportingParserBase(boolean useInputStream) {
+        super(useInputStream);
+    }
+    
+    /**
+     * Options which are only used by readTable to turn raw rows of cells
+     * into project rows. Previews which differ from the previous one only
+     * by these options reuse the raw rows read for that preview instead
+     * of parsing the files again.
+     */
+    final static private String[] TABLE_OPTIONS = {
+        "ignoreLines", "headerLines", "skipDataLines", "limit",
+        "storeBlankRows", "storeBlankCellsAsNulls", "guessCellValueTypes",
+        "trimStrings", "includeFileSources", "fileSource", "projectName", "projectTags"
+    };
+    
+    /**
+     * Number of raw rows read past the end of a preview, so that the next
+     * preview can still be served from the sample if it needs a few more rows
+     * (e.g. because more header lines are requested).
+     */
+    final static private int PREVIEW_LOOKAHEAD_ROWS = 100;
+    
+    // The sample being recorded by the preview parsed in the current thread
+    final static private ThreadLocal<PreviewSample> s_recording = new ThreadLocal<>();
+    
+    /**
+     * Whether the raw rows read by this parser depend only on the options
+     * which are not in TABLE_OPTIONS, so that they can be reused across previews.
+     * Parsers which adjust table options themselves while parsing should
+     * return false.
+     */
+    protected boolean canReusePreviewRows(ObjectNode options) {
+        // column names supplied as options force the number of header lines
+        return !options.has("columnNames");
+    }
+    
+    @Override
+    public void parse(Project project, ProjectMetadata metadata,
+            final ImportingJob job, List<ObjectNode> fileRecords, String format,
+            int limit, ObjectNode options, List<Exception> exceptions) {
+        if (limit <= 0 || !canReusePreviewRows(options)) {
+            super.parse(project, metadata, job, fileRecords, format, limit, options, exceptions);
+            return;
+        }
+        
+        String previewKey = getPreviewKey(format, fileRecords, options);
+        Object cached = job.getPreviewCache(previewKey);
+        if (cached instanceof PreviewSample
+                && ((PreviewSample) cached).canReplay(fileRecords.size(), limit, options)) {
+            ((PreviewSample) cached).replay(this, project, metadata, job, limit, options, exceptions);
+            return;
+        }
+        
+        PreviewSample sample = new PreviewSample();
+        int exceptionCount = exceptions.size();
+        s_recording.set(sample);
+        try {
+            super.parse(project, metadata, job, fileRecords, format, limit, options, exceptions);
+        } finally {
+            s_recording.remove();
+        }
+        if (!job.canceled && exceptions.size() == exceptionCount) {
+            job.setPreviewCache(previewKey, sample);
+        }
+    }
+    
+    @Override
+    public void parseOneFile(
+        Project project,
+        ProjectMetadata metadata,
+        ImportingJob job,
+        ObjectNode fileRecord,
+        int limit,
+        ObjectNode options,
+        List<Exception> exceptions,
+        final MultiFileReadingProgress progress
+    ) throws IOException {
+        PreviewSample sample = s_recording.get();
+        if (sample != null) {
+            sample.startFile(ImportingUtilities.getFileSource(fileRecord));
+        }
+        super.parseOneFile(project, metadata, job, fileRecord, limit, options, exceptions, progress);
+    }
+    
+    static private String getPreviewKey(String format, List<ObjectNode> fileRecords, ObjectNode options) {
+        ObjectNode parsingOptions = options.deepCopy();
+        parsingOptions.remove(Arrays.asList(TABLE_OPTIONS));
+        
+        StringBuffer sb = new StringBuffer();
+        sb.append(format).append('\n');
+        for (ObjectNode fileRecord : fileRecords) {
+            sb.append(JSONUtilities.getString(fileRecord, "location", "")).append('\n');
+        }
+        sb.append(parsingOptions.toString());
+        return sb.toString();
+    }
+    
+    static public void readTable(
+        Project project,
+        ProjectMetadata metadata,
+        ImportingJob job,
+        TableDataReader reader,
+        String fileSource,
+        int limit,
+        ObjectNode options,
+        List<Exception> exceptions
+    ) {
+        int ignoreLines = JSONUtilities.getInt(options, "ignoreLines", -1);
+        int headerLines = JSONUtilities.getInt(options, "headerLines", 1);
+        int skipDataLines = JSONUtilities.getInt(options, "skipDataLines", 0);
+        int limit2 = JSONUtilities.getInt(options, "limit", -1);
+        if (limit > 0) {
+            if (limit2 > 0) {
+                limit2 = Math.min(limit, limit2);
+            } else {
+                limit2 = limit;
+            }
+        }
+        
+        boolean guessCellValueTypes = JSONUtilities.getBoolean(options, "guessCellValueTypes", false);
+        
+        boolean storeBlankRows = JSONUtilities.getBoolean(options, "storeBlankRows", true);
+        boolean storeBlankCellsAsNulls = JSONUtilities.getBoolean(options, "storeBlankCellsAsNulls", true);
+        boolean includeFileSources = JSONUtilities.getBoolean(options, "includeFileSources", false);
+        boolean trimStrings = JSONUtilities.getBoolean(options, "trimStrings", false);
+
+        int filenameColumnIndex = -1;
+        if (includeFileSources) {
+            filenameColumnIndex = addFilenameColumn(project);
+        }
+        
+        List<String> columnNames = new ArrayList<String>();
+        boolean hasOurOwnColumnNames = headerLines > 0;
+        
+        PreviewTable previewTable = null;
+        PreviewSample sample = s_recording.get();
+        if (sample != null) {
+            previewTable = sample.startTable(fileSource);
+            reader = previewTable.record(reader);
+        }
+        
+        List<Object> cells = null;
+        int rowsWithData = 0;
+        
+        try {
+            while (!job.canceled && (cells = reader.getNextRowOfCells()) != null) {
+                if (ignoreLines > 0) {
+                    ignoreLines--;
+                    continue;
+                }
+                
+                if (headerLines > 0) { // header lines
+                    for (int c = 0; c < cells.size(); c++) {
+                        Object cell = cells.get(c);
+                        
+                        String columnName;
+                        if (cell == null) {
+                            // add column even if cell is blank
+                            columnName = "";
+                        } else if (cell instanceof Cell) {
+                            columnName = ((Cell) cell).value.toString().trim();
+                        } else {
+                            columnName = cell.toString().trim();
+                        }
+                        
+                        ImporterUtilities.appendColumnName(columnNames, c, columnName);
+                    }
+                    
+                    headerLines--;
+                    if (headerLines == 0) {
+                        ImporterUtilities.setupColumns(project, columnNames);
+                    }
+                } else { // data lines
+                    Row row = new Row(columnNames.size());
+
+                    if (storeBlankRows) {
+                        rowsWithData++;
+                    } else if (cells.size() > 0) {
+                        rowsWithData++;
+                    }
+                    
+                    if (skipDataLines <= 0 || rowsWithData > skipDataLines) {
+                        boolean rowHasData = false;
+                        for (int c = 0; c < cells.size(); c++) {
+                            Column column = ImporterUtilities.getOrAllocateColumn(
+                                project, columnNames, c, hasOurOwnColumnNames);
+                            
+                            Object value = cells.get(c);
+                            if (value instanceof Cell) {
+                                row.setCell(column.getCellIndex(), (Cell) value);
+                                rowHasData = true;
+                            } else if (ExpressionUtils.isNonBlankData(value)) {
+                                Serializable storedValue;
+                                if (value instanceof String) {
+                                	if(trimStrings) {
+                                        value = ((String) value).trim();
+                                    }
+                                    storedValue = guessCellValueTypes ?
+                                        ImporterUtilities.parseCellValue((String) value) : (String) value;
+                                    
+                                } else {
+                                    storedValue = ExpressionUtils.wrapStorable(value);
+                                }
+                                
+                                row.setCell(column.getCellIndex(), new Cell(storedValue, null));
+                                rowHasData = true;
+                            } else if (!storeBlankCellsAsNulls) {
+                                row.setCell(column.getCellIndex(), new Cell("", null));
+                            } else {
+                                row.setCell(column.getCellIndex(), null);
+                            }
+                        }
+                        
+                        if (rowHasData || storeBlankRows) {
+                            if (includeFileSources && filenameColumnIndex >= 0) {
+                                row.setCell(
+                                    filenameColumnIndex,
+                                    new Cell(fileSource, null));
+                            }
+                            project.rows.add(row);
+                        }
+                        
+                        if (limit2 > 0 && project.rows.size() >= limit2) {
+                            break;
+                        }
+                    }
+                }
+            }
+            
+            if (previewTable != null) {
+                previewTable.readAhead(PREVIEW_LOOKAHEAD_ROWS);
+            }
+        } catch (IOException e) {
+            exceptions.add(e);
+        }
+    }
+    
+    /**
+     * The raw rows read from the selected files while generating a preview.
+     */
+    static private class PreviewSample {
+        final List<PreviewFile> files = new ArrayList<PreviewFile>();
+        
+        void startFile(String fileSource) {
+            files.add(new PreviewFile(fileSource));
+        }
+        
+        PreviewTable startTable(String fileSource) {
+            PreviewTable table = new PreviewTable(fileSource);
+            if (files.size() > 0) {
+                files.get(files.size() - 1).tables.add(table);
+            }
+            return table;
+        }
+        
+        /**
+         * Checks that the recorded rows are enough to produce the preview for
+         * the given table options, without knowing how many blank rows will be
+         * dropped: each table must either have been read to its end, or hold
+         * at least as many rows as readTable can consume for these options.
+         */
+        boolean canReplay(int fileCount, int limit, ObjectNode options) {
+            if (files.size() != fileCount) {
+                return false;
+            }
+            int limit2 = JSONUtilities.getInt(options, "limit", -1);
+            if (limit2 <= 0 || limit2 > limit) {
+                limit2 = limit;
+            }
+            int neededRows = Math.max(0, JSONUtilities.getInt(options, "ignoreLines", -1))
+                    + Math.max(0, JSONUtilities.getInt(options, "headerLines", 1))
+                    + Math.max(0, JSONUtilities.getInt(options, "skipDataLines", 0))
+                    + limit2;
+            for (PreviewFile file : files) {
+                for (PreviewTable table : file.tables) {
+                    if (!table.complete && table.rows.size() < neededRows + table.blankRows) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        
+        void replay(TabularImportingParserBase parser, Project project, ProjectMetadata metadata,
+                ImportingJob job, int limit, ObjectNode options, List<Exception> exceptions) {
+            for (PreviewFile file : files) {
+                if (job.canceled) {
+                    break;
+                }
+                for (PreviewTable table : file.tables) {
+                    readTable(project, metadata, job, table.replay(), table.fileSource, limit, options, exceptions);
+                }
+                parser.pushImportingOptions(metadata, file.fileSource, options);
+                
+                if (limit > 0 && project.rows.size() >= limit) {
+                    break;
+                }
+            }
+        }
+    }
+    
+    static private class PreviewFile {
+        final String fileSource;
+        final List<PreviewTable> tables = new ArrayList<PreviewTable>();
+        
+        PreviewFile(String fileSource) {
+            this.fileSource = fileSource;
+        }
+    }
+    
+    static private class PreviewTable {
+        final String fileSource;
+        final List<List<Object>> rows = new ArrayList<List<Object>>();
+        boolean complete = false;
+        int blankRows = 0;
+        TableDataReader source;
+        
+        PreviewTable(String fileSource) {
+            this.fileSource = fileSource;
+        }
+        
+        TableDataReader record(final TableDataReader reader) {
+            source = reader;
+            return new TableDataReader() {
+                @Override
+                public List<Object> getNextRowOfCells() throws IOException {
+                    return readNextRow();
+                }
+            };
+        }
+        
+        private List<Object> readNextRow() throws IOException {
+            List<Object> cells = source.getNextRowOfCells();
+            if (cells == null) {
+                complete = true;
+            } else {
+                rows.add(cells);
+                if (!hasData(cells)) {
+                    blankRows++;
+                }
+            }
+            return cells;
+        }
+        
+        void readAhead(int count) throws IOException {
+            for (int i = 0; i < count && !complete; i++) {
+                readNextRow();
+            }
+            source = null;
+        }
+        
+        TableDataReader replay() {
+            return new TableDataReader() {
+                int next = 0;
+                
+                @Override
+                public List<Object> getNextRowOfCells() throws IOException {
+                    return next < rows.size() ? rows.get(next++) : null;
+                }
+            };
+        }
+        
+        static private boolean hasData(List<Object> cells) {
+            for (Object value : cells) {
+                if (value instanceof Cell || ExpressionUtils.isNonBlankData(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public void parseOneFile(Project project, ProjectMetadata metadata, ImportingJob job, String fileSource,
+            Reader dataReader, int limit, ObjectNode options, List<Exception> exceptions) {
+        super.parseOneFile(project, metadata, job, fileSource, dataReader, limit, options, exceptions);
+    }
+}
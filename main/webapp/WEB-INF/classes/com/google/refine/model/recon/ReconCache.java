@@ -0,0 +1,272 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.model.recon;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.refine.ProjectManager;
+import com.google.refine.io.FileProjectManager;
+import com.google.refine.preference.PreferenceStore;
+import com.google.refine.util.ParsingUtilities;
+
+/**
+ * Keeps the answers of reconciliation services across projects, so that
+ * values which were already reconciled against a service do not have to
+ * be sent to it again. Entries are keyed by service URL and query JSON,
+ * expire after a configurable time and are evicted least recently used
+ * first once the cache is full.
+ *
+ * The cache is stored in the workspace directory when there is one.
+ */
+public class ReconCache {
+
+    final static Logger logger = LoggerFactory.getLogger("recon-cache");
+
+    static final public String FILE_NAME = "recon-cache.json.gz";
+    static final public int DEFAULT_TTL_DAYS = 30;
+    static final public int DEFAULT_MAX_ENTRIES = 100000;
+
+    static private ReconCache s_instance;
+
+    static protected class Entry {
+        @JsonProperty("s")
+        final protected String service;
+        @JsonProperty("q")
+        final protected String query;
+        @JsonProperty("r")
+        final protected String result;
+        @JsonProperty("t")
+        final protected long time;
+
+        @JsonCreator
+        protected Entry(
+                @JsonProperty("s") String service,
+                @JsonProperty("q") String query,
+                @JsonProperty("r") String result,
+                @JsonProperty("t") long time) {
+            this.service = service;
+            this.query = query;
+            this.result = result;
+            this.time = time;
+        }
+    }
+
+    final protected File _file;
+    final protected long _ttlMillis;
+    final protected int _maxEntries;
+    final protected Map<String, Entry> _entries;
+    protected boolean _loaded = false;
+    protected boolean _dirty = false;
+
+    /**
+     * @param file where to store the cache, or null to keep it in memory only
+     * @param ttlMillis how long entries are kept
+     * @param maxEntries how many entries are kept
+     */
+    public ReconCache(File file, long ttlMillis, int maxEntries) {
+        _file = file;
+        _ttlMillis = ttlMillis;
+        _maxEntries = maxEntries;
+        _entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > _maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache of the workspace, configured by the
+     * "reconciliation.cache.ttlDays" and "reconciliation.cache.maxEntries" preferences.
+     */
+    static synchronized public ReconCache getInstance() {
+        if (s_instance == null) {
+            File file = null;
+            if (ProjectManager.singleton instanceof FileProjectManager) {
+                file = new File(((FileProjectManager) ProjectManager.singleton).getWorkspaceDir(), FILE_NAME);
+            }
+            PreferenceStore prefs = ProjectManager.singleton != null
+                    ? ProjectManager.singleton.getPreferenceStore() : new PreferenceStore();
+            s_instance = new ReconCache(
+                    file,
+                    prefs.getInt("reconciliation.cache.ttlDays", DEFAULT_TTL_DAYS) * 24L * 3600L * 1000L,
+                    prefs.getInt("reconciliation.cache.maxEntries", DEFAULT_MAX_ENTRIES));
+        }
+        return s_instance;
+    }
+
+    static synchronized public void setInstance(ReconCache cache) {
+        s_instance = cache;
+    }
+
+    static protected String makeKey(String service, String query) {
+        return service + "\n" + query;
+    }
+
+    /**
+     * @return the cached answer of the service for this query, or null
+     */
+    synchronized public String get(String service, String query) {
+        load();
+        String key = makeKey(service, query);
+        Entry entry = _entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            _entries.remove(key);
+            _dirty = true;
+            return null;
+        }
+        return entry.result;
+    }
+
+    synchronized public void put(String service, String query, String result) {
+        load();
+        _entries.put(makeKey(service, query), new Entry(service, query, result, System.currentTimeMillis()));
+        _dirty = true;
+    }
+
+    /**
+     * Forgets all answers of a service.
+     *
+     * @return the number of entries removed
+     */
+    synchronized public int invalidate(String service) {
+        load();
+        int count = 0;
+        for (Iterator<Entry> i = _entries.values().iterator(); i.hasNext(); ) {
+            if (i.next().service.equals(service)) {
+                i.remove();
+                count++;
+            }
+        }
+        _dirty |= count > 0;
+        return count;
+    }
+
+    synchronized public int invalidateAll() {
+        load();
+        int count = _entries.size();
+        _entries.clear();
+        _dirty |= count > 0;
+        return count;
+    }
+
+    synchronized public int size() {
+        load();
+        return _entries.size();
+    }
+
+    protected boolean isExpired(Entry entry, long now) {
+        return now - entry.time > _ttlMillis;
+    }
+
+    protected void load() {
+        if (_loaded) {
+            return;
+        }
+        _loaded = true;
+        if (_file == null || !_file.exists()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(_file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = ParsingUtilities.mapper.readValue(line, Entry.class);
+                if (!isExpired(entry, now)) {
+                    _entries.put(makeKey(entry.service, entry.query), entry);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read reconciliation cache " + _file, e);
+        }
+    }
+
+    /**
+     * Writes the cache to the workspace if it was modified.
+     */
+    synchronized public void save() {
+        if (_file == null || !_dirty) {
+            return;
+        }
+        File tempFile = new File(_file.getParentFile(), _file.getName() + ".temp");
+        long now = System.currentTimeMillis();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(tempFile)), StandardCharsets.UTF_8))) {
+            // least recently used entries come first, so they are evicted first after reloading
+            for (Entry entry : _entries.values()) {
+                if (!isExpired(entry, now)) {
+                    writer.write(ParsingUtilities.defaultWriter.writeValueAsString(entry));
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not write reconciliation cache " + _file, e);
+            tempFile.delete();
+            return;
+        }
+        if (_file.exists() && !_file.delete()) {
+            logger.warn("Could not replace reconciliation cache " + _file);
+            tempFile.delete();
+            return;
+        }
+        if (tempFile.renameTo(_file)) {
+            _dirty = false;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * 
+ */
+package com.google.refine.model.recon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.refine.ProjectManager;
+import com.google.refine.RefineServlet;
+import com.google.refine.expr.functions.ToDate;
+import com.google.refine.model.ReconCandidate;
+import com.google.refine.model.ReconType;
+import com.google.refine.util.JSONUtilities;
+import com.google.refine.util.JsonViews;
+import com.google.refine.util.ParsingUtilities;
+
+public class ReconciledDataExtensionJob implements Closeable {
+
+    
+    static public class DataExtensionProperty  {
+        @JsonProperty("id")
+        public final String id;
+        @JsonProperty("name")
+        @JsonView(JsonViews.NonSaveMode.class)
+        public final String name;
+        @JsonProperty("settings")
+        @JsonInclude(Include.NON_NULL)
+        public final Map<String, Object> settings;
+        
+        @JsonCreator
+        public DataExtensionProperty(
+                @JsonProperty("id")
+                String id,
+                @JsonProperty("name")
+                String name,
+                @JsonProperty("settings")
+                Map<String, Object> settings) {
+            this.id = id;
+            this.name = name;
+            this.settings = settings;
+        }    
+    }
+    
+    static public class DataExtensionConfig  {
+        
+        @JsonProperty("properties")
+        public final List<DataExtensionProperty> properties;
+        
+        @JsonCreator
+        public DataExtensionConfig(
+                @JsonProperty("properties")
+                List<DataExtensionProperty> properties) {
+            this.properties = properties;
+        }
+        
+        public static DataExtensionConfig reconstruct(String json) throws IOException {
+            return ParsingUtilities.mapper.readValue(json, DataExtensionConfig.class);
+        }     
+    }
+    
+    static public class DataExtensionQuery extends DataExtensionConfig {
+        
+        @JsonProperty("ids")
+        public final List<String> ids;
+
+        @JsonCreator
+        public DataExtensionQuery(
+                @JsonProperty("ids")
+                List<String> ids,
+                @JsonProperty("properties")
+                List<DataExtensionProperty> properties) {
+            super(properties);
+            this.ids = ids;
+        }   
+    }
+    
+    static public class DataExtension {
+        final public Object[][] data;
+        
+        public DataExtension(Object[][] data) {
+            this.data = data;
+        }
+    }
+    
+    // Json serialization is used in PreviewExtendDataCommand
+    static public class ColumnInfo {
+        @JsonProperty("name")
+        final public String name;
+        @JsonProperty("id")
+        final public String id;
+        final public ReconType expectedType;
+        
+        @JsonCreator
+        protected ColumnInfo(
+        		@JsonProperty("name")
+        		String name,
+        		@JsonProperty("id")
+        		String id,
+        		@JsonProperty("type")
+        		ReconType expectedType) {
+            this.name = name;
+            this.id = id;
+            this.expectedType = expectedType;
+        }
+    }
+    
+    /**
+     * Number of entities sent to the service in one query
+     */
+    static final public int BATCH_SIZE = 10;
+    static final public int DEFAULT_CONCURRENT_BATCHES = 2;
+
+    /**
+     * Records already returned by services, keyed by endpoint, properties
+     * and entity, so that extending other columns with the same properties
+     * does not query them again.
+     */
+    static final protected Cache<String, ObjectNode> s_recordCache = CacheBuilder.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+    static final protected Cache<String, List<ColumnInfo>> s_columnCache = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+
+    final public DataExtensionConfig extension;
+    final public String              endpoint;
+    final public List<ColumnInfo>    columns = new ArrayList<ColumnInfo>();
+    final protected String           cacheKey;
+    protected CloseableHttpClient    httpClient;
+    
+    public ReconciledDataExtensionJob(DataExtensionConfig obj, String endpoint) {
+        this.extension = obj;
+        this.endpoint = endpoint;
+        String properties;
+        try {
+            properties = ParsingUtilities.saveWriter.writeValueAsString(obj.properties);
+        } catch (IOException e) {
+            // cannot happen when writing to a string
+            properties = String.valueOf(System.identityHashCode(obj));
+        }
+        this.cacheKey = endpoint + "\n" + properties;
+    }
+    
+    public Map<String, ReconciledDataExtensionJob.DataExtension> extend(
+        Set<String> ids,
+        Map<String, ReconCandidate> reconCandidateMap
+    ) throws Exception {
+        Map<String, ObjectNode> records = getCachedRecords(ids);
+        if (records.size() < ids.size()) {
+            Set<String> missing = new HashSet<String>(ids);
+            missing.removeAll(records.keySet());
+            records.putAll(fetchRecords(missing));
+        }
+        return collectResults(records, reconCandidateMap);
+    }
+
+    /**
+     * Looks up records returned by earlier queries with the same properties.
+     * Nothing is returned until the column metadata of these properties is
+     * known, as it is needed to interpret the records.
+     */
+    public Map<String, ObjectNode> getCachedRecords(Collection<String> ids) {
+        Map<String, ObjectNode> records = new HashMap<String, ObjectNode>();
+        synchronized (columns) {
+            if (columns.isEmpty()) {
+                List<ColumnInfo> cachedColumns = s_columnCache.getIfPresent(cacheKey);
+                if (cachedColumns == null) {
+                    return records;
+                }
+                columns.addAll(cachedColumns);
+            }
+        }
+        for (String id : ids) {
+            ObjectNode record = s_recordCache.getIfPresent(cacheKey + "\n" + id);
+            if (record != null) {
+                records.put(id, record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Queries the service for the records of some entities. This can be
+     * called from several threads at once.
+     *
+     * @return the records returned by the service, by entity id
+     */
+    public Map<String, ObjectNode> fetchRecords(Set<String> ids) throws Exception {
+        StringWriter writer = new StringWriter();
+        formulateQuery(ids, extension, writer);
+
+        String query = writer.toString();
+        InputStream is = performQuery(getHttpClient(), this.endpoint, query);
+        try {
+        	ObjectNode o = ParsingUtilities.mapper.readValue(is, ObjectNode.class);
+          
+            synchronized (columns) {
+                if (columns.size() == 0) {
+                    // Extract the column metadata
+                    List<ColumnInfo> newColumns = ParsingUtilities.mapper.convertValue(o.get("meta"), new TypeReference<List<ColumnInfo>>() {});  
+                    columns.addAll(newColumns);
+                    s_columnCache.put(cacheKey, newColumns);
+                }
+            }
+          
+            Map<String, ObjectNode> map = new HashMap<String, ObjectNode>();
+            if (o.has("rows") && o.get("rows") instanceof ObjectNode){
+                ObjectNode records = (ObjectNode) o.get("rows");
+                
+                // for each identifier
+                for (String id : ids) {
+                    if (records.has(id) && records.get(id) instanceof ObjectNode) {
+                        ObjectNode record = (ObjectNode) records.get(id);
+                        map.put(id, record);
+                        s_recordCache.put(cacheKey + "\n" + id, record);
+                    }
+                }
+            }
+            
+            return map;
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Turns records into cell values. Reconciled values are shared through
+     * the candidate map, which is not thread-safe.
+     */
+    public Map<String, ReconciledDataExtensionJob.DataExtension> collectResults(
+        Map<String, ObjectNode> records,
+        Map<String, ReconCandidate> reconCandidateMap
+    ) {
+        Map<String, ReconciledDataExtensionJob.DataExtension> map = new HashMap<String, ReconciledDataExtensionJob.DataExtension>();
+        for (Map.Entry<String, ObjectNode> entry : records.entrySet()) {
+            ReconciledDataExtensionJob.DataExtension ext = collectResult(entry.getValue(), reconCandidateMap);
+            if (ext != null) {
+                map.put(entry.getKey(), ext);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Number of queries which can be sent to the service at the same time,
+     * set by the "dataExtension.concurrentBatches" preference.
+     */
+    public int getMaxConcurrentBatches() {
+        if (ProjectManager.singleton == null) {
+            return DEFAULT_CONCURRENT_BATCHES;
+        }
+        return Math.max(1, ProjectManager.singleton.getPreferenceStore()
+                .getInt("dataExtension.concurrentBatches", DEFAULT_CONCURRENT_BATCHES));
+    }
+
+    /**
+     * Queries of this job are sent through one client, which keeps
+     * connections to the service alive between batches until the job
+     * is closed.
+     */
+    synchronized protected CloseableHttpClient getHttpClient() {
+        if (httpClient == null) {
+            int concurrency = getMaxConcurrentBatches();
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(concurrency);
+            connectionManager.setDefaultMaxPerRoute(concurrency);
+            httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(5000)
+                            .setSocketTimeout(60000)
+                            .build())
+                    .setUserAgent(RefineServlet.getUserAgent())
+                    .build();
+        }
+        return httpClient;
+    }
+
+    /**
+     * Closes the connections of this job.
+     */
+    @Override
+    synchronized public void close() {
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            httpClient = null;
+        }
+    }
+
+    static protected InputStream performQuery(CloseableHttpClient client, String endpoint, String query) throws IOException {
+        HttpPost post = new HttpPost(endpoint);
+        post.setEntity(new UrlEncodedFormEntity(
+                Collections.singletonList(new BasicNameValuePair("extend", query)), StandardCharsets.UTF_8));
+
+        CloseableHttpResponse response = client.execute(post);
+        StatusLine statusLine = response.getStatusLine();
+        if (statusLine.getStatusCode() >= 400) {
+            response.close();
+            throw new IOException("Server returned HTTP response code: " + statusLine.getStatusCode()
+                    + " for URL: " + endpoint);
+        }
+        // closing the stream hands the connection back to the pool
+        return response.getEntity().getContent();
+    }
+
+    
+    protected ReconciledDataExtensionJob.DataExtension collectResult(
+        ObjectNode record,
+        Map<String, ReconCandidate> reconCandidateMap
+    ) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+
+        // for each property
+        int colindex = 0;
+        for(ColumnInfo ci : columns) {
+            String pid = ci.id;
+            ArrayNode values = JSONUtilities.getArray(record, pid);     
+            if (values == null) {
+                continue;
+            }
+
+            // for each value
+            for(int rowindex = 0; rowindex < values.size(); rowindex++) {
+            	if (!(values.get(rowindex) instanceof ObjectNode)) {
+            		continue;
+            	}
+                ObjectNode val = (ObjectNode) values.get(rowindex);
+                // store a reconciled value
+                if (val.has("id")) {
+                    storeCell(rows, rowindex, colindex, val, reconCandidateMap);
+                } else if (val.has("str")) {
+                // store a bare string
+                    String str = val.get("str").asText();
+                    storeCell(rows, rowindex, colindex, str); 
+                } else if (val.has("float")) {
+                    double v = val.get("float").asDouble();
+                    storeCell(rows, rowindex, colindex, v);
+                } else if (val.has("int")) {
+                    int v = val.get("int").asInt();
+                    storeCell(rows, rowindex, colindex, v);
+                } else if (val.has("date")) {
+                    ToDate td = new ToDate();
+                    String[] args = new String[1];
+                    args[0] = val.get("date").asText();
+                    Object v = td.call(null, args);
+                    storeCell(rows, rowindex, colindex, v);
+                } else if(val.has("bool")) {
+                    boolean v = val.get("bool").asBoolean();
+                    storeCell(rows, rowindex, colindex, v);
+                }
+            }
+            colindex++;
+        }
+
+       
+        
+        Object[][] data = new Object[rows.size()][columns.size()];
+        rows.toArray(data);
+        
+        return new DataExtension(data);
+    }
+
+    protected void storeCell(
+        List<Object[]>  rows, 
+        int row,
+        int col,
+        Object value
+    ) {
+        while (row >= rows.size()) {
+            rows.add(new Object[columns.size()]);
+        }
+        rows.get(row)[col] = value;
+    }
+    
+    protected void storeCell(
+        List<Object[]>  rows, 
+        int row,
+        int col,
+        ObjectNode obj,
+        Map<String, ReconCandidate> reconCandidateMap
+    ) {
+        String id = obj.get("id").asText();
+        ReconCandidate rc;
+        if (reconCandidateMap.containsKey(id)) {
+            rc = reconCandidateMap.get(id);
+        } else {
+            rc = new ReconCandidate(
+                    obj.get("id").asText(),
+                    obj.get("name").asText(),
+                    JSONUtilities.getStringArray(obj, "type"),
+                    100
+                );
+            
+            reconCandidateMap.put(id, rc);
+        }
+        
+        storeCell(rows, row, col, rc);
+    }
+
+    
+    static protected void formulateQuery(Set<String> ids, DataExtensionConfig node, Writer writer) throws IOException {
+        DataExtensionQuery query = new DataExtensionQuery(ids.stream().filter(e -> e != null).collect(Collectors.toList()), node.properties);
+        ParsingUtilities.saveWriter.writeValue(writer, query);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.operations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.history.Change;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.model.changes.MassCellChange;
+
+abstract public class EngineDependentMassCellOperation extends EngineDependentOperation {
+    /**
+     * Minimum number of rows visited by each visitor when visiting in parallel
+     */
+    static final int MIN_PARTITION_SIZE = 4096;
+    
+    @JsonIgnore
+    final protected String    _columnName;
+    @JsonIgnore
+    final protected boolean _updateRowContextDependencies;
+    
+    protected EngineDependentMassCellOperation(
+            EngineConfig engineConfig, String columnName, boolean updateRowContextDependencies) {
+        super(engineConfig);
+        _columnName = columnName;
+        _updateRowContextDependencies = updateRowContextDependencies;
+    }
+
+    @Override
+    protected HistoryEntry createHistoryEntry(Project project, long historyEntryID) throws Exception {
+        Engine engine = createEngine(project);
+        
+        Column column = project.columnModel.getColumnByName(_columnName);
+        if (column == null) {
+            throw new Exception("No column named " + _columnName);
+        }
+        
+        List<CellChange> cellChanges = new ArrayList<CellChange>(project.rows.size());
+        
+        FilteredRows filteredRows = engine.getAllFilteredRows();
+        if (isRowIndependent()) {
+            visitInParallel(project, filteredRows, cellChanges, historyEntryID);
+        } else {
+            try {
+                filteredRows.accept(project, createRowVisitor(project, cellChanges, historyEntryID));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        
+        String description = createDescription(column, cellChanges);
+        
+        return new HistoryEntry(
+            historyEntryID, project, description, this, createChange(project, column, cellChanges));
+    }
+    
+    /**
+     * Visits the filtered rows by partitions, each partition with its own
+     * visitor and on its own thread, then gathers the changes in row order.
+     */
+    protected void visitInParallel(Project project, FilteredRows filteredRows,
+            List<CellChange> cellChanges, long historyEntryID) throws Exception {
+        int[] rowIndices = getRowIndices(project, filteredRows);
+        
+        int partitionSize = Math.max(MIN_PARTITION_SIZE,
+                rowIndices.length / (Runtime.getRuntime().availableProcessors() * 4) + 1);
+        int partitionCount = (rowIndices.length + partitionSize - 1) / partitionSize;
+        
+        List<List<CellChange>> partitionChanges = new ArrayList<>(partitionCount);
+        List<RowVisitor> visitors = new ArrayList<>(partitionCount);
+        for (int p = 0; p < partitionCount; p++) {
+            List<CellChange> changes = new ArrayList<CellChange>();
+            partitionChanges.add(changes);
+            visitors.add(createRowVisitor(project, changes, historyEntryID));
+        }
+        
+        IntStream partitions = IntStream.range(0, partitionCount);
+        try {
+            (partitionCount > 1 ? partitions.parallel() : partitions).forEach(p -> {
+                RowVisitor visitor = visitors.get(p);
+                int to = Math.min(rowIndices.length, (p + 1) * partitionSize);
+                try {
+                    visitor.start(project);
+                    for (int i = p * partitionSize; i < to; i++) {
+                        visitor.visit(project, rowIndices[i], project.rows.get(rowIndices[i]));
+                    }
+                } finally {
+                    visitor.end(project);
+                }
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        
+        for (List<CellChange> changes : partitionChanges) {
+            cellChanges.addAll(changes);
+        }
+    }
+    
+    static protected int[] getRowIndices(Project project, FilteredRows filteredRows) {
+        RowIndexCollector collector = new RowIndexCollector();
+        filteredRows.accept(project, collector);
+        return Arrays.copyOf(collector.rowIndices, collector.count);
+    }
+    
+    static protected class RowIndexCollector implements RowVisitor {
+        int[] rowIndices = new int[1024];
+        int count = 0;
+        
+        @Override
+        public void start(Project project) {
+            // nothing to do
+        }
+
+        @Override
+        public void end(Project project) {
+            // nothing to do
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, Row row) {
+            if (count == rowIndices.length) {
+                rowIndices = Arrays.copyOf(rowIndices, count * 2);
+            }
+            rowIndices[count++] = rowIndex;
+            return false;
+        }
+    }
+    
+    /**
+     * Operations whose visitor changes each row regardless of the rows visited
+     * before it, and can be used on any thread, return true so that their rows
+     * are visited in parallel, one visitor per partition of the rows. Those
+     * visitors must not stop the visit early. Operations carrying anything from
+     * one row to the next, such as fill down, must keep the default.
+     */
+    protected boolean isRowIndependent() {
+        return false;
+    }
+    
+    protected Change createChange(Project project, Column column, List<CellChange> cellChanges) {
+        return new MassCellChange(
+            cellChanges, column.getName(), _updateRowContextDependencies);
+    }
+    
+    @JsonProperty("columnName")
+    protected String getColumnName() {
+        return _columnName;
+    }
+    
+    abstract protected RowVisitor createRowVisitor(Project project, List<CellChange> cellChanges, long historyEntryID) throws Exception;
+    abstract protected String createDescription(Column column, List<CellChange> cellChanges);
+}
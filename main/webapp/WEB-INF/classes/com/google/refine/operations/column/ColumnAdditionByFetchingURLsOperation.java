@@ -0,0 +1,705 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.operations.column;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.refine.RefineServlet;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.expr.EvalError;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.expr.MetaParser;
+import com.google.refine.expr.WrappedCell;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellAtRow;
+import com.google.refine.model.changes.ColumnAdditionChange;
+import com.google.refine.operations.EngineDependentOperation;
+import com.google.refine.operations.OnError;
+import com.google.refine.process.LongRunningProcess;
+import com.google.refine.process.Process;
+import com.google.refine.util.HostRateLimiter;
+import com.google.refine.util.HttpResponseCache;
+import com.google.refine.util.ParsingUtilities;
+
+
+public class ColumnAdditionByFetchingURLsOperation extends EngineDependentOperation {
+    // Timeouts of a request, to connect and between two packets of the response
+    final static int CONNECT_TIMEOUT_MS = 30000;
+    final static int SOCKET_TIMEOUT_MS = 60000;
+    
+    // Time waited before scheduling again when no request is in flight
+    final static long IDLE_WAIT_MS = 100;
+    
+    public static final class HttpHeader  {
+        @JsonProperty("name")
+        final public String name;
+        @JsonProperty("value")
+        final public String value;
+        
+        @JsonCreator
+        public HttpHeader(
+                @JsonProperty("name")
+                String name,
+                @JsonProperty("value")
+                String value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+    
+    final protected String     _baseColumnName;
+    final protected String     _urlExpression;
+    final protected OnError    _onError;
+
+    final protected String     _newColumnName;
+    final protected int        _columnInsertIndex;
+    final protected int        _delay;
+    final protected boolean    _cacheResponses;
+    final protected List<HttpHeader>  _httpHeadersJson;
+    final protected Integer    _concurrency;
+    final protected Integer    _maxRequestsPerHost;
+
+    public ColumnAdditionByFetchingURLsOperation(
+        EngineConfig   engineConfig,
+        String         baseColumnName,
+        String         urlExpression,
+        OnError        onError,
+        String         newColumnName,
+        int            columnInsertIndex,
+        int            delay,
+        boolean        cacheResponses,
+        List<HttpHeader>      httpHeadersJson
+    ) {
+        this(engineConfig, baseColumnName, urlExpression, onError, newColumnName, columnInsertIndex,
+                delay, cacheResponses, httpHeadersJson, null, null);
+    }
+
+    @JsonCreator
+    public ColumnAdditionByFetchingURLsOperation(
+        @JsonProperty("engineConfig")
+        EngineConfig   engineConfig,
+        @JsonProperty("baseColumnName")
+        String         baseColumnName,
+        @JsonProperty("urlExpression")
+        String         urlExpression,
+        @JsonProperty("onError")
+        OnError        onError,
+        @JsonProperty("newColumnName")
+        String         newColumnName,
+        @JsonProperty("columnInsertIndex")
+        int            columnInsertIndex,
+        @JsonProperty("delay")
+        int            delay,
+        @JsonProperty("cacheResponses")
+        boolean        cacheResponses,
+        @JsonProperty("httpHeadersJson")
+        List<HttpHeader>      httpHeadersJson,
+        @JsonProperty("concurrency")
+        Integer        concurrency,
+        @JsonProperty("maxRequestsPerHost")
+        Integer        maxRequestsPerHost
+    ) {
+        super(engineConfig);
+
+        _baseColumnName = baseColumnName;
+        _urlExpression = urlExpression;
+        _onError = onError;
+
+        _newColumnName = newColumnName;
+        _columnInsertIndex = columnInsertIndex;
+
+        _delay = delay;
+        _cacheResponses = cacheResponses;
+        _httpHeadersJson = httpHeadersJson;
+        _concurrency = concurrency;
+        _maxRequestsPerHost = maxRequestsPerHost;
+    }
+    
+    @JsonProperty("newColumnName")
+    public String getNewColumnName() {
+        return _newColumnName;
+    }
+    
+    @JsonProperty("columnInsertIndex")
+    public int getColumnInsertIndex() {
+        return _columnInsertIndex;
+    }
+    
+    @JsonProperty("baseColumnName")
+    public String getBaseColumnName() {
+        return _baseColumnName;
+    }
+    
+    @JsonProperty("urlExpression")
+    public String getUrlExpression() {
+        return _urlExpression;
+    }
+    
+    @JsonProperty("onError")
+    public OnError getOnError() {
+        return _onError;
+    }
+    
+    @JsonProperty("delay")
+    public int getDelay() {
+        return _delay;
+    }
+    
+    @JsonProperty("httpHeadersJson")
+    public List<HttpHeader> getHttpHeadersJson() {
+        return _httpHeadersJson;
+    }
+    
+    @JsonProperty("cacheResponses")
+    public boolean getCacheResponses() {
+        return _cacheResponses;
+    }
+    
+    /**
+     * Maximum number of URLs fetched at the same time, 1 if null.
+     */
+    @JsonProperty("concurrency")
+    @JsonInclude(Include.NON_NULL)
+    public Integer getConcurrency() {
+        return _concurrency;
+    }
+    
+    /**
+     * Maximum number of URLs of a single host fetched at the same time, 1 if null.
+     * Each request to a host is followed by the delay before its slot is reused.
+     */
+    @JsonProperty("maxRequestsPerHost")
+    @JsonInclude(Include.NON_NULL)
+    public Integer getMaxRequestsPerHost() {
+        return _maxRequestsPerHost;
+    }
+
+    @Override
+    protected String getBriefDescription(Project project) {
+        return "Create column " + _newColumnName +
+            " at index " + _columnInsertIndex +
+            " by fetching URLs based on column " + _baseColumnName +
+            " using expression " + _urlExpression;
+    }
+
+    protected String createDescription(Column column, List<CellAtRow> cellsAtRows) {
+        return "Create new column " + _newColumnName +
+            ", filling " + cellsAtRows.size() +
+            " rows by fetching URLs based on column " + column.getName() +
+            " and formulated as " + _urlExpression;
+    }
+
+
+    @Override
+    public Process createProcess(Project project, Properties options) throws Exception {
+        Engine engine = createEngine(project);
+        engine.initializeFromConfig(_engineConfig);
+
+        Evaluable eval = MetaParser.parse(_urlExpression);
+
+        return new ColumnAdditionByFetchingURLsProcess(
+            project,
+            engine,
+            eval,
+            getBriefDescription(null),
+            _cacheResponses
+        );
+    }
+
+    public class ColumnAdditionByFetchingURLsProcess extends LongRunningProcess implements Runnable {
+        final protected Project       _project;
+        final protected Engine        _engine;
+        final protected Evaluable     _eval;
+        final protected long          _historyEntryID;
+        protected int                 _cellIndex;
+        protected LoadingCache<String, Serializable> _urlCache;
+        protected CloseableHttpClient _httpClient;
+        protected HttpResponseCache   _responseCache;
+        protected Map<String, String> _cacheKeyHeaders;
+
+        public ColumnAdditionByFetchingURLsProcess(
+            Project project,
+            Engine engine,
+            Evaluable eval,
+            String description,
+            boolean cacheResponses
+        ) {
+            super(description);
+            _project = project;
+            _engine = engine;
+            _eval = eval;
+            _historyEntryID = HistoryEntry.allocateID();
+            _urlCache = null;
+            _responseCache = null;
+            if (cacheResponses) {
+                _responseCache = HttpResponseCache.getInstance();
+                _cacheKeyHeaders = new TreeMap<String, String>();
+                if (_httpHeadersJson != null) {
+                    for (HttpHeader header : _httpHeadersJson) {
+                        if (header.value != null && !header.value.isEmpty()) {
+                            _cacheKeyHeaders.put(header.name.toLowerCase(), header.value);
+                        }
+                    }
+                }
+                _urlCache = CacheBuilder.newBuilder()
+                .maximumSize(2048)
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .build(
+                     new CacheLoader<String, Serializable>() {
+                        public Serializable load(String urlString) throws Exception {
+                            Serializable result = fetch(urlString);
+                            if (result == null) {
+                                // the load method should not return any null value
+                                throw new Exception("null result returned by fetch");
+                            }
+                            if (result instanceof String) {
+                                // errors are not kept, so that they are retried next time
+                                _responseCache.put(HttpResponseCache.makeKey(urlString, _cacheKeyHeaders), (String) result);
+                            }
+                            return result;
+                        }
+                        });
+            }
+        }
+        
+        @Override
+        protected Runnable getRunnable() {
+            return this;
+        }
+
+        @Override
+        public void run() {
+            Column column = _project.columnModel.getColumnByName(_baseColumnName);
+            if (column == null) {
+                _project.processManager.onFailedProcess(this, new Exception("No column named " + _baseColumnName));
+                return;
+            }
+            if (_project.columnModel.getColumnByName(_newColumnName) != null) {
+                _project.processManager.onFailedProcess(this, new Exception("Another column already named " + _newColumnName));
+                return;
+            }
+
+            List<CellAtRow> urls = new ArrayList<CellAtRow>(_project.rows.size());
+
+            FilteredRows filteredRows = _engine.getAllFilteredRows();
+            filteredRows.accept(_project, createRowVisitor(urls));
+
+            int concurrency = _concurrency == null ? 1 : Math.max(1, _concurrency);
+            int maxRequestsPerHost = _maxRequestsPerHost == null ? 1 : Math.max(1, _maxRequestsPerHost);
+            
+            // URLs are queued per host so that a host waiting for its delay does not hold back the others
+            String[] hosts = new String[urls.size()];
+            Map<String, Deque<Integer>> urlsByHost = new LinkedHashMap<String, Deque<Integer>>();
+            for (int i = 0; i < urls.size(); i++) {
+                hosts[i] = getHost(urls.get(i).cell.value.toString());
+                Deque<Integer> queue = urlsByHost.get(hosts[i]);
+                if (queue == null) {
+                    queue = new ArrayDeque<Integer>();
+                    urlsByHost.put(hosts[i], queue);
+                }
+                queue.add(i);
+            }
+            
+            final Serializable[] responses = new Serializable[urls.size()];
+            HostRateLimiter rateLimiter = new HostRateLimiter(_delay, maxRequestsPerHost);
+            ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+            CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(executor);
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(concurrency);
+            connectionManager.setDefaultMaxPerRoute(concurrency);
+            _httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(CONNECT_TIMEOUT_MS)
+                            .setSocketTimeout(SOCKET_TIMEOUT_MS)
+                            .build())
+                    .setUserAgent(RefineServlet.getUserAgent())
+                    .build();
+            
+            try {
+                int inFlight = 0;
+                int done = 0;
+                while (!_canceled && done < urls.size()) {
+                    long now = System.currentTimeMillis();
+                    long wait = -1;
+                    Iterator<Map.Entry<String, Deque<Integer>>> i = urlsByHost.entrySet().iterator();
+                    while (inFlight < concurrency && i.hasNext()) {
+                        Map.Entry<String, Deque<Integer>> entry = i.next();
+                        Deque<Integer> queue = entry.getValue();
+                        
+                        // cached responses do not count against the rate limit
+                        Serializable cached;
+                        while (!queue.isEmpty() && (cached = getCachedResponse(urls.get(queue.peekFirst()))) != null) {
+                            responses[queue.pollFirst()] = cached;
+                            done++;
+                        }
+                        if (queue.isEmpty()) {
+                            i.remove();
+                            continue;
+                        }
+                        
+                        long hostWait = rateLimiter.tryAcquire(entry.getKey(), now);
+                        if (hostWait == 0) {
+                            final int index = queue.pollFirst();
+                            final String urlString = urls.get(index).cell.value.toString();
+                            completionService.submit(new Callable<Integer>() {
+                                @Override
+                                public Integer call() {
+                                    responses[index] = _urlCache != null ? cachedFetch(urlString) : fetch(urlString);
+                                    return index;
+                                }
+                            });
+                            inFlight++;
+                            if (queue.isEmpty()) {
+                                i.remove();
+                            }
+                        } else if (hostWait > 0) {
+                            wait = wait < 0 ? hostWait : Math.min(wait, hostWait);
+                        }
+                    }
+                    
+                    if (inFlight == 0 && urlsByHost.isEmpty()) {
+                        // the remaining responses were all cached
+                        continue;
+                    }
+                    if (inFlight == 0 && wait < 0) {
+                        // nothing to wait for, which the rate limiter should not allow: do not spin
+                        wait = IDLE_WAIT_MS;
+                    }
+                    try {
+                        Future<Integer> future = inFlight == concurrency || wait < 0 ?
+                                completionService.take() :
+                                completionService.poll(wait, TimeUnit.MILLISECONDS);
+                        if (future != null) {
+                            int index = future.get();
+                            rateLimiter.release(hosts[index], System.currentTimeMillis());
+                            inFlight--;
+                            done++;
+                        }
+                    } catch (InterruptedException e) {
+                        if (_canceled) {
+                            break;
+                        }
+                    } catch (ExecutionException e) {
+                        // fetch() does not throw
+                        throw new IllegalStateException(e.getCause());
+                    }
+                    
+                    _progress = done * 100 / urls.size();
+                }
+            } finally {
+                executor.shutdownNow();
+                try {
+                    _httpClient.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+            
+            // the new column is filled in row order, whatever order the responses came in
+            List<CellAtRow> responseBodies = new ArrayList<CellAtRow>(urls.size());
+            for (int i = 0; i < urls.size(); i++) {
+                if (responses[i] != null) {
+                    responseBodies.add(new CellAtRow(urls.get(i).row, new Cell(responses[i], null)));
+                }
+            }
+
+            if (!_canceled) {
+                HistoryEntry historyEntry = new HistoryEntry(
+                    _historyEntryID,
+                    _project,
+                    _description,
+                    ColumnAdditionByFetchingURLsOperation.this,
+                    new ColumnAdditionChange(
+                        _newColumnName,
+                        _columnInsertIndex,
+                        responseBodies)
+                );
+
+                _project.history.addEntry(historyEntry);
+                _project.processManager.onDoneProcess(this);
+            }
+        }
+
+        Serializable cachedFetch(String urlString) {
+            try {
+                return  _urlCache.get(urlString);
+            } catch(Exception e) {
+                return null;
+            }
+        }
+
+        /**
+         * Looks a URL up in the responses of this process, then in the
+         * responses kept in the workspace by earlier fetches.
+         */
+        Serializable getCachedResponse(CellAtRow urlData) {
+            if (_urlCache == null) {
+                return null;
+            }
+            String urlString = urlData.cell.value.toString();
+            Serializable response = _urlCache.getIfPresent(urlString);
+            if (response == null) {
+                String body = _responseCache.get(HttpResponseCache.makeKey(urlString, _cacheKeyHeaders));
+                if (body != null) {
+                    _urlCache.put(urlString, body);
+                    response = body;
+                }
+            }
+            return response;
+        }
+
+        String getHost(String urlString) {
+            try {
+                String host = new URL(urlString).getHost();
+                return host == null ? "" : host.toLowerCase();
+            } catch (MalformedURLException e) {
+                return "";
+            }
+        }
+
+        Serializable fetch(String urlString) {
+            URL url = null;
+            try {
+                url = new URL(urlString);
+            } catch (MalformedURLException e) {
+                return null;
+            }
+
+            if (_httpClient != null && ("http".equals(url.getProtocol()) || "https".equals(url.getProtocol()))) {
+                return fetchHttp(urlString);
+            }
+
+            try {
+                URLConnection urlConnection = url.openConnection();
+                urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+                if (_httpHeadersJson != null) {
+                    for (int i = 0; i < _httpHeadersJson.size(); i++) {
+                        String headerLabel = _httpHeadersJson.get(i).name;
+                        String headerValue = _httpHeadersJson.get(i).value;
+                        if (headerValue != null && !headerValue.isEmpty()) {
+                            urlConnection.setRequestProperty(headerLabel, headerValue);
+                        }
+                    }
+                }
+
+
+                try {
+                    InputStream is = urlConnection.getInputStream();
+                    try {
+                        String encoding = urlConnection.getContentEncoding();
+                        if (encoding == null) {
+                            String contentType = urlConnection.getContentType();
+                            if (contentType != null) {
+                                final String charsetEqual = "charset=";
+                                int c = contentType.lastIndexOf(charsetEqual);
+                                if (c > 0) {
+                                    encoding = contentType.substring(c + charsetEqual.length());
+                                }
+                            }
+                        }
+                        return ParsingUtilities.inputStreamToString(
+                                                is, (encoding == null) || ( encoding.equalsIgnoreCase("\"UTF-8\"")) ? "UTF-8" : encoding);
+
+                    } finally {
+                        is.close();
+                    }
+                } catch (IOException e) {
+                    String message;
+                    if (urlConnection instanceof HttpURLConnection) {
+                        int status = ((HttpURLConnection)urlConnection).getResponseCode();
+                        String errorString = "";
+                        InputStream errorStream = ((HttpURLConnection)urlConnection).getErrorStream();
+                        if (errorStream != null) {
+                            errorString = ParsingUtilities.inputStreamToString(errorStream);
+                        }
+                        message = String.format("HTTP error %d : %s | %s",status,
+                                ((HttpURLConnection)urlConnection).getResponseMessage(),
+                                errorString);
+                    } else {
+                        message = e.toString();
+                    }
+                    return _onError == OnError.StoreError ?
+                            new EvalError(message) : null;
+                }
+            } catch (Exception e) {
+                return _onError == OnError.StoreError ?
+                        new EvalError(e.getMessage()) : null;
+            }
+        }
+
+        /**
+         * Fetches a URL through the pooled client of the process, which keeps
+         * connections to each host alive between requests.
+         */
+        Serializable fetchHttp(String urlString) {
+            try {
+                HttpGet httpGet = new HttpGet(urlString);
+                if (_httpHeadersJson != null) {
+                    for (int i = 0; i < _httpHeadersJson.size(); i++) {
+                        String headerLabel = _httpHeadersJson.get(i).name;
+                        String headerValue = _httpHeadersJson.get(i).value;
+                        if (headerValue != null && !headerValue.isEmpty()) {
+                            httpGet.setHeader(headerLabel, headerValue);
+                        }
+                    }
+                }
+
+                CloseableHttpResponse response = _httpClient.execute(httpGet);
+                try {
+                    StatusLine statusLine = response.getStatusLine();
+                    HttpEntity entity = response.getEntity();
+                    String body = entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+                    if (statusLine.getStatusCode() >= 400) {
+                        String message = String.format("HTTP error %d : %s | %s",
+                                statusLine.getStatusCode(),
+                                statusLine.getReasonPhrase(),
+                                body);
+                        return _onError == OnError.StoreError ? new EvalError(message) : null;
+                    }
+                    return body;
+                } finally {
+                    response.close();
+                }
+            } catch (Exception e) {
+                return _onError == OnError.StoreError ?
+                        new EvalError(e.getMessage()) : null;
+            }
+        }
+
+        RowVisitor createRowVisitor(List<CellAtRow> cellsAtRows) {
+            return new RowVisitor() {
+                int              cellIndex;
+                Properties       bindings;
+                List<CellAtRow>  cellsAtRows;
+
+                public RowVisitor init(List<CellAtRow> cellsAtRows) {
+                    Column column = _project.columnModel.getColumnByName(_baseColumnName);
+
+                    this.cellIndex = column.getCellIndex();
+                    this.bindings = ExpressionUtils.createBindings(_project);
+                    this.cellsAtRows = cellsAtRows;
+                    return this;
+                }
+
+                @Override
+                public void start(Project project) {
+                    // nothing to do
+                }
+
+                @Override
+                public void end(Project project) {
+                    // nothing to do
+                }
+
+                @Override
+                public boolean visit(Project project, int rowIndex, Row row) {
+                    Cell cell = row.getCell(cellIndex);
+                    Cell newCell = null;
+
+                    ExpressionUtils.bind(bindings, row, rowIndex, _baseColumnName, cell);
+
+                    Object o = _eval.evaluate(bindings);
+                    if (o != null) {
+                        if (o instanceof Cell) {
+                            newCell = (Cell) o;
+                        } else if (o instanceof WrappedCell) {
+                            newCell = ((WrappedCell) o).cell;
+                        } else {
+                            Serializable v = ExpressionUtils.wrapStorable(o);
+                            if (ExpressionUtils.isNonBlankData(v)) {
+                                newCell = new Cell(v.toString(), null);
+                            }
+                        }
+                    }
+
+                    if (newCell != null) {
+                        cellsAtRows.add(new CellAtRow(rowIndex, newCell));
+                    }
+
+                    return false;
+                }
+            }.init(cellsAtRows);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.operations.recon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.model.ReconCandidate;
+import com.google.refine.model.ReconType;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellAtRow;
+import com.google.refine.model.changes.DataExtensionChange;
+import com.google.refine.model.recon.ReconciledDataExtensionJob;
+import com.google.refine.model.recon.ReconciledDataExtensionJob.ColumnInfo;
+import com.google.refine.model.recon.ReconciledDataExtensionJob.DataExtension;
+import com.google.refine.model.recon.ReconciledDataExtensionJob.DataExtensionConfig;
+import com.google.refine.operations.EngineDependentOperation;
+import com.google.refine.process.LongRunningProcess;
+import com.google.refine.process.Process;
+
+public class ExtendDataOperation extends EngineDependentOperation {
+    @JsonProperty("baseColumnName")
+    final protected String              _baseColumnName;
+    @JsonProperty("endpoint")
+    final protected String              _endpoint;
+    @JsonProperty("identifierSpace")
+    final protected String              _identifierSpace;
+    @JsonProperty("schemaSpace")
+    final protected String              _schemaSpace;
+    @JsonProperty("extension")
+    final protected DataExtensionConfig _extension;
+    @JsonProperty("columnInsertIndex")
+    final protected int                 _columnInsertIndex;
+
+    
+    @JsonCreator
+    public ExtendDataOperation(
+        @JsonProperty("engineConfig")
+        EngineConfig        engineConfig,
+        @JsonProperty("baseColumnName")
+        String              baseColumnName,
+        @JsonProperty("endpoint")
+        String              endpoint,
+        @JsonProperty("identifierSpace")
+        String              identifierSpace,
+        @JsonProperty("schemaSpace")
+        String              schemaSpace,
+        @JsonProperty("extension")
+        DataExtensionConfig extension,
+        @JsonProperty("columnInsertIndex")
+        int                 columnInsertIndex 
+    ) {
+        super(engineConfig);
+        
+        _baseColumnName = baseColumnName;
+        _endpoint = endpoint;
+        _identifierSpace = identifierSpace;
+        _schemaSpace = schemaSpace;
+        _extension = extension;
+        _columnInsertIndex = columnInsertIndex;
+    }
+
+    @Override
+    protected String getBriefDescription(Project project) {
+        return "Extend data at index " + _columnInsertIndex + 
+            " based on column " + _baseColumnName;
+    }
+
+    protected String createDescription(Column column, List<CellAtRow> cellsAtRows) {
+        return "Extend data at index " + _columnInsertIndex + 
+            " based on column " + column.getName() + 
+            " by filling " + cellsAtRows.size();
+    }
+    
+    @Override
+    public Process createProcess(Project project, Properties options) throws Exception {
+        return new ExtendDataProcess(
+            project, 
+            getEngineConfig(),
+            getBriefDescription(null)
+        );
+    }
+    
+    public class ExtendDataProcess extends LongRunningProcess implements Runnable {
+        final protected Project     _project;
+        final protected EngineConfig  _engineConfig;
+        final protected long        _historyEntryID;
+        protected int               _cellIndex;
+        protected ReconciledDataExtensionJob _job;
+
+        public ExtendDataProcess(
+            Project project, 
+            EngineConfig engineConfig, 
+            String description
+        ) {
+            super(description);
+            _project = project;
+            _engineConfig = engineConfig;
+            _historyEntryID = HistoryEntry.allocateID();
+            
+            _job = new ReconciledDataExtensionJob(_extension, _endpoint);
+        }
+        
+        @Override
+        protected Runnable getRunnable() {
+            return this;
+        }
+        
+        protected void populateRowsWithMatches(List<Integer> rowIndices) throws Exception {
+            Engine engine = new Engine(_project);
+            engine.initializeFromConfig(_engineConfig);
+            
+            Column column = _project.columnModel.getColumnByName(_baseColumnName);
+            if (column == null) {
+                throw new Exception("No column named " + _baseColumnName);
+            }
+            
+            _cellIndex = column.getCellIndex();
+            
+            FilteredRows filteredRows = engine.getAllFilteredRows();
+            filteredRows.accept(_project, new RowVisitor() {
+                List<Integer> _rowIndices;
+                
+                public RowVisitor init(List<Integer> rowIndices) {
+                    _rowIndices = rowIndices;
+                    return this;
+                }
+
+                @Override
+                public void start(Project project) {
+                    // nothing to do
+                }
+
+                @Override
+                public void end(Project project) {
+                    // nothing to do
+                }
+                
+                @Override
+                public boolean visit(Project project, int rowIndex, Row row) {
+                    Cell cell = row.getCell(_cellIndex);
+                    if (cell != null && cell.recon != null && cell.recon.match != null) {
+                        _rowIndices.add(rowIndex);
+                    }
+                    
+                    return false;
+                }
+            }.init(rowIndices));
+        }
+        
+        /**
+         * Fetches the records of the given entities, in batches sent to the
+         * service concurrently. Entities whose records are cached are not sent.
+         */
+        protected Map<String, ObjectNode> fetchRecords(Set<String> ids) {
+            Map<String, ObjectNode> records = _job.getCachedRecords(ids);
+            
+            List<Set<String>> batches = new ArrayList<Set<String>>();
+            Set<String> batch = new HashSet<String>();
+            for (String id : ids) {
+                if (records.containsKey(id)) {
+                    continue;
+                }
+                batch.add(id);
+                if (batch.size() == ReconciledDataExtensionJob.BATCH_SIZE) {
+                    batches.add(batch);
+                    batch = new HashSet<String>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.add(batch);
+            }
+            if (batches.isEmpty()) {
+                return records;
+            }
+            
+            int threads = Math.min(_job.getMaxConcurrentBatches(), batches.size());
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CompletionService<Map<String, ObjectNode>> completionService =
+                    new ExecutorCompletionService<Map<String, ObjectNode>>(executor);
+            try {
+                // batches are queued up front so that the next one is sent as soon as a thread is free
+                for (final Set<String> batchIds : batches) {
+                    completionService.submit(new Callable<Map<String, ObjectNode>>() {
+                        @Override
+                        public Map<String, ObjectNode> call() {
+                            try {
+                                return _job.fetchRecords(batchIds);
+                            } catch (Exception e) {
+                                return new HashMap<String, ObjectNode>();
+                            }
+                        }
+                    });
+                }
+                
+                int cached = records.size();
+                for (int i = 0; i < batches.size() && !_canceled; i++) {
+                    try {
+                        records.putAll(completionService.take().get());
+                    } catch (InterruptedException e) {
+                        if (_canceled) {
+                            break;
+                        }
+                    } catch (ExecutionException e) {
+                        // the tasks catch their exceptions
+                        throw new IllegalStateException(e.getCause());
+                    }
+                    _progress = (cached + (i + 1) * (ids.size() - cached) / batches.size()) * 100 / ids.size();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            return records;
+        }
+        
+        @Override
+        public void run() {
+            List<Integer> rowIndices = new ArrayList<Integer>();
+            List<DataExtension> dataExtensions = new ArrayList<DataExtension>();
+            
+            try {
+                populateRowsWithMatches(rowIndices);
+            } catch (Exception e2) {
+                // TODO : Not sure what to do here?
+                e2.printStackTrace();
+            }
+            
+            // each entity is only fetched once, however many rows it is matched in
+            Set<String> ids = new LinkedHashSet<String>();
+            for (int index : rowIndices) {
+                ids.add(_project.rows.get(index).getCell(_cellIndex).recon.match.id);
+            }
+            
+            Map<String, ObjectNode> records;
+            try {
+                records = fetchRecords(ids);
+            } finally {
+                _job.close();
+            }
+            Map<String, ReconCandidate> reconCandidateMap = new HashMap<String, ReconCandidate>();
+            Map<String, DataExtension> map = _job.collectResults(records, reconCandidateMap);
+            
+            for (int index : rowIndices) {
+                String guid = _project.rows.get(index).getCell(_cellIndex).recon.match.id;
+                dataExtensions.add(map.get(guid));
+            }
+            
+            if (!_canceled) {
+                List<String> columnNames = new ArrayList<String>();
+                for (ColumnInfo info : _job.columns) {
+                    columnNames.add(info.name);
+                }
+                
+                List<ReconType> columnTypes = new ArrayList<ReconType>();
+                for (ColumnInfo info : _job.columns) {
+                    columnTypes.add(info.expectedType);
+                }
+                
+                HistoryEntry historyEntry = new HistoryEntry(
+                    _historyEntryID,
+                    _project, 
+                    _description, 
+                    ExtendDataOperation.this, 
+                    new DataExtensionChange(
+                        _baseColumnName,
+                        _endpoint,
+                        _identifierSpace,
+                        _schemaSpace,
+                        _columnInsertIndex,
+                        columnNames,
+                        columnTypes,
+                        rowIndices,
+                        dataExtensions,
+                        _historyEntryID)
+                );
+                
+                _project.history.addEntry(historyEntry);
+                _project.processManager.onDoneProcess(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,511 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.operations.recon;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.history.Change;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.model.Recon;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.model.changes.ReconChange;
+import com.google.refine.model.recon.ReconCache;
+import com.google.refine.model.recon.ReconConfig;
+import com.google.refine.model.recon.ReconJob;
+import com.google.refine.model.recon.StandardReconConfig;
+import com.google.refine.operations.EngineDependentOperation;
+import com.google.refine.process.LongRunningProcess;
+import com.google.refine.process.Process;
+import com.google.refine.util.ParsingUtilities;
+
+public class ReconOperation extends EngineDependentOperation {
+    final static Logger logger = LoggerFactory.getLogger("recon-operation");
+    
+    /**
+     * Number of times a job is sent at most before it is given a blank recon.
+     */
+    final static int MAX_TRIALS = 3;
+    
+    /**
+     * Time before a failed job is sent again, doubled after each failure.
+     */
+    final static long RETRY_DELAY_MS = 500;
+    
+    final protected String      _columnName;
+    final protected ReconConfig _reconConfig;
+    
+    @JsonCreator
+    public ReconOperation(
+        @JsonProperty("engineConfig")
+        EngineConfig engineConfig, 
+        @JsonProperty("columnName")
+        String columnName, 
+        @JsonProperty("config")
+        ReconConfig reconConfig
+    ) {
+        super(engineConfig);
+        _columnName = columnName;
+        _reconConfig = reconConfig;
+    }
+
+    @Override
+    public Process createProcess(Project project, Properties options) throws Exception {
+        return new ReconProcess(
+            project, 
+            getEngineConfig(),
+            getBriefDescription(null)
+        );
+    }
+    
+    @Override
+    protected String getBriefDescription(Project project) {
+        return _reconConfig.getBriefDescription(project, _columnName);
+    }
+    
+    @JsonProperty("config")
+    public ReconConfig getReconConfig() {
+        return _reconConfig;
+    }
+    
+    @JsonProperty("columnName")
+    public String getColumnName() {
+        return _columnName;
+    }
+
+    static protected class ReconEntry {
+        final public int rowIndex;
+        final public Cell cell;
+        
+        public ReconEntry(int rowIndex, Cell cell) {
+            this.rowIndex = rowIndex;
+            this.cell = cell;
+        }
+    }
+    static protected class JobGroup {
+        final public ReconJob job;
+        final public List<ReconEntry> entries = new ArrayList<ReconEntry>();
+        public int trials = 0;
+        public long retryAt = 0;
+        
+        public JobGroup(ReconJob job) {
+            this.job = job;
+        }
+    }
+    
+    /**
+     * Adapts the number of jobs sent in each batch to the latency of the service:
+     * batches grow while they are answered quickly and shrink when they are slow
+     * or fail.
+     */
+    static protected class BatchSizer {
+        static final protected long FAST_BATCH_MILLIS = 1000;
+        static final protected long SLOW_BATCH_MILLIS = 5000;
+        
+        final protected int _maxBatchSize;
+        protected int _batchSize;
+        
+        public BatchSizer(int initialBatchSize, int maxBatchSize) {
+            _batchSize = Math.max(1, initialBatchSize);
+            _maxBatchSize = Math.max(_batchSize, maxBatchSize);
+        }
+        
+        synchronized public int getBatchSize() {
+            return _batchSize;
+        }
+        
+        synchronized public void record(int batchSize, long millis, boolean failed) {
+            if (failed || millis > SLOW_BATCH_MILLIS) {
+                _batchSize = Math.max(1, _batchSize / 2);
+            } else if (millis < FAST_BATCH_MILLIS && batchSize >= _batchSize) {
+                _batchSize = Math.min(_maxBatchSize, _batchSize + Math.max(1, _batchSize / 2));
+            }
+        }
+    }
+    
+    public class ReconProcess extends LongRunningProcess implements Runnable {
+        final protected Project      _project;
+        final protected EngineConfig _engineConfig;
+        final protected long         _historyEntryID;
+        protected List<ReconEntry>   _entries;
+        protected int                _cellIndex;
+        
+        protected final String _addJudgmentFacetJson =
+                "{\n" + 
+                "  \"action\" : \"createFacet\",\n" + 
+                "  \"facetConfig\" : {\n" + 
+                "  \"columnName\" : \"" + _columnName + "\",\n" + 
+                "  \"expression\" : \"forNonBlank(cell.recon.judgment, v, v, if(isNonBlank(value), \\\"(unreconciled)\\\", \\\"(blank)\\\"))\",\n" + 
+                "    \"name\" : \"" + _columnName + ": judgment\"\n" + 
+                "    },\n" + 
+                "    \"facetOptions\" : {\n" + 
+                "      \"scroll\" : false\n" + 
+                "    },\n" + 
+                "    \"facetType\" : \"list\"\n" + 
+                " }";
+        protected final String _addScoreFacetJson = 
+                "{\n" + 
+                "  \"action\" : \"createFacet\",\n" + 
+                "  \"facetConfig\" : {\n" + 
+                "    \"columnName\" : \"" + _columnName + "\",\n" + 
+                "    \"expression\" : \"cell.recon.best.score\",\n" + 
+                "    \"mode\" : \"range\",\n" + 
+                "    \"name\" : \"" + _columnName + ": best candidate's score\"\n" + 
+                "         },\n" + 
+                "         \"facetType\" : \"range\"\n" + 
+                "}";
+        protected JsonNode _addJudgmentFacet, _addScoreFacet;
+        @JsonProperty("cacheHits")
+        @JsonInclude(Include.NON_DEFAULT)
+        protected int _cacheHits;
+        
+        public ReconProcess(
+            Project project, 
+            EngineConfig engineConfig, 
+            String description
+        ) {
+            super(description);
+            _project = project;
+            _engineConfig = engineConfig;
+            _historyEntryID = HistoryEntry.allocateID();
+            try {               
+                _addJudgmentFacet = ParsingUtilities.mapper.readValue(_addJudgmentFacetJson, JsonNode.class);
+                _addScoreFacet = ParsingUtilities.mapper.readValue(_addScoreFacetJson, JsonNode.class);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        
+        @JsonProperty("onDone")
+        public List<JsonNode> onDoneActions() {
+            List<JsonNode> onDone = new ArrayList<>();
+            onDone.add(_addJudgmentFacet);
+            if (_reconConfig instanceof StandardReconConfig) {
+                onDone.add(_addScoreFacet);
+            }
+            return onDone;
+        }
+        
+        @Override
+        protected Runnable getRunnable() {
+            return this;
+        }
+        
+        protected void populateEntries() throws Exception {
+            Engine engine = new Engine(_project);
+            engine.initializeFromConfig(_engineConfig);
+            
+            Column column = _project.columnModel.getColumnByName(_columnName);
+            if (column == null) {
+                throw new Exception("No column named " + _columnName);
+            }
+            
+            _entries = new ArrayList<ReconEntry>(_project.rows.size());
+            _cellIndex = column.getCellIndex();
+            
+            FilteredRows filteredRows = engine.getAllFilteredRows();
+            filteredRows.accept(_project, new RowVisitor() {
+                @Override
+                public void start(Project project) {
+                    // nothing to do
+                }
+
+                @Override
+                public void end(Project project) {
+                    // nothing to do
+                }
+                
+                @Override
+                public boolean visit(Project project, int rowIndex, Row row) {
+                    if (_cellIndex < row.cells.size()) {
+                        Cell cell = row.cells.get(_cellIndex);
+                        if (cell != null && ExpressionUtils.isNonBlankData(cell.value)) {
+                            _entries.add(new ReconEntry(rowIndex, cell));
+                        }
+                    }
+                    return false;
+                }
+            });
+        }
+        
+        /**
+         * One call to the reconciliation service, run on a worker thread.
+         */
+        protected class Batch implements Callable<Batch> {
+            final protected List<Integer> indices;
+            final protected List<ReconJob> jobs;
+            protected List<Recon> recons;
+            protected long millis;
+            
+            protected Batch(List<Integer> indices, List<JobGroup> groups) {
+                this.indices = indices;
+                this.jobs = new ArrayList<ReconJob>(indices.size());
+                for (int index : indices) {
+                    jobs.add(groups.get(index).job);
+                }
+            }
+            
+            @Override
+            public Batch call() {
+                long start = System.currentTimeMillis();
+                try {
+                    recons = _reconConfig.batchRecon(jobs, _historyEntryID);
+                } catch (RuntimeException e) {
+                    logger.error("Reconciliation batch failed", e);
+                    recons = Collections.emptyList();
+                }
+                millis = System.currentTimeMillis() - start;
+                return this;
+            }
+            
+            protected Recon getRecon(int j) {
+                return recons != null && j < recons.size() ? recons.get(j) : null;
+            }
+            
+            protected boolean failed() {
+                for (int j = 0; j < jobs.size(); j++) {
+                    if (getRecon(j) != null) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        
+        @Override
+        public void run() {
+            try {
+                populateEntries();
+            } catch (Exception e2) {
+                // TODO : Not sure what to do here?
+                e2.printStackTrace();
+            }
+            
+            Map<String, Integer> jobKeyToGroup = new HashMap<String, Integer>();
+            List<JobGroup> groups = new ArrayList<JobGroup>();
+            int[] entryGroups = new int[_entries.size()];
+            
+            for (int e = 0; e < _entries.size(); e++) {
+                ReconEntry entry = _entries.get(e);
+                ReconJob job = _reconConfig.createJob(
+                    _project, 
+                    entry.rowIndex, 
+                    _project.rows.get(entry.rowIndex), 
+                    _columnName, 
+                    entry.cell
+                );
+                
+                String key = job.getStringKey();
+                Integer groupIndex = jobKeyToGroup.get(key);
+                if (groupIndex == null) {
+                    groupIndex = groups.size();
+                    groups.add(new JobGroup(job));
+                    jobKeyToGroup.put(key, groupIndex);
+                }
+                groups.get(groupIndex).entries.add(entry);
+                entryGroups[e] = groupIndex;
+            }
+            
+            Recon[] recons = new Recon[groups.size()];
+            Deque<Integer> pending = new ArrayDeque<Integer>(groups.size());
+            // failed jobs, by the time they can be sent again
+            PriorityQueue<Integer> delayed = new PriorityQueue<Integer>(
+                    (a, b) -> Long.compare(groups.get(a).retryAt, groups.get(b).retryAt));
+            int done = 0;
+            for (int i = 0; i < groups.size(); i++) {
+                // values already reconciled against the same service are not sent again
+                Recon recon = _reconConfig.getCachedRecon(groups.get(i).job, _historyEntryID);
+                if (recon != null) {
+                    recon.judgmentBatchSize = groups.get(i).entries.size();
+                    recons[i] = recon;
+                    done++;
+                } else {
+                    pending.add(i);
+                }
+            }
+            _cacheHits = done;
+            if (!groups.isEmpty()) {
+                _progress = done * 100 / groups.size();
+            }
+            
+            int concurrency = Math.max(1, _reconConfig.getMaxConcurrentBatches());
+            BatchSizer batchSizer = new BatchSizer(_reconConfig.getBatchSize(), _reconConfig.getMaxBatchSize());
+            ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+            CompletionService<Batch> completionService = new ExecutorCompletionService<Batch>(executor);
+            int inFlight = 0;
+            
+            try {
+                while (!_canceled && (inFlight > 0 || !pending.isEmpty() || !delayed.isEmpty())) {
+                    long now = System.currentTimeMillis();
+                    while (!delayed.isEmpty() && groups.get(delayed.peek()).retryAt <= now) {
+                        pending.add(delayed.poll());
+                    }
+                    while (inFlight < concurrency && !pending.isEmpty()) {
+                        int batchSize = batchSizer.getBatchSize();
+                        List<Integer> indices = new ArrayList<Integer>(batchSize);
+                        while (indices.size() < batchSize && !pending.isEmpty()) {
+                            indices.add(pending.poll());
+                        }
+                        completionService.submit(new Batch(indices, groups));
+                        inFlight++;
+                    }
+                    
+                    Batch batch;
+                    try {
+                        long wait = delayed.isEmpty() ? -1 : Math.max(0, groups.get(delayed.peek()).retryAt - now);
+                        if (inFlight == 0) {
+                            // only failed jobs are left, waiting to be sent again
+                            Thread.sleep(wait);
+                            continue;
+                        }
+                        Future<Batch> future = wait < 0 ?
+                                completionService.take() :
+                                completionService.poll(wait, TimeUnit.MILLISECONDS);
+                        if (future == null) {
+                            continue;
+                        }
+                        batch = future.get();
+                    } catch (InterruptedException e) {
+                        if (_canceled) {
+                            break;
+                        }
+                        continue;
+                    } catch (ExecutionException e) {
+                        // Batch.call() does not throw
+                        throw new IllegalStateException(e.getCause());
+                    }
+                    inFlight--;
+                    batchSizer.record(batch.indices.size(), batch.millis, batch.failed());
+                    
+                    for (int j = 0; j < batch.indices.size(); j++) {
+                        int groupIndex = batch.indices.get(j);
+                        JobGroup group = groups.get(groupIndex);
+                        List<ReconEntry> entries = group.entries;
+                        Recon recon = batch.getRecon(j);
+                        
+                        if (recon == null) {
+                            group.trials++;
+                            if (group.trials < MAX_TRIALS) {
+                                logger.warn("Re-trying job including cell containing: " + entries.get(0).cell.value);
+                                // try again with a later batch, once the service had time to recover
+                                group.retryAt = System.currentTimeMillis() + (RETRY_DELAY_MS << (group.trials - 1));
+                                delayed.add(groupIndex);
+                                continue;
+                            }
+                            logger.warn("Failed after " + MAX_TRIALS + " trials for job including cell containing: " + entries.get(0).cell.value);
+                            recon = _reconConfig.createNewRecon(_historyEntryID);
+                        }
+                        recon.judgmentBatchSize = entries.size();
+                        recons[groupIndex] = recon;
+                        done++;
+                    }
+                    
+                    _progress = done * 100 / groups.size();
+                }
+            } finally {
+                executor.shutdownNow();
+                ReconCache.getInstance().save();
+            }
+            
+            // assemble the changes in row order, whatever order the batches completed in
+            List<CellChange> cellChanges = new ArrayList<CellChange>(_entries.size());
+            for (int e = 0; e < _entries.size() && !_canceled; e++) {
+                ReconEntry entry = _entries.get(e);
+                Cell oldCell = entry.cell;
+                Cell newCell = new Cell(oldCell.value, recons[entryGroups[e]]);
+                
+                CellChange cellChange = new CellChange(
+                    entry.rowIndex, 
+                    _cellIndex, 
+                    oldCell, 
+                    newCell
+                );
+                cellChanges.add(cellChange);
+            }
+            
+            if (!_canceled) {
+                Change reconChange = new ReconChange(
+                    cellChanges, 
+                    _columnName, 
+                    _reconConfig,
+                    null
+                );
+                
+                HistoryEntry historyEntry = new HistoryEntry(
+                    _historyEntryID,
+                    _project, 
+                    _description, 
+                    ReconOperation.this, 
+                    reconChange
+                );
+                
+                _project.history.addEntry(historyEntry);
+                _project.processManager.onDoneProcess(this);
+            }
+        }
+    }
+}
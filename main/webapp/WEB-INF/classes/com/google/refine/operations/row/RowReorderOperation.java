@@ -0,0 +1,155 @@
+/*
+
+Copyright 2010, Google Inc.
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above
+copyright notice, this list of conditions and the following disclaimer
+in the documentation and/or other materials provided with the
+distribution.
+    * Neither the name of Google Inc. nor the names of its
+contributors may be used to endorse or promote products derived from
+this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,           
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY           
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package com.google.refine.operations.row;
+
+ import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.RecordVisitor;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.AbstractOperation;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.RowReorderChange;
+import com.google.refine.sorting.IndexSorter;
+import com.google.refine.sorting.SortingConfig;
+
+public class RowReorderOperation extends AbstractOperation {
+    final protected Mode _mode;
+    final protected SortingConfig _sorting;
+
+    @JsonCreator
+    public RowReorderOperation(
+            @JsonProperty("mode")
+            Mode mode,
+            @JsonProperty("sorting")
+            SortingConfig sorting) {
+        _mode = mode;
+        _sorting = sorting;
+    }
+    
+    @JsonProperty("mode")
+    public Mode getMode() {
+        return _mode;
+    }
+    
+    @JsonProperty("sorting")
+    public SortingConfig getSortingConfig() {
+        return _sorting;
+    }
+
+    @Override
+    protected String getBriefDescription(Project project) {
+        return "Reorder rows";
+    }
+
+    @Override
+    protected HistoryEntry createHistoryEntry(Project project, long historyEntryID) throws Exception {
+        Engine engine = new Engine(project);
+        engine.setMode(_mode);
+
+        List<Integer> rowIndices = new ArrayList<Integer>();
+        IndexSorter sorter = _sorting != null ? new IndexSorter(project, _sorting) : null;
+        if (sorter != null && sorter.hasCriteria()) {
+            if (_mode == Mode.RowBased) {
+                for (int rowIndex : sorter.sortRows(range(project.rows.size()))) {
+                    rowIndices.add(rowIndex);
+                }
+            } else {
+                for (int recordIndex : sorter.sortRecords(range(project.recordModel.getRecordCount()))) {
+                    Record record = project.recordModel.getRecord(recordIndex);
+                    for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
+                        rowIndices.add(r);
+                    }
+                }
+            }
+        } else if (_mode == Mode.RowBased) {
+            engine.getAllRows().accept(project, new IndexingVisitor(rowIndices));
+        } else {
+            engine.getAllRecords().accept(project, new IndexingVisitor(rowIndices));
+        }
+
+        return new HistoryEntry(
+                historyEntryID,
+                project, 
+                "Reorder rows", 
+                this, 
+                new RowReorderChange(rowIndices)
+        );
+    }
+
+    static protected int[] range(int size) {
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    static protected class IndexingVisitor implements RowVisitor, RecordVisitor {
+        List<Integer> _indices;
+
+        IndexingVisitor(List<Integer> indices) {
+            _indices = indices;
+        }
+
+        @Override
+        public void start(Project project) {
+        }
+
+        @Override
+        public void end(Project project) {
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, Row row) {
+            _indices.add(rowIndex);
+            return false;
+        }
+
+        @Override
+        public boolean visit(Project project, Record record) {
+            for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
+                _indices.add(r);
+            }
+            return false;
+        }
+    }
+}
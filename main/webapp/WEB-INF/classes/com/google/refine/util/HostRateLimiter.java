@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits the requests made to each host with a token bucket per host.
+ * A request takes a token when it starts, and the token is given back
+ * a fixed delay after the request completes. With a single token per host,
+ * consecutive requests to a host are therefore separated by the delay,
+ * however long each of them took.
+ */
+public class HostRateLimiter {
+
+    final protected long _delayMillis;
+    final protected int _tokensPerHost;
+    final protected Map<String, Bucket> _buckets = new HashMap<>();
+
+    static protected class Bucket {
+        protected int available;
+        // times at which tokens cooling down become available again, in increasing order
+        final protected Deque<Long> refills = new ArrayDeque<>();
+
+        protected Bucket(int tokens) {
+            available = tokens;
+        }
+    }
+
+    /**
+     * @param delayMillis time between the end of a request and the moment its token can be reused
+     * @param tokensPerHost number of requests which can be in flight for a single host
+     */
+    public HostRateLimiter(long delayMillis, int tokensPerHost) {
+        _delayMillis = Math.max(0, delayMillis);
+        _tokensPerHost = Math.max(1, tokensPerHost);
+    }
+
+    /**
+     * Tries to take a token for a request to the given host.
+     *
+     * @return 0 if a token was taken, the number of milliseconds until
+     *      one becomes available, or -1 if all tokens are in use by
+     *      requests which have not completed yet
+     */
+    synchronized public long tryAcquire(String host, long now) {
+        Bucket bucket = _buckets.get(host);
+        if (bucket == null) {
+            bucket = new Bucket(_tokensPerHost);
+            _buckets.put(host, bucket);
+        }
+        while (!bucket.refills.isEmpty() && bucket.refills.peekFirst() <= now) {
+            bucket.refills.pollFirst();
+            bucket.available++;
+        }
+        if (bucket.available > 0) {
+            bucket.available--;
+            return 0;
+        }
+        return bucket.refills.isEmpty() ? -1 : bucket.refills.peekFirst() - now;
+    }
+
+    /**
+     * Gives back the token of a completed request.
+     */
+    synchronized public void release(String host, long now) {
+        Bucket bucket = _buckets.get(host);
+        if (bucket == null) {
+            return;
+        }
+        if (_delayMillis == 0) {
+            bucket.available++;
+        } else {
+            bucket.refills.addLast(now + _delayMillis);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (C) 2018, OpenRefine contributors
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.google.refine.util;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Project;
+
+/**
+ * Keeps values computed from the rows of projects, shared by all projects.
+ * 
+ * Entries are keyed by the state of the project they were computed from, so
+ * that they are not found any more once the project changes and expire after
+ * an hour without being used. Values may be only softly referenced, so that
+ * the cache never keeps memory which is needed elsewhere.
+ */
+public class ProjectStateCache<V> {
+
+    final protected Cache<String, V> _entries;
+
+    public ProjectStateCache(int maxEntries, boolean softValues) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(1, TimeUnit.HOURS);
+        if (softValues) {
+            builder = builder.softValues();
+        }
+        _entries = builder.build();
+    }
+
+    /**
+     * @param parts configurations the value depends on, written as JSON
+     * @return a key made of the project, the current point of its history, its
+     *      number of rows, as projects being imported change without any history
+     *      entry, and the given parts
+     */
+    static public String makeKey(Project project, Object... parts) throws JsonProcessingException {
+        List<HistoryEntry> entries = project.history.getLastPastEntries(1);
+        long entryId = entries.isEmpty() ? 0 : entries.get(0).id;
+        StringBuffer sb = new StringBuffer();
+        sb.append(project.id).append('\n').append(entryId).append('\n').append(project.rows.size());
+        for (Object part : parts) {
+            sb.append('\n').append(ParsingUtilities.defaultWriter.writeValueAsString(part));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a cached value, computing it if it is missing. Concurrent
+     * lookups of the same key wait for a single computation, and get the
+     * exception it failed with if it did.
+     */
+    public V get(String key, Callable<? extends V> loader) {
+        try {
+            return _entries.get(key, loader);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the cached value, or null
+     */
+    public V getIfPresent(String key) {
+        return _entries.getIfPresent(key);
+    }
+
+    public void put(String key, V value) {
+        _entries.put(key, value);
+    }
+
+    public void clear() {
+        _entries.invalidateAll();
+    }
+}
@@ -131,6 +131,7 @@ function registerCommands() {
   RS.registerCommand(module, "extend-data", new Packages.com.google.refine.commands.recon.ExtendDataCommand());
 
   RS.registerCommand(module, "guess-types-of-column", new Packages.com.google.refine.commands.recon.GuessTypesOfColumnCommand());
+  RS.registerCommand(module, "invalidate-recon-cache", new Packages.com.google.refine.commands.recon.InvalidateReconCacheCommand());
 
   RS.registerCommand(module, "annotate-one-row", new Packages.com.google.refine.commands.row.AnnotateOneRowCommand());
   RS.registerCommand(module, "annotate-rows", new Packages.com.google.refine.commands.row.AnnotateRowsCommand());
@@ -143,6 +144,7 @@ function registerCommands() {
   RS.registerCommand(module, "toggle-starred-expression", new Packages.com.google.refine.commands.expr.ToggleStarredExpressionCommand());
   RS.registerCommand(module, "log-expression", new Packages.com.google.refine.commands.expr.LogExpressionCommand());
   RS.registerCommand(module, "preview-expression", new Packages.com.google.refine.commands.expr.PreviewExpressionCommand());
+  RS.registerCommand(module, "get-pattern-cache-stats", new Packages.com.google.refine.commands.expr.GetPatternCacheStatsCommand());
 
   RS.registerCommand(module, "get-preference", new Packages.com.google.refine.commands.GetPreferenceCommand());
   RS.registerCommand(module, "get-all-preferences", new Packages.com.google.refine.commands.GetAllPreferencesCommand());
@@ -244,6 +246,8 @@ function registerImporting() {
   
   IM.registerExtension(".json", "text/json");
   IM.registerExtension(".js", "text/json");
+  IM.registerExtension(".jsonl", "text/json");
+  IM.registerExtension(".ndjson", "text/json");
 
   IM.registerExtension(".xls", "binary/text/xml/xls/xlsx");
   IM.registerExtension(".xlsx", "binary/text/xml/xls/xlsx");
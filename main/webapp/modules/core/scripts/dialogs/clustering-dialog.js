@@ -286,27 +286,69 @@ ClusteringDialog.prototype._cluster = function() {
     var self = this;
 
     var container = this._elmts.tableContainer.html(
-        '<div style="margin: 1em; font-size: 130%; color: #888;">'+$.i18n('core-dialogs/clustering')+'<img src="images/small-spinner.gif"></div>'
+        '<div style="margin: 1em; font-size: 130%; color: #888;">'+$.i18n('core-dialogs/clustering')+'<img src="images/small-spinner.gif"> <span></span></div>'
     );
+    var progress = container.find("span");
 
     this._elmts.resultSummary.empty();
 
-    $.post(
-        "command/core/compute-clusters?" + $.param({ project: theProject.id }),
-        {
-            engine: JSON.stringify(ui.browsingEngine.getJSON()),
-            clusterer: JSON.stringify({
-                'type' : this._method,
-                'function' : this._function,
-                'column' : this._columnName,
-                'params' : this._params
-            })
-        },
-        function(data) {
-            self._updateData(data);
-        },
-        "json"
-    );
+    var params = {
+        engine: JSON.stringify(ui.browsingEngine.getJSON()),
+        clusterer: JSON.stringify({
+            'type' : this._method,
+            'function' : this._function,
+            'column' : this._columnName,
+            'params' : this._params
+        })
+    };
+    var previous = this._clusteringParams;
+    if (previous && previous.engine === params.engine && previous.clusterer === params.clusterer) {
+        // the server is already computing these clusters
+        window.clearTimeout(this._clusteringTimer);
+    } else {
+        this._cancelClustering();
+    }
+    this._clusteringParams = params;
+
+    var poll = function() {
+        $.post(
+            "command/core/compute-clusters?" + $.param({ project: theProject.id }),
+            params,
+            function(data) {
+                if (self._clusteringParams !== params) {
+                    // clustering was canceled or restarted with other parameters
+                    return;
+                }
+                if (data.code === "pending") {
+                    progress.text($.i18n('core-dialogs/clustering-progress', data.progress));
+                    self._clusteringTimer = window.setTimeout(poll, 500);
+                    return;
+                }
+                self._clusteringParams = null;
+                if (data.code === "error") {
+                    container.html('<div style="margin: 1em; color: #888;"></div>').children().text(data.message);
+                } else {
+                    self._updateData(data);
+                }
+            },
+            "json"
+        );
+    };
+    poll();
+};
+
+/**
+ * Stops computing the clusters requested last, if they are still being computed.
+ */
+ClusteringDialog.prototype._cancelClustering = function() {
+    if (this._clusteringParams) {
+        window.clearTimeout(this._clusteringTimer);
+        $.post(
+            "command/core/compute-clusters?" + $.param({ project: theProject.id }),
+            $.extend({ cancel: true }, this._clusteringParams)
+        );
+        this._clusteringParams = null;
+    }
 };
 
 ClusteringDialog.prototype._updateData = function(data) {
@@ -432,6 +474,7 @@ ClusteringDialog.prototype._export = function() {
 };
 
 ClusteringDialog.prototype._dismiss = function() {
+    this._cancelClustering();
     DialogSystem.dismissUntil(this._level - 1);
 };
 
@@ -70,7 +70,8 @@ Refine.JsonParserUI.prototype.getOptions = function() {
     this._setRecordPath(this._config.defaultRecordPath);
   }
   var options = {
-    recordPath: this._config.recordPath
+    recordPath: this._config.recordPath,
+    jsonLines: this._config.jsonLines === true
   };
 
   var parseIntDefault = function(s, def) {
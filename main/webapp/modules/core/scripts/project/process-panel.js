@@ -154,7 +154,9 @@ ProcessPanel.prototype._render = function(newData) {
       if (process.status != "pending") {
         // TODO: We should be using formatting, not string concatenation here
         Refine.setTitle(process.progress + "% "+$.i18n('core-project/complete'));
-        this._elmts.progressDescription.text(process.description);
+        this._elmts.progressDescription.text(process.cacheHits ?
+            process.description + " (" + $.i18n('core-project/cache-hits', process.cacheHits) + ")" :
+            process.description);
         this._elmts.progressSpan.text(process.progress  + '% '+$.i18n('core-project/complete'));
       }
       if ("onDone" in process) {